@@ -0,0 +1,94 @@
+package com.microservicios.api_gateway.codec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de decodificar/codificar un access token en cada formato. {@link #decodeObjectInputStream()}
+ * es la línea base (JdkSerializationRedisSerializer). El tamaño en bytes de cada formato se
+ * imprime en el setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionValueCodecBenchmark {
+
+    private static final String TOKEN =
+            "ya29.a0AfB_byC3xq0Lb8Jm2Vx9Zk4Tn7Wq1Pe5Rs6Ud8Yf0Hg2Ji4Kl6Mn8Op0Qr2St4Uv6Wx8Yz0";
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+    private final SessionValueCodec dualRead = new MigratingSessionValueCodec(SessionValueFormat.JDK, true);
+
+    private byte[] jdkValue;
+    private byte[] compactValue;
+    private byte[] jsonValue;
+
+    @Setup
+    public void setUp() {
+        jdkValue = jdkSerializer.serialize(TOKEN);
+        compactValue = SessionValueFormat.COMPACT.codec().encode(TOKEN);
+        jsonValue = ("\"" + TOKEN + "\"").getBytes(StandardCharsets.UTF_8);
+        System.out.printf("%nbytes por valor: jdk=%d compact=%d json=%d%n",
+                jdkValue.length, compactValue.length, jsonValue.length);
+    }
+
+    @Benchmark
+    public Object decodeObjectInputStream() {
+        return jdkSerializer.deserialize(jdkValue);
+    }
+
+    @Benchmark
+    public String decodeJdkFastPath() {
+        return SessionValueFormat.JDK.codec().decode(jdkValue);
+    }
+
+    @Benchmark
+    public String decodeCompact() {
+        return SessionValueFormat.COMPACT.codec().decode(compactValue);
+    }
+
+    @Benchmark
+    public String decodeJson() {
+        return SessionValueFormat.JSON.codec().decode(jsonValue);
+    }
+
+    @Benchmark
+    public String decodeDualReadJdk() {
+        return dualRead.decode(jdkValue);
+    }
+
+    @Benchmark
+    public String decodeDualReadCompact() {
+        return dualRead.decode(compactValue);
+    }
+
+    @Benchmark
+    public byte[] encodeObjectOutputStream() {
+        return jdkSerializer.serialize(TOKEN);
+    }
+
+    @Benchmark
+    public byte[] encodeJdk() {
+        return SessionValueFormat.JDK.codec().encode(TOKEN);
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() {
+        return SessionValueFormat.COMPACT.codec().encode(TOKEN);
+    }
+}
@@ -0,0 +1,125 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics;
+import com.microservicios.api_gateway.repository.SessionCredentials;
+import com.microservicios.api_gateway.repository.SessionRepository;
+import com.microservicios.api_gateway.service.GoogleOAuth2TokenValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lambda completa de {@link CustomAuthGatewayFilterFactory} con un {@link SessionRepository} en memoria,
+ * de modo que se mide sólo el trabajo del gateway. {@link #newExchange()} es la línea base de crear
+ * el exchange mock, que está incluido en los demás benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthFilterBenchmark {
+
+    private static final String SESSION_ID = "3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b";
+
+    private final String encodedSessionId = Base64.getUrlEncoder()
+            .encodeToString(SESSION_ID.getBytes(StandardCharsets.UTF_8));
+    private final GatewayFilterChain chain = exchange -> Mono.empty();
+
+    private GatewayFilter filter;
+
+    @Setup
+    public void setUp() {
+        SessionCredentials credentials = new SessionCredentials(
+                "ya29.a0AfB_byC3xq0Lb8Jm2Vx9Zk4Tn7Wq1Pe5Rs6Ud8Yf0Hg2Ji4Kl6Mn8Op0Qr2St4Uv6Wx8Yz0", "1//0gRefreshToken");
+        CustomAuthGatewayFilterFactory factory = new CustomAuthGatewayFilterFactory(
+                new StubSessionRepository(credentials), new GoogleOAuth2TokenValidator(),
+                new AuthFilterMetrics(new SimpleMeterRegistry()));
+        filter = factory.apply(new CustomAuthGatewayFilterFactory.Config(List.of(
+                "/api/auth/google/callback", "/api/auth/logout", "/api/auth/debug", "/api/user/**",
+                "/project/**", "/georef/**", "/api/airtable/**", "/api/contentful/**")));
+    }
+
+    @Benchmark
+    public String decodeSessionId() {
+        return CustomAuthGatewayFilterFactory.decodeSessionId(encodedSessionId);
+    }
+
+    @Benchmark
+    public MockServerWebExchange newExchange() {
+        return exchange("/api/calendar/events", true);
+    }
+
+    @Benchmark
+    public MockServerWebExchange authenticatedRequest() {
+        MockServerWebExchange exchange = exchange("/api/calendar/events", true);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange excludedRequest() {
+        MockServerWebExchange exchange = exchange("/project/42/members", false);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange missingCookieRequest() {
+        MockServerWebExchange exchange = exchange("/api/calendar/events", false);
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private MockServerWebExchange exchange(String path, boolean withCookie) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path);
+        if (withCookie) {
+            request.cookie(new HttpCookie("JSESSIONID", encodedSessionId));
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static final class StubSessionRepository implements SessionRepository {
+
+        private final Mono<SessionCredentials> credentials;
+
+        private StubSessionRepository(SessionCredentials credentials) {
+            this.credentials = Mono.just(credentials);
+        }
+
+        @Override
+        public Mono<String> getAccessToken(String sessionId) {
+            return credentials.map(SessionCredentials::accessToken);
+        }
+
+        @Override
+        public Mono<String> getRefreshToken(String sessionId) {
+            return credentials.map(SessionCredentials::refreshToken);
+        }
+
+        @Override
+        public Mono<SessionCredentials> getCredentials(String sessionId) {
+            return credentials;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.repository.SessionCredentials;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.headers.RemoveHopByHopHeadersFilter;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cabeceras que llegan al destino en una petición autenticada con las cabeceras típicas de un navegador.
+ * <p>
+ * {@link #mutateRequest()} es el camino anterior: reconstruir la petición con {@code exchange.mutate()} y
+ * concatenar {@code Bearer} en cada llamada. {@link #headersFilter()} deja las credenciales en el exchange y
+ * las agrega con {@link SessionCredentialsHeadersFilter}. Ambos pasan por {@link RemoveHopByHopHeadersFilter},
+ * la copia que el routing filter hace siempre; {@link #routingCopy()} es esa línea base.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionHeadersBenchmark {
+
+    private final RemoveHopByHopHeadersFilter hopByHopFilter = new RemoveHopByHopHeadersFilter();
+    private final SessionCredentialsHeadersFilter sessionHeadersFilter = new SessionCredentialsHeadersFilter();
+
+    private SessionCredentials credentials;
+    private MockServerWebExchange exchange;
+
+    @Setup
+    public void setUp() {
+        credentials = new SessionCredentials(
+                "ya29.a0AfB_byC3xq0Lb8Jm2Vx9Zk4Tn7Wq1Pe5Rs6Ud8Yf0Hg2Ji4Kl6Mn8Op0Qr2St4Uv6Wx8Yz0", "1//0gRefreshToken");
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://gateway.example.com/api/calendar/events?month=10")
+                .header(HttpHeaders.HOST, "gateway.example.com")
+                .header(HttpHeaders.USER_AGENT, "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36")
+                .header(HttpHeaders.ACCEPT, "application/json, text/plain, */*")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "es-AR,es;q=0.9,en;q=0.8")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br")
+                .header(HttpHeaders.CONNECTION, "keep-alive")
+                .header(HttpHeaders.ORIGIN, "https://app.example.com")
+                .header(HttpHeaders.REFERER, "https://app.example.com/calendario")
+                .header("Sec-Fetch-Dest", "empty")
+                .header("Sec-Fetch-Mode", "cors")
+                .header("Sec-Fetch-Site", "same-site")
+                .header("Sec-Ch-Ua", "\"Chromium\";v=\"120\", \"Not?A_Brand\";v=\"24\"")
+                .header("Sec-Ch-Ua-Mobile", "?0")
+                .header("Sec-Ch-Ua-Platform", "\"Linux\"")
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .cookie(new HttpCookie("JSESSIONID", "M2YyYjdjMWUtOGE0ZC00ZTVmLTliNmEtMWMyZDNlNGY1YTZi"),
+                        new HttpCookie("_ga", "GA1.1.1234567890.1700000000")));
+    }
+
+    @Benchmark
+    public HttpHeaders routingCopy() {
+        return hopByHopFilter.filter(exchange.getRequest().getHeaders(), exchange);
+    }
+
+    @Benchmark
+    public HttpHeaders mutateRequest() {
+        ServerWebExchange mutated = exchange.mutate()
+                .request(builder -> {
+                    builder.header(AuthenticationConstants.HEADER_AUTHORIZATION,
+                            AuthenticationConstants.HEADER_BEARER_PREFIX + credentials.accessToken());
+                    builder.header(AuthenticationConstants.HEADER_REFRESH_TOKEN, credentials.refreshToken());
+                })
+                .build();
+        return hopByHopFilter.filter(mutated.getRequest().getHeaders(), mutated);
+    }
+
+    @Benchmark
+    public HttpHeaders headersFilter() {
+        SessionCredentialsHeadersFilter.attach(exchange, credentials, true);
+        HttpHeaders headers = hopByHopFilter.filter(exchange.getRequest().getHeaders(), exchange);
+        return sessionHeadersFilter.filter(headers, exchange);
+    }
+}
@@ -0,0 +1,36 @@
+package com.microservicios.api_gateway.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenValidatorBenchmark {
+
+    private final TokenValidator validator = new GoogleOAuth2TokenValidator();
+    private final String validToken = "ya29.a0AfB_byC3xq0Lb8Jm2Vx9Zk4Tn7Wq1Pe5Rs6Ud8Yf0Hg2Ji4Kl6Mn8Op0Qr2St4Uv6Wx8Yz0";
+    private final String invalidToken = "eyJhbGciOiJSUzI1NiIsImtpZCI6IjEifQ.payload.signature";
+
+    @Benchmark
+    public boolean isValidGoogleToken() {
+        return validator.isValid(validToken);
+    }
+
+    @Benchmark
+    public boolean isValidForeignToken() {
+        return validator.isValid(invalidToken);
+    }
+}
@@ -0,0 +1,41 @@
+package com.microservicios.api_gateway.util;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de construir una respuesta 401 (incluye crear la respuesta mock, ver {@link #newResponse()}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorResponseBenchmark {
+
+    @Benchmark
+    public MockServerHttpResponse newResponse() {
+        return new MockServerHttpResponse();
+    }
+
+    @Benchmark
+    public MockServerHttpResponse buildErrorResponse() {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        ErrorResponseBuilder.buildErrorResponse(response, HttpStatus.UNAUTHORIZED,
+                AuthenticationConstants.MSG_SESSION_NOT_IN_REDIS).block();
+        return response;
+    }
+}
@@ -0,0 +1,79 @@
+package com.microservicios.api_gateway.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el recorrido de la lista de exclusiones con {@link PathMatcher} contra el índice
+ * precompilado {@link PathPatternIndex}, con cientos de patrones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathMatchingBenchmark {
+
+    @Param({"10", "500"})
+    private int patternCount;
+
+    private List<String> patterns;
+    private PathPatternIndex index;
+
+    // Peor caso del bucle: la ruta autenticada no coincide con ningún patrón
+    private final String protectedPath = "/api/calendar/events/2024/10";
+    private String excludedPath;
+
+    @Setup
+    public void setUp() {
+        patterns = new ArrayList<>(patternCount);
+        for (int i = 0; i < patternCount; i++) {
+            patterns.add(i % 2 == 0 ? "/api/service-" + i + "/**" : "/api/service-" + i + "/public");
+        }
+        index = PathPatternIndex.compile(patterns);
+        excludedPath = "/api/service-" + (patternCount - 2) + "/resource";
+    }
+
+    @Benchmark
+    public boolean loopProtectedPath() {
+        return loopMatches(protectedPath);
+    }
+
+    @Benchmark
+    public boolean indexProtectedPath() {
+        return index.matches(protectedPath);
+    }
+
+    @Benchmark
+    public boolean loopExcludedPath() {
+        return loopMatches(excludedPath);
+    }
+
+    @Benchmark
+    public boolean indexExcludedPath() {
+        return index.matches(excludedPath);
+    }
+
+    private boolean loopMatches(String requestPath) {
+        for (String pattern : patterns) {
+            if (PathMatcher.matches(requestPath, pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
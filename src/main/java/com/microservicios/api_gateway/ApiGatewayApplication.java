@@ -1,9 +1,12 @@
 package com.microservicios.api_gateway;
 
+import com.microservicios.api_gateway.config.GatewayRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(GatewayRuntimeHints.class)
 public class ApiGatewayApplication {
 
 	public static void main(String[] args) {
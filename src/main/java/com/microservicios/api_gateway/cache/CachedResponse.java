@@ -0,0 +1,60 @@
+package com.microservicios.api_gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Respuesta 200 de un destino guardada en {@link ResponseCache}.
+ *
+ * @param headers  cabeceras del destino, de sólo lectura
+ * @param body     cuerpo en memoria fuera del heap; se entrega con {@link #content()}
+ * @param vary     valores de la petición original para las cabeceras listadas en {@code Vary}
+ * @param ttlNanos tiempo de vida de la entrada
+ */
+public record CachedResponse(HttpHeaders headers, ByteBuffer body, Map<String, String> vary, long ttlNanos) {
+
+    /**
+     * Vista de sólo lectura del cuerpo, independiente para cada petición.
+     */
+    public ByteBuffer content() {
+        return body.asReadOnlyBuffer();
+    }
+
+    /**
+     * Si la entrada sirve para una petición con estas cabeceras, según el {@code Vary} del destino.
+     */
+    public boolean matches(HttpHeaders requestHeaders) {
+        for (Map.Entry<String, String> entry : vary.entrySet()) {
+            if (!Objects.equals(entry.getValue(), joined(requestHeaders, entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bytes que ocupa la entrada, para el tope de la caché.
+     */
+    int weight() {
+        int weight = body.remaining();
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            weight += header.getKey().length();
+            for (String value : header.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Valores de una cabecera unidos con coma; {@code null} si no está.
+     */
+    public static String joined(HttpHeaders headers, String name) {
+        List<String> values = headers.get(name);
+        return values == null ? null : String.join(",", values);
+    }
+}
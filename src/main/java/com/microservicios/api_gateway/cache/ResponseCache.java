@@ -0,0 +1,151 @@
+package com.microservicios.api_gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché de respuestas de los destinos, acotada por bytes con la política W-TinyLFU de Caffeine.
+ * Cada entrada vive según el {@code max-age} del destino o el TTL de la ruta.
+ * <p>
+ * Las consultas concurrentes al destino por la misma clave se agrupan: la primera ({@link Load#leader()})
+ * consulta al destino y las demás esperan su resultado.
+ */
+public class ResponseCache {
+
+    public static final String CACHE_NAME = "responseCache";
+    public static final String SIZE_METRIC = "gateway.response.cache.bytes";
+    public static final String COALESCED_METRIC = "gateway.response.cache.coalesced";
+
+    private final Cache<String, CachedResponse> entries;
+    private final Map<String, Sinks.One<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public ResponseCache(long maxBytes, MeterRegistry meterRegistry) {
+        this(maxBytes, meterRegistry, Ticker.systemTicker());
+    }
+
+    ResponseCache(long maxBytes, MeterRegistry meterRegistry, Ticker ticker) {
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse response) -> response.weight())
+                .expireAfter(new TtlExpiry())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.coalesced = Counter.builder(COALESCED_METRIC)
+                .description("Peticiones que esperaron la consulta en curso de otra en lugar de ir al destino")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, CACHE_NAME);
+        Gauge.builder(SIZE_METRIC, this, ResponseCache::weightedSize)
+                .description("Bytes ocupados por las respuestas cacheadas")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public CachedResponse get(String key) {
+        return entries.getIfPresent(key);
+    }
+
+    /**
+     * Registra la consulta al destino para {@code key}, o se une a la que ya está en curso.
+     */
+    public Load begin(String key) {
+        Sinks.One<CachedResponse> sink = Sinks.one();
+        Sinks.One<CachedResponse> existing = inFlight.putIfAbsent(key, sink);
+        if (existing != null) {
+            coalesced.increment();
+            return new Load(key, existing, false);
+        }
+        return new Load(key, sink, true);
+    }
+
+    long weightedSize() {
+        return entries.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    long estimatedSize() {
+        entries.cleanUp();
+        return entries.estimatedSize();
+    }
+
+    /**
+     * Consulta al destino en curso para una clave.
+     */
+    public final class Load {
+
+        private final String key;
+        private final Sinks.One<CachedResponse> sink;
+        private final boolean leader;
+
+        private Load(String key, Sinks.One<CachedResponse> sink, boolean leader) {
+            this.key = key;
+            this.sink = sink;
+            this.leader = leader;
+        }
+
+        /**
+         * {@code true} si esta petición debe consultar al destino y luego llamar a {@link #complete}.
+         */
+        public boolean leader() {
+            return leader;
+        }
+
+        /**
+         * Respuesta que obtuvo la consulta en curso; vacío si no se pudo cachear.
+         */
+        public Mono<CachedResponse> result() {
+            return sink.asMono();
+        }
+
+        /**
+         * Cierra la consulta: guarda la respuesta (si no es {@code null}) y despierta a las que esperan.
+         * Sólo tiene efecto la primera llamada.
+         */
+        public void complete(CachedResponse response) {
+            if (!leader) {
+                return;
+            }
+            // Se guarda antes de quitar la consulta en curso, para que nadie vuelva a ir al destino
+            if (response != null) {
+                entries.put(key, response);
+            }
+            inFlight.remove(key, sink);
+            if (response != null) {
+                sink.tryEmitValue(response);
+            } else {
+                sink.tryEmitEmpty();
+            }
+        }
+    }
+
+    private static final class TtlExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+            return response.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse response, long currentTime, long currentDuration) {
+            return response.ttlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse response, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.microservicios.api_gateway.codec;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formato compacto: {@code F5 01} seguido del texto en UTF-8.
+ * <p>
+ * {@code 0xF5} nunca aparece en UTF-8 válido, así que la marca no se confunde con un valor de texto
+ * plano ni con JSON, y tampoco con la cabecera {@code AC ED} de la serialización de Java.
+ */
+public final class CompactStringCodec implements SessionValueCodec {
+
+    static final byte MAGIC = (byte) 0xF5;
+    static final byte VERSION = 0x01;
+    private static final int HEADER_LENGTH = 2;
+
+    @Override
+    public boolean canDecode(byte[] raw) {
+        return raw.length >= HEADER_LENGTH && raw[0] == MAGIC && raw[1] == VERSION;
+    }
+
+    @Override
+    public String decode(byte[] raw) {
+        if (!canDecode(raw)) {
+            throw new SerializationException("El valor no tiene el formato compacto");
+        }
+        return new String(raw, HEADER_LENGTH, raw.length - HEADER_LENGTH, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] encode(String value) {
+        byte[] text = value.getBytes(StandardCharsets.UTF_8);
+        byte[] raw = new byte[HEADER_LENGTH + text.length];
+        raw[0] = MAGIC;
+        raw[1] = VERSION;
+        System.arraycopy(text, 0, raw, HEADER_LENGTH, text.length);
+        return raw;
+    }
+}
@@ -0,0 +1,125 @@
+package com.microservicios.api_gateway.codec;
+
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strings con el formato de {@link JdkSerializationRedisSerializer}.
+ * <p>
+ * Un String serializado ocupa {@code AC ED 00 05 74 <u2 longitud> <UTF-8 modificado>}; ese layout se
+ * lee directamente, sin {@code ObjectInputStream}. Cualquier otro contenido (strings de más de 64 KiB,
+ * referencias, otros tipos) pasa por la deserialización completa.
+ */
+public final class JdkStringCodec implements SessionValueCodec {
+
+    static final int STREAM_HEADER_LENGTH = 4;
+    static final byte TC_STRING = 0x74;
+    static final byte TC_LONGSTRING = 0x7C;
+    private static final int SHORT_STRING_HEADER_LENGTH = STREAM_HEADER_LENGTH + 3;
+    // Peor caso de UTF-8 modificado: 3 bytes por char; por debajo de este largo siempre entra en un u2
+    private static final int MAX_SHORT_STRING_CHARS = 0xFFFF / 3;
+
+    private final JdkSerializationRedisSerializer fallback = new JdkSerializationRedisSerializer();
+
+    @Override
+    public boolean canDecode(byte[] raw) {
+        return raw.length > STREAM_HEADER_LENGTH
+                && raw[0] == (byte) 0xAC && raw[1] == (byte) 0xED
+                && raw[2] == 0x00 && raw[3] == 0x05
+                && (raw[4] == TC_STRING || raw[4] == TC_LONGSTRING);
+    }
+
+    @Override
+    public String decode(byte[] raw) {
+        if (raw.length >= SHORT_STRING_HEADER_LENGTH && raw[STREAM_HEADER_LENGTH] == TC_STRING) {
+            int length = ((raw[5] & 0xFF) << 8) | (raw[6] & 0xFF);
+            if (raw.length == SHORT_STRING_HEADER_LENGTH + length) {
+                String ascii = decodeAscii(raw, SHORT_STRING_HEADER_LENGTH, length);
+                return ascii != null ? ascii : readModifiedUtf8(raw);
+            }
+        }
+        return deserialize(raw);
+    }
+
+    @Override
+    public byte[] encode(String value) {
+        if (value.length() > MAX_SHORT_STRING_CHARS) {
+            return fallback.serialize(value);
+        }
+        int length = modifiedUtf8Length(value);
+        byte[] raw = new byte[SHORT_STRING_HEADER_LENGTH + length];
+        raw[0] = (byte) 0xAC;
+        raw[1] = (byte) 0xED;
+        raw[2] = 0x00;
+        raw[3] = 0x05;
+        raw[4] = TC_STRING;
+        raw[5] = (byte) (length >>> 8);
+        raw[6] = (byte) length;
+        int position = SHORT_STRING_HEADER_LENGTH;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                raw[position++] = (byte) c;
+            } else if (c <= 0x07FF) {
+                raw[position++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+                raw[position++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                raw[position++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                raw[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                raw[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return raw;
+    }
+
+    private static int modifiedUtf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length++;
+            } else if (c <= 0x07FF) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Los tokens son ASCII: en ese caso el UTF-8 modificado coincide byte a byte con ISO-8859-1.
+     */
+    private static String decodeAscii(byte[] raw, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (raw[i] <= 0) {
+                return null;
+            }
+        }
+        return new String(raw, offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String readModifiedUtf8(byte[] raw) {
+        // DataInput.readUTF usa exactamente el layout <u2 longitud> <UTF-8 modificado>
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+                raw, STREAM_HEADER_LENGTH + 1, raw.length - STREAM_HEADER_LENGTH - 1))) {
+            return input.readUTF();
+        } catch (IOException e) {
+            throw new SerializationException("String JDK mal formado", e);
+        }
+    }
+
+    private String deserialize(byte[] raw) {
+        Object value = fallback.deserialize(raw);
+        if (value instanceof String string) {
+            return string;
+        }
+        throw new SerializationException("El valor JDK no es un String: "
+                + (value == null ? "null" : value.getClass().getName()));
+    }
+}
@@ -0,0 +1,49 @@
+package com.microservicios.api_gateway.codec;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * String JSON entre comillas (el formato que {@link com.microservicios.api_gateway.util.JsonStringCleaner}
+ * limpiaba). Sólo se usa Jackson si el contenido tiene secuencias de escape.
+ */
+public final class JsonStringCodec implements SessionValueCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public boolean canDecode(byte[] raw) {
+        return raw.length >= 2 && raw[0] == '"' && raw[raw.length - 1] == '"';
+    }
+
+    @Override
+    public String decode(byte[] raw) {
+        if (!canDecode(raw)) {
+            throw new SerializationException("El valor no es un String JSON");
+        }
+        for (int i = 1; i < raw.length - 1; i++) {
+            if (raw[i] == '\\') {
+                try {
+                    return MAPPER.readValue(raw, String.class);
+                } catch (IOException e) {
+                    throw new SerializationException("String JSON mal formado", e);
+                }
+            }
+        }
+        return new String(raw, 1, raw.length - 2, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] encode(String value) {
+        byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(value);
+        byte[] raw = new byte[escaped.length + 2];
+        raw[0] = '"';
+        System.arraycopy(escaped, 0, raw, 1, escaped.length);
+        raw[raw.length - 1] = '"';
+        return raw;
+    }
+}
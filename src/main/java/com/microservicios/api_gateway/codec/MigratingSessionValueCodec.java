@@ -0,0 +1,68 @@
+package com.microservicios.api_gateway.codec;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Escribe en un único formato y, en modo de lectura dual, lee cualquiera de los formatos conocidos
+ * (detectados por sus primeros bytes) más texto UTF-8 plano. Permite que el gateway y ms-login
+ * cambien de formato en despliegues independientes:
+ * <ol>
+ *   <li>ambos con {@code dual-read=true} y el formato actual de escritura;</li>
+ *   <li>se cambia {@code write-format} en uno y luego en el otro;</li>
+ *   <li>cuando ya no quedan sesiones en el formato anterior, {@code dual-read=false}.</li>
+ * </ol>
+ */
+public class MigratingSessionValueCodec implements SessionValueCodec {
+
+    private final SessionValueCodec writeCodec;
+    private final SessionValueCodec[] readCodecs;
+    private final boolean dualRead;
+
+    public MigratingSessionValueCodec(SessionValueFormat writeFormat, boolean dualRead) {
+        this.writeCodec = writeFormat.codec();
+        this.dualRead = dualRead;
+        List<SessionValueCodec> readers = new ArrayList<>();
+        readers.add(writeCodec);
+        if (dualRead) {
+            for (SessionValueFormat format : SessionValueFormat.values()) {
+                if (format != writeFormat) {
+                    readers.add(format.codec());
+                }
+            }
+        }
+        this.readCodecs = readers.toArray(SessionValueCodec[]::new);
+    }
+
+    @Override
+    public boolean canDecode(byte[] raw) {
+        for (SessionValueCodec codec : readCodecs) {
+            if (codec.canDecode(raw)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String decode(byte[] raw) {
+        for (SessionValueCodec codec : readCodecs) {
+            if (codec.canDecode(raw)) {
+                return codec.decode(raw);
+            }
+        }
+        if (dualRead) {
+            // Valores escritos con StringRedisSerializer
+            return new String(raw, StandardCharsets.UTF_8);
+        }
+        throw new SerializationException("Formato de valor de sesión no reconocido");
+    }
+
+    @Override
+    public byte[] encode(String value) {
+        return writeCodec.encode(value);
+    }
+}
@@ -0,0 +1,20 @@
+package com.microservicios.api_gateway.codec;
+
+/**
+ * Codifica los valores de texto de los atributos de sesión guardados en el hash de Redis.
+ */
+public interface SessionValueCodec {
+
+    /**
+     * Indica si los bytes tienen el formato reconocible de este codec.
+     */
+    boolean canDecode(byte[] raw);
+
+    /**
+     * Decodifica un valor; lanza {@link org.springframework.data.redis.serializer.SerializationException}
+     * si los bytes no son un String válido en este formato.
+     */
+    String decode(byte[] raw);
+
+    byte[] encode(String value);
+}
@@ -0,0 +1,24 @@
+package com.microservicios.api_gateway.codec;
+
+/**
+ * Formatos de valor de sesión soportados.
+ */
+public enum SessionValueFormat {
+
+    /** Serialización de Java ({@code ObjectOutputStream}); la que usa hoy ms-login. */
+    JDK(new JdkStringCodec()),
+    /** Marca de dos bytes seguida del texto en UTF-8. */
+    COMPACT(new CompactStringCodec()),
+    /** String JSON entre comillas. */
+    JSON(new JsonStringCodec());
+
+    private final SessionValueCodec codec;
+
+    SessionValueFormat(SessionValueCodec codec) {
+        this.codec = codec;
+    }
+
+    public SessionValueCodec codec() {
+        return codec;
+    }
+}
@@ -0,0 +1,39 @@
+package com.microservicios.api_gateway.codec;
+
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Serializador de valores de sesión para Spring Session: los String pasan por el
+ * {@link SessionValueCodec}; el resto de los atributos (fechas, números) sigue usando
+ * la serialización de Java.
+ */
+public class SessionValueRedisSerializer implements RedisSerializer<Object> {
+
+    private final SessionValueCodec codec;
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    public SessionValueRedisSerializer(SessionValueCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value instanceof String string) {
+            return codec.encode(string);
+        }
+        return jdkSerializer.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (codec.canDecode(bytes)) {
+            return codec.decode(bytes);
+        }
+        return jdkSerializer.deserialize(bytes);
+    }
+}
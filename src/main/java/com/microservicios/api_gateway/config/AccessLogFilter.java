@@ -0,0 +1,95 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Outcome;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Stage;
+import com.microservicios.api_gateway.metrics.RequestTrace;
+import com.microservicios.api_gateway.util.SensitiveDataMasker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emite una única línea de access log por petición, muestreada, con la duración de cada etapa del
+ * filtro de autenticación y el resultado. Nunca incluye tokens y enmascara el ID de sesión.
+ * El logger {@code gateway.access} escribe a través de un AsyncAppender que no bloquea (logback-spring.xml).
+ */
+@Component
+@EnableConfigurationProperties(AccessLogProperties.class)
+public class AccessLogFilter implements GlobalFilter, Ordered {
+
+    static final String LOGGER_NAME = "gateway.access";
+
+    private static final Logger accessLog = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final AccessLogProperties properties;
+
+    public AccessLogFilter(AccessLogProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.enabled() || !accessLog.isInfoEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        RequestTrace trace = new RequestTrace(System.nanoTime());
+        exchange.getAttributes().put(RequestTrace.ATTRIBUTE, trace);
+        return chain.filter(exchange)
+                .doOnError(error -> trace.error(error.getClass().getSimpleName() + ": " + error.getMessage()))
+                .doFinally(signal -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    boolean failed = trace.error() != null || (status != null && status.is5xxServerError());
+                    if (sampled(failed ? properties.errorSampleRate() : properties.sampleRate())) {
+                        accessLog.info(format(exchange, trace, status));
+                    }
+                });
+    }
+
+    private static boolean sampled(double rate) {
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    static String format(ServerWebExchange exchange, RequestTrace trace, HttpStatusCode status) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        Outcome outcome = trace.outcome();
+
+        StringBuilder line = new StringBuilder(256)
+                .append("method=").append(exchange.getRequest().getMethod().name())
+                .append(" path=").append(exchange.getRequest().getURI().getRawPath())
+                .append(" route=").append(route != null ? route.getId() : "unknown")
+                .append(" status=").append(status != null ? status.value() : 0)
+                .append(" outcome=").append(outcome != null ? outcome.tag() : "none")
+                .append(" total_us=").append((System.nanoTime() - trace.startNanos()) / 1_000);
+        for (Stage stage : Stage.values()) {
+            long nanos = trace.stageNanos(stage);
+            if (nanos >= 0) {
+                line.append(' ').append(stage.tag()).append("_us=").append(nanos / 1_000);
+            }
+        }
+        if (trace.sessionId() != null) {
+            line.append(" session=").append(SensitiveDataMasker.mask(trace.sessionId()));
+        }
+        if (trace.error() != null) {
+            line.append(" error=\"").append(trace.error()).append('"');
+        }
+        return line.toString();
+    }
+
+    @Override
+    public int getOrder() {
+        // Envuelve a todos los demás filtros, incluido FallbackRoutes
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
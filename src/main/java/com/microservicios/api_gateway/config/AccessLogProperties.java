@@ -0,0 +1,18 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuración del access log ({@code gateway.access-log.*}).
+ *
+ * @param enabled         emite una línea por petición en el logger {@code gateway.access}
+ * @param sampleRate      fracción (0..1) de las peticiones que se registran
+ * @param errorSampleRate fracción (0..1) de las peticiones con error o 5xx que se registran
+ */
+@ConfigurationProperties(prefix = "gateway.access-log")
+public record AccessLogProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("0.01") double sampleRate,
+        @DefaultValue("1.0") double errorSampleRate) {
+}
@@ -0,0 +1,138 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.ratelimit.AdaptiveConcurrencyLimit;
+import com.microservicios.api_gateway.util.ErrorResponseBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limita las peticiones concurrentes hacia el destino de la ruta con un límite que se adapta a su latencia
+ * ({@link AdaptiveConcurrencyLimit}). Cuando el destino se degrada el límite baja y el exceso recibe 503 de
+ * inmediato, sin ocupar conexiones del pool ni llegar a {@link FallbackRoutes}.
+ * <p>
+ * El límite se aplica en {@link AfterAuthenticationFilter}, después de la autenticación. La latencia se mide
+ * desde ahí hasta las cabeceras de la respuesta del destino; el lugar se libera al terminar de transmitir el
+ * cuerpo, porque hasta entonces la conexión sigue ocupada.
+ */
+@Component
+public class AdaptiveConcurrencyGatewayFilterFactory extends AbstractGatewayFilterFactory<AdaptiveConcurrencyGatewayFilterFactory.Config> {
+
+    public static final String LIMIT_METRIC = "gateway.concurrency.limit";
+    public static final String IN_FLIGHT_METRIC = "gateway.concurrency.in_flight";
+    public static final String REJECTED_METRIC = "gateway.concurrency.rejected";
+
+    static final int DEFAULT_INITIAL_LIMIT = 20;
+    static final int DEFAULT_MIN_LIMIT = 4;
+    static final int DEFAULT_MAX_LIMIT = 200;
+    static final double DEFAULT_TOLERANCE = 1.5;
+    static final Duration DEFAULT_WINDOW = Duration.ofSeconds(1);
+    // Ventanas que promedia la latencia de referencia
+    private static final int LONG_WINDOW = 600;
+
+    private static final String UNKNOWN_ROUTE = "unknown";
+
+    // Un límite por ruta, que sobrevive a los refrescos de rutas para no perder lo aprendido ni las métricas
+    private final Map<String, RouteLimit> limits = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public AdaptiveConcurrencyGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        int initialLimit = config.initialLimit() != null ? config.initialLimit() : DEFAULT_INITIAL_LIMIT;
+        int minLimit = config.minLimit() != null ? config.minLimit() : DEFAULT_MIN_LIMIT;
+        int maxLimit = config.maxLimit() != null ? config.maxLimit() : DEFAULT_MAX_LIMIT;
+        double tolerance = config.tolerance() != null ? config.tolerance() : DEFAULT_TOLERANCE;
+        Duration window = config.window() != null ? config.window() : DEFAULT_WINDOW;
+        // Valida la configuración al cargar la ruta
+        new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, LONG_WINDOW, window);
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : UNKNOWN_ROUTE;
+            RouteLimit routeLimit = limits.computeIfAbsent(routeId, id -> register(id,
+                    new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, LONG_WINDOW, window)));
+            // Se limita después de CustomAuth: la latencia medida es la del destino, sin la lectura de la sesión
+            // ni la validación del token, y las peticiones rechazadas antes no ocupan lugar
+            AfterAuthenticationFilter.defer(exchange, (authenticated, next) -> limited(authenticated, next, routeLimit));
+            return chain.filter(exchange);
+        }, FallbackRoutes.ORDER - 1);
+    }
+
+    private static Mono<Void> limited(ServerWebExchange exchange, GatewayFilterChain chain, RouteLimit routeLimit) {
+        AdaptiveConcurrencyLimit limit = routeLimit.limit();
+        if (!limit.tryAcquire()) {
+            routeLimit.rejected().increment();
+            ServerHttpResponse response = exchange.getResponse();
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return ErrorResponseBuilder.buildErrorResponse(response, HttpStatus.SERVICE_UNAVAILABLE,
+                    AuthenticationConstants.MSG_SERVICE_OVERLOADED);
+        }
+        long start = System.nanoTime();
+        exchange.getResponse().beforeCommit(() -> {
+            // Sólo las respuestas del destino; las generadas por el gateway no dicen nada de su latencia
+            if (exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR) != null) {
+                limit.onSample(System.nanoTime() - start);
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange).doFinally(signal -> limit.release());
+    }
+
+    private RouteLimit register(String routeId, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder(LIMIT_METRIC, limit, AdaptiveConcurrencyLimit::limit)
+                .description("Límite actual de peticiones concurrentes hacia el destino")
+                .tag("route", routeId)
+                .strongReference(true)
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, limit, AdaptiveConcurrencyLimit::inFlight)
+                .description("Peticiones en curso hacia el destino")
+                .tag("route", routeId)
+                .strongReference(true)
+                .register(meterRegistry);
+        Counter rejected = Counter.builder(REJECTED_METRIC)
+                .description("Peticiones rechazadas con 503 por superar el límite de concurrencia")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        return new RouteLimit(limit, rejected);
+    }
+
+    AdaptiveConcurrencyLimit limit(String routeId) {
+        RouteLimit routeLimit = limits.get(routeId);
+        return routeLimit != null ? routeLimit.limit() : null;
+    }
+
+    /**
+     * @param initialLimit límite inicial de peticiones concurrentes
+     * @param minLimit     el límite nunca baja de este valor
+     * @param maxLimit     el límite nunca sube de este valor
+     * @param tolerance    cuánto puede crecer la latencia respecto de la media antes de bajar el límite
+     * @param window       duración mínima de cada ventana de ajuste; conviene que supere la latencia del destino
+     */
+    public record Config(Integer initialLimit, Integer minLimit, Integer maxLimit, Double tolerance, Duration window) {
+    }
+
+    private record RouteLimit(AdaptiveConcurrencyLimit limit, Counter rejected) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Corre las etapas que los filtros de ruta dejaron pendientes con {@link #defer}, una vez que
+ * {@link CustomAuthGatewayFilterFactory} autenticó la petición.
+ * <p>
+ * {@code ResponseCache} y {@code RequestCoalescing} deben envolver a {@code NettyWriteResponseFilter} (-1) para
+ * ver el cuerpo del destino, pero {@code CustomAuth}, como filtro por defecto sin orden propio, corre después
+ * (orden 1). Decidir ahí si la respuesta se sirve o se comparte entregaría una respuesta sin autenticar y no
+ * vería las credenciales de la sesión: esos filtros sólo envuelven la respuesta y difieren esa decisión a
+ * este filtro, que corre después de todos los filtros de ruta sin orden propio. {@code AdaptiveConcurrency}
+ * también difiere su límite, para medir sólo la latencia del destino.
+ */
+@Component
+public class AfterAuthenticationFilter implements GlobalFilter, Ordered {
+
+    // Después de CustomAuth y LocalRateLimit; antes de resolver la URL y la instancia del destino
+    static final int ORDER = RouteToRequestUrlFilter.ROUTE_TO_URL_FILTER_ORDER - 1;
+
+    private static final String DEFERRED_ATTRIBUTE = AfterAuthenticationFilter.class.getName() + ".deferred";
+
+    /**
+     * Agrega una etapa que corre sobre el exchange autenticado, en el orden en que se difieren. Si la
+     * petición se rechaza antes (401, 429, ...), la etapa no corre.
+     */
+    public static void defer(ServerWebExchange exchange, GatewayFilter stage) {
+        List<GatewayFilter> deferred = exchange.getAttribute(DEFERRED_ATTRIBUTE);
+        if (deferred == null) {
+            deferred = new ArrayList<>(2);
+            exchange.getAttributes().put(DEFERRED_ATTRIBUTE, deferred);
+        }
+        deferred.add(stage);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        List<GatewayFilter> deferred = exchange.getAttribute(DEFERRED_ATTRIBUTE);
+        if (deferred == null) {
+            return chain.filter(exchange);
+        }
+        exchange.getAttributes().remove(DEFERRED_ATTRIBUTE);
+        return new DeferredChain(deferred, 0, chain).filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private record DeferredChain(List<GatewayFilter> stages, int index, GatewayFilterChain chain) implements GatewayFilterChain {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            if (index == stages.size()) {
+                return chain.filter(exchange);
+            }
+            return stages.get(index).filter(exchange, new DeferredChain(stages, index + 1, chain));
+        }
+    }
+}
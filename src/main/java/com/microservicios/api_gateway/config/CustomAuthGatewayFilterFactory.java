@@ -1,19 +1,31 @@
 package com.microservicios.api_gateway.config;
 
 import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Outcome;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Stage;
+import com.microservicios.api_gateway.repository.SessionCredentials;
 import com.microservicios.api_gateway.repository.SessionRepository;
+import com.microservicios.api_gateway.repository.SessionStoreUnavailableException;
+import com.microservicios.api_gateway.service.TokenRefresher;
 import com.microservicios.api_gateway.service.TokenValidator;
 import com.microservicios.api_gateway.util.ErrorResponseBuilder;
-import com.microservicios.api_gateway.util.PathMatcher;
+import com.microservicios.api_gateway.util.PathPatternIndex;
+import com.microservicios.api_gateway.util.SensitiveDataMasker;
+import com.microservicios.api_gateway.util.SessionIdValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.http.HttpCookie;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.List;
 
@@ -22,119 +34,208 @@ public class CustomAuthGatewayFilterFactory extends AbstractGatewayFilterFactory
 
     private static final Logger log = LoggerFactory.getLogger(CustomAuthGatewayFilterFactory.class);
 
+    private static final PathPatternIndex AUTH_ME_ROUTE = PathPatternIndex.compile(AuthenticationConstants.ROUTE_AUTH_ME);
+
     private final SessionRepository sessionRepository;
     private final TokenValidator tokenValidator;
+    private final AuthFilterMetrics metrics;
+    // null si el gateway no renueva los tokens
+    private final TokenRefresher tokenRefresher;
+
+    @Autowired
+    public CustomAuthGatewayFilterFactory(SessionRepository sessionRepository, TokenValidator tokenValidator, AuthFilterMetrics metrics,
+                                          ObjectProvider<TokenRefresher> tokenRefresher) {
+        this(sessionRepository, tokenValidator, metrics, tokenRefresher.getIfAvailable());
+    }
+
+    CustomAuthGatewayFilterFactory(SessionRepository sessionRepository, TokenValidator tokenValidator, AuthFilterMetrics metrics) {
+        this(sessionRepository, tokenValidator, metrics, (TokenRefresher) null);
+    }
 
-    public CustomAuthGatewayFilterFactory(SessionRepository sessionRepository, TokenValidator tokenValidator) {
+    CustomAuthGatewayFilterFactory(SessionRepository sessionRepository, TokenValidator tokenValidator, AuthFilterMetrics metrics,
+                                   TokenRefresher tokenRefresher) {
         super(Config.class);
         this.sessionRepository = sessionRepository;
         this.tokenValidator = tokenValidator;
+        this.metrics = metrics;
+        this.tokenRefresher = tokenRefresher;
     }
 
     @Override
     public GatewayFilter apply(Config config) {
+        // Las rutas excluidas se compilan una sola vez al construir el filtro
+        PathPatternIndex excludedPaths = PathPatternIndex.compile(config.excludePaths());
+
         return (exchange, chain) -> {
+            long requestStart = System.nanoTime();
             String requestPath = exchange.getRequest().getURI().getPath();
-            log.info("Recibida solicitud para la URL {}", exchange.getRequest().getURI());
+            if (log.isDebugEnabled()) {
+                log.debug("Recibida solicitud para la URL {}", exchange.getRequest().getURI());
+            }
 
             // Verificar si la ruta está excluida del filtro de autenticación
-            if (isPathExcluded(requestPath, config)) {
-                log.info("Ruta excluida del filtro de autenticación: {}", requestPath);
-                return chain.filter(exchange);
+            if (excludedPaths.matches(requestPath)) {
+                metrics.recordStage(exchange, Stage.EXCLUSION, Outcome.EXCLUDED, requestStart);
+                if (log.isDebugEnabled()) {
+                    log.debug("Ruta excluida del filtro de autenticación: {}", requestPath);
+                }
+                return forward(exchange, chain, Outcome.EXCLUDED, requestStart);
             }
+            metrics.recordStage(exchange, Stage.EXCLUSION, Outcome.OK, requestStart);
 
             //Lee cookie automatica del navegador
+            long decodeStart = System.nanoTime();
             HttpCookie sessionCookie = exchange.getRequest()
                     .getCookies().getFirst(AuthenticationConstants.SESSION_COOKIE_NAME);
 
-
-
             if (sessionCookie == null) {
-                log.warn("Petición rechazada: cookie JSESSIONID ausente. Usuario no autenticado.");
-                return unauthorizedResponse(requestPath,exchange, AuthenticationConstants.MSG_SESSION_NOT_FOUND);
+                log.debug("Petición rechazada: cookie JSESSIONID ausente. Usuario no autenticado.");
+                metrics.recordStage(exchange, Stage.COOKIE_DECODE, Outcome.NO_COOKIE, decodeStart);
+                return reject(requestPath, exchange, AuthenticationConstants.MSG_SESSION_NOT_FOUND, Outcome.NO_COOKIE, requestStart);
             }
 
             // Extraemos el sessionId de la cookie (Spring Session lo genera automáticamente)
             String encodedSessionId = sessionCookie.getValue();
-            log.info("SessionId codificado encontrado en cookie: {}", encodedSessionId);
-
             String sessionId;
             try {
                 sessionId = decodeSessionId(encodedSessionId);
-                log.info("SessionId decodificado: {}", sessionId);
             } catch (IllegalArgumentException e) {
-                return unauthorizedResponse(requestPath, exchange, AuthenticationConstants.MSG_SESSION_INVALID);
+                metrics.recordStage(exchange, Stage.COOKIE_DECODE, Outcome.BAD_ENCODING, decodeStart);
+                return reject(requestPath, exchange, AuthenticationConstants.MSG_SESSION_INVALID, Outcome.BAD_ENCODING, requestStart);
             }
 
-            return sessionRepository.getAccessToken(sessionId)
-                    .switchIfEmpty(Mono.error(new RuntimeException("AccessToken no encontrado en sesión")))
-                    .flatMap(accessToken -> {
-                        if (!tokenValidator.isValid(accessToken)) {
-                            log.warn("AccessToken no válido en la sesión Redis. Token: {}", accessToken);
-                            return unauthorizedResponse(requestPath, exchange, AuthenticationConstants.MSG_TOKEN_INVALID);
-                        }
+            // Un ID que no tiene forma de UUID no puede existir en Redis: se rechaza sin I/O
+            if (!SessionIdValidator.isWellFormed(sessionId)) {
+                log.debug("Petición rechazada: sessionId con formato inválido");
+                metrics.malformedSessionId();
+                metrics.recordStage(exchange, Stage.COOKIE_DECODE, Outcome.BAD_ENCODING, decodeStart);
+                return reject(requestPath, exchange, AuthenticationConstants.MSG_SESSION_INVALID, Outcome.BAD_ENCODING, requestStart);
+            }
+            metrics.recordStage(exchange, Stage.COOKIE_DECODE, Outcome.OK, decodeStart);
+            metrics.recordSession(exchange, sessionId);
+            if (log.isDebugEnabled()) {
+                log.debug("SessionId decodificado: {}", SensitiveDataMasker.mask(sessionId));
+            }
 
-                        log.info("AccessToken encontrado y validado para la sesión {}", sessionId);
-
-                        return sessionRepository.getRefreshToken(sessionId)
-                                .map(refreshToken -> {
-                                    log.info("RefreshToken encontrado para la sesión {}: {}", sessionId, refreshToken.length() > 10 ? refreshToken.substring(0, 10) + "..." : refreshToken);
-                                    return refreshToken;
-                                })
-                                .switchIfEmpty(Mono.fromRunnable(() -> log.warn("No se encontró RefreshToken para la sesión {}", sessionId)))
-                                .defaultIfEmpty("") // Procede con un string vacío si no hay refresh token
-                                .flatMap(refreshToken -> {
-                                    ServerWebExchange mutatedExchange = exchange.mutate()
-                                            .request(builder -> {
-                                                builder.header(AuthenticationConstants.HEADER_AUTHORIZATION, AuthenticationConstants.HEADER_BEARER_PREFIX + accessToken);
-                                                if (refreshToken != null && !refreshToken.trim().isEmpty()) {
-                                                    log.info("Inyectando RefreshToken en la cabecera para la sesión {}", sessionId);
-                                                    builder.header(AuthenticationConstants.HEADER_REFRESH_TOKEN, refreshToken);
-                                                } else {
-                                                    log.warn("Procediendo sin inyectar RefreshToken en la cabecera para la sesión {}", sessionId);
-                                                }
-                                            })
-                                            .build();
-
-                                    log.info("Inyectando AccessToken en la cabecera para la sesión {}", sessionId);
-                                    return chain.filter(mutatedExchange);
-                                });
-                    })
+            long fetchStart = System.nanoTime();
+            // Sólo los errores de la lectura de sesión se traducen a 401; los del servicio destino siguen su curso
+            return sessionRepository.getCredentials(sessionId)
+                    .map(SessionLookup::found)
+                    .defaultIfEmpty(SessionLookup.NOT_FOUND)
                     .onErrorResume(error -> {
-                        log.warn("Error al procesar sesión: {}", error.getMessage());
-                        return unauthorizedResponse(requestPath, exchange, AuthenticationConstants.MSG_SESSION_NOT_IN_REDIS);
+                        // Queda registrado una sola vez en el access log, sin bloquear el event loop
+                        metrics.recordError(exchange, error);
+                        if (log.isDebugEnabled()) {
+                            log.debug("Error al procesar sesión: {}", error.getMessage());
+                        }
+                        return Mono.just(error instanceof SessionStoreUnavailableException
+                                ? SessionLookup.UNAVAILABLE
+                                : SessionLookup.NOT_FOUND);
+                    })
+                    .flatMap(lookup -> {
+                        if (lookup == SessionLookup.UNAVAILABLE) {
+                            // Redis no está disponible: la sesión puede ser válida, así que no se pide un nuevo login
+                            metrics.recordStage(exchange, Stage.SESSION_FETCH, Outcome.UNAVAILABLE, fetchStart);
+                            metrics.recordRequest(exchange, Outcome.UNAVAILABLE, requestStart);
+                            return ErrorResponseBuilder.buildErrorResponse(exchange.getResponse(),
+                                    HttpStatus.SERVICE_UNAVAILABLE, AuthenticationConstants.MSG_SESSION_STORE_UNAVAILABLE);
+                        }
+                        if (lookup.credentials() == null) {
+                            metrics.recordStage(exchange, Stage.SESSION_FETCH, Outcome.NOT_IN_REDIS, fetchStart);
+                            return reject(requestPath, exchange, AuthenticationConstants.MSG_SESSION_NOT_IN_REDIS, Outcome.NOT_IN_REDIS, requestStart);
+                        }
+                        metrics.recordStage(exchange, Stage.SESSION_FETCH, Outcome.OK, fetchStart);
+
+                        return authorize(exchange, chain, requestPath, sessionId, lookup.credentials(), requestStart);
                     });
         };
     }
 
+    private Mono<Void> authorize(ServerWebExchange exchange, GatewayFilterChain chain, String requestPath,
+                                 String sessionId, SessionCredentials credentials, long requestStart) {
+        if (tokenRefresher == null) {
+            return validate(exchange, chain, requestPath, sessionId, credentials, requestStart);
+        }
+        // Un token vencido o por vencer se renueva antes de validarlo
+        return tokenRefresher.onRequest(sessionId, credentials)
+                .flatMap(current -> validate(exchange, chain, requestPath, sessionId, current, requestStart));
+    }
+
+    private Mono<Void> validate(ServerWebExchange exchange, GatewayFilterChain chain, String requestPath,
+                                String sessionId, SessionCredentials credentials, long requestStart) {
+        String accessToken = credentials.accessToken();
+        long validationStart = System.nanoTime();
+        return tokenValidator.validate(accessToken).flatMap(valid -> {
+            if (!valid) {
+                if (log.isDebugEnabled()) {
+                    log.debug("AccessToken no válido en la sesión Redis. Token: {}", SensitiveDataMasker.mask(accessToken));
+                }
+                metrics.recordStage(exchange, Stage.VALIDATION, Outcome.TOKEN_INVALID, validationStart);
+                return reject(requestPath, exchange, AuthenticationConstants.MSG_TOKEN_INVALID, Outcome.TOKEN_INVALID, requestStart);
+            }
+            metrics.recordStage(exchange, Stage.VALIDATION, Outcome.OK, validationStart);
+
+            // Si el gateway renueva los tokens, los servicios destino no necesitan el refresh token
+            boolean forwardRefreshToken = credentials.hasRefreshToken()
+                    && (tokenRefresher == null || tokenRefresher.forwardRefreshToken());
+            // Las cabeceras se agregan al llamar al destino (SessionCredentialsHeadersFilter), sin copiar la petición
+            SessionCredentialsHeadersFilter.attach(exchange, credentials, forwardRefreshToken);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Inyectando tokens en las cabeceras para la sesión {} (refreshToken: {})",
+                        SensitiveDataMasker.mask(sessionId), forwardRefreshToken);
+            }
+            return forward(exchange, chain, Outcome.OK, requestStart);
+        });
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, Outcome outcome, long requestStart) {
+        long downstreamStart = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(ignored -> {
+                    metrics.recordStage(exchange, Stage.DOWNSTREAM, Outcome.OK, downstreamStart);
+                    metrics.recordRequest(exchange, outcome, requestStart);
+                })
+                .doOnError(error -> {
+                    metrics.recordStage(exchange, Stage.DOWNSTREAM, Outcome.ERROR, downstreamStart);
+                    metrics.recordRequest(exchange, Outcome.ERROR, requestStart);
+                });
+    }
+
+    private Mono<Void> reject(String requestPath, ServerWebExchange exchange, String message, Outcome outcome, long requestStart) {
+        metrics.recordRequest(exchange, outcome, requestStart);
+        return unauthorizedResponse(requestPath, exchange, message);
+    }
+
     private Mono<Void> unauthorizedResponse(String requestPath, ServerWebExchange exchange, String message) {
-        HttpStatus status = PathMatcher.matches(requestPath, AuthenticationConstants.ROUTE_AUTH_ME)
+        HttpStatus status = AUTH_ME_ROUTE.matches(requestPath)
             ? HttpStatus.FORBIDDEN
             : HttpStatus.UNAUTHORIZED;
         return ErrorResponseBuilder.buildErrorResponse(exchange.getResponse(), status, message);
     }
 
-    private boolean isPathExcluded(String requestPath, Config config) {
-        if (config.excludePaths() == null) {
-            return false;
-        }
-        for (String excludePath : config.excludePaths()) {
-            if (PathMatcher.matches(requestPath, excludePath)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private String decodeSessionId(String encodedSessionId) {
+    static String decodeSessionId(String encodedSessionId) {
         try {
-            return new String(Base64.getUrlDecoder().decode(encodedSessionId));
+            return new String(Base64.getUrlDecoder().decode(encodedSessionId), StandardCharsets.UTF_8);
         } catch (Exception e) {
-            log.warn("Error al decodificar sessionId: {}", e.getMessage());
+            log.debug("Error al decodificar sessionId: {}", e.getMessage());
             throw new IllegalArgumentException("Invalid session ID encoding", e);
         }
     }
 
     public record Config(List<String> excludePaths) {
     }
+
+    /**
+     * Resultado de la lectura de sesión: credenciales encontradas, sesión inexistente o Redis no disponible.
+     */
+    private record SessionLookup(SessionCredentials credentials) {
+
+        static final SessionLookup NOT_FOUND = new SessionLookup(null);
+        static final SessionLookup UNAVAILABLE = new SessionLookup(null);
+
+        static SessionLookup found(SessionCredentials credentials) {
+            return new SessionLookup(credentials);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Respuesta del gateway cuando el servicio destino de una ruta falla o responde 5xx ({@code fallback.*}).
+ *
+ * @param redirectUrl destino de las redirecciones (modo {@code redirect})
+ * @param defaultMode modo de las rutas que no aparecen en {@code routes}
+ * @param routes      política por ID de ruta
+ */
+@ConfigurationProperties(prefix = "fallback")
+public record FallbackProperties(
+        URI redirectUrl,
+        @DefaultValue("redirect") Mode defaultMode,
+        Map<String, RoutePolicy> routes) {
+
+    public enum Mode {
+        /** 302 a {@code redirect-url}. */
+        REDIRECT,
+        /** La respuesta del destino se entrega sin cambios. */
+        PASS_THROUGH,
+        /** Respuesta fija configurada en la ruta. */
+        STATIC_BODY
+    }
+
+    /**
+     * @param mode        qué hacer ante un error o un 5xx del destino
+     * @param status      estado de la respuesta en modo {@code static-body}
+     * @param contentType tipo de contenido en modo {@code static-body}
+     * @param body        cuerpo en modo {@code static-body}
+     */
+    public record RoutePolicy(
+            @DefaultValue("redirect") Mode mode,
+            @DefaultValue("503") int status,
+            @DefaultValue("application/json") String contentType,
+            @DefaultValue("") String body) {
+    }
+
+    public FallbackProperties {
+        routes = routes == null ? Map.of() : Map.copyOf(routes);
+    }
+
+    /**
+     * Política de las rutas que no aparecen en {@code routes}.
+     */
+    public RoutePolicy defaultPolicy() {
+        return new RoutePolicy(defaultMode, 503, "application/json", "");
+    }
+}
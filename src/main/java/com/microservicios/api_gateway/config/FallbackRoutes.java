@@ -1,63 +1,202 @@
 package com.microservicios.api_gateway.config;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.gateway.filter.GlobalFilter;
+
+import com.microservicios.api_gateway.config.FallbackProperties.Mode;
+import com.microservicios.api_gateway.config.FallbackProperties.RoutePolicy;
+import com.microservicios.api_gateway.util.WebSocketUpgrade;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Aplica la política de fallback de cada ruta ({@link FallbackProperties}) cuando el servicio destino
+ * falla o responde 5xx.
+ * <p>
+ * El estado del destino se evalúa en el decorador de la respuesta, justo antes de escribir el primer
+ * byte: las respuestas exitosas se transmiten sin retenerlas y las 5xx se reemplazan sin leer su cuerpo.
+ */
 @Component
+@EnableConfigurationProperties(FallbackProperties.class)
 public class FallbackRoutes implements GlobalFilter, Ordered {
 
-    private final URI target;
+    private static final Logger log = LoggerFactory.getLogger(FallbackRoutes.class);
+
+    public static final String FALLBACK_METRIC = "gateway.fallback";
+
+    // Debe correr antes del NettyWriteResponseFilter (-1), que escribe a través del decorador, y envolver a
+    // ResponseCache y RequestCoalescing: ven la respuesta del destino, no la que la reemplaza
+    static final int ORDER = ResponseCacheGatewayFilterFactory.ORDER - 1;
 
-    public FallbackRoutes(@Value("${fallback.redirect-url}") String redirectUrl) {
-        this.target = URI.create(redirectUrl);
+    private static final String UNKNOWN_ROUTE = "unknown";
+
+    private final FallbackProperties properties;
+    private final RoutePolicy defaultPolicy;
+    private final MeterRegistry meterRegistry;
+    // Contadores por ruta, indexados por Cause; se crean con el primer fallback de cada ruta
+    private final Map<String, Counter[]> fallbacks = new ConcurrentHashMap<>();
+
+    public FallbackRoutes(FallbackProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.defaultPolicy = properties.defaultPolicy();
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        // 1) Si ocurre excepción en la cadena, redirigir
-        String path = exchange.getRequest().getURI().getPath();
-
-        if (path.startsWith("/api/contentful/")) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : UNKNOWN_ROUTE;
+        RoutePolicy policy = policyFor(routeId);
+        // Un handshake WebSocket no tiene respuesta del destino que reemplazar, y un 302 no le sirve a un
+        // cliente WebSocket: los errores previos al handshake se responden como tales
+        if (policy.mode() == Mode.PASS_THROUGH || WebSocketUpgrade.isUpgrade(exchange.getRequest())) {
             return chain.filter(exchange);
         }
 
-
-        return chain.filter(exchange)
-                .onErrorResume(ex -> {
-                    var resp = exchange.getResponse();
-                    if (!resp.isCommitted()) {
-                        resp.setStatusCode(HttpStatus.FOUND);
-                        resp.getHeaders().setLocation(target);
-                        resp.getHeaders().remove("Content-Length");
-                        return resp.setComplete();
+        ServerHttpResponse response = exchange.getResponse();
+        ServerWebExchange decorated = exchange.mutate()
+                .response(new UpstreamStatusResponse(exchange, response, routeId, policy))
+                .build();
+        // Errores antes de la respuesta del destino (conexión rechazada, timeout, sin instancias)
+        return chain.filter(decorated)
+                .onErrorResume(error -> {
+                    if (response.isCommitted()) {
+                        return Mono.error(error);
                     }
-                    return Mono.error(ex);
-                })
-                // 2) Si la respuesta llegó y es 5xx, redirigir igual
-                .then(Mono.defer(() -> {
-                    ServerHttpResponse resp = exchange.getResponse();
-                    var sc = resp.getStatusCode();
-                    if (!resp.isCommitted() && sc != null && sc.is5xxServerError()) {
-                        resp.setStatusCode(HttpStatus.FOUND);
-                        resp.getHeaders().setLocation(target);
-                        resp.getHeaders().remove("Content-Length");
-                        return resp.setComplete();
+                    if (log.isDebugEnabled()) {
+                        log.debug("Fallback de la ruta {} por error: {}", routeId, error.getMessage());
                     }
-                    return Mono.empty();
-                }));
+                    return fallback(response, routeId, policy, Cause.ERROR);
+                });
+    }
+
+    private RoutePolicy policyFor(String routeId) {
+        Map<String, RoutePolicy> routes = properties.routes();
+        return routes.isEmpty() ? defaultPolicy : routes.getOrDefault(routeId, defaultPolicy);
+    }
+
+    private Mono<Void> fallback(ServerHttpResponse response, String routeId, RoutePolicy policy, Cause cause) {
+        fallbacks.computeIfAbsent(routeId, id -> fallbackCounters(id, policy))[cause.ordinal()].increment();
+
+        HttpHeaders headers = response.getHeaders();
+        // Las cabeceras del cuerpo del destino ya no aplican; se conservan las demás (p. ej. CORS)
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        headers.remove(HttpHeaders.CONTENT_ENCODING);
+        if (policy.mode() == Mode.STATIC_BODY) {
+            byte[] body = policy.body().getBytes(StandardCharsets.UTF_8);
+            response.setStatusCode(HttpStatusCode.valueOf(policy.status()));
+            headers.set(HttpHeaders.CONTENT_TYPE, policy.contentType());
+            headers.setContentLength(body.length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        }
+        headers.remove(HttpHeaders.CONTENT_TYPE);
+        response.setStatusCode(HttpStatus.FOUND);
+        headers.setLocation(properties.redirectUrl());
+        return response.setComplete();
+    }
+
+    // La política de una ruta no cambia, así que el modo queda fijo en sus contadores
+    private Counter[] fallbackCounters(String routeId, RoutePolicy policy) {
+        Counter[] counters = new Counter[Cause.values().length];
+        for (Cause cause : Cause.values()) {
+            counters[cause.ordinal()] = Counter.builder(FALLBACK_METRIC)
+                    .description("Respuestas reemplazadas por la política de fallback de la ruta")
+                    .tag("route", routeId)
+                    .tag("mode", policy.mode().name().toLowerCase(Locale.ROOT))
+                    .tag("cause", cause.tag)
+                    .register(meterRegistry);
+        }
+        return counters;
     }
 
     @Override
     public int getOrder() {
-        // Debe correr antes del NettyWriteResponseFilter (-1)
-        return -2;
+        return ORDER;
+    }
+
+    private enum Cause {
+        ERROR("error"),
+        UPSTREAM_5XX("upstream_5xx");
+
+        private final String tag;
+
+        Cause(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Intercepta la escritura del cuerpo del destino: si respondió 5xx, cancela el cuerpo (reactor-netty
+     * cierra la conexión y libera lo recibido) y aplica el fallback; si no, delega sin cambios.
+     */
+    private final class UpstreamStatusResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String routeId;
+        private final RoutePolicy policy;
+
+        UpstreamStatusResponse(ServerWebExchange exchange, ServerHttpResponse delegate, String routeId, RoutePolicy policy) {
+            super(delegate);
+            this.exchange = exchange;
+            this.routeId = routeId;
+            this.policy = policy;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (upstreamFailed()) {
+                return Flux.from(body).take(0).then(replace());
+            }
+            return super.writeWith(body);
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            if (upstreamFailed()) {
+                return Flux.from(body).take(0).then(replace());
+            }
+            return super.writeAndFlushWith(body);
+        }
+
+        /**
+         * Sólo las respuestas del destino: los errores que arma el propio gateway (p. ej. el 503 del
+         * filtro de autenticación) se entregan como están.
+         */
+        private boolean upstreamFailed() {
+            HttpStatusCode status = getStatusCode();
+            return status != null && status.is5xxServerError()
+                    && exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR) != null;
+        }
+
+        private Mono<Void> replace() {
+            return Mono.defer(() -> {
+                if (log.isDebugEnabled()) {
+                    log.debug("Fallback de la ruta {} por respuesta {} del destino", routeId, getStatusCode());
+                }
+                return fallback(getDelegate(), routeId, policy, Cause.UPSTREAM_5XX);
+            });
+        }
     }
-}
\ No newline at end of file
+}
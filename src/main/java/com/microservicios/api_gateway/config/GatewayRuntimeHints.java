@@ -0,0 +1,35 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Hints para el procesamiento AOT y la imagen nativa ({@code -Pfast-startup}, {@code -Pnative}).
+ * <p>
+ * Spring Cloud Gateway registra los {@code Config} de sus propios filtros, pero no los de los filtros de
+ * este proyecto: se enlazan por reflexión desde {@code spring.cloud.gateway.routes[*].filters[*].args}.
+ * Los atributos de sesión que no son String (los que escribe Spring Session) se leen con
+ * {@code JdkSerializationRedisSerializer} y necesitan hints de serialización.
+ */
+public class GatewayRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                CustomAuthGatewayFilterFactory.Config.class,
+                LocalRateLimitGatewayFilterFactory.Config.class,
+                AdaptiveConcurrencyGatewayFilterFactory.Config.class,
+                ResponseCacheGatewayFilterFactory.Config.class,
+                RequestCoalescingGatewayFilterFactory.Config.class,
+                WebSocketGatewayFilterFactory.Config.class,
+                HedgingGatewayFilterFactory.Config.class);
+
+        // creationTime, lastAccessedTime y maxInactiveInterval del hash de Spring Session
+        hints.serialization()
+                .registerType(Number.class)
+                .registerType(Long.class)
+                .registerType(Integer.class)
+                .registerType(String.class);
+    }
+}
@@ -0,0 +1,20 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.hedging.HedgeBudget;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Presupuesto de peticiones duplicadas compartido por todos los filtros {@code Hedging}.
+ */
+@Configuration
+@EnableConfigurationProperties(HedgingProperties.class)
+public class HedgingConfig {
+
+    @Bean
+    public HedgeBudget hedgeBudget(HedgingProperties properties, MeterRegistry meterRegistry) {
+        return new HedgeBudget(properties.budgetRatio(), properties.budgetBurst(), meterRegistry);
+    }
+}
@@ -0,0 +1,399 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.hedging.HedgeBudget;
+import com.microservicios.api_gateway.hedging.RouteHedging;
+import com.microservicios.api_gateway.loadbalancer.LatencyAwareLoadBalancer;
+import com.microservicios.api_gateway.util.WebSocketUpgrade;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.Channel;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.netty.Connection;
+import reactor.netty.channel.ChannelOperations;
+import reactor.util.context.Context;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hedging de las peticiones idempotentes de la ruta: si el destino no envió las cabeceras de respuesta tras la
+ * espera de la ruta (un percentil de sus latencias recientes, ver {@link RouteHedging}), se envía la misma
+ * petición a otra instancia del servicio {@code lb://} y se usa la primera respuesta; el otro intento se descarta
+ * cuando responde, cerrando su conexión.
+ * <p>
+ * Sólo GET y HEAD sin cuerpo, en rutas {@code lb://}. Cada petición duplicada consume del presupuesto global
+ * ({@link HedgeBudget}); sin presupuesto, la petición sigue esperando al primer intento. Si un intento falla
+ * con el otro en curso se espera al otro; si no, la petición termina con el error, como sin el filtro.
+ * <p>
+ * Cada intento corre el resto de la cadena (balanceador, {@code LoadBalancerStatsFilter} y
+ * {@code NettyRoutingFilter}) con sus propios atributos, estado y cabeceras de respuesta. El ganador los copia
+ * al exchange y {@code NettyWriteResponseFilter} transmite su cuerpo como siempre.
+ */
+@Component
+public class HedgingGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgingGatewayFilterFactory.Config> {
+
+    static final double DEFAULT_PERCENTILE = 95;
+    static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis(20);
+    static final Duration DEFAULT_MAX_DELAY = Duration.ofSeconds(1);
+
+    private static final String UNKNOWN_ROUTE = "unknown";
+    private static final String LOAD_BALANCER_SCHEME = "lb";
+
+    private final Map<String, RouteHedging> routes = new ConcurrentHashMap<>();
+    private final HedgeBudget budget;
+    private final MeterRegistry meterRegistry;
+
+    public HedgingGatewayFilterFactory(HedgeBudget budget, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.budget = budget;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        double percentile = config.percentile() != null ? config.percentile() : DEFAULT_PERCENTILE;
+        Duration minDelay = config.minDelay() != null ? config.minDelay() : DEFAULT_MIN_DELAY;
+        Duration maxDelay = config.maxDelay() != null ? config.maxDelay() : DEFAULT_MAX_DELAY;
+        if (percentile <= 0 || percentile > 100 || minDelay.isNegative() || maxDelay.compareTo(minDelay) < 0) {
+            throw new IllegalArgumentException("Hedging requiere 0 < percentile <= 100 y 0 <= minDelay <= maxDelay");
+        }
+
+        // Antes del balanceador: cada intento elige su instancia
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!eligible(exchange)) {
+                return chain.filter(exchange);
+            }
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : UNKNOWN_ROUTE;
+            RouteHedging hedging = routes.computeIfAbsent(routeId, id -> new RouteHedging(id, meterRegistry));
+            hedging.request();
+            budget.deposit();
+            Duration delay = hedging.delay(percentile, minDelay, maxDelay);
+            return Mono.create(sink -> new Race(exchange, chain, hedging, budget, sink).start(delay));
+        }, ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1);
+    }
+
+    private static boolean eligible(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpMethod method = request.getMethod();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            return false;
+        }
+        HttpHeaders headers = request.getHeaders();
+        if (headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)
+                || WebSocketUpgrade.isUpgrade(request)) {
+            return false;
+        }
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        return url != null && LOAD_BALANCER_SCHEME.equals(url.getScheme());
+    }
+
+    RouteHedging hedging(String routeId) {
+        return routes.get(routeId);
+    }
+
+    /**
+     * @param percentile percentil (0-100] de las latencias recientes de la ruta que se espera antes de duplicar
+     * @param minDelay   espera mínima, aunque el destino responda casi siempre antes
+     * @param maxDelay   espera máxima; también se usa mientras la ruta no tiene mediciones suficientes
+     */
+    public record Config(Double percentile, Duration minDelay, Duration maxDelay) {
+    }
+
+    /**
+     * Un intento: el resto de la cadena sobre un exchange con atributos, estado y cabeceras de respuesta propios.
+     */
+    private static final class Attempt {
+
+        private final AttemptExchange exchange;
+        private final ServiceInstance excluded;
+        private final Disposable.Swap subscription = Disposables.swap();
+        private volatile long start;
+
+        Attempt(AttemptExchange exchange, ServiceInstance excluded) {
+            this.exchange = exchange;
+            this.excluded = excluded;
+        }
+
+        long elapsed() {
+            return System.nanoTime() - start;
+        }
+
+        ServiceInstance instance() {
+            Response<ServiceInstance> chosen = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            return chosen != null && chosen.hasServer() ? chosen.getServer() : null;
+        }
+
+        /**
+         * Cierra la conexión con el destino sin leer el cuerpo, si el intento ya tenía respuesta; si no, el intento
+         * sigue hasta responder o vencer el timeout y se descarta entonces. No se cancela: reactor-netty cierra el
+         * canal desde el hilo que cancela, aunque en ese momento la respuesta llegue y el canal vuelva al pool para
+         * otra petición. Se cierra desde su event loop y sólo si sigue ligado al intento.
+         */
+        void discard() {
+            Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            if (connection == null) {
+                return;
+            }
+            Channel channel = connection.channel();
+            channel.eventLoop().execute(() -> {
+                if (ChannelOperations.get(channel) == connection) {
+                    connection.dispose();
+                }
+            });
+        }
+
+        /**
+         * Cancela el intento si todavía no tiene respuesta: el cliente se fue y nadie va a leerla.
+         */
+        void cancel() {
+            if (exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR) == null) {
+                subscription.dispose();
+            }
+            discard();
+        }
+
+        void copyAttributesTo(ServerWebExchange target) {
+            target.getAttributes().putAll(exchange.attributes);
+        }
+
+        void applyTo(ServerWebExchange target) {
+            copyAttributesTo(target);
+            ServerHttpResponse response = target.getResponse();
+            AttemptResponse attempt = exchange.response;
+            if (attempt.status != null) {
+                response.setStatusCode(attempt.status);
+            }
+            // Como NettyRoutingFilter: con Content-Length del destino no se envía Transfer-Encoding
+            if (!attempt.headers.containsKey(HttpHeaders.TRANSFER_ENCODING) && attempt.headers.containsKey(HttpHeaders.CONTENT_LENGTH)) {
+                response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+            }
+            response.getHeaders().addAll(attempt.headers);
+        }
+    }
+
+    /**
+     * El intento original y, si no responde a tiempo, el duplicado. El primero que recibe las cabeceras de
+     * respuesta gana; los métodos sincronizados ordenan los eventos de ambos intentos y de la espera, que
+     * llegan desde distintos hilos.
+     */
+    private static final class Race {
+
+        private final ServerWebExchange exchange;
+        private final GatewayFilterChain chain;
+        private final RouteHedging hedging;
+        private final HedgeBudget budget;
+        private final MonoSink<Void> sink;
+        private final Disposable.Swap timer = Disposables.swap();
+        private Attempt primary;
+        private Attempt hedge;
+        private int running;
+        private boolean done;
+
+        Race(ServerWebExchange exchange, GatewayFilterChain chain, RouteHedging hedging, HedgeBudget budget,
+             MonoSink<Void> sink) {
+            this.exchange = exchange;
+            this.chain = chain;
+            this.hedging = hedging;
+            this.budget = budget;
+            this.sink = sink;
+        }
+
+        void start(Duration delay) {
+            sink.onCancel(this::cancel);
+            Attempt attempt = new Attempt(new AttemptExchange(exchange, false), null);
+            synchronized (this) {
+                primary = attempt;
+                running = 1;
+            }
+            launch(attempt);
+            // Si el primer intento ya terminó, dispose() previo del swap descarta la espera
+            timer.update(Mono.delay(delay).subscribe(tick -> delayElapsed()));
+        }
+
+        private void launch(Attempt attempt) {
+            Context context = Context.of(sink.contextView());
+            if (attempt.excluded != null) {
+                context = context.put(LatencyAwareLoadBalancer.EXCLUDED_INSTANCE_KEY, attempt.excluded);
+            }
+            attempt.start = System.nanoTime();
+            attempt.subscription.update(chain.filter(attempt.exchange)
+                    .contextWrite(context)
+                    .subscribe(null, error -> failed(attempt, error), () -> succeeded(attempt)));
+        }
+
+        private void delayElapsed() {
+            Attempt attempt;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (!budget.tryWithdraw()) {
+                    hedging.budgetExhausted();
+                    return;
+                }
+                hedging.hedgeSent();
+                // Otra instancia que la del primer intento, si el balanceador ya la eligió
+                attempt = new Attempt(new AttemptExchange(exchange, true), primary.instance());
+                hedge = attempt;
+                running++;
+            }
+            launch(attempt);
+        }
+
+        private void succeeded(Attempt attempt) {
+            Attempt loser;
+            synchronized (this) {
+                running--;
+                if (done) {
+                    // Respondió después del ganador o de la cancelación
+                    attempt.discard();
+                    return;
+                }
+                done = true;
+                loser = attempt == primary ? hedge : primary;
+            }
+            timer.dispose();
+            if (loser != null) {
+                loser.discard();
+                if (loser == primary) {
+                    hedging.record(primary.elapsed());
+                }
+            }
+            hedging.record(attempt.elapsed());
+            if (hedge != null) {
+                hedging.won(attempt == hedge);
+            }
+            attempt.applyTo(exchange);
+            sink.success();
+        }
+
+        private void failed(Attempt attempt, Throwable error) {
+            synchronized (this) {
+                running--;
+                // Con el otro intento en curso, se espera su respuesta
+                if (done || running > 0) {
+                    return;
+                }
+                done = true;
+            }
+            timer.dispose();
+            attempt.copyAttributesTo(exchange);
+            sink.error(error);
+        }
+
+        private void cancel() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+            }
+            timer.dispose();
+            primary.cancel();
+            if (hedge != null) {
+                hedge.cancel();
+            }
+        }
+    }
+
+    /**
+     * Exchange de un intento. Los atributos parten de una copia de los del exchange; el intento duplicado no
+     * envía el cuerpo de la petición, que admite un solo suscriptor (las peticiones elegibles no tienen cuerpo).
+     */
+    private static final class AttemptExchange extends ServerWebExchangeDecorator {
+
+        private final Map<String, Object> attributes;
+        private final AttemptResponse response;
+        private final ServerHttpRequest request;
+
+        AttemptExchange(ServerWebExchange delegate, boolean hedge) {
+            super(delegate);
+            this.attributes = new ConcurrentHashMap<>(delegate.getAttributes());
+            this.response = new AttemptResponse(delegate.getResponse());
+            this.request = hedge ? new BodilessRequest(delegate.getRequest()) : delegate.getRequest();
+        }
+
+        @Override
+        public ServerHttpRequest getRequest() {
+            return request;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    private static final class BodilessRequest extends ServerHttpRequestDecorator {
+
+        BodilessRequest(ServerHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return Flux.empty();
+        }
+    }
+
+    /**
+     * Estado y cabeceras que NettyRoutingFilter escribe al recibir la respuesta del destino; el cuerpo se
+     * escribe después, en la respuesta real.
+     */
+    private static final class AttemptResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private volatile HttpStatusCode status;
+
+        AttemptResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
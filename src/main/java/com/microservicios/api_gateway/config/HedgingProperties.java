@@ -0,0 +1,17 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Presupuesto global de las rutas con el filtro {@code Hedging} ({@code gateway.hedging.*}); la espera de
+ * cada ruta se configura en los argumentos de su filtro.
+ *
+ * @param budgetRatio fracción del tráfico elegible que puede duplicarse (0.1: una petición extra cada diez)
+ * @param budgetBurst peticiones duplicadas que se pueden acumular sin usar
+ */
+@ConfigurationProperties(prefix = "gateway.hedging")
+public record HedgingProperties(
+        @DefaultValue("0.1") double budgetRatio,
+        @DefaultValue("20") int budgetBurst) {
+}
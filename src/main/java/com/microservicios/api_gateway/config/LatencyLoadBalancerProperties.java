@@ -0,0 +1,22 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Balanceo por latencia de las rutas {@code lb://} ({@code gateway.load-balancer.*}).
+ *
+ * @param enabled      reemplaza el round-robin de Spring Cloud LoadBalancer por "power of two choices"
+ * @param decay        ventana de la latencia media: las mediciones más viejas pesan cada vez menos
+ * @param errorPenalty latencia mínima registrada para un error o una respuesta 5xx, para que una instancia
+ *                     que falla rápido no atraiga más tráfico; también es el costo de cada petición en
+ *                     curso de una instancia aún sin medir
+ */
+@ConfigurationProperties(prefix = "gateway.load-balancer")
+public record LatencyLoadBalancerProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10s") Duration decay,
+        @DefaultValue("1s") Duration errorPenalty) {
+}
@@ -0,0 +1,30 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.loadbalancer.LatencyAwareLoadBalancerConfiguration;
+import com.microservicios.api_gateway.loadbalancer.LoadBalancerStats;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Balanceo por latencia para todos los servicios {@code lb://}: el balanceador elige con las estadísticas
+ * que {@link LoadBalancerStatsFilter} actualiza en cada respuesta.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "gateway.load-balancer", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(LatencyLoadBalancerProperties.class)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+
+    @Bean
+    public LoadBalancerStats loadBalancerStats(LatencyLoadBalancerProperties properties) {
+        return new LoadBalancerStats(properties.decay(), properties.errorPenalty());
+    }
+
+    @Bean
+    public LoadBalancerStatsFilter loadBalancerStatsFilter(LoadBalancerStats stats, LatencyLoadBalancerProperties properties) {
+        return new LoadBalancerStatsFilter(stats, properties.errorPenalty());
+    }
+}
@@ -0,0 +1,64 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.loadbalancer.InstanceStats;
+import com.microservicios.api_gateway.loadbalancer.LoadBalancerStats;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+
+/**
+ * Mide la latencia hasta las cabeceras de respuesta de la instancia que eligió el balanceador y la registra
+ * en {@link LoadBalancerStats}. Los errores y las respuestas 5xx cuentan al menos {@code errorPenalty}.
+ */
+public class LoadBalancerStatsFilter implements GlobalFilter, Ordered {
+
+    private final LoadBalancerStats stats;
+    private final long errorPenaltyNanos;
+
+    public LoadBalancerStatsFilter(LoadBalancerStats stats, Duration errorPenalty) {
+        this.stats = stats;
+        this.errorPenaltyNanos = errorPenalty.toNanos();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> chosen = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (chosen == null || !chosen.hasServer()) {
+            return chain.filter(exchange);
+        }
+        InstanceStats instance = stats.get(chosen.getServer());
+        instance.start();
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL) {
+                        // El cliente se fue: la latencia no dice nada de la instancia
+                        instance.release();
+                        return;
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    boolean failed = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+                    instance.complete(failed ? Math.max(elapsed, errorPenaltyNanos) : elapsed);
+                });
+    }
+
+    /**
+     * Justo después de que el balanceador elige la instancia; la cadena termina al recibir las cabeceras
+     * de respuesta, antes de transmitir el cuerpo.
+     */
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+}
@@ -0,0 +1,136 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.ratelimit.LocalRateLimiter;
+import com.microservicios.api_gateway.util.ErrorResponseBuilder;
+import com.microservicios.api_gateway.util.SessionIdValidator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.gateway.support.ipresolver.RemoteAddressResolver;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita las peticiones por ruta con un token bucket en memoria ({@link LocalRateLimiter}), por sesión o
+ * por IP del cliente, y rechaza el exceso con 429 y {@code Retry-After}.
+ * <p>
+ * Con {@code keyBy: session} (por defecto) corre después de {@code CustomAuth}, así que la sesión ya fue
+ * validada; sin cookie de sesión se limita por IP. Las rutas excluidas de la autenticación deben usar
+ * {@code keyBy: ip}, porque en ellas cualquiera puede enviar un ID de sesión inventado.
+ */
+@Component
+public class LocalRateLimitGatewayFilterFactory extends AbstractGatewayFilterFactory<LocalRateLimitGatewayFilterFactory.Config> {
+
+    public static final String REJECTED_METRIC = "gateway.rate_limit.rejected";
+
+    static final int DEFAULT_REPLENISH_RATE = 20;
+
+    private static final String UNKNOWN_ROUTE = "unknown";
+    private static final String UNKNOWN_ADDRESS = "unknown";
+
+    private final LocalRateLimiter limiter;
+    private final RemoteAddressResolver addressResolver;
+    private final MeterRegistry meterRegistry;
+    // Contadores de rechazos por ruta, creados con el primer rechazo de cada una
+    private final Map<String, RejectedCounters> rejected = new ConcurrentHashMap<>();
+
+    public LocalRateLimitGatewayFilterFactory(LocalRateLimiter limiter, RateLimitProperties properties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.limiter = limiter;
+        this.addressResolver = properties.trustedProxies() > 0
+                ? XForwardedRemoteAddressResolver.maxTrustedIndex(properties.trustedProxies())
+                : new RemoteAddressResolver() {
+                };
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        int replenishRate = config.replenishRate() != null ? config.replenishRate() : DEFAULT_REPLENISH_RATE;
+        int burstCapacity = config.burstCapacity() != null ? config.burstCapacity() : replenishRate;
+        if (replenishRate <= 0 || burstCapacity <= 0) {
+            throw new IllegalArgumentException("replenishRate y burstCapacity deben ser mayores que cero");
+        }
+        boolean bySession = config.keyBy() != KeyBy.IP;
+
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : UNKNOWN_ROUTE;
+            String sessionId = bySession ? sessionId(exchange) : null;
+            String key = sessionId != null
+                    ? routeId + " s:" + sessionId
+                    : routeId + " ip:" + clientAddress(exchange);
+
+            long waitNanos = limiter.tryAcquire(key, replenishRate, burstCapacity);
+            if (waitNanos == 0) {
+                return chain.filter(exchange);
+            }
+            RejectedCounters counters = rejected.computeIfAbsent(routeId, this::rejectedCounters);
+            (sessionId != null ? counters.session() : counters.ip()).increment();
+            ServerHttpResponse response = exchange.getResponse();
+            // Segundos hasta el próximo token, redondeado hacia arriba
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1));
+            return ErrorResponseBuilder.buildErrorResponse(response, HttpStatus.TOO_MANY_REQUESTS, AuthenticationConstants.MSG_RATE_LIMITED);
+        };
+    }
+
+    private static String sessionId(ServerWebExchange exchange) {
+        HttpCookie cookie = exchange.getRequest().getCookies().getFirst(AuthenticationConstants.SESSION_COOKIE_NAME);
+        if (cookie == null) {
+            return null;
+        }
+        try {
+            String sessionId = CustomAuthGatewayFilterFactory.decodeSessionId(cookie.getValue());
+            return SessionIdValidator.isWellFormed(sessionId) ? sessionId : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String clientAddress(ServerWebExchange exchange) {
+        InetSocketAddress address = addressResolver.resolve(exchange);
+        return address != null ? address.getHostString() : UNKNOWN_ADDRESS;
+    }
+
+    private RejectedCounters rejectedCounters(String routeId) {
+        return new RejectedCounters(rejectedCounter(routeId, "session"), rejectedCounter(routeId, "ip"));
+    }
+
+    private Counter rejectedCounter(String routeId, String keyType) {
+        return Counter.builder(REJECTED_METRIC)
+                .description("Peticiones rechazadas con 429 por superar el límite de la ruta")
+                .tag("route", routeId)
+                .tag("key", keyType)
+                .register(meterRegistry);
+    }
+
+    private record RejectedCounters(Counter session, Counter ip) {
+    }
+
+    public enum KeyBy {
+        SESSION,
+        IP
+    }
+
+    /**
+     * @param replenishRate peticiones por segundo sostenidas por clave
+     * @param burstCapacity peticiones seguidas aceptadas con el bucket lleno (por defecto {@code replenishRate})
+     * @param keyBy         {@code session} (sin cookie de sesión, IP) o {@code ip}
+     */
+    public record Config(Integer replenishRate, Integer burstCapacity, KeyBy keyBy) {
+    }
+}
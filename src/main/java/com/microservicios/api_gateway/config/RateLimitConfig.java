@@ -0,0 +1,32 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.ratelimit.LocalRateLimiter;
+import com.microservicios.api_gateway.ratelimit.RedisRateLimitSync;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+/**
+ * Buckets compartidos por todos los filtros {@code LocalRateLimit} y, si está activada, su sincronización
+ * con Redis.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public LocalRateLimiter localRateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        return new LocalRateLimiter(properties.maxKeys(), properties.idleTimeout(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.rate-limit.redis-sync", name = "enabled", havingValue = "true")
+    public RedisRateLimitSync redisRateLimitSync(LocalRateLimiter limiter, ReactiveStringRedisTemplate redisTemplate,
+                                                 RateLimitProperties properties) {
+        RateLimitProperties.RedisSync sync = properties.redisSync();
+        return new RedisRateLimitSync(limiter, redisTemplate, sync.interval(), properties.idleTimeout(), sync.keyPrefix());
+    }
+}
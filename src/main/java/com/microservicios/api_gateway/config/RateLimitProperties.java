@@ -0,0 +1,35 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Límites de peticiones en memoria ({@code gateway.rate-limit.*}); el límite de cada ruta se configura en
+ * los argumentos de su filtro {@code LocalRateLimit}.
+ *
+ * @param maxKeys        buckets (ruta + sesión o IP) que se guardan como mucho
+ * @param idleTimeout    un bucket sin uso durante este tiempo se descarta
+ * @param trustedProxies proxies delante del gateway que agregan su entrada a {@code X-Forwarded-For}; la IP
+ *                       del cliente es la que agregó el más externo. Con 0 se usa la dirección de la conexión
+ * @param redisSync      sincronización periódica de los contadores con Redis
+ */
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("100000") long maxKeys,
+        @DefaultValue("10m") Duration idleTimeout,
+        @DefaultValue("1") int trustedProxies,
+        @DefaultValue RedisSync redisSync) {
+
+    /**
+     * @param enabled   suma en Redis las peticiones de todas las instancias para aproximar un límite de clúster
+     * @param interval  cada cuánto se sincroniza
+     * @param keyPrefix prefijo de las claves en Redis
+     */
+    public record RedisSync(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("1s") Duration interval,
+            @DefaultValue("gateway:rate-limit:") String keyPrefix) {
+    }
+}
@@ -0,0 +1,352 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.util.SharedResponseHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agrupa las peticiones GET idénticas y concurrentes (misma ruta, path, query y cabeceras de {@code keyHeaders})
+ * en una sola llamada al destino.
+ * <p>
+ * La primera petición va al destino; las que llegan mientras tanto esperan y, cuando el destino empieza a
+ * responder, reciben el mismo estado, cabeceras y cuerpo a medida que se transmiten, sin esperar a que
+ * termine. Las respuestas con error, con {@code Set-Cookie}, con {@code Cache-Control: private} o
+ * {@code no-store}, con un {@code Vary} sobre cabeceras fuera de {@code keyHeaders} o que declaran un cuerpo
+ * mayor que {@code maxBodySize} no se comparten: las peticiones que esperaban van al destino por su cuenta.
+ * <p>
+ * Las peticiones con {@code Authorization} o {@code Cookie} no se agrupan: en las rutas excluidas de
+ * {@code CustomAuth} el destino recibe las cookies del usuario y puede responder según ellas. Tampoco las que
+ * llevan la sesión que validó {@code CustomAuth}: esa decisión se toma en {@link AfterAuthenticationFilter},
+ * después de la autenticación.
+ */
+@Component
+public class RequestCoalescingGatewayFilterFactory extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescingGatewayFilterFactory.class);
+
+    public static final String COALESCED_METRIC = "gateway.requests.coalesced";
+
+    static final int DEFAULT_MAX_WAITERS = 256;
+    static final DataSize DEFAULT_MAX_BODY_SIZE = DataSize.ofMegabytes(1);
+    // Debe envolver a NettyWriteResponseFilter para ver el cuerpo del destino
+    static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    static final List<String> DEFAULT_KEY_HEADERS = List.of(
+            HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE);
+
+    // El CORS del gateway agrega este Vary a toda respuesta y resuelve esas cabeceras en cada petición
+    private static final List<String> CORS_VARY = List.of(
+            HttpHeaders.ORIGIN, HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    // Contadores por ruta, creados con la primera petición que espera en cada una
+    private final Map<String, CoalescedCounters> coalesced = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RequestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        int maxWaiters = config.maxWaiters() != null ? config.maxWaiters() : DEFAULT_MAX_WAITERS;
+        long maxBodyBytes = (config.maxBodySize() != null ? config.maxBodySize() : DEFAULT_MAX_BODY_SIZE).toBytes();
+        List<String> keyHeaders = config.keyHeaders() != null ? List.copyOf(config.keyHeaders()) : DEFAULT_KEY_HEADERS;
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)
+                    || request.getHeaders().containsKey(HttpHeaders.COOKIE)) {
+                return chain.filter(exchange);
+            }
+            SharingResponse response = new SharingResponse(exchange.getResponse());
+            ServerWebExchange sharing = exchange.mutate().response(response).build();
+            // Se agrupa después de CustomAuth, cuando ya se sabe si la petición lleva credenciales de sesión
+            AfterAuthenticationFilter.defer(sharing, (authenticated, next) ->
+                    coalesce(authenticated, next, response, maxWaiters, maxBodyBytes, keyHeaders));
+            return chain.filter(sharing)
+                    // Si el destino no llegó a responder, las peticiones que esperaban van por su cuenta
+                    .doFinally(signal -> response.release());
+        }, ORDER);
+    }
+
+    private Mono<Void> coalesce(ServerWebExchange exchange, GatewayFilterChain chain, SharingResponse response,
+                                int maxWaiters, long maxBodyBytes, List<String> keyHeaders) {
+        if (SessionCredentialsHeadersFilter.isAuthenticated(exchange)) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "";
+        String key = key(routeId, exchange.getRequest(), keyHeaders);
+
+        InFlight leader = new InFlight(maxWaiters, maxBodyBytes, keyHeaders);
+        InFlight existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            Waiter waiter = existing.join();
+            if (waiter == null) {
+                // Cupo de espera agotado o el destino ya empezó a responder
+                return chain.filter(exchange);
+            }
+            return follow(exchange, chain, waiter, routeId);
+        }
+        response.lead(leader, () -> inFlight.remove(key, leader));
+        return chain.filter(exchange);
+    }
+
+    static String key(String routeId, ServerHttpRequest request, List<String> keyHeaders) {
+        StringBuilder key = new StringBuilder(128)
+                .append(routeId).append(' ')
+                .append(request.getURI().getRawPath());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        HttpHeaders headers = request.getHeaders();
+        for (String name : keyHeaders) {
+            key.append('\n');
+            List<String> values = headers.get(name);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Si la respuesta vale para cualquier petición con la misma clave: no es privada y no varía según
+     * cabeceras que no forman parte de la clave. Las de CORS no cuentan: las cabeceras CORS no se comparten y
+     * el gateway las escribe en cada respuesta.
+     */
+    static boolean shareable(HttpHeaders response, List<String> keyHeaders) {
+        List<String> cacheControl = response.get(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null) {
+            for (String header : cacheControl) {
+                for (String part : header.split(",")) {
+                    String directive = part.trim().toLowerCase(Locale.ROOT);
+                    if (directive.startsWith("private") || directive.startsWith("no-store")) {
+                        return false;
+                    }
+                }
+            }
+        }
+        for (String name : response.getVary()) {
+            if (keyHeaders.stream().noneMatch(name::equalsIgnoreCase) && CORS_VARY.stream().noneMatch(name::equalsIgnoreCase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Mono<Void> follow(ServerWebExchange exchange, GatewayFilterChain chain, Waiter waiter, String routeId) {
+        CoalescedCounters counters = coalesced.computeIfAbsent(routeId, this::coalescedCounters);
+        return waiter.start.asMono()
+                .singleOptional()
+                .flatMap(start -> {
+                    if (start.isEmpty()) {
+                        counters.released().increment();
+                        return chain.filter(exchange);
+                    }
+                    counters.shared().increment();
+                    ServerHttpResponse response = exchange.getResponse();
+                    response.setStatusCode(start.get().status());
+                    SharedResponseHeaders.applyTo(start.get().headers(), response.getHeaders());
+                    if (start.get().contentLength() >= 0) {
+                        response.getHeaders().setContentLength(start.get().contentLength());
+                    }
+                    return response.writeWith(waiter.body.asFlux().map(bytes -> response.bufferFactory().wrap(bytes)));
+                });
+    }
+
+    private CoalescedCounters coalescedCounters(String routeId) {
+        return new CoalescedCounters(coalescedCounter(routeId, "shared"), coalescedCounter(routeId, "released"));
+    }
+
+    private Counter coalescedCounter(String routeId, String outcome) {
+        return Counter.builder(COALESCED_METRIC)
+                .description("Peticiones que esperaron la llamada al destino de otra petición idéntica")
+                .tag("route", routeId)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param maxWaiters  peticiones que pueden esperar a una misma llamada; las demás van al destino
+     * @param maxBodySize respuestas que declaran un cuerpo mayor no se comparten, y las que lo superan
+     *                    transmitiéndose se cortan para las peticiones que esperaban
+     * @param keyHeaders  cabeceras de la petición que forman parte de la clave
+     */
+    public record Config(Integer maxWaiters, DataSize maxBodySize, List<String> keyHeaders) {
+    }
+
+    private record CoalescedCounters(Counter shared, Counter released) {
+    }
+
+    private record ResponseStart(HttpStatusCode status, HttpHeaders headers, long contentLength) {
+    }
+
+    /**
+     * Petición en espera: recibe el inicio de la respuesta (vacío si no se comparte) y luego el cuerpo.
+     */
+    private static final class Waiter {
+
+        private final Sinks.One<ResponseStart> start = Sinks.one();
+        private final Sinks.Many<byte[]> body = Sinks.many().unicast().onBackpressureBuffer();
+    }
+
+    /**
+     * Llamada al destino en curso. Acepta peticiones en espera hasta que el destino empieza a responder.
+     */
+    private static final class InFlight {
+
+        private final int maxWaiters;
+        private final long maxBodyBytes;
+        private final List<String> keyHeaders;
+        private final List<Waiter> waiters = new ArrayList<>();
+        private boolean closed;
+
+        InFlight(int maxWaiters, long maxBodyBytes, List<String> keyHeaders) {
+            this.maxWaiters = maxWaiters;
+            this.maxBodyBytes = maxBodyBytes;
+            this.keyHeaders = keyHeaders;
+        }
+
+        synchronized Waiter join() {
+            if (closed || waiters.size() >= maxWaiters) {
+                return null;
+            }
+            Waiter waiter = new Waiter();
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        /**
+         * Deja de aceptar peticiones y devuelve las que esperan; vacío si ya estaba cerrada.
+         */
+        synchronized List<Waiter> close() {
+            if (closed) {
+                return List.of();
+            }
+            closed = true;
+            return waiters;
+        }
+
+        void abort() {
+            for (Waiter waiter : close()) {
+                waiter.start.tryEmitEmpty();
+            }
+        }
+    }
+
+    /**
+     * Respuesta de la petición que llama al destino: al empezar a escribir reparte el estado, las cabeceras
+     * y una copia de cada fragmento del cuerpo a las peticiones en espera.
+     */
+    private static final class SharingResponse extends ServerHttpResponseDecorator {
+
+        // Sólo si esta petición llama al destino por las demás
+        private volatile InFlight flight;
+        private volatile Runnable unregister;
+
+        SharingResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        void lead(InFlight flight, Runnable unregister) {
+            this.unregister = unregister;
+            this.flight = flight;
+        }
+
+        void release() {
+            InFlight current = flight;
+            if (current != null) {
+                unregister.run();
+                current.abort();
+            }
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            InFlight flight = this.flight;
+            if (flight == null) {
+                return super.writeWith(body);
+            }
+            unregister.run();
+            List<Waiter> waiters = flight.close();
+            if (waiters.isEmpty()) {
+                return super.writeWith(body);
+            }
+            HttpHeaders headers = getHeaders();
+            long contentLength = headers.getContentLength();
+            HttpStatusCode status = getStatusCode();
+            if (status == null || !status.is2xxSuccessful() || headers.containsKey(HttpHeaders.SET_COOKIE)
+                    || !shareable(headers, flight.keyHeaders) || contentLength > flight.maxBodyBytes) {
+                waiters.forEach(waiter -> waiter.start.tryEmitEmpty());
+                return super.writeWith(body);
+            }
+
+            ResponseStart start = new ResponseStart(status, SharedResponseHeaders.snapshot(headers), contentLength);
+            waiters.forEach(waiter -> waiter.start.tryEmitValue(start));
+            long[] written = {0};
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(buffer -> {
+                        int length = buffer.readableByteCount();
+                        written[0] += length;
+                        if (written[0] > flight.maxBodyBytes) {
+                            fail(waiters, new IllegalStateException("El cuerpo compartido supera maxBodySize"));
+                            return;
+                        }
+                        // Una sola copia por fragmento, compartida de sólo lectura por todas las peticiones
+                        byte[] copy = new byte[length];
+                        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(copy), 0, length);
+                        waiters.forEach(waiter -> waiter.body.tryEmitNext(copy));
+                    })
+                    .doOnComplete(() -> waiters.forEach(waiter -> waiter.body.tryEmitComplete()))
+                    .doOnError(error -> fail(waiters, error))
+                    .doOnCancel(() -> fail(waiters, new IllegalStateException("Se canceló la respuesta compartida"))));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            // Streaming (text/event-stream y similares): no se comparte
+            release();
+            return super.writeAndFlushWith(body);
+        }
+
+        private static void fail(List<Waiter> waiters, Throwable error) {
+            if (log.isDebugEnabled()) {
+                log.debug("Se corta la respuesta compartida para {} peticiones: {}", waiters.size(), error.getMessage());
+            }
+            waiters.forEach(waiter -> waiter.body.tryEmitError(error));
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.cache.CachedResponse;
+import com.microservicios.api_gateway.cache.ResponseCache;
+import com.microservicios.api_gateway.util.SharedResponseHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cachea las respuestas 200 a peticiones GET de la ruta en una {@link ResponseCache} compartida.
+ * <p>
+ * Respeta el {@code Cache-Control} del destino ({@code no-store}, {@code private} y {@code no-cache} no se
+ * guardan; {@code s-maxage}/{@code max-age} fijan el TTL, y si no hay se usa el {@code ttl} de la ruta),
+ * responde 304 a las peticiones condicionales que coinciden con el {@code ETag} o {@code Last-Modified}
+ * guardado y agrupa las consultas concurrentes por la misma URL. El cuerpo se copia mientras se
+ * transmite al cliente, sin demorarlo.
+ * <p>
+ * La caché se consulta en {@link AfterAuthenticationFilter}, después de {@code CustomAuth}: en las rutas que
+ * requieren sesión, las peticiones sin sesión se rechazan como siempre y las autenticadas no usan la caché.
+ */
+@Component
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+    // Dentro de FallbackRoutes y fuera de RequestCoalescing si la ruta usa los dos
+    static final int ORDER = RequestCoalescingGatewayFilterFactory.ORDER - 1;
+
+    private final ResponseCache cache;
+    private final ResponseCacheProperties properties;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.cache = new ResponseCache(properties.maxSize().toBytes(), meterRegistry);
+        this.properties = properties;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        long defaultTtlNanos = (config.ttl() != null ? config.ttl() : DEFAULT_TTL).toNanos();
+
+        // Debe envolver a NettyWriteResponseFilter: el cuerpo del destino se escribe después de que termina
+        // el resto de la cadena, sobre la respuesta que ve ese filtro
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!cacheable(exchange.getRequest())) {
+                return chain.filter(exchange);
+            }
+            CachingResponse response = new CachingResponse(exchange, defaultTtlNanos);
+            ServerWebExchange capturing = exchange.mutate().response(response).build();
+            // La caché se consulta después de CustomAuth: una petición rechazada no recibe la respuesta
+            // guardada y una con sesión no la usa ni la llena
+            AfterAuthenticationFilter.defer(capturing, (authenticated, next) -> lookup(authenticated, next, response));
+            return chain.filter(capturing)
+                    // Si la respuesta no se pudo cachear, las peticiones que esperaban van al destino
+                    .doFinally(signal -> response.release());
+        }, ORDER);
+    }
+
+    private Mono<Void> lookup(ServerWebExchange exchange, GatewayFilterChain chain, CachingResponse response) {
+        if (SessionCredentialsHeadersFilter.isAuthenticated(exchange)) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        String key = key(exchange);
+        CachedResponse cached = cache.get(key);
+        if (cached != null && cached.matches(request.getHeaders())) {
+            return serve(exchange, cached);
+        }
+        // Una petición condicional sin entrada se resuelve en el destino, que puede responder 304
+        if (isConditional(request.getHeaders())) {
+            return chain.filter(exchange);
+        }
+
+        ResponseCache.Load load = cache.begin(key);
+        if (!load.leader()) {
+            return load.result()
+                    .timeout(properties.coalesceTimeout(), Mono.empty())
+                    .filter(entry -> entry.matches(request.getHeaders()))
+                    .singleOptional()
+                    .flatMap(entry -> entry.isPresent()
+                            ? serve(exchange, entry.get())
+                            : chain.filter(exchange));
+        }
+        response.capture(load);
+        return chain.filter(exchange);
+    }
+
+    private static boolean cacheable(ServerHttpRequest request) {
+        if (request.getMethod() != HttpMethod.GET) {
+            return false;
+        }
+        HttpHeaders headers = request.getHeaders();
+        if (headers.containsKey(HttpHeaders.AUTHORIZATION)) {
+            return false;
+        }
+        // Recarga forzada del navegador: se consulta al destino
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null || !(cacheControl.contains("no-cache") || cacheControl.contains("no-store"));
+    }
+
+    private static boolean isConditional(HttpHeaders headers) {
+        return headers.containsKey(HttpHeaders.IF_NONE_MATCH) || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE);
+    }
+
+    private static String key(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        ServerHttpRequest request = exchange.getRequest();
+        String query = request.getURI().getRawQuery();
+        String path = request.getURI().getRawPath();
+        String routeId = route != null ? route.getId() : "";
+        return query == null ? routeId + ' ' + path : routeId + ' ' + path + '?' + query;
+    }
+
+    private static Mono<Void> serve(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        SharedResponseHeaders.applyTo(cached.headers(), headers);
+        if (notModified(exchange.getRequest().getHeaders(), cached.headers())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(cached.body().remaining());
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.content())));
+    }
+
+    /**
+     * Evalúa {@code If-None-Match} (comparación débil, RFC 9110 13.1.2) o, si no está, {@code If-Modified-Since}.
+     */
+    static boolean notModified(HttpHeaders request, HttpHeaders cached) {
+        if (request.containsKey(HttpHeaders.IF_NONE_MATCH)) {
+            String etag = cached.getETag();
+            if (etag == null) {
+                return false;
+            }
+            String opaqueTag = opaqueTag(etag);
+            for (String candidate : request.getIfNoneMatch()) {
+                if ("*".equals(candidate) || opaqueTag.equals(opaqueTag(candidate))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long since = request.getIfModifiedSince();
+        long lastModified = cached.getLastModified();
+        return since >= 0 && lastModified >= 0 && lastModified <= since;
+    }
+
+    private static String opaqueTag(String etag) {
+        String tag = etag.trim();
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    /**
+     * TTL de la respuesta según su {@code Cache-Control}; cero si no se puede guardar.
+     */
+    static long ttlNanos(List<String> cacheControl, long defaultTtlNanos) {
+        long maxAge = -1;
+        long sharedMaxAge = -1;
+        for (String header : cacheControl) {
+            for (String part : header.split(",")) {
+                String directive = part.trim().toLowerCase(Locale.ROOT);
+                if (directive.startsWith("no-store") || directive.startsWith("no-cache") || directive.startsWith("private")) {
+                    return 0;
+                }
+                if (directive.startsWith("s-maxage=")) {
+                    sharedMaxAge = seconds(directive.substring("s-maxage=".length()));
+                } else if (directive.startsWith("max-age=")) {
+                    maxAge = seconds(directive.substring("max-age=".length()));
+                }
+            }
+        }
+        long seconds = sharedMaxAge >= 0 ? sharedMaxAge : maxAge;
+        return seconds >= 0 ? TimeUnit.SECONDS.toNanos(seconds) : defaultTtlNanos;
+    }
+
+    private static long seconds(String value) {
+        try {
+            return Long.parseLong(value.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            // Un valor inválido se trata como vencido (RFC 9111 4.2.1)
+            return 0;
+        }
+    }
+
+    /**
+     * @param ttl tiempo de vida de las respuestas sin {@code max-age} del destino
+     */
+    public record Config(Duration ttl) {
+    }
+
+    /**
+     * Copia el cuerpo de la respuesta del destino a medida que se escribe y lo guarda al terminar,
+     * si la respuesta se puede cachear.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final long defaultTtlNanos;
+        // Sólo si la consulta a la caché eligió esta petición para llenar la entrada
+        private volatile ResponseCache.Load load;
+
+        CachingResponse(ServerWebExchange exchange, long defaultTtlNanos) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.defaultTtlNanos = defaultTtlNanos;
+        }
+
+        void capture(ResponseCache.Load load) {
+            this.load = load;
+        }
+
+        void release() {
+            ResponseCache.Load current = load;
+            if (current != null) {
+                current.complete(null);
+            }
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            ResponseCache.Load load = this.load;
+            if (load == null) {
+                return super.writeWith(body);
+            }
+            long ttl = storableTtl();
+            long contentLength = getHeaders().getContentLength();
+            int maxEntryBytes = (int) Math.min(Integer.MAX_VALUE, properties.maxEntrySize().toBytes());
+            if (ttl <= 0 || contentLength > maxEntryBytes) {
+                return super.writeWith(body);
+            }
+            BodyCollector collector = new BodyCollector(contentLength, maxEntryBytes);
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(collector::append)
+                    .doOnComplete(() -> {
+                        ByteBuffer content = collector.content();
+                        load.complete(content == null ? null : entry(content, ttl));
+                    }));
+        }
+
+        // writeAndFlushWith (text/event-stream y similares) no se intercepta: esas respuestas no se cachean
+
+        private long storableTtl() {
+            HttpHeaders headers = getHeaders();
+            if (!HttpStatus.OK.equals(getStatusCode()) || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+                return 0;
+            }
+            List<String> vary = headers.getVary();
+            if (vary.contains("*")) {
+                return 0;
+            }
+            List<String> cacheControl = headers.get(HttpHeaders.CACHE_CONTROL);
+            return cacheControl == null ? defaultTtlNanos : ttlNanos(cacheControl, defaultTtlNanos);
+        }
+
+        private CachedResponse entry(ByteBuffer content, long ttl) {
+            HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+            Map<String, String> vary = new LinkedHashMap<>();
+            for (String name : getHeaders().getVary()) {
+                vary.put(name, CachedResponse.joined(requestHeaders, name));
+            }
+            return new CachedResponse(SharedResponseHeaders.snapshot(getHeaders()), content,
+                    Collections.unmodifiableMap(vary), ttl);
+        }
+    }
+
+    /**
+     * Acumula el cuerpo hasta {@code maxBytes}; con {@code Content-Length} copia directo a memoria fuera
+     * del heap, si no a un buffer que crece y se pasa fuera del heap al final.
+     */
+    private static final class BodyCollector {
+
+        private final int maxBytes;
+        private ByteBuffer buffer;
+
+        BodyCollector(long contentLength, int maxBytes) {
+            this.maxBytes = maxBytes;
+            this.buffer = contentLength >= 0
+                    ? ByteBuffer.allocateDirect((int) contentLength)
+                    : ByteBuffer.allocate(Math.min(8192, maxBytes));
+        }
+
+        void append(DataBuffer data) {
+            if (buffer == null) {
+                return;
+            }
+            int length = data.readableByteCount();
+            if (buffer.remaining() < length) {
+                int required = buffer.position() + length;
+                if (required > maxBytes) {
+                    // Demasiado grande: se sigue transmitiendo sin cachear
+                    buffer = null;
+                    return;
+                }
+                ByteBuffer grown = ByteBuffer.allocate(Math.min(maxBytes, Math.max(required, buffer.capacity() * 2)));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            try (DataBuffer.ByteBufferIterator iterator = data.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    buffer.put(iterator.next());
+                }
+            }
+        }
+
+        /**
+         * Cuerpo completo, o {@code null} si superó el tope.
+         */
+        ByteBuffer content() {
+            if (buffer == null) {
+                return null;
+            }
+            buffer.flip();
+            if (buffer.isDirect()) {
+                return buffer;
+            }
+            ByteBuffer direct = ByteBuffer.allocateDirect(buffer.remaining());
+            direct.put(buffer).flip();
+            return direct;
+        }
+    }
+}
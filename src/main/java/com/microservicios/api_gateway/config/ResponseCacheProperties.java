@@ -0,0 +1,21 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Caché de respuestas compartida por las rutas con el filtro {@code ResponseCache} ({@code gateway.response-cache.*}).
+ *
+ * @param maxSize         bytes totales de las respuestas cacheadas (cuerpo y cabeceras)
+ * @param maxEntrySize    respuestas más grandes no se cachean
+ * @param coalesceTimeout espera máxima a la consulta en curso por la misma URL antes de ir al destino
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public record ResponseCacheProperties(
+        @DefaultValue("64MB") DataSize maxSize,
+        @DefaultValue("1MB") DataSize maxEntrySize,
+        @DefaultValue("5s") Duration coalesceTimeout) {
+}
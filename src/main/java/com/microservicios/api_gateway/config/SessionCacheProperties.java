@@ -0,0 +1,25 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuración de la caché local de credenciales de sesión ({@code gateway.session-cache.*}).
+ *
+ * @param enabled activa la caché delante de Redis
+ * @param maxSize cantidad máxima de sesiones en memoria
+ * @param ttl     tiempo de vida de cada entrada; acota la desactualización si se pierde
+ *                una notificación de Redis
+ * @param negativeMaxSize cantidad máxima de IDs desconocidos recordados
+ * @param negativeTtl     tiempo durante el cual un ID desconocido se rechaza sin consultar Redis
+ */
+@ConfigurationProperties(prefix = "gateway.session-cache")
+public record SessionCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maxSize,
+        @DefaultValue("10s") Duration ttl,
+        @DefaultValue("50000") long negativeMaxSize,
+        @DefaultValue("5s") Duration negativeTtl) {
+}
@@ -0,0 +1,18 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.codec.SessionValueFormat;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Formato de los valores de sesión en Redis ({@code gateway.session-codec.*}).
+ *
+ * @param writeFormat formato con el que se escriben los String ({@code jdk}, {@code compact} o {@code json})
+ * @param dualRead    acepta al leer cualquiera de los formatos conocidos; desactivar sólo cuando
+ *                    gateway y ms-login escriben ya en {@code writeFormat}
+ */
+@ConfigurationProperties(prefix = "gateway.session-codec")
+public record SessionCodecProperties(
+        @DefaultValue("jdk") SessionValueFormat writeFormat,
+        @DefaultValue("true") boolean dualRead) {
+}
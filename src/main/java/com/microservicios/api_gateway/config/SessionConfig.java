@@ -1,11 +1,14 @@
 package com.microservicios.api_gateway.config;
 
+import com.microservicios.api_gateway.codec.MigratingSessionValueCodec;
+import com.microservicios.api_gateway.codec.SessionValueCodec;
+import com.microservicios.api_gateway.codec.SessionValueRedisSerializer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveRedisOperations;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
-import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -14,28 +17,40 @@ import org.springframework.session.data.redis.config.ConfigureRedisAction;
 
 
 @Configuration
+@EnableConfigurationProperties(SessionCodecProperties.class)
 public class SessionConfig {
 
+    /**
+     * Codec de los valores String de la sesión. Con el formato {@code jdk} (por defecto) escribe
+     * exactamente los mismos bytes que JdkSerializationRedisSerializer, compatible con ms-login,
+     * pero los lee sin ObjectInputStream.
+     */
+    @Bean
+    public SessionValueCodec sessionValueCodec(SessionCodecProperties properties) {
+        return new MigratingSessionValueCodec(properties.writeFormat(), properties.dualRead());
+    }
+
     /**
      * Este bean configura el serializador para los atributos de la sesión en Redis.
-     * Cambiamos a JdkSerializationRedisSerializer para que sea compatible con ms-login,
-     * que usa la serialización binaria de Java por defecto.
+     * Los String pasan por el {@link SessionValueCodec}; el resto de los atributos sigue usando
+     * la serialización binaria de Java, compatible con ms-login.
      */
     @Bean
-    public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
-        return new JdkSerializationRedisSerializer();
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer(SessionValueCodec sessionValueCodec) {
+        return new SessionValueRedisSerializer(sessionValueCodec);
     }
 
     /**
      * Configura ReactiveRedisOperations para Spring Session.
      * Esto asegura que el ReactiveRedisTemplate interno de Spring Session utilice
-     * el JdkSerializationRedisSerializer para la serialización/deserialización
+     * el serializador de sesión para la serialización/deserialización
      * de los atributos de sesión, haciéndolo compatible con ms-login.
      */
     @Bean
-    public ReactiveRedisOperations<String, Object> sessionRedisOperations(ReactiveRedisConnectionFactory connectionFactory) {
+    public ReactiveRedisOperations<String, Object> sessionRedisOperations(ReactiveRedisConnectionFactory connectionFactory,
+                                                                         RedisSerializer<Object> springSessionDefaultRedisSerializer) {
         StringRedisSerializer keySerializer = new StringRedisSerializer();
-        RedisSerializer<Object> valueSerializer = springSessionDefaultRedisSerializer(); // Usa nuestro serializador JSON
+        RedisSerializer<Object> valueSerializer = springSessionDefaultRedisSerializer;
 
         RedisSerializationContext<String, Object> serializationContext = RedisSerializationContext
                 .<String, Object>newSerializationContext(keySerializer)
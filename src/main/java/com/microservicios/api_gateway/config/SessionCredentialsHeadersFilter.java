@@ -0,0 +1,70 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.repository.SessionCredentials;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Agrega {@code Authorization} (y {@code X-Refresh-Token} si corresponde) a la petición al servicio destino.
+ * <p>
+ * {@link CustomAuthGatewayFilterFactory} sólo deja las credenciales de la sesión en el exchange
+ * ({@link #attach}), en lugar de reconstruir la petición con {@code exchange.mutate()}, que copia todas las
+ * cabeceras entrantes. El routing filter ya arma una copia de las cabeceras para el destino: este filtro
+ * corre último y agrega las dos cabeceras sobre esa copia, con el valor {@code Bearer ...} que las
+ * credenciales cachean por sesión.
+ */
+@Component
+public class SessionCredentialsHeadersFilter implements HttpHeadersFilter, Ordered {
+
+    public static final String CREDENTIALS_ATTRIBUTE = SessionCredentialsHeadersFilter.class.getName() + ".credentials";
+    public static final String REFRESH_TOKEN_ATTRIBUTE = SessionCredentialsHeadersFilter.class.getName() + ".refreshToken";
+
+    /**
+     * Marca la petición como autenticada con las credenciales a reenviar al destino.
+     */
+    public static void attach(ServerWebExchange exchange, SessionCredentials credentials, boolean forwardRefreshToken) {
+        exchange.getAttributes().put(CREDENTIALS_ATTRIBUTE, credentials);
+        if (forwardRefreshToken) {
+            exchange.getAttributes().put(REFRESH_TOKEN_ATTRIBUTE, credentials.refreshToken());
+        }
+    }
+
+    /**
+     * Si la petición lleva credenciales de sesión: los filtros que comparten respuestas entre clientes deben
+     * tratarla igual que una petición con {@code Authorization}. Sólo es válido después de {@code CustomAuth}:
+     * antes de ese filtro, por ejemplo en los que envuelven a {@code NettyWriteResponseFilter}, se consulta desde
+     * una etapa diferida con {@link AfterAuthenticationFilter#defer}.
+     */
+    public static boolean isAuthenticated(ServerWebExchange exchange) {
+        return exchange.getAttributes().containsKey(CREDENTIALS_ATTRIBUTE);
+    }
+
+    @Override
+    public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
+        SessionCredentials credentials = exchange.getAttribute(CREDENTIALS_ATTRIBUTE);
+        if (credentials == null) {
+            return input;
+        }
+        HttpHeaders headers = input;
+        if (input == exchange.getRequest().getHeaders()) {
+            // Ningún filtro anterior copió las cabeceras: las de la petición entrante son de sólo lectura
+            headers = new HttpHeaders();
+            headers.putAll(input);
+        }
+        headers.set(AuthenticationConstants.HEADER_AUTHORIZATION, credentials.authorization());
+        String refreshToken = exchange.getAttribute(REFRESH_TOKEN_ATTRIBUTE);
+        if (refreshToken != null) {
+            headers.set(AuthenticationConstants.HEADER_REFRESH_TOKEN, refreshToken);
+        }
+        return headers;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,57 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.autoconfigure.data.redis.RedisConnectionDetails;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.StringUtils;
+
+import java.net.URI;
+
+/**
+ * Conexión y template dedicados a las lecturas de sesión de {@code RedisSessionRepository}.
+ */
+@Configuration
+@EnableConfigurationProperties(SessionRedisProperties.class)
+public class SessionRedisConfig {
+
+    @Bean
+    public SessionRedisConnection sessionRedisConnection(RedisConnectionDetails connectionDetails,
+                                                         RedisProperties redisProperties,
+                                                         SessionRedisProperties properties) {
+        return new SessionRedisConnection(connectionDetails, sslEnabled(redisProperties), properties);
+    }
+
+    /**
+     * Como {@code LettuceConnectionConfiguration}: TLS con {@code spring.data.redis.ssl.enabled} o con una
+     * {@code spring.data.redis.url} {@code rediss://}.
+     */
+    static boolean sslEnabled(RedisProperties redisProperties) {
+        if (redisProperties.getSsl().isEnabled()) {
+            return true;
+        }
+        String url = redisProperties.getUrl();
+        return StringUtils.hasText(url) && "rediss".equalsIgnoreCase(URI.create(url).getScheme());
+    }
+
+    /**
+     * Template de las lecturas de sesión (y de la escritura de los tokens renovados): los valores del hash llegan como
+     * bytes y los decodifica el {@code SessionValueCodec}.
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, byte[]> sessionAttributeRedisTemplate(SessionRedisConnection sessionRedisConnection) {
+        StringRedisSerializer keySerializer = new StringRedisSerializer();
+        RedisSerializationContext<String, byte[]> serializationContext = RedisSerializationContext
+                .<String, byte[]>newSerializationContext(keySerializer)
+                .value(RedisSerializer.byteArray())
+                .hashKey(keySerializer)
+                .hashValue(RedisSerializer.byteArray())
+                .build();
+        return new ReactiveRedisTemplate<>(sessionRedisConnection.connectionFactory(), serializationContext);
+    }
+}
@@ -0,0 +1,107 @@
+package com.microservicios.api_gateway.config;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.NettyCustomizer;
+import io.netty.channel.Channel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisConnectionDetails;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+/**
+ * Conexión Lettuce propia de las lecturas de sesión: una única conexión multiplexada compartida,
+ * con timeouts por comando cortos y los flush agrupados por {@link FlushConsolidationHandler}.
+ * <p>
+ * No se expone como {@code RedisConnectionFactory} para no reemplazar la fábrica autoconfigurada
+ * que usan Spring Session y el listener de invalidaciones.
+ */
+public class SessionRedisConnection implements DisposableBean {
+
+    private final ClientResources clientResources;
+    private final LettuceConnectionFactory connectionFactory;
+
+    public SessionRedisConnection(RedisConnectionDetails connectionDetails, boolean ssl, SessionRedisProperties properties) {
+        this.clientResources = clientResources(properties);
+        this.connectionFactory = new LettuceConnectionFactory(
+                standaloneConfiguration(connectionDetails), clientConfiguration(ssl, properties, clientResources));
+        // Sin conexión anticipada: el arranque no depende de que Redis esté disponible
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    public ReactiveRedisConnectionFactory connectionFactory() {
+        return connectionFactory;
+    }
+
+    private static ClientResources clientResources(SessionRedisProperties properties) {
+        ClientResources.Builder builder = ClientResources.builder();
+        if (properties.flushConsolidation()) {
+            builder.nettyCustomizer(new NettyCustomizer() {
+                @Override
+                public void afterChannelInitialized(Channel channel) {
+                    // consolidateWhenNoReadInProgress: los comandos que llegan en la misma vuelta del
+                    // event loop salen en una sola escritura
+                    channel.pipeline().addFirst(new FlushConsolidationHandler(properties.explicitFlushAfterFlushes(), true));
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    private static RedisStandaloneConfiguration standaloneConfiguration(RedisConnectionDetails connectionDetails) {
+        RedisConnectionDetails.Standalone standalone = connectionDetails.getStandalone();
+        if (standalone == null) {
+            throw new IllegalStateException("gateway.session-redis sólo admite Redis standalone (con réplicas opcionales)");
+        }
+        RedisStandaloneConfiguration configuration =
+                new RedisStandaloneConfiguration(standalone.getHost(), standalone.getPort());
+        configuration.setDatabase(standalone.getDatabase());
+        if (StringUtils.hasText(connectionDetails.getUsername())) {
+            configuration.setUsername(connectionDetails.getUsername());
+        }
+        configuration.setPassword(RedisPassword.of(connectionDetails.getPassword()));
+        return configuration;
+    }
+
+    private static LettuceClientConfiguration clientConfiguration(boolean ssl, SessionRedisProperties properties,
+                                                                  ClientResources clientResources) {
+        Duration commandTimeout = properties.commandTimeout();
+        ClientOptions clientOptions = ClientOptions.builder()
+                .socketOptions(SocketOptions.builder().connectTimeout(properties.connectTimeout()).build())
+                // El timeout también aplica a la API reactiva, no sólo a la síncrona
+                .timeoutOptions(TimeoutOptions.enabled(commandTimeout))
+                // Sin conexión los comandos fallan enseguida en lugar de encolarse hasta el timeout
+                .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                .build();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder = LettuceClientConfiguration.builder()
+                .clientResources(clientResources)
+                .clientOptions(clientOptions)
+                .commandTimeout(commandTimeout)
+                .shutdownTimeout(Duration.ZERO);
+        if (ssl) {
+            builder.useSsl();
+        }
+        if (StringUtils.hasText(properties.readFrom())) {
+            // Con standalone, Lettuce descubre las réplicas del primario con INFO REPLICATION
+            builder.readFrom(ReadFrom.valueOf(properties.readFrom()));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void destroy() {
+        connectionFactory.destroy();
+        clientResources.shutdown();
+    }
+}
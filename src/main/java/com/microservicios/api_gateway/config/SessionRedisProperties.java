@@ -0,0 +1,28 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Conexión dedicada a Redis para las lecturas de sesión del filtro de autenticación
+ * ({@code gateway.session-redis.*}). El resto de los usos de Redis (Spring Session,
+ * notificaciones keyevent) siguen con {@code spring.data.redis}.
+ *
+ * @param commandTimeout           tiempo máximo de un comando; un Redis lento falla rápido en lugar
+ *                                 de retener la petición
+ * @param connectTimeout           tiempo máximo para establecer la conexión
+ * @param flushConsolidation       agrupa los flush de comandos concurrentes en una sola escritura al socket
+ * @param explicitFlushAfterFlushes cantidad máxima de flush agrupados antes de escribir igualmente
+ * @param readFrom                 nodo desde el que se lee ({@code replicaPreferred}, {@code replica},
+ *                                 {@code nearest}, ...); vacío lee siempre del primario
+ */
+@ConfigurationProperties(prefix = "gateway.session-redis")
+public record SessionRedisProperties(
+        @DefaultValue("250ms") Duration commandTimeout,
+        @DefaultValue("500ms") Duration connectTimeout,
+        @DefaultValue("true") boolean flushConsolidation,
+        @DefaultValue("256") int explicitFlushAfterFlushes,
+        @DefaultValue("") String readFrom) {
+}
@@ -0,0 +1,80 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.repository.CachingSessionRepository;
+import com.microservicios.api_gateway.repository.CoalescingSessionRepository;
+import com.microservicios.api_gateway.repository.RedisSessionInvalidationListener;
+import com.microservicios.api_gateway.repository.RedisSessionRepository;
+import com.microservicios.api_gateway.repository.ResilientSessionRepository;
+import com.microservicios.api_gateway.repository.SessionRepository;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+
+/**
+ * Arma la cadena de decoradores de {@link SessionRepository} que usa el filtro de autenticación:
+ * caché local (opcional) → agrupación de lecturas concurrentes → circuit breaker y bulkhead (opcional) → Redis.
+ * <p>
+ * El circuit breaker envuelve sólo las lecturas que llegan a Redis, para que los aciertos de la caché
+ * no diluyan su tasa de fallas.
+ */
+@Configuration
+@EnableConfigurationProperties({SessionCacheProperties.class, SessionResilienceProperties.class})
+public class SessionRepositoryConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.session-resilience", name = "enabled", matchIfMissing = true)
+    public ResilientSessionRepository resilientSessionRepository(RedisSessionRepository redisSessionRepository,
+                                                                 CircuitBreakerRegistry circuitBreakerRegistry,
+                                                                 BulkheadRegistry bulkheadRegistry,
+                                                                 MeterRegistry meterRegistry) {
+        return new ResilientSessionRepository(redisSessionRepository,
+                circuitBreakerRegistry.circuitBreaker(ResilientSessionRepository.INSTANCE_NAME),
+                bulkheadRegistry.bulkhead(ResilientSessionRepository.INSTANCE_NAME),
+                meterRegistry);
+    }
+
+    @Bean
+    public CoalescingSessionRepository coalescingSessionRepository(RedisSessionRepository redisSessionRepository,
+                                                                   ObjectProvider<ResilientSessionRepository> resilientSessionRepository) {
+        SessionRepository store = resilientSessionRepository.getIfAvailable();
+        return new CoalescingSessionRepository(store != null ? store : redisSessionRepository);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.session-cache", name = "enabled", matchIfMissing = true)
+    public CachingSessionRepository cachingSessionRepository(CoalescingSessionRepository coalescingSessionRepository,
+                                                             SessionCacheProperties properties,
+                                                             SessionResilienceProperties resilienceProperties,
+                                                             MeterRegistry meterRegistry) {
+        return new CachingSessionRepository(coalescingSessionRepository,
+                properties.maxSize(), properties.ttl(),
+                properties.negativeMaxSize(), properties.negativeTtl(),
+                resilienceProperties.effectiveStaleTtl(),
+                meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.session-cache", name = "enabled", matchIfMissing = true)
+    public RedisSessionInvalidationListener redisSessionInvalidationListener(ReactiveRedisConnectionFactory connectionFactory,
+                                                                             CachingSessionRepository cachingSessionRepository) {
+        return new RedisSessionInvalidationListener(connectionFactory, cachingSessionRepository);
+    }
+
+    /**
+     * Capa más externa de la cadena; es la que recibe el filtro de autenticación.
+     */
+    @Bean
+    @Primary
+    public SessionRepository sessionRepository(CoalescingSessionRepository coalescingSessionRepository,
+                                               ObjectProvider<CachingSessionRepository> cachingSessionRepository) {
+        SessionRepository outermost = cachingSessionRepository.getIfAvailable();
+        return outermost != null ? outermost : coalescingSessionRepository;
+    }
+}
@@ -0,0 +1,35 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Comportamiento de las lecturas de sesión cuando Redis no está disponible ({@code gateway.session-resilience.*}).
+ * Los umbrales del circuit breaker y del bulkhead se configuran en
+ * {@code resilience4j.circuitbreaker.instances.sessionStore} y {@code resilience4j.bulkhead.instances.sessionStore}.
+ *
+ * @param enabled      activa el circuit breaker y el bulkhead delante de Redis
+ * @param degradedMode {@code fail-fast}: responde 503 sin consultar Redis; {@code serve-stale}: usa la última
+ *                     copia de la sesión en la caché local si existe
+ * @param staleTtl     antigüedad máxima de una copia usada en modo {@code serve-stale}
+ */
+@ConfigurationProperties(prefix = "gateway.session-resilience")
+public record SessionResilienceProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("serve-stale") DegradedMode degradedMode,
+        @DefaultValue("5m") Duration staleTtl) {
+
+    public enum DegradedMode {
+        FAIL_FAST,
+        SERVE_STALE
+    }
+
+    /**
+     * Antigüedad máxima de las copias que guarda la caché local; cero si no se sirven copias viejas.
+     */
+    public Duration effectiveStaleTtl() {
+        return enabled && degradedMode == DegradedMode.SERVE_STALE ? staleTtl : Duration.ZERO;
+    }
+}
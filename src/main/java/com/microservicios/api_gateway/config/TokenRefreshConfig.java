@@ -0,0 +1,47 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.codec.SessionValueCodec;
+import com.microservicios.api_gateway.repository.CachingSessionRepository;
+import com.microservicios.api_gateway.repository.RedisSessionRepository;
+import com.microservicios.api_gateway.repository.SessionTokenWriter;
+import com.microservicios.api_gateway.service.TokenRefreshClient;
+import com.microservicios.api_gateway.service.TokenRefresher;
+import com.microservicios.api_gateway.service.TokenValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Renovación de access tokens en el gateway; sin {@code gateway.token-refresh.enabled=true} el filtro de
+ * autenticación sigue reenviando el refresh token a los servicios destino.
+ */
+@Configuration
+@EnableConfigurationProperties(TokenRefreshProperties.class)
+@ConditionalOnProperty(prefix = "gateway.token-refresh", name = "enabled", havingValue = "true")
+public class TokenRefreshConfig {
+
+    @Bean
+    public SessionTokenWriter sessionTokenWriter(ReactiveRedisTemplate<String, byte[]> sessionAttributeRedisTemplate,
+                                                 SessionValueCodec sessionValueCodec) {
+        return new SessionTokenWriter(sessionAttributeRedisTemplate, sessionValueCodec);
+    }
+
+    @Bean
+    public TokenRefreshClient tokenRefreshClient(WebClient.Builder webClientBuilder, TokenRefreshProperties properties) {
+        return new TokenRefreshClient(webClientBuilder.build(), properties);
+    }
+
+    @Bean
+    public TokenRefresher tokenRefresher(RedisSessionRepository redisSessionRepository, SessionTokenWriter sessionTokenWriter,
+                                         TokenRefreshClient tokenRefreshClient, TokenValidator tokenValidator,
+                                         ObjectProvider<CachingSessionRepository> cachingSessionRepository,
+                                         TokenRefreshProperties properties, MeterRegistry meterRegistry) {
+        return new TokenRefresher(redisSessionRepository, sessionTokenWriter, tokenRefreshClient, tokenValidator,
+                cachingSessionRepository.getIfAvailable(), properties, meterRegistry);
+    }
+}
@@ -0,0 +1,39 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Renovación de access tokens en el gateway ({@code gateway.token-refresh.*}).
+ *
+ * @param enabled             renueva los access tokens de las sesiones activas antes de que venzan
+ * @param endpoint            endpoint de tokens del proveedor OAuth (grant {@code refresh_token})
+ * @param clientId            client ID de la aplicación OAuth
+ * @param clientSecret        client secret de la aplicación OAuth
+ * @param refreshBefore       anticipación con la que se renueva un token respecto de su vencimiento
+ * @param scanInterval        cada cuánto se buscan tokens por vencer
+ * @param timeout             tiempo máximo de espera de la respuesta del endpoint
+ * @param idleTimeout         una sesión sin peticiones durante este tiempo deja de renovarse
+ * @param revokedTtl          tiempo durante el que no se reintenta renovar una sesión con el refresh token revocado
+ * @param maxSessions         sesiones seguidas como mucho
+ * @param concurrency         renovaciones en paralelo durante una búsqueda
+ * @param forwardRefreshToken sigue enviando {@code X-Refresh-Token} a los servicios destino
+ */
+@ConfigurationProperties(prefix = "gateway.token-refresh")
+public record TokenRefreshProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("https://oauth2.googleapis.com/token") URI endpoint,
+        @DefaultValue("") String clientId,
+        @DefaultValue("") String clientSecret,
+        @DefaultValue("5m") Duration refreshBefore,
+        @DefaultValue("30s") Duration scanInterval,
+        @DefaultValue("5s") Duration timeout,
+        @DefaultValue("30m") Duration idleTimeout,
+        @DefaultValue("10m") Duration revokedTtl,
+        @DefaultValue("100000") long maxSessions,
+        @DefaultValue("16") int concurrency,
+        @DefaultValue("true") boolean forwardRefreshToken) {
+}
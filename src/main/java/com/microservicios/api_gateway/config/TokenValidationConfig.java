@@ -0,0 +1,30 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.service.GoogleOAuth2TokenValidator;
+import com.microservicios.api_gateway.service.RemoteTokenValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * En modo {@code remote} reemplaza la verificación por prefijo con una consulta
+ * cacheada al endpoint de tokeninfo; el prefijo se sigue usando como filtro previo.
+ */
+@Configuration
+@EnableConfigurationProperties(TokenValidationProperties.class)
+public class TokenValidationConfig {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "gateway.token-validation", name = "mode", havingValue = "remote")
+    public RemoteTokenValidator remoteTokenValidator(GoogleOAuth2TokenValidator formatValidator,
+                                                     WebClient.Builder webClientBuilder,
+                                                     TokenValidationProperties properties,
+                                                     MeterRegistry meterRegistry) {
+        return new RemoteTokenValidator(formatValidator, webClientBuilder.build(), properties, meterRegistry);
+    }
+}
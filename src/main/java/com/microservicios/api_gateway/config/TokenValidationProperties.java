@@ -0,0 +1,34 @@
+package com.microservicios.api_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Configuración de la validación de access tokens ({@code gateway.token-validation.*}).
+ *
+ * @param mode            {@code prefix}: sólo se verifica el formato; {@code remote}: además se consulta
+ *                        el endpoint de tokeninfo/introspección
+ * @param endpoint        URL a la que se envía el token (POST, formulario)
+ * @param tokenParameter  nombre del parámetro del formulario que lleva el token
+ * @param timeout         tiempo máximo de espera de la respuesta del endpoint
+ * @param cacheMaxSize    cantidad máxima de resultados en memoria
+ * @param maxCacheTtl     tope del tiempo de vida de un token válido en caché; acota cuánto tarda
+ *                        en notarse una revocación
+ * @param invalidCacheTtl tiempo durante el cual un token rechazado no se vuelve a consultar
+ * @param failOpen        si el endpoint no responde, acepta los tokens con formato válido
+ *                        (comportamiento del modo {@code prefix}) en lugar de rechazarlos
+ */
+@ConfigurationProperties(prefix = "gateway.token-validation")
+public record TokenValidationProperties(
+        @DefaultValue("prefix") String mode,
+        @DefaultValue("https://oauth2.googleapis.com/tokeninfo") URI endpoint,
+        @DefaultValue("access_token") String tokenParameter,
+        @DefaultValue("2s") Duration timeout,
+        @DefaultValue("50000") long cacheMaxSize,
+        @DefaultValue("5m") Duration maxCacheTtl,
+        @DefaultValue("30s") Duration invalidCacheTtl,
+        @DefaultValue("true") boolean failOpen) {
+}
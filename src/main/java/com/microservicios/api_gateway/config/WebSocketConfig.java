@@ -0,0 +1,23 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.websocket.MonitoredWebSocketService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.reactive.socket.server.WebSocketService;
+
+/**
+ * Envuelve el {@link WebSocketService} de Spring Cloud Gateway para que las conexiones admitidas por el filtro
+ * {@code WebSocket} pasen por {@link MonitoredWebSocketService}. El bean original no se puede reemplazar (no es
+ * condicional), así que éste es {@code @Primary} y el {@code WebsocketRoutingFilter} recibe el envoltorio.
+ */
+@Configuration
+public class WebSocketConfig {
+
+    @Bean
+    @Primary
+    public MonitoredWebSocketService monitoredWebSocketService(@Qualifier("webSocketService") WebSocketService webSocketService) {
+        return new MonitoredWebSocketService(webSocketService);
+    }
+}
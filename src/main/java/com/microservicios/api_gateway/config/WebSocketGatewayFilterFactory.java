@@ -0,0 +1,91 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.util.ErrorResponseBuilder;
+import com.microservicios.api_gateway.util.WebSocketUpgrade;
+import com.microservicios.api_gateway.websocket.WebSocketConnection;
+import com.microservicios.api_gateway.websocket.WebSocketRouteConnections;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conexiones WebSocket de larga duración de la ruta: limita las conexiones abiertas a la vez, cierra las
+ * inactivas o sin respuesta a los pings y mide conexiones, frames y bytes ({@link WebSocketRouteConnections}).
+ * <p>
+ * Sólo actúa sobre el handshake ({@code Upgrade: websocket}); el resto de las peticiones de la ruta pasan sin
+ * cambios. La autenticación ({@code CustomAuth}) corre una vez, sobre el handshake, con la cookie de sesión;
+ * los frames posteriores no vuelven a pasar por la cadena de filtros.
+ */
+@Component
+public class WebSocketGatewayFilterFactory extends AbstractGatewayFilterFactory<WebSocketGatewayFilterFactory.Config> {
+
+    static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    static final Duration DEFAULT_PING_INTERVAL = Duration.ofSeconds(30);
+
+    private static final String UNKNOWN_ROUTE = "unknown";
+
+    // Las conexiones abiertas sobreviven a los refrescos de rutas: el conteo debe seguir siendo exacto
+    private final Map<String, WebSocketRouteConnections> routes = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        int maxConnections = config.maxConnections() != null ? config.maxConnections() : DEFAULT_MAX_CONNECTIONS;
+        Duration idleTimeout = config.idleTimeout() != null ? config.idleTimeout() : DEFAULT_IDLE_TIMEOUT;
+        Duration pingInterval = config.pingInterval() != null ? config.pingInterval() : DEFAULT_PING_INTERVAL;
+        if (maxConnections < 1 || idleTimeout.isNegative() || idleTimeout.isZero()
+                || pingInterval.isNegative() || pingInterval.isZero()) {
+            throw new IllegalArgumentException("WebSocket requiere maxConnections, idleTimeout y pingInterval positivos");
+        }
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!WebSocketUpgrade.isUpgrade(exchange.getRequest())) {
+                return chain.filter(exchange);
+            }
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : UNKNOWN_ROUTE;
+            WebSocketRouteConnections connections = routes.computeIfAbsent(routeId,
+                    id -> new WebSocketRouteConnections(id, meterRegistry));
+
+            WebSocketConnection connection = connections.open(maxConnections, idleTimeout, pingInterval);
+            if (connection == null) {
+                ServerHttpResponse response = exchange.getResponse();
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return ErrorResponseBuilder.buildErrorResponse(response, HttpStatus.SERVICE_UNAVAILABLE,
+                        AuthenticationConstants.MSG_SERVICE_OVERLOADED);
+            }
+            exchange.getAttributes().put(WebSocketConnection.ATTRIBUTE, connection);
+            return chain.filter(exchange).doFinally(signal -> connection.releaseIfNotUpgraded());
+        }, FallbackRoutes.ORDER - 1);
+    }
+
+    WebSocketRouteConnections connections(String routeId) {
+        return routes.get(routeId);
+    }
+
+    /**
+     * @param maxConnections conexiones abiertas a la vez en la ruta; los handshakes de más reciben 503
+     * @param idleTimeout    se cierra la conexión sin frames de datos en ningún sentido durante este tiempo
+     * @param pingInterval   cada cuánto se envía un ping al cliente; también es la resolución de idleTimeout
+     */
+    public record Config(Integer maxConnections, Duration idleTimeout, Duration pingInterval) {
+    }
+}
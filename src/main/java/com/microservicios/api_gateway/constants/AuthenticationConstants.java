@@ -13,6 +13,8 @@ public final class AuthenticationConstants {
     public static final String SPRING_SESSION_KEY_PREFIX = "spring:session:sessions:";
     public static final String SESSION_ATTR_ACCESS_TOKEN = "sessionAttr:accessToken";
     public static final String SESSION_ATTR_REFRESH_TOKEN = "sessionAttr:refreshToken";
+    // Vencimiento del access token en milisegundos epoch, como texto
+    public static final String SESSION_ATTR_ACCESS_TOKEN_EXPIRES_AT = "sessionAttr:accessTokenExpiresAt";
 
     // HTTP Headers
     public static final String HEADER_AUTHORIZATION = "Authorization";
@@ -31,4 +33,7 @@ public final class AuthenticationConstants {
     public static final String MSG_SESSION_INVALID = "Sesión no válida.";
     public static final String MSG_TOKEN_INVALID = "Token de acceso no válido en la sesión.";
     public static final String MSG_SESSION_NOT_IN_REDIS = "Sesión no encontrada en Redis. Por favor, inicie sesión de nuevo.";
+    public static final String MSG_SESSION_STORE_UNAVAILABLE = "Servicio de sesiones no disponible temporalmente. Intente nuevamente en unos segundos.";
+    public static final String MSG_SERVICE_OVERLOADED = "Servicio sobrecargado. Intente nuevamente en unos segundos.";
+    public static final String MSG_RATE_LIMITED = "Demasiadas solicitudes. Intente nuevamente en unos segundos.";
 }
@@ -0,0 +1,71 @@
+package com.microservicios.api_gateway.hedging;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Presupuesto de peticiones duplicadas compartido por todas las rutas: un token bucket que no se recarga con
+ * el tiempo sino con el tráfico. Cada petición elegible deposita {@code ratio} tokens y cada petición
+ * duplicada consume uno, así que a la larga se duplica como mucho esa fracción del tráfico; {@code burst}
+ * acota lo que se acumula mientras no hace falta duplicar.
+ * <p>
+ * Si los destinos se degradan todos a la vez, el presupuesto se agota y el gateway deja de multiplicar la
+ * carga justo cuando menos pueden absorberla.
+ */
+public final class HedgeBudget {
+
+    public static final String BUDGET_METRIC = "gateway.hedging.budget";
+
+    // Milésimas de token: el depósito por petición es fraccionario
+    private static final long SCALE = 1_000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    public HedgeBudget(double ratio, int burst, MeterRegistry meterRegistry) {
+        if (ratio <= 0 || ratio > 1 || burst < 1) {
+            throw new IllegalArgumentException("El presupuesto de hedging requiere 0 < ratio <= 1 y burst >= 1");
+        }
+        this.deposit = Math.max(Math.round(ratio * SCALE), 1);
+        this.capacity = burst * SCALE;
+        this.balance = new AtomicLong(capacity);
+        Gauge.builder(BUDGET_METRIC, this, HedgeBudget::available)
+                .description("Peticiones duplicadas (hedging) disponibles en el presupuesto")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra una petición elegible para duplicarse.
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            // Lleno, el caso común: sin escritura en la variable compartida
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(current + deposit, capacity)));
+    }
+
+    /**
+     * @return {@code true} si había presupuesto para una petición duplicada, que queda consumido
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    public double available() {
+        return (double) balance.get() / SCALE;
+    }
+}
@@ -0,0 +1,122 @@
+package com.microservicios.api_gateway.hedging;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias de las últimas dos ventanas de {@code window}, para estimar percentiles sin guardar
+ * cada medición.
+ * <p>
+ * Los buckets son log-lineales en microsegundos: ocho por potencia de dos, así que el percentil tiene un error
+ * de a lo sumo 12,5 % (se devuelve el límite superior del bucket). Registrar es un incremento atómico; el
+ * cálculo del percentil recorre los buckets de las dos ventanas y conviene cachearlo.
+ */
+public final class LatencyWindow {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Latencias mayores (unos 18 minutos) caen en el último bucket
+    private static final long MAX_MICROS = (1L << 30) - 1;
+    private static final int BUCKETS = index(MAX_MICROS) + 1;
+
+    private final Ticker ticker;
+    private final long windowNanos;
+    private volatile Slot current;
+    private volatile Slot previous;
+
+    public LatencyWindow(Duration window) {
+        this(window, Ticker.systemTicker());
+    }
+
+    LatencyWindow(Duration window, Ticker ticker) {
+        this.ticker = ticker;
+        this.windowNanos = window.toNanos();
+        long now = ticker.read();
+        this.current = new Slot(now);
+        this.previous = new Slot(now - windowNanos);
+    }
+
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1_000, 0), MAX_MICROS);
+        slot(ticker.read()).counts.incrementAndGet(index(micros));
+    }
+
+    /**
+     * @param quantile   entre 0 y 1
+     * @param minSamples mediciones necesarias en las dos ventanas para estimar el percentil
+     * @return el percentil en nanosegundos, o -1 si hay menos de {@code minSamples} mediciones
+     */
+    public long percentile(double quantile, long minSamples) {
+        Slot latest = slot(ticker.read());
+        Slot older = previous;
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latest.counts.get(i) + older.counts.get(i);
+            total += counts[i];
+        }
+        if (total < Math.max(minSamples, 1)) {
+            return -1;
+        }
+        long rank = Math.max((long) Math.ceil(quantile * total), 1);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundMicros(i) * 1_000;
+            }
+        }
+        return upperBoundMicros(BUCKETS - 1) * 1_000;
+    }
+
+    private Slot slot(long now) {
+        Slot slot = current;
+        if (now - slot.start < windowNanos) {
+            return slot;
+        }
+        return rotate(now);
+    }
+
+    private synchronized Slot rotate(long now) {
+        Slot slot = current;
+        if (now - slot.start < windowNanos) {
+            return slot;
+        }
+        // Tras más de una ventana sin tráfico la ventana actual ya no sirve como anterior
+        previous = now - slot.start < 2 * windowNanos ? slot : new Slot(now - windowNanos);
+        Slot next = new Slot(now);
+        current = next;
+        return next;
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundMicros(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + width - 1;
+    }
+
+    private static final class Slot {
+
+        private final long start;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        Slot(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.microservicios.api_gateway.hedging;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencias de una ruta con hedging, la espera antes de duplicar una petición y sus métricas.
+ * <p>
+ * La espera es el percentil configurado de las latencias recientes hasta las cabeceras de respuesta, acotado
+ * entre {@code minDelay} y {@code maxDelay}; con menos de {@link #MIN_SAMPLES} mediciones se usa
+ * {@code maxDelay}. Se recalcula como mucho una vez por {@link #DELAY_REFRESH}. Las latencias y las métricas
+ * son de la ruta y sobreviven a los refrescos de rutas.
+ */
+public final class RouteHedging {
+
+    public static final String REQUESTS_METRIC = "gateway.hedging.requests";
+    public static final String HEDGES_METRIC = "gateway.hedging.hedges";
+    public static final String WINS_METRIC = "gateway.hedging.wins";
+    public static final String DELAY_METRIC = "gateway.hedging.delay";
+
+    static final Duration WINDOW = Duration.ofSeconds(30);
+    static final long MIN_SAMPLES = 50;
+    static final Duration DELAY_REFRESH = Duration.ofSeconds(1);
+
+    private final Ticker ticker;
+    private final LatencyWindow latencies;
+    private final Counter requests;
+    private final Counter sent;
+    private final Counter budgetExhausted;
+    private final Counter primaryWins;
+    private final Counter hedgeWins;
+    private volatile long delayNanos;
+    private volatile long delayComputedAt;
+
+    public RouteHedging(String routeId, MeterRegistry meterRegistry) {
+        this(routeId, meterRegistry, Ticker.systemTicker());
+    }
+
+    RouteHedging(String routeId, MeterRegistry meterRegistry, Ticker ticker) {
+        this.ticker = ticker;
+        this.latencies = new LatencyWindow(WINDOW, ticker);
+        this.delayComputedAt = ticker.read() - DELAY_REFRESH.toNanos();
+        this.requests = Counter.builder(REQUESTS_METRIC)
+                .description("Peticiones elegibles para hedging (GET/HEAD sin cuerpo)")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        this.sent = hedges(meterRegistry, routeId, "sent");
+        this.budgetExhausted = hedges(meterRegistry, routeId, "budget_exhausted");
+        this.primaryWins = wins(meterRegistry, routeId, "primary");
+        this.hedgeWins = wins(meterRegistry, routeId, "hedge");
+        TimeGauge.builder(DELAY_METRIC, this, TimeUnit.NANOSECONDS, hedging -> hedging.delayNanos)
+                .description("Espera antes de duplicar una petición sin respuesta")
+                .tag("route", routeId)
+                .strongReference(true)
+                .register(meterRegistry);
+    }
+
+    private static Counter hedges(MeterRegistry meterRegistry, String routeId, String outcome) {
+        return Counter.builder(HEDGES_METRIC)
+                .description("Peticiones sin respuesta tras la espera (sent: duplicada; budget_exhausted: sin presupuesto)")
+                .tag("route", routeId)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Counter wins(MeterRegistry meterRegistry, String routeId, String attempt) {
+        return Counter.builder(WINS_METRIC)
+                .description("Qué intento respondió primero en las peticiones duplicadas")
+                .tag("route", routeId)
+                .tag("attempt", attempt)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param percentile entre 0 y 100
+     */
+    public Duration delay(double percentile, Duration minDelay, Duration maxDelay) {
+        long now = ticker.read();
+        if (now - delayComputedAt >= DELAY_REFRESH.toNanos()) {
+            delayComputedAt = now;
+            long latency = latencies.percentile(percentile / 100, MIN_SAMPLES);
+            delayNanos = latency < 0 ? maxDelay.toNanos() : Math.min(Math.max(latency, minDelay.toNanos()), maxDelay.toNanos());
+        }
+        return Duration.ofNanos(delayNanos);
+    }
+
+    /**
+     * Latencia de un intento hasta las cabeceras de respuesta. Un intento cancelado porque el otro respondió
+     * antes también se registra, con el tiempo que llevaba esperando: es una cota inferior, pero sin ella las
+     * respuestas lentas desaparecerían del percentil en cuanto el hedging empieza a funcionar.
+     */
+    public void record(long nanos) {
+        latencies.record(nanos);
+    }
+
+    public void request() {
+        requests.increment();
+    }
+
+    public void hedgeSent() {
+        sent.increment();
+    }
+
+    public void budgetExhausted() {
+        budgetExhausted.increment();
+    }
+
+    public void won(boolean hedge) {
+        (hedge ? hedgeWins : primaryWins).increment();
+    }
+}
@@ -0,0 +1,86 @@
+package com.microservicios.api_gateway.loadbalancer;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencia (peak EWMA) y peticiones en curso de una instancia.
+ * <p>
+ * La latencia media decae con el tiempo ({@code decayNanos}): un aumento se refleja de inmediato y una
+ * instancia que dejó de recibir tráfico vuelve a elegirse tras un rato, para volver a medirla. Se actualiza
+ * sin locks desde cualquier hilo del event loop.
+ */
+public final class InstanceStats {
+
+    private final Ticker ticker;
+    private final double decayNanos;
+    private final long pendingPenaltyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong ewmaBits = new AtomicLong(Double.doubleToRawLongBits(0));
+    private final AtomicLong lastUpdate;
+
+    InstanceStats(Ticker ticker, long decayNanos, long pendingPenaltyNanos) {
+        this.ticker = ticker;
+        this.decayNanos = decayNanos;
+        this.pendingPenaltyNanos = pendingPenaltyNanos;
+        this.lastUpdate = new AtomicLong(ticker.read());
+    }
+
+    /**
+     * Registra una petición enviada a la instancia; debe terminar con {@link #complete} o {@link #release}.
+     */
+    public void start() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Registra la respuesta de una petición iniciada con {@link #start}.
+     */
+    public void complete(long rttNanos) {
+        inFlight.decrementAndGet();
+        long now = ticker.read();
+        double weight = weight(now - lastUpdate.getAndSet(now));
+        long current;
+        double next;
+        do {
+            current = ewmaBits.get();
+            double ewma = Double.longBitsToDouble(current);
+            // Peak EWMA: una latencia mayor que la media la reemplaza, una menor la ajusta gradualmente
+            next = rttNanos > ewma ? rttNanos : ewma * weight + rttNanos * (1 - weight);
+        } while (!ewmaBits.compareAndSet(current, Double.doubleToRawLongBits(next)));
+    }
+
+    /**
+     * Libera una petición iniciada con {@link #start} sin registrar su latencia (p. ej. cancelada por el cliente).
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Costo estimado de enviar una petición más: latencia media decaída por las peticiones en curso.
+     * Una instancia aún sin medir cuesta cero mientras no tenga peticiones en curso.
+     */
+    public double cost() {
+        int pending = inFlight.get();
+        double ewma = Double.longBitsToDouble(ewmaBits.get()) * weight(ticker.read() - lastUpdate.get());
+        if (ewma == 0 && pending != 0) {
+            return (double) pendingPenaltyNanos * pending;
+        }
+        return ewma * (pending + 1);
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long latencyNanos() {
+        return (long) Double.longBitsToDouble(ewmaBits.get());
+    }
+
+    private double weight(long elapsedNanos) {
+        return Math.exp(-Math.max(elapsedNanos, 0) / decayNanos);
+    }
+}
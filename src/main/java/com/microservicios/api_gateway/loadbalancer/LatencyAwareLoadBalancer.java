@@ -0,0 +1,91 @@
+package com.microservicios.api_gateway.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Balanceador "power of two choices": toma dos instancias al azar y elige la de menor costo
+ * ({@link InstanceStats#cost()}, latencia media por peticiones en curso). Evita la instancia lenta sin
+ * concentrar todo el tráfico en la más rápida, como pasaría eligiendo siempre la mejor.
+ * <p>
+ * Si el contexto de Reactor trae una instancia en {@link #EXCLUDED_INSTANCE_KEY} (p. ej. la que ya tiene la
+ * petición original de un hedging), se elige entre las demás; si es la única, se devuelve igual.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    public static final String EXCLUDED_INSTANCE_KEY = LatencyAwareLoadBalancer.class.getName() + ".excluded";
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+    private final LoadBalancerStats stats;
+
+    public LatencyAwareLoadBalancer(String serviceId, ObjectProvider<ServiceInstanceListSupplier> suppliers,
+                                    LoadBalancerStats stats) {
+        this.serviceId = serviceId;
+        this.suppliers = suppliers;
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        // ReactiveLoadBalancerClientFilter no pasa los atributos del exchange: la exclusión llega por el contexto
+        return Mono.deferContextual(context -> supplier.get(request).next()
+                .map(instances -> choose(instances, context.getOrDefault(EXCLUDED_INSTANCE_KEY, null))));
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        return choose(instances, null);
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances, ServiceInstance excluded) {
+        if (instances.isEmpty()) {
+            log.warn("No hay instancias disponibles del servicio {}", serviceId);
+            return new EmptyResponse();
+        }
+        stats.retain(serviceId, instances);
+        if (excluded != null && instances.size() > 1) {
+            instances = without(instances, excluded);
+        }
+        int size = instances.size();
+        if (size == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(stats.get(a).cost() <= stats.get(b).cost() ? a : b);
+    }
+
+    private static List<ServiceInstance> without(List<ServiceInstance> instances, ServiceInstance excluded) {
+        String key = LoadBalancerStats.key(excluded);
+        List<ServiceInstance> remaining = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (!key.equals(LoadBalancerStats.key(instance))) {
+                remaining.add(instance);
+            }
+        }
+        return remaining.isEmpty() ? instances : remaining;
+    }
+}
@@ -0,0 +1,71 @@
+package com.microservicios.api_gateway.loadbalancer;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estadísticas por instancia de cada servicio {@code lb://}, compartidas entre el balanceador, que las lee,
+ * y el filtro que mide las respuestas.
+ * <p>
+ * Las instancias que desaparecen de la lista del registro de servicios (p. ej. dadas de baja en Eureka) se
+ * descartan la próxima vez que el balanceador recibe la lista actualizada.
+ */
+public class LoadBalancerStats {
+
+    private final Ticker ticker;
+    private final long decayNanos;
+    private final long pendingPenaltyNanos;
+    private final Map<String, Map<String, InstanceStats>> services = new ConcurrentHashMap<>();
+    private final Map<String, List<ServiceInstance>> lastSeen = new ConcurrentHashMap<>();
+
+    public LoadBalancerStats(Duration decay, Duration pendingPenalty) {
+        this(decay, pendingPenalty, Ticker.systemTicker());
+    }
+
+    LoadBalancerStats(Duration decay, Duration pendingPenalty, Ticker ticker) {
+        this.ticker = ticker;
+        this.decayNanos = decay.toNanos();
+        this.pendingPenaltyNanos = pendingPenalty.toNanos();
+    }
+
+    public InstanceStats get(ServiceInstance instance) {
+        return services.computeIfAbsent(instance.getServiceId(), ignored -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key(instance), ignored -> new InstanceStats(ticker, decayNanos, pendingPenaltyNanos));
+    }
+
+    /**
+     * Descarta las instancias de {@code serviceId} que no están en {@code instances}. El proveedor de
+     * instancias devuelve la misma lista hasta que el registro cambia, así que sólo se recorre en ese caso.
+     */
+    public void retain(String serviceId, List<ServiceInstance> instances) {
+        if (lastSeen.put(serviceId, instances) == instances) {
+            return;
+        }
+        Map<String, InstanceStats> stats = services.get(serviceId);
+        if (stats == null) {
+            return;
+        }
+        Set<String> current = new HashSet<>(instances.size() * 2);
+        for (ServiceInstance instance : instances) {
+            current.add(key(instance));
+        }
+        stats.keySet().retainAll(current);
+    }
+
+    int size(String serviceId) {
+        Map<String, InstanceStats> stats = services.get(serviceId);
+        return stats == null ? 0 : stats.size();
+    }
+
+    static String key(ServiceInstance instance) {
+        String instanceId = instance.getInstanceId();
+        return instanceId != null ? instanceId : instance.getHost() + ':' + instance.getPort();
+    }
+}
@@ -0,0 +1,178 @@
+package com.microservicios.api_gateway.metrics;
+
+import com.microservicios.api_gateway.repository.CachingSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers de Micrometer para cada etapa del filtro de autenticación, etiquetados por ruta y resultado.
+ * Los timers se crean una vez por combinación y se reutilizan, y la cantidad de rutas distintas
+ * está acotada para que la cardinalidad de las etiquetas no crezca sin límite.
+ * <p>
+ * Si la petición tiene un {@link RequestTrace}, también se anotan ahí las mismas mediciones
+ * para el access log.
+ */
+@Component
+public class AuthFilterMetrics {
+
+    public static final String STAGE_METRIC = "gateway.auth.stage";
+    public static final String REQUEST_METRIC = "gateway.auth.requests";
+
+    static final int MAX_ROUTES = 64;
+    static final String UNKNOWN_ROUTE = "unknown";
+    static final String OTHER_ROUTE = "other";
+
+    public enum Stage {
+        EXCLUSION("exclusion"),
+        COOKIE_DECODE("cookie_decode"),
+        SESSION_FETCH("session_fetch"),
+        VALIDATION("validation"),
+        DOWNSTREAM("downstream");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    public enum Outcome {
+        OK("ok"),
+        EXCLUDED("excluded"),
+        NO_COOKIE("no_cookie"),
+        BAD_ENCODING("bad_encoding"),
+        TOKEN_INVALID("token_invalid"),
+        NOT_IN_REDIS("not_in_redis"),
+        UNAVAILABLE("unavailable"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Counter malformedSessionIds;
+    private final Map<String, RouteMeters> routes = new ConcurrentHashMap<>();
+
+    public AuthFilterMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.malformedSessionIds = Counter.builder(CachingSessionRepository.SHORT_CIRCUIT_METRIC)
+                .description("Búsquedas de sesión resueltas sin consultar Redis")
+                .tag("reason", "malformed")
+                .register(meterRegistry);
+    }
+
+    public void recordStage(ServerWebExchange exchange, Stage stage, Outcome outcome, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        routeMeters(exchange).stageTimer(stage, outcome).record(elapsed, TimeUnit.NANOSECONDS);
+        RequestTrace trace = RequestTrace.of(exchange);
+        if (trace != null) {
+            trace.stage(stage, elapsed);
+        }
+    }
+
+    public void recordRequest(ServerWebExchange exchange, Outcome outcome, long startNanos) {
+        routeMeters(exchange).requestTimer(outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        RequestTrace trace = RequestTrace.of(exchange);
+        if (trace != null) {
+            trace.outcome(outcome);
+        }
+    }
+
+    public void recordSession(ServerWebExchange exchange, String sessionId) {
+        RequestTrace trace = RequestTrace.of(exchange);
+        if (trace != null) {
+            trace.sessionId(sessionId);
+        }
+    }
+
+    public void recordError(ServerWebExchange exchange, Throwable error) {
+        RequestTrace trace = RequestTrace.of(exchange);
+        if (trace != null) {
+            trace.error(error.getClass().getSimpleName() + ": " + error.getMessage());
+        }
+    }
+
+    public void malformedSessionId() {
+        malformedSessionIds.increment();
+    }
+
+    private RouteMeters routeMeters(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : UNKNOWN_ROUTE;
+
+        RouteMeters meters = routes.get(routeId);
+        if (meters != null) {
+            return meters;
+        }
+        if (routes.size() >= MAX_ROUTES) {
+            return routes.computeIfAbsent(OTHER_ROUTE, RouteMeters::new);
+        }
+        return routes.computeIfAbsent(routeId, RouteMeters::new);
+    }
+
+    private Timer timer(String name, String description, String routeId, String stage, Outcome outcome) {
+        Timer.Builder builder = Timer.builder(name)
+                .description(description)
+                .tag("route", routeId)
+                .tag("outcome", outcome.tag())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30));
+        if (stage != null) {
+            builder.tag("stage", stage);
+        }
+        return builder.register(meterRegistry);
+    }
+
+    private final class RouteMeters {
+
+        private final String routeId;
+        // Se completan de forma perezosa; una carrera sólo vuelve a obtener el mismo timer del registry
+        private final Timer[][] stageTimers = new Timer[Stage.values().length][Outcome.values().length];
+        private final Timer[] requestTimers = new Timer[Outcome.values().length];
+
+        private RouteMeters(String routeId) {
+            this.routeId = routeId;
+        }
+
+        private Timer stageTimer(Stage stage, Outcome outcome) {
+            Timer timer = stageTimers[stage.ordinal()][outcome.ordinal()];
+            if (timer == null) {
+                timer = timer(STAGE_METRIC, "Duración de cada etapa del filtro de autenticación", routeId, stage.tag(), outcome);
+                stageTimers[stage.ordinal()][outcome.ordinal()] = timer;
+            }
+            return timer;
+        }
+
+        private Timer requestTimer(Outcome outcome) {
+            Timer timer = requestTimers[outcome.ordinal()];
+            if (timer == null) {
+                timer = timer(REQUEST_METRIC, "Duración total de la petición a través del filtro de autenticación", routeId, null, outcome);
+                requestTimers[outcome.ordinal()] = timer;
+            }
+            return timer;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.microservicios.api_gateway.metrics;
+
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Outcome;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Stage;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Arrays;
+
+/**
+ * Datos de una petición que se vuelcan en una única línea del access log: duración de cada etapa
+ * del filtro de autenticación, resultado y sesión. Se guarda como atributo del exchange.
+ */
+public final class RequestTrace {
+
+    public static final String ATTRIBUTE = RequestTrace.class.getName();
+
+    private final long startNanos;
+    private final long[] stageNanos = new long[Stage.values().length];
+    private volatile Outcome outcome;
+    private volatile String sessionId;
+    private volatile String error;
+
+    public RequestTrace(long startNanos) {
+        this.startNanos = startNanos;
+        Arrays.fill(stageNanos, -1L);
+    }
+
+    public static RequestTrace of(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    void stage(Stage stage, long nanos) {
+        stageNanos[stage.ordinal()] = nanos;
+    }
+
+    void outcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    void sessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public void error(String error) {
+        this.error = error;
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return nanosegundos de la etapa, o -1 si la petición no pasó por ella
+     */
+    public long stageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    public String sessionId() {
+        return sessionId;
+    }
+
+    public String error() {
+        return error;
+    }
+}
@@ -0,0 +1,146 @@
+package com.microservicios.api_gateway.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Límite de peticiones concurrentes que se ajusta solo según la latencia observada (algoritmo Gradient2 de
+ * Netflix concurrency-limits).
+ * <p>
+ * Agrupa las respuestas en ventanas de al menos {@code window} y compara la latencia media de cada ventana
+ * con una media de largo plazo: si el destino empieza a encolar y la latencia sube, el gradiente
+ * {@code tolerance × largo / actual} cae por debajo de 1 y el límite baja; con latencia estable crece de a
+ * {@code √límite} por ventana. Ajustar por ventana y no por respuesta evita subir el límite más rápido de lo
+ * que tarda en verse su efecto en la latencia. Mientras el tráfico no llega a la mitad del límite, el límite
+ * no cambia. Las ventanas con cola no mueven la media de largo plazo, así que bajo carga sostenida el límite
+ * se mantiene cerca de la capacidad del destino en lugar de subir con la latencia que él mismo provoca.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    // Muestras que fijan la latencia de referencia antes de pasar a la media exponencial
+    private static final int WARMUP_SAMPLES = 10;
+    // Respuestas mínimas por ventana, para que una sola respuesta lenta no mueva el límite
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    // Límites a menos de un paso de crecimiento del mínimo
+    private final double floorRegion;
+    private final double tolerance;
+    private final double longWindow;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double estimatedLimit;
+    // Media exponencial de la latencia, en nanosegundos; se inicia con la media de las primeras muestras
+    private double longRtt;
+    private int samples;
+
+    // Ventana en curso
+    private long windowStart;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, int longWindow,
+                                    Duration window) {
+        this(initialLimit, minLimit, maxLimit, tolerance, longWindow, window, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, int longWindow,
+                             Duration window, LongSupplier nanoClock) {
+        if (minLimit <= 0 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Se requiere 0 < minLimit <= initialLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.floorRegion = minLimit + Math.sqrt(minLimit);
+        this.tolerance = tolerance;
+        this.longWindow = longWindow;
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+        this.estimatedLimit = initialLimit;
+        this.windowStart = nanoClock.getAsLong();
+    }
+
+    /**
+     * Reserva un lugar si hay menos peticiones en curso que el límite; se libera con {@link #release}.
+     */
+    public boolean tryAcquire() {
+        int limit = limit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Registra la latencia de una respuesta del destino; al cerrar la ventana ajusta el límite.
+     */
+    public void onSample(long rttNanos) {
+        long now = nanoClock.getAsLong();
+        int current = inFlight.get();
+        synchronized (this) {
+            windowRttSum += Math.max(rttNanos, 1);
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, current);
+            if (windowSamples < MIN_WINDOW_SAMPLES || now - windowStart < windowNanos) {
+                return;
+            }
+            update(windowRttSum / windowSamples, windowMaxInFlight);
+            windowStart = now;
+            windowRttSum = 0;
+            windowSamples = 0;
+            windowMaxInFlight = 0;
+        }
+    }
+
+    private void update(long rtt, int inFlightAtSample) {
+        // Media de largo plazo: aritmética en las primeras muestras, exponencial después. Una ventana con cola
+        // (latencia por encima de la tolerancia) no entra: la referencia subiría con la propia cola y el límite
+        // con ella. Cerca del mínimo entran todas, como en Gradient2: ahí el límite ya no puede recortar la cola
+        // (el crecimiento de √límite compensa el gradiente) y, si el destino se volvió más lento, la referencia
+        // lo alcanza al ritmo de longWindow, sin adoptar de golpe una latencia que todavía puede tener cola
+        if (samples < WARMUP_SAMPLES) {
+            samples++;
+            longRtt += (rtt - longRtt) / samples;
+        } else if (estimatedLimit < floorRegion || rtt <= tolerance * longRtt) {
+            longRtt += (rtt - longRtt) * (2 / (longWindow + 1));
+        }
+        double shortRtt = rtt;
+        double limit = estimatedLimit;
+        // Tras una recuperación la media larga queda alta: se acerca rápido a la latencia actual
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // Tráfico muy por debajo del límite: no hay información para ajustarlo
+        if (inFlightAtSample < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int limit() {
+        return (int) estimatedLimit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
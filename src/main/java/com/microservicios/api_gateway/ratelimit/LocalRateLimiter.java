@@ -0,0 +1,76 @@
+package com.microservicios.api_gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Token buckets en memoria por clave (ruta + sesión o IP), sin ninguna consulta a Redis en el camino de la
+ * petición. La memoria está acotada: como mucho {@code maxKeys} buckets, y los que no se usan durante
+ * {@code idleTimeout} se descartan (un bucket sin uso ya estaría lleno, así que descartarlo no cambia nada).
+ */
+public class LocalRateLimiter {
+
+    public static final String CACHE_NAME = "rateLimitBuckets";
+
+    private final Cache<String, TokenBucket> buckets;
+    private final Ticker ticker;
+
+    public LocalRateLimiter(long maxKeys, Duration idleTimeout, MeterRegistry meterRegistry) {
+        this(maxKeys, idleTimeout, meterRegistry, Ticker.systemTicker());
+    }
+
+    LocalRateLimiter(long maxKeys, Duration idleTimeout, MeterRegistry meterRegistry, Ticker ticker) {
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(idleTimeout)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, CACHE_NAME);
+    }
+
+    /**
+     * Consume un token del bucket de {@code key}, creándolo lleno si no existe.
+     *
+     * @return 0 si la petición se acepta; si no, nanosegundos hasta que haya un token
+     */
+    public long tryAcquire(String key, int replenishRate, int burstCapacity) {
+        long now = ticker.read();
+        return buckets.get(key, ignored -> new TokenBucket(replenishRate, burstCapacity, now)).tryAcquire(now);
+    }
+
+    /**
+     * Recorre los buckets con peticiones aceptadas desde la llamada anterior, con su cantidad.
+     */
+    void forEachUnsynced(BiConsumer<String, Long> consumer) {
+        for (Map.Entry<String, TokenBucket> entry : buckets.asMap().entrySet()) {
+            long delta = entry.getValue().drainUnsynced();
+            if (delta > 0) {
+                consumer.accept(entry.getKey(), delta);
+            }
+        }
+    }
+
+    /**
+     * Aplica el total de la clave en todo el clúster (ver {@link RedisRateLimitSync}).
+     */
+    void applyClusterTotal(String key, long total, long ownDelta) {
+        TokenBucket bucket = buckets.getIfPresent(key);
+        if (bucket != null) {
+            bucket.applyClusterTotal(total, ownDelta, ticker.read());
+        }
+    }
+
+    long estimatedSize() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
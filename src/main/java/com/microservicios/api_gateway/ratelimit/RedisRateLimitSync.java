@@ -0,0 +1,90 @@
+package com.microservicios.api_gateway.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aproxima el límite en todo el clúster: cada {@code interval} suma en Redis ({@code INCRBY}) las
+ * peticiones aceptadas localmente por clave y descuenta del bucket local lo que consumieron las demás
+ * instancias desde la sincronización anterior.
+ * <p>
+ * Corre fuera del camino de la petición: si Redis no responde, cada instancia sigue limitando por su cuenta.
+ */
+public class RedisRateLimitSync implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisRateLimitSync.class);
+
+    private static final int CONCURRENCY = 64;
+
+    private final LocalRateLimiter limiter;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration interval;
+    private final Duration keyTtl;
+    private final String keyPrefix;
+    private volatile Disposable subscription;
+
+    public RedisRateLimitSync(LocalRateLimiter limiter, ReactiveStringRedisTemplate redisTemplate,
+                              Duration interval, Duration keyTtl, String keyPrefix) {
+        this.limiter = limiter;
+        this.redisTemplate = redisTemplate;
+        this.interval = interval;
+        this.keyTtl = keyTtl;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public void start() {
+        subscription = Flux.interval(interval, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> sync()
+                        .onErrorResume(error -> {
+                            log.warn("No se pudieron sincronizar los límites de peticiones con Redis: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+
+    Mono<Void> sync() {
+        return Mono.defer(() -> {
+            List<Pending> pending = new ArrayList<>();
+            limiter.forEachUnsynced((key, delta) -> pending.add(new Pending(key, delta)));
+            return Flux.fromIterable(pending)
+                    .flatMap(this::push, CONCURRENCY)
+                    .then();
+        });
+    }
+
+    private Mono<Void> push(Pending pending) {
+        String redisKey = keyPrefix + pending.key();
+        return redisTemplate.opsForValue().increment(redisKey, pending.delta())
+                .flatMap(total -> redisTemplate.expire(redisKey, keyTtl)
+                        .doOnSuccess(ignored -> limiter.applyClusterTotal(pending.key(), total, pending.delta())))
+                .then();
+    }
+
+    private record Pending(String key, long delta) {
+    }
+}
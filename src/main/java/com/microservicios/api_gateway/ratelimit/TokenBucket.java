@@ -0,0 +1,79 @@
+package com.microservicios.api_gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket implementado como GCRA: todo el estado es el instante teórico en que el bucket vuelve a
+ * estar lleno, actualizado con un CAS, así que no hay locks ni un hilo que recargue tokens.
+ * <p>
+ * Con {@code replenishRate} tokens por segundo y capacidad {@code burstCapacity}, acepta hasta
+ * {@code burstCapacity} peticiones seguidas y luego una cada {@code 1 / replenishRate} segundos.
+ */
+final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    // Instante (System.nanoTime) en que el bucket vuelve a estar lleno; en el pasado si ya lo está
+    private final AtomicLong fullAt;
+    // Peticiones aceptadas desde la última sincronización con Redis
+    private final LongAdder unsynced = new LongAdder();
+    private volatile long lastClusterTotal = -1;
+
+    TokenBucket(int replenishRate, int burstCapacity, long now) {
+        this.emissionIntervalNanos = 1_000_000_000L / replenishRate;
+        this.burstToleranceNanos = emissionIntervalNanos * burstCapacity;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Consume un token.
+     *
+     * @return 0 si había token; si no, nanosegundos hasta que haya uno
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + emissionIntervalNanos;
+            long excess = next - now - burstToleranceNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                unsynced.increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Descuenta {@code tokens} consumidos por otras instancias del gateway, sin dejar el bucket por debajo
+     * de vacío.
+     */
+    void consumeRemote(long tokens, long now) {
+        if (tokens <= 0) {
+            return;
+        }
+        long charge = tokens * emissionIntervalNanos;
+        fullAt.getAndUpdate(current -> Math.min(Math.max(current, now) + charge, now + burstToleranceNanos));
+    }
+
+    /**
+     * Peticiones aceptadas desde la llamada anterior.
+     */
+    long drainUnsynced() {
+        return unsynced.sumThenReset();
+    }
+
+    /**
+     * Aplica el total de la clave en Redis tras sumarle {@code ownDelta}: la diferencia con el total
+     * anterior, sin lo propio, es lo consumido por las demás instancias.
+     */
+    void applyClusterTotal(long total, long ownDelta, long now) {
+        long previous = lastClusterTotal;
+        lastClusterTotal = total;
+        if (previous >= 0) {
+            consumeRemote(total - ownDelta - previous, now);
+        }
+    }
+}
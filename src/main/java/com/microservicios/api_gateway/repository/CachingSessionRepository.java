@@ -0,0 +1,199 @@
+package com.microservicios.api_gateway.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decorador de {@link SessionRepository} con una caché local acotada de credenciales.
+ * Las entradas expiran por TTL y se invalidan explícitamente cuando Redis notifica
+ * que la sesión fue eliminada, expiró o cambió (ver {@link RedisSessionInvalidationListener}).
+ * <p>
+ * También recuerda por un TTL corto los IDs que Redis no conoce (caché negativa), para que
+ * los reintentos de pestañas viejas o scanners no vuelvan a consultar Redis.
+ * <p>
+ * Con {@code staleTtl} mayor que cero conserva además la última copia de cada sesión leída; si Redis
+ * no está disponible ({@link SessionStoreUnavailableException}) responde con esa copia mientras no
+ * haya superado {@code staleTtl} ni haya sido invalidada.
+ */
+public class CachingSessionRepository implements SessionRepository {
+
+    public static final String CACHE_NAME = "sessionCredentials";
+    public static final String NEGATIVE_CACHE_NAME = "unknownSessions";
+    public static final String STALE_CACHE_NAME = "staleSessionCredentials";
+    public static final String SHORT_CIRCUIT_METRIC = "gateway.session.lookups.short_circuited";
+    public static final String STALE_SERVED_METRIC = "gateway.session.cache.stale_served";
+
+    private final SessionRepository delegate;
+    private final Cache<String, SessionCredentials> cache;
+    private final Cache<String, Boolean> unknownSessions;
+    // null si no se sirven copias viejas
+    private final Cache<String, SessionCredentials> lastKnown;
+    private final Counter invalidations;
+    private final Counter unknownSessionShortCircuits;
+    private final Counter staleServed;
+
+    // Cargas en curso por sesión: una carga iniciada antes de invalidar su sesión no se cachea. Sólo hay
+    // entradas mientras la carga está en curso, así que las invalidaciones de otras sesiones no la afectan
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public CachingSessionRepository(SessionRepository delegate, long maxSize, Duration ttl,
+                                    long negativeMaxSize, Duration negativeTtl, Duration staleTtl,
+                                    MeterRegistry meterRegistry) {
+        this(delegate, maxSize, ttl, negativeMaxSize, negativeTtl, staleTtl, meterRegistry, Ticker.systemTicker());
+    }
+
+    CachingSessionRepository(SessionRepository delegate, long maxSize, Duration ttl,
+                             long negativeMaxSize, Duration negativeTtl, Duration staleTtl,
+                             MeterRegistry meterRegistry, Ticker ticker) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.unknownSessions = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(negativeTtl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.lastKnown = staleTtl.isZero() ? null : Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(staleTtl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.invalidations = Counter.builder("gateway.session.cache.invalidations")
+                .description("Sesiones invalidadas por notificaciones de Redis")
+                .register(meterRegistry);
+        this.unknownSessionShortCircuits = Counter.builder(SHORT_CIRCUIT_METRIC)
+                .description("Búsquedas de sesión resueltas sin consultar Redis")
+                .tag("reason", "unknown_session")
+                .register(meterRegistry);
+        this.staleServed = Counter.builder(STALE_SERVED_METRIC)
+                .description("Sesiones respondidas con una copia vieja porque Redis no estaba disponible")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, unknownSessions, NEGATIVE_CACHE_NAME);
+        if (lastKnown != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, lastKnown, STALE_CACHE_NAME);
+        }
+    }
+
+    @Override
+    public Mono<String> getAccessToken(String sessionId) {
+        return getCredentials(sessionId).map(SessionCredentials::accessToken);
+    }
+
+    @Override
+    public Mono<String> getRefreshToken(String sessionId) {
+        return getCredentials(sessionId)
+                .map(SessionCredentials::refreshToken)
+                .defaultIfEmpty("");
+    }
+
+    @Override
+    public Mono<SessionCredentials> getCredentials(String sessionId) {
+        SessionCredentials cached = cache.getIfPresent(sessionId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        if (unknownSessions.getIfPresent(sessionId) != null) {
+            unknownSessionShortCircuits.increment();
+            return Mono.empty();
+        }
+
+        return Mono.defer(() -> {
+                    long generation = beginLoad(sessionId);
+                    return delegate.getCredentials(sessionId)
+                            .doOnNext(credentials -> storeIfCurrent(sessionId, generation, () -> {
+                                cache.put(sessionId, credentials);
+                                if (lastKnown != null) {
+                                    lastKnown.put(sessionId, credentials);
+                                }
+                            }))
+                            .switchIfEmpty(Mono.fromRunnable(() -> storeIfCurrent(sessionId, generation,
+                                    () -> unknownSessions.put(sessionId, Boolean.TRUE))))
+                            .doFinally(signal -> endLoad(sessionId));
+                })
+                .onErrorResume(SessionStoreUnavailableException.class, error -> serveStale(sessionId, error));
+    }
+
+    private long beginLoad(String sessionId) {
+        InFlight load = inFlight.compute(sessionId, (id, current) -> {
+            InFlight updated = current == null ? new InFlight() : current;
+            updated.loads++;
+            return updated;
+        });
+        return load.generation;
+    }
+
+    // Bajo el lock de la entrada: invalidate() no puede colarse entre la comprobación y la escritura
+    private void storeIfCurrent(String sessionId, long generation, Runnable store) {
+        inFlight.computeIfPresent(sessionId, (id, load) -> {
+            if (load.generation == generation) {
+                store.run();
+            }
+            return load;
+        });
+    }
+
+    private void endLoad(String sessionId) {
+        inFlight.computeIfPresent(sessionId, (id, load) -> --load.loads == 0 ? null : load);
+    }
+
+    private Mono<SessionCredentials> serveStale(String sessionId, SessionStoreUnavailableException error) {
+        SessionCredentials stale = lastKnown == null ? null : lastKnown.getIfPresent(sessionId);
+        if (stale == null) {
+            return Mono.error(error);
+        }
+        staleServed.increment();
+        return Mono.just(stale);
+    }
+
+    /**
+     * Descarta las credenciales cacheadas de una sesión y las lecturas en curso de las capas internas.
+     */
+    @Override
+    public void invalidate(String sessionId) {
+        // Primero las capas internas: una carga que empieza después ya no se suma a una lectura previa a la
+        // invalidación, y una que empezó antes queda con la generación vieja y no se cachea
+        delegate.invalidate(sessionId);
+        inFlight.computeIfPresent(sessionId, (id, load) -> {
+            load.generation++;
+            return load;
+        });
+        cache.invalidate(sessionId);
+        // Un HSET de ms-login puede crear una sesión que antes se registró como desconocida
+        unknownSessions.invalidate(sessionId);
+        if (lastKnown != null) {
+            lastKnown.invalidate(sessionId);
+        }
+        invalidations.increment();
+    }
+
+    long estimatedSize() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    int loadsInFlight() {
+        return inFlight.size();
+    }
+
+    // Sólo se modifica dentro de compute sobre su sesión
+    private static final class InFlight {
+        int loads;
+        volatile long generation;
+    }
+}
@@ -0,0 +1,66 @@
+package com.microservicios.api_gateway.repository;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decorador de {@link SessionRepository} que agrupa las búsquedas concurrentes de una misma sesión:
+ * mientras haya una lectura en curso para un ID, las demás se suscriben al mismo {@link Mono}
+ * en lugar de lanzar otra consulta a Redis. La entrada se elimina al completarse la lectura, o al invalidar
+ * la sesión: una búsqueda posterior a la invalidación no se suma a una lectura anterior.
+ */
+public class CoalescingSessionRepository implements SessionRepository {
+
+    private final SessionRepository delegate;
+    private final Map<String, Mono<SessionCredentials>> inFlight = new ConcurrentHashMap<>();
+
+    public CoalescingSessionRepository(SessionRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Mono<String> getAccessToken(String sessionId) {
+        return getCredentials(sessionId).map(SessionCredentials::accessToken);
+    }
+
+    @Override
+    public Mono<String> getRefreshToken(String sessionId) {
+        return getCredentials(sessionId)
+                .map(SessionCredentials::refreshToken)
+                .defaultIfEmpty("");
+    }
+
+    @Override
+    public Mono<SessionCredentials> getCredentials(String sessionId) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(sessionId, this::sharedLookup));
+    }
+
+    /**
+     * Olvida la lectura en curso de la sesión: quien ya estaba suscripto recibe su resultado, y la próxima
+     * búsqueda vuelve a consultar el repositorio.
+     */
+    @Override
+    public void invalidate(String sessionId) {
+        inFlight.remove(sessionId);
+        delegate.invalidate(sessionId);
+    }
+
+    private Mono<SessionCredentials> sharedLookup(String sessionId) {
+        AtomicReference<Mono<SessionCredentials>> self = new AtomicReference<>();
+        // share() se suscribe una sola vez a Redis y cancela la consulta sólo si cancelan todos los suscriptores
+        // La entrada se quita antes de propagar la señal final, así quien llega después ya no la ve
+        Mono<SessionCredentials> shared = delegate.getCredentials(sessionId)
+                .doOnTerminate(() -> inFlight.remove(sessionId, self.get()))
+                .doOnCancel(() -> inFlight.remove(sessionId, self.get()))
+                .share();
+        self.set(shared);
+        return shared;
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,85 @@
+package com.microservicios.api_gateway.repository;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Escucha las notificaciones keyevent de Redis sobre los hashes de Spring Session e invalida
+ * la caché local, de modo que un logout en ms-login se refleje en milisegundos.
+ * Requiere {@code notify-keyspace-events} con al menos {@code Egx} (y {@code h} para cambios de atributos).
+ */
+public class RedisSessionInvalidationListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSessionInvalidationListener.class);
+
+    static final PatternTopic[] TOPICS = {
+            PatternTopic.of("__keyevent@*__:del"),
+            PatternTopic.of("__keyevent@*__:expired"),
+            PatternTopic.of("__keyevent@*__:hset"),
+            PatternTopic.of("__keyevent@*__:hdel")
+    };
+
+    private final Supplier<ReactiveRedisMessageListenerContainer> containerFactory;
+    private final CachingSessionRepository cache;
+    private volatile Disposable subscription;
+
+    public RedisSessionInvalidationListener(ReactiveRedisConnectionFactory connectionFactory, CachingSessionRepository cache) {
+        this(() -> new ReactiveRedisMessageListenerContainer(connectionFactory), cache);
+    }
+
+    RedisSessionInvalidationListener(Supplier<ReactiveRedisMessageListenerContainer> containerFactory, CachingSessionRepository cache) {
+        this.containerFactory = containerFactory;
+        this.cache = cache;
+    }
+
+    @Override
+    public void start() {
+        // El contenedor abre la conexión pub/sub al crearse: se crea en la suscripción para
+        // que un Redis caído no impida el arranque y se reintente en segundo plano
+        subscription = Mono.fromCallable(containerFactory::get)
+                .flatMapMany(container -> container.receive(TOPICS)
+                        .doFinally(signal -> container.destroyLater().subscribe()))
+                .doOnError(error -> log.warn("Suscripción a notificaciones de sesión interrumpida: {}", error.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(message -> onKeyEvent(message.getMessage()));
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+
+    void onKeyEvent(String key) {
+        String sessionId = extractSessionId(key);
+        if (sessionId != null) {
+            cache.invalidate(sessionId);
+        }
+    }
+
+    static String extractSessionId(String key) {
+        if (key == null || !key.startsWith(AuthenticationConstants.SPRING_SESSION_KEY_PREFIX)) {
+            return null;
+        }
+        return key.substring(AuthenticationConstants.SPRING_SESSION_KEY_PREFIX.length());
+    }
+}
@@ -1,46 +1,152 @@
 package com.microservicios.api_gateway.repository;
 
-import com.microservicios.api_gateway.config.CustomAuthGatewayFilterFactory;
+import com.microservicios.api_gateway.codec.SessionValueCodec;
 import com.microservicios.api_gateway.constants.AuthenticationConstants;
-import com.microservicios.api_gateway.util.JsonStringCleaner;
+import com.microservicios.api_gateway.util.SensitiveDataMasker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveHashOperations;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Repository
 public class RedisSessionRepository implements SessionRepository {
 
-    private final ReactiveRedisTemplate<String, String> redisTemplate;
+    private static final List<String> CREDENTIAL_FIELDS = List.of(
+            AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN,
+            AuthenticationConstants.SESSION_ATTR_REFRESH_TOKEN,
+            AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN_EXPIRES_AT);
+
+    public static final String REDIS_METRIC = "gateway.session.redis";
+
+    private final ReactiveHashOperations<String, String, byte[]> hashOperations;
+    private final SessionValueCodec codec;
+    private final CommandTimers hgetTimers;
+    private final CommandTimers hmgetTimers;
 
-    private static final Logger log = LoggerFactory.getLogger(CustomAuthGatewayFilterFactory.class);
+    private static final Logger log = LoggerFactory.getLogger(RedisSessionRepository.class);
 
-    public RedisSessionRepository(ReactiveRedisTemplate<String, String> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    public RedisSessionRepository(ReactiveRedisTemplate<String, byte[]> sessionAttributeRedisTemplate,
+                                  SessionValueCodec codec, MeterRegistry meterRegistry) {
+        // Los valores llegan como bytes crudos y los decodifica el codec (JDK, compacto o JSON)
+        this.hashOperations = sessionAttributeRedisTemplate.opsForHash();
+        this.codec = codec;
+        this.hgetTimers = new CommandTimers(meterRegistry, "hget");
+        this.hmgetTimers = new CommandTimers(meterRegistry, "hmget");
     }
 
     @Override
     public Mono<String> getAccessToken(String sessionId) {
         String springSessionKey = buildSessionKey(sessionId);
-        return redisTemplate.opsForHash()
+        return timed(hgetTimers, hashOperations
                 .get(springSessionKey, AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN)
-                .map(Object::toString)
-                .map(JsonStringCleaner::removeQuotes)
-                .doOnNext(token -> log.info("Redis devolvió token={} para sesión={}", token, sessionId));
+                .map(codec::decode))
+                .doOnNext(token -> logFound("token", token, sessionId));
     }
 
     @Override
     public Mono<String> getRefreshToken(String sessionId) {
         String springSessionKey = buildSessionKey(sessionId);
-        return redisTemplate.opsForHash()
+        return timed(hgetTimers, hashOperations
                 .get(springSessionKey, AuthenticationConstants.SESSION_ATTR_REFRESH_TOKEN)
-                .map(Object::toString)
-                .map(JsonStringCleaner::removeQuotes)
-                .doOnNext(token -> log.info("Redis devolvió refresh access token={} para sesión={}", token, sessionId));
+                .map(codec::decode))
+                .doOnNext(token -> logFound("refresh token", token, sessionId))
+                .defaultIfEmpty("");
+    }
+
+    @Override
+    public Mono<SessionCredentials> getCredentials(String sessionId) {
+        String springSessionKey = buildSessionKey(sessionId);
+        // Un único HMGET para todos los atributos en lugar de un HGET por atributo
+        return timed(hmgetTimers, hashOperations
+                .multiGet(springSessionKey, CREDENTIAL_FIELDS)
+                .flatMap(values -> {
+                    String accessToken = decodeValue(values.get(0));
+                    if (accessToken == null) {
+                        return Mono.empty();
+                    }
+                    return Mono.just(new SessionCredentials(accessToken, decodeValue(values.get(1)), decodeExpiry(values)));
+                }))
+                .doOnNext(credentials -> logFound("credenciales", credentials.accessToken(), sessionId));
+    }
+
+    /**
+     * Mide la latencia del comando en {@value #REDIS_METRIC}, etiquetada por comando y resultado. El resultado
+     * sale del valor decodificado: HMGET responde una lista de nulos para una sesión inexistente. Un timeout
+     * o una conexión caída se traduce a {@link SessionStoreUnavailableException}: la sesión puede existir.
+     */
+    private <T> Mono<T> timed(CommandTimers timers, Mono<T> redisCall) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return redisCall
+                    .doOnSuccess(value -> record(value != null ? timers.found : timers.notFound, start))
+                    .doOnError(error -> record(timers.error, start));
+        }).onErrorMap(SessionStoreUnavailableException::isStoreFailure,
+                error -> new SessionStoreUnavailableException("Redis no respondió al leer la sesión", error));
+    }
+
+    private static void record(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void logFound(String what, String token, String sessionId) {
+        if (log.isDebugEnabled()) {
+            log.debug("Redis devolvió {}={} para sesión={}", what, SensitiveDataMasker.mask(token), SensitiveDataMasker.mask(sessionId));
+        }
+    }
+
+    private String decodeValue(byte[] value) {
+        return value == null ? null : codec.decode(value);
+    }
+
+    private Instant decodeExpiry(List<byte[]> values) {
+        String expiresAt = decodeValue(values.get(2));
+        if (expiresAt == null) {
+            return null;
+        }
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(expiresAt.trim()));
+        } catch (NumberFormatException e) {
+            // Un vencimiento ilegible equivale a uno desconocido: no impide usar la sesión
+            log.debug("Vencimiento de access token ilegible en la sesión: {}", e.getMessage());
+            return null;
+        }
     }
 
     private String buildSessionKey(String sessionId) {
         return AuthenticationConstants.SPRING_SESSION_KEY_PREFIX + sessionId;
     }
+
+    // Los timers de un comando, creados una vez: registrarlos en cada lectura busca en el registry cada vez
+    private static final class CommandTimers {
+
+        private final Timer found;
+        private final Timer notFound;
+        private final Timer error;
+
+        private CommandTimers(MeterRegistry meterRegistry, String command) {
+            this.found = timer(meterRegistry, command, "found");
+            this.notFound = timer(meterRegistry, command, "not_found");
+            this.error = timer(meterRegistry, command, "error");
+        }
+
+        private static Timer timer(MeterRegistry meterRegistry, String command, String outcome) {
+            return Timer.builder(REDIS_METRIC)
+                    .description("Latencia de las lecturas de sesión en Redis")
+                    .tag("command", command)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+        }
+    }
 }
@@ -0,0 +1,82 @@
+package com.microservicios.api_gateway.repository;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorador de {@link SessionRepository} con circuit breaker y bulkhead de resilience4j alrededor de Redis.
+ * <p>
+ * Con el circuito abierto o el bulkhead lleno la consulta no llega a Redis y falla enseguida con
+ * {@link SessionStoreUnavailableException}; {@link CachingSessionRepository} puede entonces responder
+ * con la última copia conocida de la sesión. Los timeouts y las conexiones caídas que atraviesan el circuito
+ * (y cuentan como fallas) salen con la misma excepción.
+ */
+public class ResilientSessionRepository implements SessionRepository {
+
+    public static final String INSTANCE_NAME = "sessionStore";
+    public static final String REJECTED_METRIC = "gateway.session.store.rejected";
+
+    private final SessionRepository delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadRejections;
+
+    public ResilientSessionRepository(SessionRepository delegate, CircuitBreaker circuitBreaker, Bulkhead bulkhead,
+                                      MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.circuitOpenRejections = rejectionCounter(meterRegistry, "circuit_open");
+        this.bulkheadRejections = rejectionCounter(meterRegistry, "bulkhead_full");
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(REJECTED_METRIC)
+                .description("Lecturas de sesión rechazadas sin consultar Redis")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<String> getAccessToken(String sessionId) {
+        return getCredentials(sessionId).map(SessionCredentials::accessToken);
+    }
+
+    @Override
+    public Mono<String> getRefreshToken(String sessionId) {
+        return getCredentials(sessionId)
+                .map(SessionCredentials::refreshToken)
+                .defaultIfEmpty("");
+    }
+
+    @Override
+    public Mono<SessionCredentials> getCredentials(String sessionId) {
+        // El bulkhead queda dentro del circuito: si se llena porque Redis está lento, cuenta como falla
+        return delegate.getCredentials(sessionId)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .onErrorMap(CallNotPermittedException.class, error -> {
+                    circuitOpenRejections.increment();
+                    return new SessionStoreUnavailableException("Circuito de Redis abierto", error);
+                })
+                .onErrorMap(BulkheadFullException.class, error -> {
+                    bulkheadRejections.increment();
+                    return new SessionStoreUnavailableException("Límite de consultas concurrentes a Redis alcanzado", error);
+                })
+                .onErrorMap(SessionStoreUnavailableException::isStoreFailure,
+                        error -> new SessionStoreUnavailableException("Redis no respondió al leer la sesión", error));
+    }
+
+    @Override
+    public void invalidate(String sessionId) {
+        delegate.invalidate(sessionId);
+    }
+}
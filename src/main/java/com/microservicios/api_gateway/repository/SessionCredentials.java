@@ -0,0 +1,80 @@
+package com.microservicios.api_gateway.repository;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.util.SensitiveDataMasker;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Credenciales OAuth guardadas en la sesión de Spring Session.
+ * <p>
+ * Guarda también el valor de la cabecera {@code Authorization} ya armado: las credenciales viven en la caché
+ * local de sesiones, así que cada petición de la sesión reenvía la misma instancia sin concatenar.
+ */
+public final class SessionCredentials {
+
+    private final String accessToken;
+    private final String refreshToken;
+    private final Instant expiresAt;
+    private final String authorization;
+
+    /**
+     * @param accessToken  access token de Google, nunca null
+     * @param refreshToken refresh token, o cadena vacía si la sesión no tiene uno
+     * @param expiresAt    vencimiento del access token, o {@code null} si la sesión no lo informa
+     */
+    public SessionCredentials(String accessToken, String refreshToken, Instant expiresAt) {
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken == null ? "" : refreshToken;
+        this.expiresAt = expiresAt;
+        this.authorization = AuthenticationConstants.HEADER_BEARER_PREFIX + accessToken;
+    }
+
+    public SessionCredentials(String accessToken, String refreshToken) {
+        this(accessToken, refreshToken, null);
+    }
+
+    public String accessToken() {
+        return accessToken;
+    }
+
+    public String refreshToken() {
+        return refreshToken;
+    }
+
+    public Instant expiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Valor de la cabecera {@code Authorization}: {@code Bearer <accessToken>}.
+     */
+    public String authorization() {
+        return authorization;
+    }
+
+    public boolean hasRefreshToken() {
+        return !refreshToken.isBlank();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof SessionCredentials that
+                && Objects.equals(accessToken, that.accessToken)
+                && refreshToken.equals(that.refreshToken)
+                && Objects.equals(expiresAt, that.expiresAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accessToken, refreshToken, expiresAt);
+    }
+
+    @Override
+    public String toString() {
+        return "SessionCredentials[accessToken=" + SensitiveDataMasker.mask(accessToken)
+                + ", refreshToken=" + SensitiveDataMasker.mask(refreshToken)
+                + ", expiresAt=" + expiresAt + "]";
+    }
+}
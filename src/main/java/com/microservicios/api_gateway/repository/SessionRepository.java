@@ -7,4 +7,17 @@ public interface SessionRepository {
     Mono<String> getAccessToken(String sessionId);
 
     Mono<String> getRefreshToken(String sessionId);
+
+    /**
+     * Obtiene access y refresh token de la sesión en una sola lectura.
+     * Devuelve vacío si la sesión no tiene access token.
+     */
+    Mono<SessionCredentials> getCredentials(String sessionId);
+
+    /**
+     * Descarta lo que esta capa guarda de la sesión (copias cacheadas, lecturas en curso), para que las
+     * búsquedas siguientes vean el estado actual de Redis. Se propaga a las capas internas.
+     */
+    default void invalidate(String sessionId) {
+    }
 }
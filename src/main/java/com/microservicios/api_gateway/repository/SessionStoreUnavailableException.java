@@ -0,0 +1,33 @@
+package com.microservicios.api_gateway.repository;
+
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * La consulta a Redis no se intentó porque el circuito está abierto o se alcanzó el límite de
+ * consultas concurrentes, o Redis no respondió (timeout o conexión caída).
+ */
+public class SessionStoreUnavailableException extends RuntimeException {
+
+    public SessionStoreUnavailableException(String message, Throwable cause) {
+        // Sin stack trace: se lanza en cada petición mientras Redis no responde
+        super(message, cause, false, false);
+    }
+
+    /**
+     * Indica si el error dice que Redis no está disponible, no que la sesión no existe: timeouts y conexiones
+     * caídas, tanto las excepciones de Lettuce como su traducción de Spring Data
+     * ({@link QueryTimeoutException}, {@code RedisConnectionFailureException}).
+     */
+    static boolean isStoreFailure(Throwable error) {
+        return error instanceof DataAccessResourceFailureException
+                || error instanceof QueryTimeoutException
+                || error instanceof RedisConnectionException
+                || error instanceof RedisCommandTimeoutException
+                || error instanceof TimeoutException;
+    }
+}
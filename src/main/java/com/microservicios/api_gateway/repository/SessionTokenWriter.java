@@ -0,0 +1,74 @@
+package com.microservicios.api_gateway.repository;
+
+import com.microservicios.api_gateway.codec.SessionValueCodec;
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escribe en el hash de Spring Session los tokens renovados por el gateway.
+ * <p>
+ * Cada escritura es un script que hace {@code HSET} sólo si la sesión todavía existe: un {@code HSET} simple
+ * después de un logout recrearía el hash, sin TTL y con un access token válido.
+ */
+public class SessionTokenWriter {
+
+    public static final RedisScript<Long> HSET_IF_EXISTS = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end "
+                    + "redis.call('HSET', KEYS[1], unpack(ARGV)) "
+                    + "return 1",
+            Long.class);
+
+    private final ReactiveRedisTemplate<String, byte[]> redisTemplate;
+    private final SessionValueCodec codec;
+
+    public SessionTokenWriter(ReactiveRedisTemplate<String, byte[]> sessionAttributeRedisTemplate, SessionValueCodec codec) {
+        this.redisTemplate = sessionAttributeRedisTemplate;
+        this.codec = codec;
+    }
+
+    /**
+     * Guarda un access token renovado y su vencimiento; el refresh token sólo si el emisor entregó uno nuevo.
+     *
+     * @return {@code false} si la sesión ya no existe
+     */
+    public Mono<Boolean> updateAccessToken(String sessionId, String accessToken, Instant expiresAt, String refreshToken) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put(AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN, accessToken);
+        attributes.put(AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN_EXPIRES_AT, Long.toString(expiresAt.toEpochMilli()));
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            attributes.put(AuthenticationConstants.SESSION_ATTR_REFRESH_TOKEN, refreshToken);
+        }
+        return write(sessionId, attributes);
+    }
+
+    /**
+     * Guarda el vencimiento del access token actual, para no volver a consultarlo.
+     *
+     * @return {@code false} si la sesión ya no existe
+     */
+    public Mono<Boolean> updateExpiry(String sessionId, Instant expiresAt) {
+        return write(sessionId, Map.of(AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN_EXPIRES_AT,
+                Long.toString(expiresAt.toEpochMilli())));
+    }
+
+    private Mono<Boolean> write(String sessionId, Map<String, String> attributes) {
+        List<byte[]> args = new ArrayList<>(attributes.size() * 2);
+        attributes.forEach((name, value) -> {
+            args.add(name.getBytes(StandardCharsets.UTF_8));
+            args.add(codec.encode(value));
+        });
+        return redisTemplate.execute(HSET_IF_EXISTS, List.of(AuthenticationConstants.SPRING_SESSION_KEY_PREFIX + sessionId), args)
+                .next()
+                .map(written -> written == 1L)
+                .defaultIfEmpty(false);
+    }
+}
@@ -0,0 +1,222 @@
+package com.microservicios.api_gateway.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.microservicios.api_gateway.config.TokenValidationProperties;
+import com.microservicios.api_gateway.util.SensitiveDataMasker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenValidator} que consulta un endpoint de tokeninfo/introspección (por defecto el de Google).
+ * <p>
+ * Los resultados se guardan en una caché acotada, indexada por el SHA-256 del token, hasta el
+ * vencimiento real del token (con el tope {@code maxCacheTtl}); las consultas concurrentes por el
+ * mismo token comparten una única llamada al endpoint. Los errores del endpoint no se cachean.
+ */
+public class RemoteTokenValidator implements TokenValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteTokenValidator.class);
+
+    public static final String CACHE_NAME = "tokenInfo";
+    public static final String INTROSPECTION_METRIC = "gateway.token.introspection";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    });
+
+    private final TokenValidator formatValidator;
+    private final WebClient webClient;
+    private final TokenValidationProperties properties;
+    private final Clock clock;
+    private final AsyncCache<String, TokenInfo> cache;
+    private final Timer activeTimer;
+    private final Timer inactiveTimer;
+    private final Timer errorTimer;
+
+    public RemoteTokenValidator(TokenValidator formatValidator, WebClient webClient,
+                                TokenValidationProperties properties, MeterRegistry meterRegistry) {
+        this(formatValidator, webClient, properties, meterRegistry, Ticker.systemTicker(), Clock.systemUTC());
+    }
+
+    RemoteTokenValidator(TokenValidator formatValidator, WebClient webClient, TokenValidationProperties properties,
+                         MeterRegistry meterRegistry, Ticker ticker, Clock clock) {
+        this.formatValidator = formatValidator;
+        this.webClient = webClient;
+        this.properties = properties;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.cacheMaxSize())
+                .expireAfter(new TokenInfoExpiry())
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync();
+        this.activeTimer = introspectionTimer(meterRegistry, "active");
+        this.inactiveTimer = introspectionTimer(meterRegistry, "inactive");
+        this.errorTimer = introspectionTimer(meterRegistry, "error");
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+
+    private static Timer introspectionTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder(INTROSPECTION_METRIC)
+                .description("Consultas al endpoint de validación de tokens")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sólo verifica el formato; para la validación completa usar {@link #validate(String)}.
+     */
+    @Override
+    public boolean isValid(String token) {
+        return formatValidator.isValid(token);
+    }
+
+    @Override
+    public Mono<Boolean> validate(String token) {
+        return introspect(token).map(TokenInfo::active);
+    }
+
+    @Override
+    public Mono<TokenInfo> introspect(String token) {
+        // Un token con formato inválido se rechaza sin I/O
+        if (!formatValidator.isValid(token)) {
+            return Mono.just(TokenInfo.INACTIVE);
+        }
+        String key = hash(token);
+        return Mono.defer(() -> {
+            CompletableFuture<TokenInfo> lookup = cache.get(key, (ignored, executor) -> fetch(token).toFuture());
+            // suppressCancel: la cancelación de un suscriptor no debe cancelar la consulta compartida
+            return Mono.fromFuture(lookup, true)
+                    .onErrorResume(error -> {
+                        // Caffeine descarta el futuro fallido de forma asíncrona; se quita ya para que
+                        // la próxima petición vuelva a consultar
+                        cache.asMap().remove(key, lookup);
+                        if (log.isDebugEnabled()) {
+                            log.debug("No se pudo validar el token {}: {}", SensitiveDataMasker.mask(token), error.getMessage());
+                        }
+                        return Mono.just(properties.failOpen() ? TokenInfo.UNVERIFIED : TokenInfo.INACTIVE);
+                    });
+        });
+    }
+
+    private Mono<TokenInfo> fetch(String token) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.post()
+                    .uri(properties.endpoint())
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .body(BodyInserters.fromFormData(properties.tokenParameter(), token))
+                    .exchangeToMono(response -> {
+                        if (response.statusCode().is2xxSuccessful()) {
+                            return response.bodyToMono(JsonNode.class)
+                                    .map(this::toTokenInfo)
+                                    .defaultIfEmpty(TokenInfo.INACTIVE);
+                        }
+                        if (response.statusCode().is4xxClientError()) {
+                            // Google responde 400 invalid_token para tokens vencidos o revocados
+                            return response.releaseBody().thenReturn(TokenInfo.INACTIVE);
+                        }
+                        return response.createError();
+                    })
+                    .timeout(properties.timeout())
+                    .doOnSuccess(info -> (info.active() ? activeTimer : inactiveTimer)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(error -> errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Interpreta tanto la respuesta de tokeninfo de Google ({@code expires_in}, {@code exp} como texto)
+     * como la de RFC 7662 ({@code active}, {@code exp} numérico).
+     */
+    TokenInfo toTokenInfo(JsonNode body) {
+        JsonNode active = body.get("active");
+        if (active != null && !active.asBoolean()) {
+            return TokenInfo.INACTIVE;
+        }
+        Instant now = clock.instant();
+        Instant expiresAt = null;
+        if (body.hasNonNull("exp")) {
+            expiresAt = Instant.ofEpochSecond(body.get("exp").asLong());
+        } else if (body.hasNonNull("expires_in")) {
+            expiresAt = now.plusSeconds(body.get("expires_in").asLong());
+        }
+        if (expiresAt != null && !expiresAt.isAfter(now)) {
+            return TokenInfo.INACTIVE;
+        }
+        return new TokenInfo(true, expiresAt);
+    }
+
+    static String hash(String token) {
+        return HexFormat.of().formatHex(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Tiempo de vida restante del resultado cacheado; mientras la consulta está en curso Caffeine
+     * lo reporta como prácticamente infinito.
+     */
+    Duration cachedTtl(String token) {
+        return cache.synchronous().policy().expireVariably()
+                .flatMap(expiry -> expiry.getExpiresAfter(hash(token)))
+                .orElse(Duration.ZERO);
+    }
+
+    long estimatedSize() {
+        cache.synchronous().cleanUp();
+        return cache.synchronous().estimatedSize();
+    }
+
+    private final class TokenInfoExpiry implements Expiry<String, TokenInfo> {
+
+        @Override
+        public long expireAfterCreate(String key, TokenInfo info, long currentTime) {
+            if (!info.active()) {
+                return properties.invalidCacheTtl().toNanos();
+            }
+            Duration ttl = properties.maxCacheTtl();
+            if (info.expiresAt() != null) {
+                Duration remaining = Duration.between(clock.instant(), info.expiresAt());
+                if (remaining.compareTo(ttl) < 0) {
+                    ttl = remaining.isNegative() ? Duration.ZERO : remaining;
+                }
+            }
+            return ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenInfo info, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, info, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenInfo info, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
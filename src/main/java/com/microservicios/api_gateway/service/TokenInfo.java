@@ -0,0 +1,17 @@
+package com.microservicios.api_gateway.service;
+
+import java.time.Instant;
+
+/**
+ * Resultado de validar un access token.
+ *
+ * @param active    el token es válido para reenviarse a los servicios destino
+ * @param expiresAt vencimiento informado por el emisor; {@code null} si no se conoce
+ */
+public record TokenInfo(boolean active, Instant expiresAt) {
+
+    public static final TokenInfo INACTIVE = new TokenInfo(false, null);
+
+    /** Token aceptado sólo por su formato, sin consultar al emisor. */
+    public static final TokenInfo UNVERIFIED = new TokenInfo(true, null);
+}
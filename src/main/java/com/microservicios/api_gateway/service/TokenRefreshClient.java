@@ -0,0 +1,80 @@
+package com.microservicios.api_gateway.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.microservicios.api_gateway.config.TokenRefreshProperties;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Pide un nuevo access token al endpoint de tokens OAuth con el grant {@code refresh_token}.
+ */
+public class TokenRefreshClient {
+
+    private final WebClient webClient;
+    private final TokenRefreshProperties properties;
+    private final Clock clock;
+
+    public TokenRefreshClient(WebClient webClient, TokenRefreshProperties properties) {
+        this(webClient, properties, Clock.systemUTC());
+    }
+
+    TokenRefreshClient(WebClient webClient, TokenRefreshProperties properties, Clock clock) {
+        this.webClient = webClient;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * Devuelve vacío si el emisor rechaza el refresh token (revocado o vencido); los errores del
+     * endpoint se propagan para reintentar más tarde.
+     */
+    public Mono<RefreshedToken> refresh(String refreshToken) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("grant_type", "refresh_token");
+        form.add("refresh_token", refreshToken);
+        form.add("client_id", properties.clientId());
+        form.add("client_secret", properties.clientSecret());
+        return webClient.post()
+                .uri(properties.endpoint())
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData(form))
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is2xxSuccessful()) {
+                        return response.bodyToMono(JsonNode.class).flatMap(this::toRefreshedToken);
+                    }
+                    if (response.statusCode().is4xxClientError()) {
+                        // Google responde 400 invalid_grant cuando el refresh token fue revocado
+                        return response.releaseBody().then(Mono.empty());
+                    }
+                    return response.createError();
+                })
+                .timeout(properties.timeout());
+    }
+
+    private Mono<RefreshedToken> toRefreshedToken(JsonNode body) {
+        if (!body.hasNonNull("access_token") || !body.hasNonNull("expires_in")) {
+            return Mono.error(new IllegalStateException("Respuesta del endpoint de tokens sin access_token o expires_in"));
+        }
+        return Mono.just(new RefreshedToken(
+                body.get("access_token").asText(),
+                // Con la misma precisión con la que se guarda en la sesión
+                clock.instant().plusSeconds(body.get("expires_in").asLong()).truncatedTo(ChronoUnit.MILLIS),
+                body.hasNonNull("refresh_token") ? body.get("refresh_token").asText() : null));
+    }
+
+    /**
+     * @param accessToken  nuevo access token
+     * @param expiresAt    vencimiento calculado con {@code expires_in}
+     * @param refreshToken nuevo refresh token si el emisor lo rotó; {@code null} si se sigue usando el anterior
+     */
+    public record RefreshedToken(String accessToken, Instant expiresAt, String refreshToken) {
+    }
+}
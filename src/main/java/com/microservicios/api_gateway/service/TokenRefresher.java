@@ -0,0 +1,304 @@
+package com.microservicios.api_gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.microservicios.api_gateway.config.TokenRefreshProperties;
+import com.microservicios.api_gateway.repository.CachingSessionRepository;
+import com.microservicios.api_gateway.repository.SessionCredentials;
+import com.microservicios.api_gateway.repository.SessionRepository;
+import com.microservicios.api_gateway.repository.SessionTokenWriter;
+import com.microservicios.api_gateway.util.SensitiveDataMasker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renueva los access tokens de las sesiones activas antes de que venzan, para que los servicios destino no
+ * reciban tokens vencidos ni necesiten el refresh token.
+ * <p>
+ * El filtro de autenticación informa cada sesión que usa ({@link #onRequest}); cada {@code scanInterval} se
+ * renuevan las que vencen dentro de {@code refreshBefore} y el resultado se escribe en el hash de Spring
+ * Session. Las renovaciones de una misma sesión, programadas o desde una petición, comparten una sola
+ * llamada al endpoint de tokens. Una sesión sin peticiones durante {@code idleTimeout} deja de renovarse, y
+ * una cuyo refresh token fue revocado no se vuelve a intentar durante {@code revokedTtl}, salvo que un nuevo
+ * login traiga otro refresh token.
+ * <p>
+ * El vencimiento se lee del atributo {@code accessTokenExpiresAt} de la sesión; si falta y el
+ * {@link TokenValidator} lo conoce (modo {@code remote}), se guarda en la sesión.
+ */
+public class TokenRefresher implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRefresher.class);
+
+    public static final String REFRESH_METRIC = "gateway.token.refresh";
+    public static final String TRACKED_CACHE_NAME = "tokenRefreshSessions";
+    public static final String REVOKED_CACHE_NAME = "tokenRefreshRevoked";
+
+    // Un token que vence antes de este margen no se reenvía: la petición espera la renovación
+    static final Duration INLINE_MARGIN = Duration.ofSeconds(10);
+
+    private final SessionRepository store;
+    private final SessionTokenWriter writer;
+    private final TokenRefreshClient client;
+    private final TokenValidator tokenValidator;
+    // null si la caché local de sesiones está desactivada
+    private final CachingSessionRepository sessionCache;
+    private final TokenRefreshProperties properties;
+    private final Clock clock;
+    private final Cache<String, Instant> tracked;
+    // Sesión -> refresh token que el endpoint rechazó
+    private final Cache<String, String> revokedRefreshTokens;
+    private final Map<String, Mono<SessionCredentials>> inFlight = new ConcurrentHashMap<>();
+    private final Counter refreshed;
+    private final Counter notNeeded;
+    private final Counter revoked;
+    private final Counter sessionGone;
+    private final Counter errors;
+    private volatile Disposable subscription;
+
+    /**
+     * @param store lecturas directas a Redis, sin caché: antes de renovar se necesita el estado actual
+     */
+    public TokenRefresher(SessionRepository store, SessionTokenWriter writer, TokenRefreshClient client,
+                          TokenValidator tokenValidator, CachingSessionRepository sessionCache,
+                          TokenRefreshProperties properties, MeterRegistry meterRegistry) {
+        this(store, writer, client, tokenValidator, sessionCache, properties, meterRegistry,
+                Clock.systemUTC(), Ticker.systemTicker());
+    }
+
+    TokenRefresher(SessionRepository store, SessionTokenWriter writer, TokenRefreshClient client,
+                   TokenValidator tokenValidator, CachingSessionRepository sessionCache,
+                   TokenRefreshProperties properties, MeterRegistry meterRegistry, Clock clock, Ticker ticker) {
+        this.store = store;
+        this.writer = writer;
+        this.client = client;
+        this.tokenValidator = tokenValidator;
+        this.sessionCache = sessionCache;
+        this.properties = properties;
+        this.clock = clock;
+        this.tracked = Caffeine.newBuilder()
+                .maximumSize(properties.maxSessions())
+                .expireAfterAccess(properties.idleTimeout())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.revokedRefreshTokens = Caffeine.newBuilder()
+                .maximumSize(properties.maxSessions())
+                .expireAfterWrite(properties.revokedTtl())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.refreshed = refreshCounter(meterRegistry, "refreshed");
+        this.notNeeded = refreshCounter(meterRegistry, "not_needed");
+        this.revoked = refreshCounter(meterRegistry, "revoked");
+        this.sessionGone = refreshCounter(meterRegistry, "session_gone");
+        this.errors = refreshCounter(meterRegistry, "error");
+        CaffeineCacheMetrics.monitor(meterRegistry, tracked, TRACKED_CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, revokedRefreshTokens, REVOKED_CACHE_NAME);
+    }
+
+    private static Counter refreshCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder(REFRESH_METRIC)
+                .description("Renovaciones de access tokens en el gateway")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public boolean forwardRefreshToken() {
+        return properties.forwardRefreshToken();
+    }
+
+    /**
+     * Registra el uso de la sesión y devuelve las credenciales a reenviar: las mismas, o las renovadas si
+     * el token ya venció o está por vencer. Nunca falla: si la renovación no es posible sigue con las actuales.
+     */
+    public Mono<SessionCredentials> onRequest(String sessionId, SessionCredentials credentials) {
+        if (!credentials.hasRefreshToken() || isRevoked(sessionId, credentials)) {
+            return Mono.just(credentials);
+        }
+        if (credentials.expiresAt() != null) {
+            return withKnownExpiry(sessionId, credentials, credentials.expiresAt());
+        }
+        return tokenValidator.introspect(credentials.accessToken()).flatMap(info -> {
+            if (!info.active()) {
+                // Vencido o revocado: se intenta renovar antes de que la validación rechace la petición
+                return refreshOrKeep(sessionId, credentials);
+            }
+            if (info.expiresAt() == null) {
+                // Validación sólo por formato: no se sabe cuándo renovar
+                return Mono.just(credentials);
+            }
+            if (!info.expiresAt().equals(tracked.getIfPresent(sessionId))) {
+                rememberExpiry(sessionId, info.expiresAt());
+            }
+            return withKnownExpiry(sessionId, credentials, info.expiresAt());
+        });
+    }
+
+    private boolean isRevoked(String sessionId, SessionCredentials credentials) {
+        return credentials.refreshToken().equals(revokedRefreshTokens.getIfPresent(sessionId));
+    }
+
+    private Mono<SessionCredentials> withKnownExpiry(String sessionId, SessionCredentials credentials, Instant expiresAt) {
+        // Las credenciales pueden venir de la caché local: se conserva el vencimiento más reciente
+        tracked.asMap().merge(sessionId, expiresAt, (current, seen) -> current.isAfter(seen) ? current : seen);
+        if (expiresAt.isAfter(clock.instant().plus(INLINE_MARGIN))) {
+            return Mono.just(credentials);
+        }
+        return refreshOrKeep(sessionId, credentials);
+    }
+
+    private Mono<SessionCredentials> refreshOrKeep(String sessionId, SessionCredentials credentials) {
+        return refresh(sessionId)
+                .onErrorResume(error -> Mono.empty())
+                .defaultIfEmpty(credentials);
+    }
+
+    private void rememberExpiry(String sessionId, Instant expiresAt) {
+        writer.updateExpiry(sessionId, expiresAt)
+                .subscribe(written -> {
+                    if (!written) {
+                        tracked.invalidate(sessionId);
+                    }
+                }, error -> log.debug("No se pudo guardar el vencimiento del token de la sesión {}: {}",
+                        SensitiveDataMasker.mask(sessionId), error.getMessage()));
+    }
+
+    /**
+     * Renueva el token de la sesión si vence dentro de {@code refreshBefore}. Las llamadas concurrentes por la
+     * misma sesión comparten la renovación. Devuelve vacío si la sesión ya no existe.
+     */
+    Mono<SessionCredentials> refresh(String sessionId) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(sessionId, this::sharedRefresh));
+    }
+
+    private Mono<SessionCredentials> sharedRefresh(String sessionId) {
+        AtomicReference<Mono<SessionCredentials>> self = new AtomicReference<>();
+        // cache() en lugar de share(): si la petición que la inició se cancela, la renovación sigue
+        Mono<SessionCredentials> shared = store.getCredentials(sessionId)
+                .flatMap(current -> refreshIfNeeded(sessionId, current))
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    tracked.invalidate(sessionId);
+                    sessionGone.increment();
+                }))
+                .doOnError(error -> {
+                    errors.increment();
+                    log.warn("No se pudo renovar el token de la sesión {}: {}",
+                            SensitiveDataMasker.mask(sessionId), error.getMessage());
+                })
+                .doFinally(signal -> inFlight.remove(sessionId, self.get()))
+                .cache();
+        self.set(shared);
+        return shared;
+    }
+
+    private Mono<SessionCredentials> refreshIfNeeded(String sessionId, SessionCredentials current) {
+        Instant expiresAt = current.expiresAt();
+        if (expiresAt != null && expiresAt.isAfter(clock.instant().plus(properties.refreshBefore()))) {
+            // Ya lo renovó otra instancia del gateway o un nuevo login
+            tracked.put(sessionId, expiresAt);
+            notNeeded.increment();
+            return Mono.just(current);
+        }
+        if (!current.hasRefreshToken()) {
+            tracked.invalidate(sessionId);
+            return Mono.just(current);
+        }
+        return client.refresh(current.refreshToken())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(token -> {
+                    if (token.isEmpty()) {
+                        // Refresh token revocado: la sesión sigue con su token hasta un nuevo login, sin
+                        // volver a llamar al endpoint en cada petición
+                        tracked.invalidate(sessionId);
+                        revokedRefreshTokens.put(sessionId, current.refreshToken());
+                        revoked.increment();
+                        return Mono.just(current);
+                    }
+                    return save(sessionId, current, token.get());
+                });
+    }
+
+    private Mono<SessionCredentials> save(String sessionId, SessionCredentials current,
+                                          TokenRefreshClient.RefreshedToken token) {
+        return writer.updateAccessToken(sessionId, token.accessToken(), token.expiresAt(), token.refreshToken())
+                .flatMap(written -> {
+                    if (!written) {
+                        return Mono.empty();
+                    }
+                    tracked.put(sessionId, token.expiresAt());
+                    if (sessionCache != null) {
+                        // Sin esperar la notificación keyevent de Redis
+                        sessionCache.invalidate(sessionId);
+                    }
+                    refreshed.increment();
+                    if (log.isDebugEnabled()) {
+                        log.debug("Token renovado para la sesión {}, vence {}", SensitiveDataMasker.mask(sessionId), token.expiresAt());
+                    }
+                    String refreshToken = token.refreshToken() != null ? token.refreshToken() : current.refreshToken();
+                    return Mono.just(new SessionCredentials(token.accessToken(), refreshToken, token.expiresAt()));
+                });
+    }
+
+    /**
+     * Renueva las sesiones seguidas cuyo token vence dentro de {@code refreshBefore}.
+     */
+    Mono<Void> scan() {
+        return Flux.defer(() -> {
+                    Instant threshold = clock.instant().plus(properties.refreshBefore());
+                    List<String> due = new ArrayList<>();
+                    tracked.asMap().forEach((sessionId, expiresAt) -> {
+                        if (!expiresAt.isAfter(threshold)) {
+                            due.add(sessionId);
+                        }
+                    });
+                    return Flux.fromIterable(due);
+                })
+                .flatMap(sessionId -> refresh(sessionId).onErrorResume(error -> Mono.empty()), properties.concurrency())
+                .then();
+    }
+
+    @Override
+    public void start() {
+        subscription = Flux.interval(properties.scanInterval(), properties.scanInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> scan())
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+
+    Instant trackedExpiry(String sessionId) {
+        return tracked.getIfPresent(sessionId);
+    }
+}
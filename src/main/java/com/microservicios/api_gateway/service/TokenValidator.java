@@ -1,6 +1,23 @@
 package com.microservicios.api_gateway.service;
 
+import reactor.core.publisher.Mono;
+
 public interface TokenValidator {
 
     boolean isValid(String token);
+
+    /**
+     * Validación no bloqueante; las implementaciones que consultan un servicio externo
+     * la sobrescriben. Por defecto delega en {@link #isValid(String)}.
+     */
+    default Mono<Boolean> validate(String token) {
+        return Mono.just(isValid(token));
+    }
+
+    /**
+     * Devuelve el estado del token y, si se conoce, su vencimiento real.
+     */
+    default Mono<TokenInfo> introspect(String token) {
+        return Mono.just(isValid(token) ? TokenInfo.UNVERIFIED : TokenInfo.INACTIVE);
+    }
 }
@@ -1,21 +1,59 @@
 package com.microservicios.api_gateway.util;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
 public final class ErrorResponseBuilder {
 
+    private static final byte[] BODY_PREFIX = "{\"success\": false, \"message\": \"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY_SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    // Cuerpos de los mensajes fijos, serializados una sola vez y compartidos en sólo lectura
+    private static final Map<String, byte[]> PRE_ENCODED_BODIES = Map.of(
+            AuthenticationConstants.MSG_SESSION_NOT_FOUND, encodeBody(AuthenticationConstants.MSG_SESSION_NOT_FOUND),
+            AuthenticationConstants.MSG_SESSION_INVALID, encodeBody(AuthenticationConstants.MSG_SESSION_INVALID),
+            AuthenticationConstants.MSG_TOKEN_INVALID, encodeBody(AuthenticationConstants.MSG_TOKEN_INVALID),
+            AuthenticationConstants.MSG_SESSION_NOT_IN_REDIS, encodeBody(AuthenticationConstants.MSG_SESSION_NOT_IN_REDIS),
+            AuthenticationConstants.MSG_SESSION_STORE_UNAVAILABLE, encodeBody(AuthenticationConstants.MSG_SESSION_STORE_UNAVAILABLE),
+            AuthenticationConstants.MSG_RATE_LIMITED, encodeBody(AuthenticationConstants.MSG_RATE_LIMITED),
+            AuthenticationConstants.MSG_SERVICE_OVERLOADED, encodeBody(AuthenticationConstants.MSG_SERVICE_OVERLOADED));
+
     private ErrorResponseBuilder() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
 
     public static Mono<Void> buildErrorResponse(ServerHttpResponse response, HttpStatus status, String message) {
+        byte[] body = message == null ? null : PRE_ENCODED_BODIES.get(message);
+        if (body == null) {
+            body = encodeBody(message);
+        }
+
         response.setStatusCode(status);
-        response.getHeaders().add("Content-Type", AuthenticationConstants.HEADER_CONTENT_TYPE);
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, AuthenticationConstants.HEADER_CONTENT_TYPE);
+        headers.setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
 
-        String body = String.format("{\"success\": false, \"message\": \"%s\"}", message);
-        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes())));
+    /**
+     * Serializes the error body as UTF-8 JSON, escaping the message.
+     *
+     * @param message the error message (null is written as an empty message)
+     * @return the encoded body
+     */
+    static byte[] encodeBody(String message) {
+        byte[] escaped = message == null ? new byte[0] : JsonStringEncoder.getInstance().quoteAsUTF8(message);
+        byte[] body = new byte[BODY_PREFIX.length + escaped.length + BODY_SUFFIX.length];
+        System.arraycopy(BODY_PREFIX, 0, body, 0, BODY_PREFIX.length);
+        System.arraycopy(escaped, 0, body, BODY_PREFIX.length, escaped.length);
+        System.arraycopy(BODY_SUFFIX, 0, body, BODY_PREFIX.length + escaped.length, BODY_SUFFIX.length);
+        return body;
     }
 }
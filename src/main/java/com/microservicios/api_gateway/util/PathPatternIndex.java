@@ -0,0 +1,127 @@
+package com.microservicios.api_gateway.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable index of path patterns compiled once into a character trie.
+ * Supports the same patterns as {@link PathMatcher}: exact paths and prefixes ending with /**.
+ * Matching walks the request path once and allocates nothing.
+ */
+public final class PathPatternIndex {
+
+    private static final String WILDCARD_SUFFIX = "/**";
+
+    public static final PathPatternIndex EMPTY = new PathPatternIndex(new Node(new char[0], new Node[0], false, false));
+
+    private final Node root;
+
+    private PathPatternIndex(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles the given patterns into an index.
+     *
+     * @param patterns the patterns to index (null entries are ignored)
+     * @return the compiled index, or {@link #EMPTY} if there are no patterns
+     */
+    public static PathPatternIndex compile(Collection<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return EMPTY;
+        }
+
+        NodeBuilder rootBuilder = new NodeBuilder();
+        for (String pattern : patterns) {
+            if (pattern == null) {
+                continue;
+            }
+            boolean wildcard = pattern.endsWith(WILDCARD_SUFFIX);
+            String path = wildcard ? pattern.substring(0, pattern.length() - WILDCARD_SUFFIX.length()) : pattern;
+
+            NodeBuilder node = rootBuilder;
+            for (int i = 0; i < path.length(); i++) {
+                node = node.children.computeIfAbsent(path.charAt(i), c -> new NodeBuilder());
+            }
+            if (wildcard) {
+                node.prefix = true;
+            } else {
+                node.exact = true;
+            }
+        }
+        return new PathPatternIndex(rootBuilder.build());
+    }
+
+    public static PathPatternIndex compile(String... patterns) {
+        return compile(List.of(patterns));
+    }
+
+    /**
+     * Verifies if a request path matches any pattern of the index.
+     *
+     * @param requestPath the path to check
+     * @return true if the path matches an exact pattern or starts with a /** prefix
+     */
+    public boolean matches(String requestPath) {
+        if (requestPath == null) {
+            return false;
+        }
+
+        Node node = root;
+        for (int i = 0; i < requestPath.length(); i++) {
+            if (node.prefix) {
+                return true;
+            }
+            node = node.child(requestPath.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.prefix || node.exact;
+    }
+
+    private static final class Node {
+
+        private final char[] keys;
+        private final Node[] children;
+        private final boolean prefix;
+        private final boolean exact;
+
+        private Node(char[] keys, Node[] children, boolean prefix, boolean exact) {
+            this.keys = keys;
+            this.children = children;
+            this.prefix = prefix;
+            this.exact = exact;
+        }
+
+        private Node child(char c) {
+            if (keys.length == 1) {
+                return keys[0] == c ? children[0] : null;
+            }
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    private static final class NodeBuilder {
+
+        private final Map<Character, NodeBuilder> children = new TreeMap<>();
+        private boolean prefix;
+        private boolean exact;
+
+        private Node build() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, NodeBuilder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            return new Node(keys, nodes, prefix, exact);
+        }
+    }
+}
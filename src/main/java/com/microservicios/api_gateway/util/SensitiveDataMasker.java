@@ -0,0 +1,26 @@
+package com.microservicios.api_gateway.util;
+
+public final class SensitiveDataMasker {
+
+    private static final int VISIBLE_CHARS = 6;
+
+    private SensitiveDataMasker() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Masks a token or session ID for logging, keeping only a short prefix and the length.
+     *
+     * @param value the sensitive value
+     * @return the masked value, e.g. {@code ya29.a…[183]}
+     */
+    public static String mask(String value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value.length() <= VISIBLE_CHARS) {
+            return "…[" + value.length() + "]";
+        }
+        return value.substring(0, VISIBLE_CHARS) + "…[" + value.length() + "]";
+    }
+}
@@ -0,0 +1,36 @@
+package com.microservicios.api_gateway.util;
+
+public final class SessionIdValidator {
+
+    // Spring Session genera los IDs con UUID.randomUUID().toString()
+    private static final int UUID_LENGTH = 36;
+
+    private SessionIdValidator() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Verifies that a decoded session ID has the UUID shape generated by Spring Session
+     * (8-4-4-4-12 hexadecimal digits), without allocating.
+     *
+     * @param sessionId the decoded session ID
+     * @return true if the ID can exist in Redis
+     */
+    public static boolean isWellFormed(String sessionId) {
+        if (sessionId == null || sessionId.length() != UUID_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = sessionId.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
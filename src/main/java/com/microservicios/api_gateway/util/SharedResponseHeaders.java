@@ -0,0 +1,60 @@
+package com.microservicios.api_gateway.util;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public final class SharedResponseHeaders {
+
+    // Propias de la conexión, de la sesión del usuario o de la petición original (CORS): no se comparten
+    private static final Set<String> EXCLUDED = caseInsensitive(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.SET_COOKIE, HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.TRAILER, HttpHeaders.UPGRADE);
+
+    private static final String CORS_PREFIX = "Access-Control-";
+
+    private SharedResponseHeaders() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    private static Set<String> caseInsensitive(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Collections.addAll(set, names);
+        return Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Copies the upstream response headers that can be replayed to other clients, leaving out
+     * hop-by-hop, cookie and CORS headers.
+     *
+     * @param headers the response headers of the original request
+     * @return a read-only copy
+     */
+    public static HttpHeaders snapshot(HttpHeaders headers) {
+        HttpHeaders shared = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            if (!EXCLUDED.contains(name) && !name.regionMatches(true, 0, CORS_PREFIX, 0, CORS_PREFIX.length())) {
+                shared.put(name, List.copyOf(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(shared);
+    }
+
+    /**
+     * Adds the shared headers to a response, keeping any header the gateway already set for the
+     * current request (e.g. CORS).
+     *
+     * @param shared the snapshot taken with {@link #snapshot(HttpHeaders)}
+     * @param target the headers of the response being written
+     */
+    public static void applyTo(HttpHeaders shared, HttpHeaders target) {
+        shared.forEach((name, values) -> {
+            if (!target.containsKey(name)) {
+                target.addAll(name, values);
+            }
+        });
+    }
+}
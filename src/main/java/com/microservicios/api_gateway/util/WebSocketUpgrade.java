@@ -0,0 +1,26 @@
+package com.microservicios.api_gateway.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+public final class WebSocketUpgrade {
+
+    private static final String WEBSOCKET = "websocket";
+
+    private WebSocketUpgrade() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Tells whether the request is a WebSocket handshake ({@code Upgrade: websocket}).
+     * <p>
+     * The gateway filter chain of such a request ends as soon as the handshake completes; the connection
+     * then stays open, detached from the chain, until one of the two peers closes it.
+     *
+     * @param request the inbound request
+     * @return true if the request asks to upgrade the connection to WebSocket
+     */
+    public static boolean isUpgrade(ServerHttpRequest request) {
+        return WEBSOCKET.equalsIgnoreCase(request.getHeaders().getFirst(HttpHeaders.UPGRADE));
+    }
+}
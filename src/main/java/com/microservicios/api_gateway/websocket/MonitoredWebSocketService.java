@@ -0,0 +1,43 @@
+package com.microservicios.api_gateway.websocket;
+
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.server.WebSocketService;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * {@link WebSocketService} que usa el {@code WebsocketRoutingFilter} de Spring Cloud Gateway. Si el filtro
+ * {@code WebSocket} de la ruta admitió la conexión ({@link WebSocketConnection#ATTRIBUTE}), el proxy atiende la
+ * sesión del cliente a través de {@link MonitoredWebSocketSession}; si no, delega sin cambios.
+ */
+public class MonitoredWebSocketService implements WebSocketService {
+
+    private final WebSocketService delegate;
+
+    public MonitoredWebSocketService(WebSocketService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Mono<Void> handleRequest(ServerWebExchange exchange, WebSocketHandler handler) {
+        WebSocketConnection connection = exchange.getAttribute(WebSocketConnection.ATTRIBUTE);
+        if (connection == null) {
+            return delegate.handleRequest(exchange, handler);
+        }
+        return delegate.handleRequest(exchange, new WebSocketHandler() {
+            @Override
+            public List<String> getSubProtocols() {
+                // El handshake negocia los subprotocolos que pidió el cliente
+                return handler.getSubProtocols();
+            }
+
+            @Override
+            public Mono<Void> handle(WebSocketSession session) {
+                return connection.handle(session, handler);
+            }
+        });
+    }
+}
@@ -0,0 +1,170 @@
+package com.microservicios.api_gateway.websocket;
+
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sesión WebSocket del cliente vista por el proxy del gateway: cuenta los frames de datos en ambos sentidos,
+ * envía un ping cada {@code pingInterval} y cierra la conexión (1001) si no hubo datos en {@code idleTimeout}
+ * o si el cliente no respondió el último ping. El proxy propaga el cierre a la conexión con el destino.
+ * <p>
+ * Los pings se intercalan en el único {@link #send} que hace el proxy, así que no hace falta otro flujo de
+ * escritura; los pongs del cliente responden a esos pings y no se reenvían al destino. Las dos verificaciones
+ * corren en cada ping: no hay temporizadores por frame.
+ */
+final class MonitoredWebSocketSession implements WebSocketSession {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitoredWebSocketSession.class);
+
+    static final CloseStatus IDLE_TIMEOUT = CloseStatus.GOING_AWAY.withReason("Idle timeout");
+    static final CloseStatus PING_TIMEOUT = CloseStatus.GOING_AWAY.withReason("Ping timeout");
+
+    private static final byte[] PING_PAYLOAD = new byte[0];
+
+    private final WebSocketSession delegate;
+    private final WebSocketRouteConnections route;
+    private final Duration pingInterval;
+    private final long idleTimeoutNanos;
+    // Sin respuesta al ping anterior: pasó un intervalo y medio sin recibir nada del cliente
+    private final long pingTimeoutNanos;
+    private final Sinks.Empty<Void> outboundDone = Sinks.empty();
+
+    private volatile long lastDataNanos;
+    private volatile long lastInboundNanos;
+
+    MonitoredWebSocketSession(WebSocketSession delegate, WebSocketRouteConnections route, Duration idleTimeout,
+                              Duration pingInterval) {
+        this.delegate = delegate;
+        this.route = route;
+        this.pingInterval = pingInterval;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.pingTimeoutNanos = pingInterval.toNanos() + pingInterval.toNanos() / 2;
+        long now = System.nanoTime();
+        this.lastDataNanos = now;
+        this.lastInboundNanos = now;
+    }
+
+    @Override
+    public Flux<WebSocketMessage> receive() {
+        return delegate.receive().filter(this::onInbound);
+    }
+
+    private boolean onInbound(WebSocketMessage message) {
+        long now = System.nanoTime();
+        lastInboundNanos = now;
+        if (message.getType() == WebSocketMessage.Type.PONG) {
+            return false;
+        }
+        lastDataNanos = now;
+        route.inbound(message.getPayload().readableByteCount());
+        return true;
+    }
+
+    @Override
+    public Mono<Void> send(Publisher<WebSocketMessage> messages) {
+        Flux<WebSocketMessage> data = Flux.from(messages)
+                .doOnNext(message -> {
+                    lastDataNanos = System.nanoTime();
+                    route.outbound(message.getPayload().readableByteCount());
+                })
+                .doFinally(signal -> outboundDone.tryEmitEmpty());
+        // Los pings terminan junto con los datos del destino; si no, el envío nunca completaría
+        Flux<WebSocketMessage> pings = Flux.interval(pingInterval, pingInterval)
+                .mapNotNull(tick -> onTick())
+                .takeUntilOther(outboundDone.asMono());
+        return delegate.send(Flux.merge(data, pings));
+    }
+
+    private WebSocketMessage onTick() {
+        long now = System.nanoTime();
+        if (now - lastInboundNanos > pingTimeoutNanos) {
+            route.pingTimeout();
+            closeOnTimeout(PING_TIMEOUT);
+            return null;
+        }
+        if (now - lastDataNanos > idleTimeoutNanos) {
+            route.idleTimeout();
+            closeOnTimeout(IDLE_TIMEOUT);
+            return null;
+        }
+        return delegate.pingMessage(factory -> factory.wrap(PING_PAYLOAD));
+    }
+
+    private void closeOnTimeout(CloseStatus status) {
+        if (log.isDebugEnabled()) {
+            log.debug("Cerrando la conexión WebSocket {}: {}", delegate.getId(), status.getReason());
+        }
+        outboundDone.tryEmitEmpty();
+        delegate.close(status).subscribe(null, error -> log.debug("Error al cerrar la conexión WebSocket {}: {}",
+                delegate.getId(), error.getMessage()));
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public HandshakeInfo getHandshakeInfo() {
+        return delegate.getHandshakeInfo();
+    }
+
+    @Override
+    public DataBufferFactory bufferFactory() {
+        return delegate.bufferFactory();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return delegate.getAttributes();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public Mono<Void> close(CloseStatus status) {
+        return delegate.close(status);
+    }
+
+    @Override
+    public Mono<CloseStatus> closeStatus() {
+        return delegate.closeStatus();
+    }
+
+    @Override
+    public WebSocketMessage textMessage(String payload) {
+        return delegate.textMessage(payload);
+    }
+
+    @Override
+    public WebSocketMessage binaryMessage(Function<DataBufferFactory, DataBuffer> payloadFactory) {
+        return delegate.binaryMessage(payloadFactory);
+    }
+
+    @Override
+    public WebSocketMessage pingMessage(Function<DataBufferFactory, DataBuffer> payloadFactory) {
+        return delegate.pingMessage(payloadFactory);
+    }
+
+    @Override
+    public WebSocketMessage pongMessage(Function<DataBufferFactory, DataBuffer> payloadFactory) {
+        return delegate.pongMessage(payloadFactory);
+    }
+}
@@ -0,0 +1,57 @@
+package com.microservicios.api_gateway.websocket;
+
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Una conexión WebSocket admitida por el filtro {@code WebSocket} de la ruta, guardada en el exchange del
+ * handshake ({@link #ATTRIBUTE}) hasta que {@link MonitoredWebSocketService} la asocia a la sesión.
+ * <p>
+ * La cadena de filtros termina al completar el handshake; la conexión sigue abierta después. Por eso el lugar
+ * se libera al terminar la sesión, o al terminar la cadena si el handshake no llegó a completarse.
+ */
+public final class WebSocketConnection {
+
+    public static final String ATTRIBUTE = WebSocketConnection.class.getName();
+
+    private final WebSocketRouteConnections route;
+    private final Duration idleTimeout;
+    private final Duration pingInterval;
+    private final AtomicBoolean released = new AtomicBoolean();
+    private volatile boolean upgraded;
+
+    WebSocketConnection(WebSocketRouteConnections route, Duration idleTimeout, Duration pingInterval) {
+        this.route = route;
+        this.idleTimeout = idleTimeout;
+        this.pingInterval = pingInterval;
+    }
+
+    /**
+     * Atiende la sesión ya establecida con el handler del proxy, a través de una sesión que mide los frames y
+     * cierra la conexión inactiva. Reactor Netty la invoca durante el handshake, antes de que termine la cadena.
+     */
+    Mono<Void> handle(WebSocketSession session, WebSocketHandler handler) {
+        upgraded = true;
+        MonitoredWebSocketSession monitored = new MonitoredWebSocketSession(session, route, idleTimeout, pingInterval);
+        return handler.handle(monitored).doFinally(signal -> release());
+    }
+
+    /**
+     * Al terminar la cadena de filtros: libera el lugar si la conexión no llegó a establecerse.
+     */
+    public void releaseIfNotUpgraded() {
+        if (!upgraded) {
+            release();
+        }
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            route.closed();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.microservicios.api_gateway.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexiones WebSocket abiertas de una ruta: el límite de conexiones simultáneas y sus métricas.
+ * <p>
+ * Los contadores de frames y bytes se incrementan una vez por frame desde {@link MonitoredWebSocketSession};
+ * los pings del gateway y los pongs del cliente no cuentan.
+ */
+public final class WebSocketRouteConnections {
+
+    public static final String CONNECTIONS_METRIC = "gateway.websocket.connections";
+    public static final String REJECTED_METRIC = "gateway.websocket.rejected";
+    public static final String FRAMES_METRIC = "gateway.websocket.frames";
+    public static final String BYTES_METRIC = "gateway.websocket.bytes";
+    public static final String TIMEOUTS_METRIC = "gateway.websocket.timeouts";
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final Counter rejected;
+    private final Counter inboundFrames;
+    private final Counter outboundFrames;
+    private final Counter inboundBytes;
+    private final Counter outboundBytes;
+    private final Counter idleTimeouts;
+    private final Counter pingTimeouts;
+
+    public WebSocketRouteConnections(String routeId, MeterRegistry meterRegistry) {
+        Gauge.builder(CONNECTIONS_METRIC, active, AtomicInteger::get)
+                .description("Conexiones WebSocket abiertas")
+                .tag("route", routeId)
+                .strongReference(true)
+                .register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_METRIC)
+                .description("Handshakes WebSocket rechazados con 503 por superar el límite de conexiones")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        this.inboundFrames = frames(meterRegistry, routeId, "inbound");
+        this.outboundFrames = frames(meterRegistry, routeId, "outbound");
+        this.inboundBytes = bytes(meterRegistry, routeId, "inbound");
+        this.outboundBytes = bytes(meterRegistry, routeId, "outbound");
+        this.idleTimeouts = timeouts(meterRegistry, routeId, "idle");
+        this.pingTimeouts = timeouts(meterRegistry, routeId, "ping");
+    }
+
+    private static Counter frames(MeterRegistry meterRegistry, String routeId, String direction) {
+        return Counter.builder(FRAMES_METRIC)
+                .description("Frames WebSocket de datos (inbound: del cliente al destino; outbound: del destino al cliente)")
+                .tag("route", routeId)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private static Counter bytes(MeterRegistry meterRegistry, String routeId, String direction) {
+        return Counter.builder(BYTES_METRIC)
+                .description("Bytes de payload de los frames WebSocket de datos")
+                .baseUnit("bytes")
+                .tag("route", routeId)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private static Counter timeouts(MeterRegistry meterRegistry, String routeId, String reason) {
+        return Counter.builder(TIMEOUTS_METRIC)
+                .description("Conexiones WebSocket cerradas por el gateway (idle: sin datos; ping: el cliente no responde)")
+                .tag("route", routeId)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserva un lugar para una conexión nueva.
+     *
+     * @return la conexión, que debe liberarse al cerrarse, o {@code null} si la ruta ya tiene
+     * {@code maxConnections} conexiones abiertas
+     */
+    public WebSocketConnection open(int maxConnections, Duration idleTimeout, Duration pingInterval) {
+        int current;
+        do {
+            current = active.get();
+            if (current >= maxConnections) {
+                rejected.increment();
+                return null;
+            }
+        } while (!active.compareAndSet(current, current + 1));
+        return new WebSocketConnection(this, idleTimeout, pingInterval);
+    }
+
+    void closed() {
+        active.decrementAndGet();
+    }
+
+    public int active() {
+        return active.get();
+    }
+
+    void inbound(int bytes) {
+        inboundFrames.increment();
+        inboundBytes.increment(bytes);
+    }
+
+    void outbound(int bytes) {
+        outboundFrames.increment();
+        outboundBytes.increment(bytes);
+    }
+
+    void idleTimeout() {
+        idleTimeouts.increment();
+    }
+
+    void pingTimeout() {
+        pingTimeouts.increment();
+    }
+}
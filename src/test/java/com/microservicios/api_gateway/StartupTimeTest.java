@@ -0,0 +1,130 @@
+package com.microservicios.api_gateway;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Arranca el gateway en una JVM aparte y mide el tiempo hasta la primera petición enrutada a un destino stub.
+ * <p>
+ * Sólo corre con {@code -Pfast-startup}, que arranca la JVM con {@code -Dspring.aot.enabled=true}
+ * ({@code startup.jvmArgs}). El límite por defecto es el {@code --start-period} del HEALTHCHECK del Dockerfile;
+ * se ajusta con {@code -Dstartup.budget=30s}.
+ */
+@Tag("startup")
+class StartupTimeTest {
+
+    private static final String ROUTED_PATH = "/api/auth/debug";
+    private static final Duration DEFAULT_BUDGET = Duration.ofSeconds(60);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(50);
+
+    private DisposableServer upstream;
+    private Process gateway;
+
+    @BeforeEach
+    void startUpstream() {
+        upstream = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get(ROUTED_PATH, (request, response) -> response.sendString(Mono.just("ok"))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopAll() throws InterruptedException {
+        if (gateway != null) {
+            gateway.destroy();
+            if (!gateway.waitFor(10, TimeUnit.SECONDS)) {
+                gateway.destroyForcibly();
+            }
+        }
+        upstream.disposeNow();
+    }
+
+    @Test
+    void firstRoutedRequest_shouldSucceedWithinBudget() throws IOException {
+        Duration budget = budget();
+        int port = freePort();
+        Path log = Path.of("target", "startup-test.log");
+        Files.createDirectories(log.getParent());
+
+        long start = System.nanoTime();
+        gateway = new ProcessBuilder(command(port))
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+
+        HttpClient client = HttpClient.create()
+                .baseUrl("http://localhost:" + port)
+                .responseTimeout(Duration.ofSeconds(1));
+        long deadline = start + budget.toNanos();
+        int status = 0;
+        while (status != 200 && System.nanoTime() < deadline && gateway.isAlive()) {
+            status = client.get().uri(ROUTED_PATH)
+                    .response()
+                    .map(response -> response.status().code())
+                    .onErrorResume(error -> Mono.delay(POLL_INTERVAL).thenReturn(0))
+                    .block(Duration.ofSeconds(2));
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertTrue(gateway.isAlive(), "El gateway terminó durante el arranque a los " + elapsed + ", ver " + log);
+        assertEquals(200, status, "Sin respuesta enrutada en " + elapsed + " (límite " + budget + "), ver " + log);
+    }
+
+    private List<String> command(int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmArgs = System.getProperty("startup.jvmArgs", "");
+        if (!jvmArgs.isBlank()) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.add("-cp");
+        command.add(applicationClassPath());
+        command.add(ApiGatewayApplication.class.getName());
+        command.add("--server.port=" + port);
+        // Una lista definida en la línea de comandos reemplaza las rutas de application.yml
+        command.add("--spring.cloud.gateway.routes[0].id=startup-stub");
+        command.add("--spring.cloud.gateway.routes[0].uri=http://localhost:" + upstream.port());
+        command.add("--spring.cloud.gateway.routes[0].predicates[0]=Path=" + ROUTED_PATH);
+        return command;
+    }
+
+    // Surefire lanza los tests con un jar de manifiesto: el classpath real está en surefire.test.class.path
+    private static String applicationClassPath() {
+        String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        return Arrays.stream(classPath.split(File.pathSeparator))
+                .filter(entry -> !entry.endsWith("test-classes"))
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static Duration budget() {
+        String value = System.getProperty("startup.budget");
+        return value == null || value.isBlank() ? DEFAULT_BUDGET : Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
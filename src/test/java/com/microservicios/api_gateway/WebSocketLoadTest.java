@@ -0,0 +1,204 @@
+package com.microservicios.api_gateway;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.support.RespStubServer;
+import com.microservicios.api_gateway.websocket.WebSocketRouteConnections;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Miles de conexiones WebSocket abiertas a la vez contra la ruta {@code websocket} de application.yml, con dos
+ * destinos stub que devuelven cada mensaje (discovery client simple en lugar de Eureka) y sesiones en un Redis
+ * en memoria ({@link RespStubServer}).
+ * <p>
+ * Tras un handshake de calentamiento por sesión, abre {@code websocket.connections} conexiones (de a
+ * {@code HANDSHAKE_CONCURRENCY} handshakes en curso), espera a que estén todas abiertas, envía
+ * {@code websocket.messages} mensajes por conexión y cierra. Imprime los tiempos de handshake y verifica que
+ * cada conexión se autenticó una vez y que el gateway liberó todos los lugares.
+ * Excluido del build normal; ejecutar con {@code ./mvnw test -Pload-test -Dtest=WebSocketLoadTest}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        // El Redis stub comparte la CPU con el cliente y el gateway
+        "gateway.session-redis.command-timeout=1s",
+        "resilience4j.circuitbreaker.instances.sessionStore.slow-call-duration-threshold=1s",
+        "logging.level.com.microservicios.api_gateway.repository.RedisSessionInvalidationListener=ERROR"
+})
+class WebSocketLoadTest {
+
+    private static final int CONNECTIONS = Integer.getInteger("websocket.connections", 2_000);
+    private static final int MESSAGES = Integer.getInteger("websocket.messages", 10);
+    private static final int SESSIONS = Integer.getInteger("websocket.sessions", 200);
+    // Handshakes en curso a la vez, como clientes que se conectan de a poco
+    private static final int HANDSHAKE_CONCURRENCY = 64;
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    private static final List<DisposableServer> upstreams = new ArrayList<>();
+    private static final AtomicLong upstreamAuthorized = new AtomicLong();
+    private static RespStubServer redis;
+    private static List<String> cookies;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void environment(DynamicPropertyRegistry registry) {
+        JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+        redis = RespStubServer.start();
+        List<String> sessionCookies = new ArrayList<>(SESSIONS);
+        for (int i = 0; i < SESSIONS; i++) {
+            String sessionId = UUID.randomUUID().toString();
+            String key = AuthenticationConstants.SPRING_SESSION_KEY_PREFIX + sessionId;
+            redis.hset(key, AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN, jdk.serialize("ya29.a0AfB_ws" + i))
+                    .hset(key, AuthenticationConstants.SESSION_ATTR_REFRESH_TOKEN, jdk.serialize("1//0gWs" + i));
+            sessionCookies.add("JSESSIONID=" + Base64.getUrlEncoder().encodeToString(sessionId.getBytes(StandardCharsets.UTF_8)));
+        }
+        cookies = sessionCookies;
+        registry.add("spring.data.redis.url", () -> "redis://" + redis.host() + ":" + redis.port());
+        registry.add("spring.data.redis.host", redis::host);
+        registry.add("spring.data.redis.port", redis::port);
+
+        for (int i = 0; i < 2; i++) {
+            DisposableServer upstream = HttpServer.create()
+                    .host("localhost")
+                    .port(0)
+                    .route(routes -> routes.ws("/ws/echo", (in, out) -> {
+                        if (in.headers().contains(HttpHeaderNames.AUTHORIZATION)) {
+                            upstreamAuthorized.incrementAndGet();
+                        }
+                        return out.sendString(in.receive().asString());
+                    }))
+                    .bindNow();
+            upstreams.add(upstream);
+            registry.add("spring.cloud.discovery.client.simple.instances.websocket[" + i + "].uri",
+                    () -> "http://localhost:" + upstream.port());
+        }
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        upstreams.forEach(DisposableServer::disposeNow);
+        redis.close();
+    }
+
+    @Test
+    void thousandsOfConnections_shouldBeProxiedAndReleased() throws InterruptedException {
+        // Una conexión por WebSocket: el pool por defecto retendría las conexiones de más en espera
+        ReactorNettyWebSocketClient client = new ReactorNettyWebSocketClient(HttpClient.create(ConnectionProvider.newConnection()));
+        URI uri = URI.create("ws://localhost:" + port + "/ws/echo");
+        Sinks.Empty<Void> allOpen = Sinks.empty();
+        List<Mono<Void>> connections = Collections.synchronizedList(new ArrayList<>(CONNECTIONS));
+        AtomicLong echoes = new AtomicLong();
+        long[] handshakeNanos = new long[CONNECTIONS];
+
+        // Calentamiento: un handshake por sesión, de a uno, con el cliente y el gateway todavía en frío
+        Flux.range(0, SESSIONS)
+                .concatMap(i -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.set(HttpHeaders.COOKIE, cookies.get(i));
+                    return client.execute(uri, headers, session -> session.close());
+                })
+                .then()
+                .block(TIMEOUT);
+        awaitNoActiveConnections();
+        upstreamAuthorized.set(0);
+
+        long start = System.nanoTime();
+        // Los handshakes avanzan de a HANDSHAKE_CONCURRENCY; las conexiones abiertas siguen abiertas
+        Flux.range(0, CONNECTIONS)
+                .flatMap(i -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.set(HttpHeaders.COOKIE, cookies.get(i % SESSIONS));
+                    Sinks.Empty<Void> handshake = Sinks.empty();
+                    long handshakeStart = System.nanoTime();
+                    Mono<Void> connection = client.execute(uri, headers, session -> {
+                                handshakeNanos[i] = System.nanoTime() - handshakeStart;
+                                handshake.tryEmitEmpty();
+                                // Todas las conexiones quedan abiertas a la vez antes de enviar
+                                return allOpen.asMono()
+                                        .then(session.send(Flux.range(0, MESSAGES).map(n -> session.textMessage("mensaje-" + n)))
+                                                .and(session.receive().take(MESSAGES).doOnNext(message -> echoes.incrementAndGet())));
+                            })
+                            .doOnError(handshake::tryEmitError)
+                            .cache();
+                    connection.subscribe(null, error -> { });
+                    connections.add(connection);
+                    return handshake.asMono();
+                }, HANDSHAKE_CONCURRENCY)
+                .then()
+                .block(TIMEOUT);
+        long openMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        double peakActive = activeConnections();
+        allOpen.tryEmitEmpty();
+        Mono.when(connections).block(TIMEOUT);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        Arrays.sort(handshakeNanos);
+        System.out.printf("%nGateway WebSocket: %,d conexiones abiertas a la vez en %,d ms (%,d activas en el gateway)%n",
+                CONNECTIONS, openMillis, (long) peakActive);
+        System.out.printf("  handshake p50 %,d µs  p99 %,d µs  max %,d µs%n",
+                handshakeNanos[CONNECTIONS / 2] / 1_000, handshakeNanos[CONNECTIONS * 99 / 100] / 1_000,
+                handshakeNanos[CONNECTIONS - 1] / 1_000);
+        System.out.printf("  %,d mensajes ida y vuelta, total %,d ms%n", echoes.get(), elapsedMillis);
+
+        assertEquals(CONNECTIONS, (long) peakActive);
+        assertEquals((long) CONNECTIONS * MESSAGES, echoes.get());
+        // Una autenticación por conexión, en el handshake
+        assertEquals(CONNECTIONS, upstreamAuthorized.get());
+        assertEquals((double) CONNECTIONS * MESSAGES, frames("inbound"));
+        assertEquals((double) CONNECTIONS * MESSAGES, frames("outbound"));
+        awaitNoActiveConnections();
+        assertEquals(0, activeConnections());
+    }
+
+    private void awaitNoActiveConnections() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (activeConnections() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    private double activeConnections() {
+        return meterRegistry.get(WebSocketRouteConnections.CONNECTIONS_METRIC).tag("route", "websocket").gauge().value();
+    }
+
+    private double frames(String direction) {
+        return meterRegistry.get(WebSocketRouteConnections.FRAMES_METRIC)
+                .tags("route", "websocket", "direction", direction).counter().count();
+    }
+}
@@ -0,0 +1,87 @@
+package com.microservicios.api_gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import reactor.test.StepVerifier;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ResponseCache(10_000, meterRegistry, nanos::get);
+    }
+
+    private static CachedResponse response(int size, Duration ttl) {
+        ByteBuffer body = ByteBuffer.allocateDirect(size);
+        return new CachedResponse(HttpHeaders.readOnlyHttpHeaders(new HttpHeaders()), body, Map.of(), ttl.toNanos());
+    }
+
+    private void store(String key, CachedResponse response) {
+        ResponseCache.Load load = cache.begin(key);
+        assertTrue(load.leader());
+        load.complete(response);
+    }
+
+    @Test
+    void get_afterTtl_shouldExpire() {
+        store("news /a", response(100, Duration.ofSeconds(30)));
+
+        nanos.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertNotNull(cache.get("news /a"));
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.get("news /a"));
+    }
+
+    @Test
+    void put_beyondMaxBytes_shouldEvictAndStayWithinCap() {
+        for (int i = 0; i < 50; i++) {
+            store("news /" + i, response(1_000, Duration.ofMinutes(1)));
+        }
+
+        assertTrue(cache.estimatedSize() <= 10);
+        assertTrue(cache.weightedSize() <= 10_000);
+        assertEquals((double) cache.weightedSize(), meterRegistry.get(ResponseCache.SIZE_METRIC).gauge().value());
+    }
+
+    @Test
+    void begin_concurrentLoad_shouldWaitForLeaderResult() {
+        ResponseCache.Load leader = cache.begin("news /a");
+        ResponseCache.Load follower = cache.begin("news /a");
+        CachedResponse response = response(10, Duration.ofMinutes(1));
+
+        assertTrue(leader.leader());
+        assertFalse(follower.leader());
+        StepVerifier.create(follower.result())
+                .then(() -> leader.complete(response))
+                .expectNext(response)
+                .verifyComplete();
+        assertSame(response, cache.get("news /a"));
+        assertEquals(1.0, meterRegistry.get(ResponseCache.COALESCED_METRIC).counter().count());
+    }
+
+    @Test
+    void begin_leaderWithoutCacheableResponse_shouldReleaseFollowers() {
+        ResponseCache.Load leader = cache.begin("news /a");
+        ResponseCache.Load follower = cache.begin("news /a");
+
+        StepVerifier.create(follower.result())
+                .then(() -> leader.complete(null))
+                .verifyComplete();
+        // La siguiente petición vuelve a consultar al destino
+        assertTrue(cache.begin("news /a").leader());
+    }
+}
@@ -0,0 +1,64 @@
+package com.microservicios.api_gateway.codec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdkStringCodecTest {
+
+    private final JdkStringCodec codec = new JdkStringCodec();
+    private final JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+
+    @Test
+    void decode_asciiToken_shouldMatchObjectInputStream() {
+        String token = "ya29.a0AfB_byC3xq0Lb8Jm2Vx9Zk4Tn7Wq1Pe5Rs6Ud8Yf0Hg2Ji4Kl6Mn8Op0Qr2St4Uv6Wx8Yz0";
+
+        assertEquals(token, codec.decode(jdk.serialize(token)));
+    }
+
+    @Test
+    void decode_nonAsciiAndSupplementaryChars_shouldMatchObjectInputStream() {
+        String value = "sesión \u0000 ñandú 😀";
+
+        assertEquals(value, codec.decode(jdk.serialize(value)));
+    }
+
+    @Test
+    void decode_emptyString_shouldReturnEmpty() {
+        assertEquals("", codec.decode(jdk.serialize("")));
+    }
+
+    @Test
+    void decode_longString_shouldFallBackToFullDeserialization() {
+        String value = "x".repeat(70_000);
+        byte[] raw = jdk.serialize(value);
+
+        assertEquals(JdkStringCodec.TC_LONGSTRING, raw[4]);
+        assertTrue(codec.canDecode(raw));
+        assertEquals(value, codec.decode(raw));
+    }
+
+    @Test
+    void decode_nonStringObject_shouldThrowSerializationException() {
+        byte[] raw = jdk.serialize(42L);
+
+        assertFalse(codec.canDecode(raw));
+        assertThrows(SerializationException.class, () -> codec.decode(raw));
+    }
+
+    @Test
+    void encode_shouldProduceSameBytesAsJdkSerializer() {
+        for (String value : new String[] {"ya29.tokenxxx", "", "sesión \u0000 😀", "é".repeat(21_845)}) {
+            assertArrayEquals(jdk.serialize(value), codec.encode(value), value.length() + " chars");
+        }
+    }
+
+    @Test
+    void encode_longString_shouldRoundTrip() {
+        String value = "é".repeat(40_000);
+
+        assertEquals(value, jdk.deserialize(codec.encode(value)));
+    }
+}
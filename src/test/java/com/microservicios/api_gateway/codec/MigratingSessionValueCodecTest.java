@@ -0,0 +1,57 @@
+package com.microservicios.api_gateway.codec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MigratingSessionValueCodecTest {
+
+    private static final String TOKEN = "ya29.tokenxxx";
+
+    @Test
+    void decode_dualRead_shouldAcceptEveryKnownFormat() {
+        SessionValueCodec codec = new MigratingSessionValueCodec(SessionValueFormat.COMPACT, true);
+
+        assertEquals(TOKEN, codec.decode(new JdkSerializationRedisSerializer().serialize(TOKEN)));
+        assertEquals(TOKEN, codec.decode(SessionValueFormat.COMPACT.codec().encode(TOKEN)));
+        assertEquals(TOKEN, codec.decode(("\"" + TOKEN + "\"").getBytes(StandardCharsets.UTF_8)));
+        assertEquals(TOKEN, codec.decode(TOKEN.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void decode_strictMode_shouldRejectOtherFormats() {
+        SessionValueCodec codec = new MigratingSessionValueCodec(SessionValueFormat.COMPACT, false);
+        byte[] jdkValue = new JdkSerializationRedisSerializer().serialize(TOKEN);
+
+        assertEquals(TOKEN, codec.decode(SessionValueFormat.COMPACT.codec().encode(TOKEN)));
+        assertThrows(SerializationException.class, () -> codec.decode(jdkValue));
+    }
+
+    @Test
+    void encode_shouldUseWriteFormat() {
+        byte[] compact = new MigratingSessionValueCodec(SessionValueFormat.COMPACT, true).encode(TOKEN);
+        byte[] jdk = new MigratingSessionValueCodec(SessionValueFormat.JDK, true).encode(TOKEN);
+
+        assertEquals(TOKEN.length() + 2, compact.length);
+        assertArrayEquals(new JdkSerializationRedisSerializer().serialize(TOKEN), jdk);
+    }
+
+    @Test
+    void jsonFormat_escapedValue_shouldRoundTrip() {
+        SessionValueCodec codec = SessionValueFormat.JSON.codec();
+        String value = "a\"b\\c\nñ";
+
+        assertEquals(value, codec.decode(codec.encode(value)));
+    }
+
+    @Test
+    void compactFormat_nonAscii_shouldRoundTrip() {
+        SessionValueCodec codec = SessionValueFormat.COMPACT.codec();
+
+        assertEquals("sesión 😀", codec.decode(codec.encode("sesión 😀")));
+    }
+}
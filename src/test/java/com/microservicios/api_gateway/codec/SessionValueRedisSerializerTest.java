@@ -0,0 +1,42 @@
+package com.microservicios.api_gateway.codec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionValueRedisSerializerTest {
+
+    private final JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+
+    @Test
+    void serialize_stringWithCompactFormat_shouldUseCodec() {
+        SessionValueRedisSerializer serializer =
+                new SessionValueRedisSerializer(new MigratingSessionValueCodec(SessionValueFormat.COMPACT, true));
+
+        byte[] raw = serializer.serialize("ya29.tokenxxx");
+
+        assertEquals(CompactStringCodec.MAGIC, raw[0]);
+        assertEquals("ya29.tokenxxx", serializer.deserialize(raw));
+    }
+
+    @Test
+    void serialize_nonStringAttribute_shouldKeepJdkSerialization() {
+        SessionValueRedisSerializer serializer =
+                new SessionValueRedisSerializer(new MigratingSessionValueCodec(SessionValueFormat.COMPACT, true));
+
+        byte[] raw = serializer.serialize(1_700_000_000_000L);
+
+        assertArrayEquals(jdk.serialize(1_700_000_000_000L), raw);
+        assertEquals(1_700_000_000_000L, serializer.deserialize(raw));
+    }
+
+    @Test
+    void deserialize_jdkStringWrittenByMsLogin_shouldReturnString() {
+        SessionValueRedisSerializer serializer =
+                new SessionValueRedisSerializer(new MigratingSessionValueCodec(SessionValueFormat.JDK, true));
+
+        assertEquals("ya29.tokenxxx", serializer.deserialize(jdk.serialize("ya29.tokenxxx")));
+        assertNull(serializer.deserialize(null));
+    }
+}
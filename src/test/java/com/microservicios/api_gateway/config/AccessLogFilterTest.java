@@ -0,0 +1,100 @@
+package com.microservicios.api_gateway.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Outcome;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Stage;
+import com.microservicios.api_gateway.metrics.RequestTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogFilterTest {
+
+    private static final String SESSION_ID = "3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b";
+
+    private final AuthFilterMetrics metrics = new AuthFilterMetrics(new SimpleMeterRegistry());
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Logger accessLogger;
+
+    @BeforeEach
+    void setUp() {
+        accessLogger = (Logger) LoggerFactory.getLogger(AccessLogFilter.LOGGER_NAME);
+        appender.start();
+        accessLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accessLogger.detachAppender(appender);
+    }
+
+    @Test
+    void filter_sampledRequest_shouldEmitSingleLineWithStagesAndMaskedSession() {
+        AccessLogFilter filter = new AccessLogFilter(new AccessLogProperties(true, 1.0, 1.0));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar/events"));
+
+        StepVerifier.create(filter.filter(exchange, e -> {
+            long start = System.nanoTime();
+            metrics.recordSession(e, SESSION_ID);
+            metrics.recordStage(e, Stage.SESSION_FETCH, Outcome.OK, start);
+            metrics.recordRequest(e, Outcome.OK, start);
+            e.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        })).verifyComplete();
+
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.contains("method=GET path=/api/calendar/events"), line);
+        assertTrue(line.contains("status=200 outcome=ok"), line);
+        assertTrue(line.contains("session_fetch_us="), line);
+        assertFalse(line.contains("validation_us="), line);
+        assertTrue(line.contains("session=3f2b7c…[36]"), line);
+        assertFalse(line.contains(SESSION_ID), line);
+    }
+
+    @Test
+    void filter_notSampled_shouldNotLog() {
+        AccessLogFilter filter = new AccessLogFilter(new AccessLogProperties(true, 0.0, 1.0));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar/events"));
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.empty())).verifyComplete();
+
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void filter_downstreamError_shouldUseErrorSampleRate() {
+        AccessLogFilter filter = new AccessLogFilter(new AccessLogProperties(true, 0.0, 1.0));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar/events"));
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new IllegalStateException("upstream caído"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().contains("error=\"IllegalStateException: upstream caído\""));
+    }
+
+    @Test
+    void filter_disabled_shouldNotAttachTrace() {
+        AccessLogFilter filter = new AccessLogFilter(new AccessLogProperties(false, 1.0, 1.0));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar/events"));
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.empty())).verifyComplete();
+
+        assertNull(RequestTrace.of(exchange));
+        assertTrue(appender.list.isEmpty());
+    }
+}
@@ -0,0 +1,166 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.ratelimit.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gateway completo contra un destino stub cuya latencia crece con las peticiones que atiende a la vez, como un
+ * servicio que encola: el límite de la ruta baja y el exceso recibe 503. La convergencia del límite cerca de la
+ * capacidad del destino se comprueba sin depender de tiempos reales en {@code AdaptiveConcurrencyLimitTest}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.gateway.default-filters[0]=DedupeResponseHeader=Access-Control-Allow-Origin"
+})
+class AdaptiveConcurrencyGatewayFilterFactoryTest {
+
+    private static final int CLIENTS = 64;
+    private static final Duration LOAD_DURATION = Duration.ofSeconds(6);
+    // Pausa de un cliente tras un 503, como si respetara Retry-After a escala
+    private static final Duration REJECTED_PAUSE = Duration.ofMillis(50);
+    // El destino atiende CAPACITY peticiones a la vez en BASE_LATENCY; el resto espera turno
+    private static final long BASE_LATENCY_MS = 50;
+    private static final int CAPACITY = 8;
+
+    private static final AtomicInteger active = new AtomicInteger();
+    private static DisposableServer upstream;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AdaptiveConcurrencyGatewayFilterFactory factory;
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        upstream = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/{prefix}/work", (request, response) -> {
+                            int current = active.incrementAndGet();
+                            long latency = BASE_LATENCY_MS * ((current + CAPACITY - 1) / CAPACITY);
+                            return Mono.delay(Duration.ofMillis(latency))
+                                    .then(response.sendString(Mono.just("ok")).then())
+                                    .doFinally(signal -> active.decrementAndGet());
+                        }))
+                .bindNow();
+        String uri = "http://localhost:" + upstream.port();
+        route(registry, 0, "adaptive-route", uri, "/adaptive/**", Map.of("initialLimit", "4", "window", "100ms"));
+        route(registry, 1, "small-route", uri, "/small/**", Map.of("initialLimit", "2", "minLimit", "2", "maxLimit", "2"));
+        // Sin límite: sólo para abrir las conexiones al destino antes de medir
+        route(registry, 2, "warmup-route", uri, "/warmup/**", null);
+    }
+
+    private static void route(DynamicPropertyRegistry registry, int index, String id, String uri, String path,
+                              Map<String, String> args) {
+        String prefix = "spring.cloud.gateway.routes[" + index + "].";
+        registry.add(prefix + "id", () -> id);
+        registry.add(prefix + "uri", () -> uri);
+        registry.add(prefix + "predicates[0]", () -> "Path=" + path);
+        if (args != null) {
+            registry.add(prefix + "filters[0].name", () -> "AdaptiveConcurrency");
+            args.forEach((name, value) -> registry.add(prefix + "filters[0].args." + name, () -> value));
+        }
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.disposeNow();
+    }
+
+    private WebClient client() {
+        HttpClient httpClient = HttpClient.create(ConnectionProvider.builder("load").maxConnections(CLIENTS * 2).build());
+        return WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    private static Mono<HttpStatus> status(WebClient client, String path) {
+        return client.get().uri(path)
+                .exchangeToMono(response -> response.releaseBody()
+                        .thenReturn(HttpStatus.valueOf(response.statusCode().value())));
+    }
+
+    private double rejected(String route) {
+        var counter = meterRegistry.find(AdaptiveConcurrencyGatewayFilterFactory.REJECTED_METRIC)
+                .tag("route", route).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void overloadedUpstream_shouldLowerLimitAndShedExcess() {
+        WebClient client = client();
+        // Las primeras latencias fijan la referencia del límite: no deben incluir el arranque en frío
+        Flux.range(0, CLIENTS * 4)
+                .flatMap(ignored -> status(client, "/warmup/work"), CLIENTS)
+                .blockLast(Duration.ofSeconds(10));
+        long deadline = System.nanoTime() + LOAD_DURATION.toNanos();
+        Map<HttpStatus, AtomicInteger> statuses = new ConcurrentHashMap<>();
+
+        // Cada cliente repite peticiones hasta el final de la simulación, con una pausa sólo tras un 503
+        Flux.range(0, CLIENTS)
+                .flatMap(ignored -> Mono.defer(() -> status(client, "/adaptive/work"))
+                        .doOnNext(status -> statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet())
+                        .delayUntil(status -> status == HttpStatus.SERVICE_UNAVAILABLE ? Mono.delay(REJECTED_PAUSE) : Mono.empty())
+                        .repeat(() -> System.nanoTime() < deadline), CLIENTS)
+                .blockLast(LOAD_DURATION.plusSeconds(10));
+
+        AdaptiveConcurrencyLimit limit = factory.limit("adaptive-route");
+        assertNotNull(limit);
+        assertTrue(limit.limit() < CLIENTS / 2, "limit=" + limit.limit() + " statuses=" + statuses);
+        assertTrue(statuses.containsKey(HttpStatus.OK), "statuses=" + statuses);
+        assertTrue(statuses.containsKey(HttpStatus.SERVICE_UNAVAILABLE), "statuses=" + statuses);
+        assertEquals(statuses.get(HttpStatus.SERVICE_UNAVAILABLE).get(), rejected("adaptive-route"));
+        assertEquals(0, limit.inFlight());
+        assertNotNull(meterRegistry.find(AdaptiveConcurrencyGatewayFilterFactory.LIMIT_METRIC)
+                .tag("route", "adaptive-route").gauge());
+    }
+
+    @Test
+    void requestsAboveLimit_shouldGet503WithRetryAfter() {
+        WebClient client = client();
+
+        List<String> retryAfter = Flux.range(0, 6)
+                .flatMap(ignored -> client.get().uri("/small/work")
+                        .exchangeToMono(response -> response.releaseBody()
+                                .thenReturn(response.statusCode().value() == 503
+                                        ? response.headers().asHttpHeaders().getFirst(HttpHeaders.RETRY_AFTER)
+                                        : "")), 6)
+                .filter(value -> !value.isEmpty())
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertFalse(retryAfter.isEmpty());
+        retryAfter.forEach(value -> assertEquals("1", value));
+    }
+}
@@ -0,0 +1,176 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.support.RespStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gateway con las rutas y el {@code CustomAuth} por defecto de application.yml, una sesión en un Redis en memoria
+ * ({@link RespStubServer}) y un destino stub: {@code ResponseCache} y {@code RequestCoalescing} deciden después
+ * de la autenticación, así que una respuesta guardada no saltea el 401 y las peticiones con sesión no comparten
+ * respuestas.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "logging.level.com.microservicios.api_gateway.repository.RedisSessionInvalidationListener=ERROR"
+})
+class AfterAuthenticationFilterTest {
+
+    // Rutas con sesión y ResponseCache o RequestCoalescing: en application.yml los filtros sólo están en rutas
+    // públicas
+    private static final String PRIVATE_CACHED_PATH = "/private-cached/**";
+    private static final String PRIVATE_COALESCED_PATH = "/private-coalesced/**";
+    private static final Duration UPSTREAM_DELAY = Duration.ofMillis(300);
+
+    private static final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private static DisposableServer upstream;
+    private static RespStubServer redis;
+    private static String cookie;
+
+    @LocalServerPort
+    private int port;
+
+    private WebClient client;
+
+    @DynamicPropertySource
+    static void environment(DynamicPropertyRegistry registry) {
+        JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+        redis = RespStubServer.start();
+        String sessionId = UUID.randomUUID().toString();
+        String key = AuthenticationConstants.SPRING_SESSION_KEY_PREFIX + sessionId;
+        redis.hset(key, AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN, jdk.serialize("ya29.a0AfB_cache"))
+                .hset(key, AuthenticationConstants.SESSION_ATTR_REFRESH_TOKEN, jdk.serialize("1//0gCache"));
+        cookie = Base64.getUrlEncoder().encodeToString(sessionId.getBytes(StandardCharsets.UTF_8));
+        registry.add("spring.data.redis.url", () -> "redis://" + redis.host() + ":" + redis.port());
+        registry.add("spring.data.redis.host", redis::host);
+        registry.add("spring.data.redis.port", redis::port);
+
+        upstream = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .handle((request, response) -> {
+                    calls.computeIfAbsent(request.fullPath(), ignored -> new AtomicInteger()).incrementAndGet();
+                    Duration delay = request.uri().startsWith("/private-coalesced") ? UPSTREAM_DELAY : Duration.ZERO;
+                    return Mono.delay(delay).then(response.sendString(Mono.just("{\"data\":[]}")).then());
+                })
+                .bindNow();
+        for (String service : List.of("ms-news", "project")) {
+            registry.add("spring.cloud.discovery.client.simple.instances." + service + "[0].uri",
+                    () -> "http://localhost:" + upstream.port());
+        }
+    }
+
+    @TestConfiguration
+    static class PrivateRoutes {
+
+        // RouteDefinitions, no un RouteLocator: así reciben los filtros por defecto, CustomAuth incluido
+        @Bean
+        RouteDefinitionLocator privateRoutes() {
+            return () -> Flux.just(
+                    route("private-cached", PRIVATE_CACHED_PATH, "ResponseCache"),
+                    route("private-coalesced", PRIVATE_COALESCED_PATH, "RequestCoalescing"));
+        }
+
+        private static RouteDefinition route(String id, String path, String filter) {
+            RouteDefinition route = new RouteDefinition();
+            route.setId(id);
+            route.setUri(URI.create("lb://project"));
+            route.setPredicates(List.of(new PredicateDefinition("Path=" + path)));
+            route.setFilters(List.of(new FilterDefinition(filter)));
+            return route;
+        }
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        upstream.disposeNow();
+        redis.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        calls.clear();
+        client = WebClient.create("http://localhost:" + port);
+    }
+
+    private HttpStatusCode get(String path, boolean withSession) {
+        return request(path, withSession).block(Duration.ofSeconds(5));
+    }
+
+    private Mono<HttpStatusCode> request(String path, boolean withSession) {
+        return client.get().uri(path)
+                .cookies(cookies -> {
+                    if (withSession) {
+                        cookies.add(AuthenticationConstants.SESSION_COOKIE_NAME, cookie);
+                    }
+                })
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()));
+    }
+
+    private int upstreamCalls(String path) {
+        AtomicInteger count = calls.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    @Test
+    void cachedRouteRequiringSession_requestWithoutSession_shouldBeRejected() {
+        assertEquals(HttpStatus.OK, get("/private-cached/provincias", true));
+        assertEquals(HttpStatus.OK, get("/private-cached/provincias", true));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, get("/private-cached/provincias", false));
+        // Las respuestas a peticiones con sesión no se guardan
+        assertEquals(2, upstreamCalls("/private-cached/provincias"));
+    }
+
+    @Test
+    void cachedPublicRoute_shouldServeFromCache() {
+        assertEquals(HttpStatus.OK, get("/api/contentful/entries", false));
+        assertEquals(HttpStatus.OK, get("/api/contentful/entries", false));
+
+        assertEquals(1, upstreamCalls("/api/contentful/entries"));
+    }
+
+    @Test
+    void coalescedRouteRequiringSession_concurrentGets_shouldNotShareResponse() {
+        List<HttpStatusCode> statuses = Flux.range(0, 4)
+                .flatMap(ignored -> request("/private-coalesced/items", true), 4)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        statuses.forEach(status -> assertEquals(HttpStatus.OK, status));
+        assertEquals(4, upstreamCalls("/private-coalesced/items"));
+        assertEquals(HttpStatus.UNAUTHORIZED, get("/private-coalesced/items", false));
+    }
+}
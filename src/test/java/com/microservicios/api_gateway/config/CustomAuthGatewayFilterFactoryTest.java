@@ -0,0 +1,263 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.codec.MigratingSessionValueCodec;
+import com.microservicios.api_gateway.codec.SessionValueCodec;
+import com.microservicios.api_gateway.codec.SessionValueFormat;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics;
+import com.microservicios.api_gateway.repository.RedisSessionRepository;
+import com.microservicios.api_gateway.repository.SessionCredentials;
+import com.microservicios.api_gateway.repository.SessionRepository;
+import com.microservicios.api_gateway.repository.SessionStoreUnavailableException;
+import com.microservicios.api_gateway.service.GoogleOAuth2TokenValidator;
+import com.microservicios.api_gateway.service.TokenRefresher;
+import com.microservicios.api_gateway.service.TokenValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomAuthGatewayFilterFactoryTest {
+
+    private static final SessionValueCodec CODEC = new MigratingSessionValueCodec(SessionValueFormat.JDK, true);
+
+    private static final String SESSION_ID = "3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b";
+
+    @Mock
+    private ReactiveRedisTemplate<String, byte[]> redisTemplate;
+
+    @Mock
+    private ReactiveHashOperations<String, String, byte[]> hashOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.<String, byte[]>opsForHash()).thenReturn(hashOperations);
+        meterRegistry = new SimpleMeterRegistry();
+        CustomAuthGatewayFilterFactory factory = new CustomAuthGatewayFilterFactory(
+                new RedisSessionRepository(redisTemplate, CODEC, meterRegistry), new GoogleOAuth2TokenValidator(),
+                new AuthFilterMetrics(meterRegistry));
+        filter = factory.apply(new CustomAuthGatewayFilterFactory.Config(List.of("/api/auth/logout")));
+    }
+
+    @Test
+    void authenticatedRequest_shouldIssueSingleRedisCommand() {
+        when(hashOperations.multiGet(anyString(), anyList()))
+                .thenReturn(Mono.just(Arrays.asList(utf8("\"ya29.tokenxxx\""), utf8("\"1//refresh-token-xxx\""), null)));
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        GatewayFilterChain chain = exchange -> {
+            forwarded.set(exchange);
+            return Mono.empty();
+        };
+
+        StepVerifier.create(filter.filter(authenticatedExchange("/api/calendar/events"), chain))
+                .verifyComplete();
+
+        verify(hashOperations, times(1)).multiGet(anyString(), anyList());
+        verifyNoMoreInteractions(hashOperations);
+        HttpHeaders upstreamHeaders = upstreamHeaders(forwarded.get());
+        assertEquals("Bearer ya29.tokenxxx", upstreamHeaders.getFirst("Authorization"));
+        assertEquals("1//refresh-token-xxx", upstreamHeaders.getFirst("X-Refresh-Token"));
+        assertEquals(1, meterRegistry.get("gateway.auth.requests").tag("outcome", "ok").timer().count());
+        assertEquals(1, meterRegistry.get("gateway.auth.stage").tags("stage", "session_fetch", "outcome", "ok").timer().count());
+        assertEquals(1, meterRegistry.get("gateway.auth.stage").tags("stage", "downstream", "outcome", "ok").timer().count());
+        assertEquals(1, meterRegistry.get("gateway.session.redis").tags("command", "hmget", "outcome", "found").timer().count());
+    }
+
+    @Test
+    void sessionNotInRedis_shouldRespondUnauthorized() {
+        when(hashOperations.multiGet(anyString(), anyList()))
+                .thenReturn(Mono.just(Arrays.<byte[]>asList(null, null, null)));
+        MockServerWebExchange exchange = authenticatedExchange("/api/calendar/events");
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new AssertionError("no debe reenviarse"))))
+                .verifyComplete();
+
+        verify(hashOperations, times(1)).multiGet(anyString(), anyList());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.auth.requests").tag("outcome", "not_in_redis").timer().count());
+    }
+
+    @Test
+    void redisError_shouldRespondUnauthorized() {
+        when(hashOperations.multiGet(anyString(), anyList()))
+                .thenReturn(Mono.error(new RuntimeException("Redis connection failed")));
+        MockServerWebExchange exchange = authenticatedExchange("/api/calendar/events");
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new AssertionError("no debe reenviarse"))))
+                .verifyComplete();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.session.redis").tags("command", "hmget", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void sessionStoreUnavailable_shouldRespondServiceUnavailable() {
+        SessionRepository unavailableStore = mock(SessionRepository.class);
+        when(unavailableStore.getCredentials(SESSION_ID))
+                .thenReturn(Mono.error(new SessionStoreUnavailableException("Circuito de Redis abierto", null)));
+        GatewayFilter degradedFilter = new CustomAuthGatewayFilterFactory(unavailableStore, new GoogleOAuth2TokenValidator(),
+                new AuthFilterMetrics(meterRegistry)).apply(new CustomAuthGatewayFilterFactory.Config(List.of()));
+        MockServerWebExchange exchange = authenticatedExchange("/api/auth/me");
+
+        StepVerifier.create(degradedFilter.filter(exchange, e -> Mono.error(new AssertionError("no debe reenviarse"))))
+                .verifyComplete();
+
+        // No se pide un nuevo login: la sesión puede seguir siendo válida
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.auth.requests").tag("outcome", "unavailable").timer().count());
+    }
+
+    @Test
+    void downstreamError_shouldPropagateInsteadOfUnauthorized() {
+        when(hashOperations.multiGet(anyString(), anyList()))
+                .thenReturn(Mono.just(Arrays.asList(utf8("ya29.tokenxxx"), utf8("1//refresh-token-xxx"), null)));
+        MockServerWebExchange exchange = authenticatedExchange("/api/calendar/events");
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new IllegalStateException("upstream caído"))))
+                .expectErrorMessage("upstream caído")
+                .verify();
+
+        assertNotEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.auth.stage").tags("stage", "downstream", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void invalidToken_shouldRecordTokenInvalidOutcome() {
+        when(hashOperations.multiGet(anyString(), anyList()))
+                .thenReturn(Mono.just(Arrays.asList(utf8("not-a-google-token"), utf8(""), null)));
+        MockServerWebExchange exchange = authenticatedExchange("/api/calendar/events");
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new AssertionError("no debe reenviarse"))))
+                .verifyComplete();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.auth.stage").tags("stage", "validation", "outcome", "token_invalid").timer().count());
+    }
+
+    @Test
+    void tokenRejectedByAsyncValidator_shouldNotBeForwarded() {
+        when(hashOperations.multiGet(anyString(), anyList()))
+                .thenReturn(Mono.just(Arrays.asList(utf8("\"ya29.revoked\""), utf8(""), null)));
+        // Formato válido, pero el emisor informa que el token fue revocado
+        TokenValidator revokingValidator = new GoogleOAuth2TokenValidator() {
+            @Override
+            public Mono<Boolean> validate(String token) {
+                return Mono.delay(Duration.ofMillis(10)).thenReturn(false);
+            }
+        };
+        GatewayFilter remoteFilter = new CustomAuthGatewayFilterFactory(
+                new RedisSessionRepository(redisTemplate, CODEC, meterRegistry), revokingValidator,
+                new AuthFilterMetrics(meterRegistry)).apply(new CustomAuthGatewayFilterFactory.Config(List.of()));
+        MockServerWebExchange exchange = authenticatedExchange("/api/calendar/events");
+
+        StepVerifier.create(remoteFilter.filter(exchange, e -> Mono.error(new AssertionError("no debe reenviarse"))))
+                .verifyComplete();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.auth.requests").tag("outcome", "token_invalid").timer().count());
+    }
+
+    @Test
+    void missingCookie_shouldRecordNoCookieOutcome() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/auth/me"));
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new AssertionError("no debe reenviarse"))))
+                .verifyComplete();
+
+        assertEquals(HttpStatus.FORBIDDEN, exchange.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.auth.requests").tags("route", "unknown", "outcome", "no_cookie").timer().count());
+    }
+
+    @Test
+    void excludedPath_shouldNotTouchRedis() {
+        StepVerifier.create(filter.filter(authenticatedExchange("/api/auth/logout"), e -> Mono.empty()))
+                .verifyComplete();
+
+        verifyNoInteractions(hashOperations);
+    }
+
+    @Test
+    void malformedSessionId_shouldBeRejectedWithoutRedis() {
+        MockServerWebExchange exchange = exchangeWithSession("/api/calendar/events", "not-a-session-id");
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new AssertionError("no debe reenviarse"))))
+                .verifyComplete();
+
+        verifyNoInteractions(hashOperations);
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(1.0, meterRegistry.get("gateway.session.lookups.short_circuited")
+                .tag("reason", "malformed").counter().count());
+    }
+
+    @Test
+    void tokenRefreshEnabled_shouldForwardRefreshedTokenWithoutRefreshToken() {
+        when(hashOperations.multiGet(anyString(), anyList()))
+                .thenReturn(Mono.just(Arrays.asList(utf8("ya29.expired"), utf8("1//refresh-token-xxx"), null)));
+        TokenRefresher tokenRefresher = mock(TokenRefresher.class);
+        when(tokenRefresher.onRequest(eq(SESSION_ID), any()))
+                .thenReturn(Mono.just(new SessionCredentials("ya29.refreshed", "1//refresh-token-xxx")));
+        GatewayFilter refreshingFilter = new CustomAuthGatewayFilterFactory(
+                new RedisSessionRepository(redisTemplate, CODEC, meterRegistry), new GoogleOAuth2TokenValidator(),
+                new AuthFilterMetrics(meterRegistry), tokenRefresher).apply(new CustomAuthGatewayFilterFactory.Config(List.of()));
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+        StepVerifier.create(refreshingFilter.filter(authenticatedExchange("/api/calendar/events"), exchange -> {
+                    forwarded.set(exchange);
+                    return Mono.empty();
+                }))
+                .verifyComplete();
+
+        HttpHeaders upstreamHeaders = upstreamHeaders(forwarded.get());
+        assertEquals("Bearer ya29.refreshed", upstreamHeaders.getFirst("Authorization"));
+        assertFalse(upstreamHeaders.containsKey("X-Refresh-Token"));
+    }
+
+    // Cabeceras que el routing filter envía al destino
+    private static HttpHeaders upstreamHeaders(ServerWebExchange exchange) {
+        return new SessionCredentialsHeadersFilter().filter(exchange.getRequest().getHeaders(), exchange);
+    }
+
+    private MockServerWebExchange authenticatedExchange(String path) {
+        return exchangeWithSession(path, SESSION_ID);
+    }
+
+    private MockServerWebExchange exchangeWithSession(String path, String sessionId) {
+        String cookieValue = Base64.getUrlEncoder().encodeToString(sessionId.getBytes(StandardCharsets.UTF_8));
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .cookie(new HttpCookie("JSESSIONID", cookieValue)));
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
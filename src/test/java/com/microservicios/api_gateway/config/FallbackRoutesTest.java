@@ -0,0 +1,192 @@
+package com.microservicios.api_gateway.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gateway completo contra un destino stub que transmite cuerpos grandes en partes, con pausas, para
+ * comprobar que las respuestas exitosas no se retienen y que las 5xx se reemplazan sin leer su cuerpo.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.gateway.default-filters[0]=DedupeResponseHeader=Access-Control-Allow-Origin",
+        "fallback.redirect-url=http://fallback.test/",
+        "fallback.routes.pass-route.mode=pass-through",
+        "fallback.routes.static-route.mode=static-body",
+        "fallback.routes.static-route.body={\"success\": false, \"message\": \"Servicio en mantenimiento\"}"
+})
+class FallbackRoutesTest {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int CHUNKS = 64;
+    // El destino envía la primera parte y se detiene este tiempo antes de enviar el resto
+    private static final Duration STREAM_PAUSE = Duration.ofSeconds(1);
+
+    private static DisposableServer upstream;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private WebClient client;
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        upstream = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/{prefix}/stream", (request, response) -> response.send(largeBody()))
+                        .get("/{prefix}/fail", (request, response) -> response
+                                .status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                                .send(largeBody())))
+                .bindNow();
+        String uri = "http://localhost:" + upstream.port();
+        route(registry, 0, "redirect-route", uri, "/redirect/**");
+        route(registry, 1, "pass-route", uri, "/pass/**");
+        route(registry, 2, "static-route", uri, "/static/**");
+        // Nada escucha en el puerto 1: la conexión es rechazada
+        route(registry, 3, "down-route", "http://localhost:1", "/down/**");
+    }
+
+    private static void route(DynamicPropertyRegistry registry, int index, String id, String uri, String path) {
+        String prefix = "spring.cloud.gateway.routes[" + index + "].";
+        registry.add(prefix + "id", () -> id);
+        registry.add(prefix + "uri", () -> uri);
+        registry.add(prefix + "predicates[0]", () -> "Path=" + path);
+    }
+
+    private static Flux<ByteBuf> largeBody() {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        Arrays.fill(chunk, (byte) 'x');
+        return Flux.concat(
+                Mono.fromSupplier(() -> Unpooled.wrappedBuffer(chunk)),
+                Mono.delay(STREAM_PAUSE).then(Mono.empty()),
+                Flux.range(1, CHUNKS - 1).map(ignored -> Unpooled.wrappedBuffer(chunk)));
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.disposeNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        client = WebClient.create("http://localhost:" + port);
+    }
+
+    private double fallbacks(String route, String cause) {
+        var counter = meterRegistry.find(FallbackRoutes.FALLBACK_METRIC).tags("route", route, "cause", cause).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private Result get(String path) {
+        long start = System.nanoTime();
+        AtomicLong firstByte = new AtomicLong(-1);
+        return client.get().uri(path)
+                .exchangeToMono(response -> response.bodyToFlux(DataBuffer.class)
+                        .map(buffer -> {
+                            firstByte.compareAndSet(-1, System.nanoTime() - start);
+                            int size = buffer.readableByteCount();
+                            DataBufferUtils.release(buffer);
+                            return (long) size;
+                        })
+                        .reduce(0L, Long::sum)
+                        .defaultIfEmpty(0L)
+                        .map(size -> new Result(response.statusCode(), response.headers().asHttpHeaders().getLocation(),
+                                size, Duration.ofNanos(firstByte.get()), Duration.ofNanos(System.nanoTime() - start))))
+                .block(Duration.ofSeconds(10));
+    }
+
+    private record Result(HttpStatusCode status, URI location, long size, Duration firstByte, Duration total) {
+    }
+
+    @Test
+    void successfulStream_shouldBeForwardedWithoutBuffering() {
+        get("/redirect/stream");
+
+        Result result = get("/redirect/stream");
+
+        assertEquals(HttpStatus.OK, result.status());
+        assertEquals((long) CHUNK_SIZE * CHUNKS, result.size());
+        // La primera parte llega antes de que el destino termine: el gateway no acumula el cuerpo
+        assertTrue(result.firstByte().compareTo(STREAM_PAUSE) < 0, "primer byte a los " + result.firstByte());
+        assertTrue(result.total().compareTo(STREAM_PAUSE) >= 0);
+    }
+
+    @Test
+    void upstream5xx_redirectRoute_shouldRedirectWithoutReadingBody() {
+        double before = fallbacks("redirect-route", "upstream_5xx");
+
+        Result result = get("/redirect/fail");
+
+        assertEquals(HttpStatus.FOUND, result.status());
+        assertEquals(URI.create("http://fallback.test/"), result.location());
+        assertEquals(0, result.size());
+        // No espera al resto del cuerpo del destino
+        assertTrue(result.total().compareTo(STREAM_PAUSE) < 0, "respuesta a los " + result.total());
+        assertEquals(before + 1, fallbacks("redirect-route", "upstream_5xx"));
+    }
+
+    @Test
+    void upstream5xx_passThroughRoute_shouldStreamUpstreamResponse() {
+        Result result = get("/pass/fail");
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, result.status());
+        assertEquals((long) CHUNK_SIZE * CHUNKS, result.size());
+        assertEquals(0, fallbacks("pass-route", "upstream_5xx"));
+    }
+
+    @Test
+    void upstream5xx_staticBodyRoute_shouldRespondConfiguredBody() {
+        String body = client.get().uri("/static/fail")
+                .exchangeToMono(response -> {
+                    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.statusCode());
+                    return response.bodyToMono(String.class);
+                })
+                .block(Duration.ofSeconds(10));
+
+        assertEquals("{\"success\": false, \"message\": \"Servicio en mantenimiento\"}", body);
+        assertEquals(1, fallbacks("static-route", "upstream_5xx"));
+    }
+
+    @Test
+    void connectionRefused_shouldRedirect() {
+        long start = System.nanoTime();
+        Result result = get("/down/anything");
+
+        assertEquals(HttpStatus.FOUND, result.status());
+        assertEquals(URI.create("http://fallback.test/"), result.location());
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+        assertEquals(1, fallbacks("down-route", "error"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.hedging.RouteHedging;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gateway completo contra dos instancias stub de un servicio {@code lb://}. La primera llamada de cada ruta
+ * tarda más que la espera del hedging y las siguientes responden enseguida, así que cada petición se duplica
+ * y la responde la instancia que no recibió el intento original.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.gateway.default-filters[0]=DedupeResponseHeader=Access-Control-Allow-Origin"
+})
+class HedgingGatewayFilterFactoryTest {
+
+    private static final String SERVICE = "hedged";
+    private static final String ROUTE = "hedged-route";
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(50);
+    private static final Duration SLOW_RESPONSE = Duration.ofMillis(800);
+
+    // Ruta -> instancia que recibió la primera llamada
+    private static final Map<String, String> firstCalls = new ConcurrentHashMap<>();
+    private static final Map<String, List<String>> calls = new ConcurrentHashMap<>();
+    private static final List<DisposableServer> upstreams = new ArrayList<>();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private WebClient client;
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        for (int i = 0; i < 2; i++) {
+            String name = "instance-" + i;
+            DisposableServer upstream = HttpServer.create()
+                    .host("localhost")
+                    .port(0)
+                    .handle((request, response) -> {
+                        calls.computeIfAbsent(request.uri(), ignored -> new CopyOnWriteArrayList<>()).add(name);
+                        Duration latency = firstCalls.putIfAbsent(request.uri(), name) == null ? SLOW_RESPONSE : Duration.ZERO;
+                        return Mono.delay(latency).then(response.sendString(Mono.just(name)).then());
+                    })
+                    .bindNow();
+            upstreams.add(upstream);
+            registry.add("spring.cloud.discovery.client.simple.instances." + SERVICE + "[" + i + "].uri",
+                    () -> "http://localhost:" + upstream.port());
+        }
+        String prefix = "spring.cloud.gateway.routes[0].";
+        registry.add(prefix + "id", () -> ROUTE);
+        registry.add(prefix + "uri", () -> "lb://" + SERVICE);
+        registry.add(prefix + "predicates[0]", () -> "Path=/hedged/**");
+        registry.add(prefix + "filters[0].name", () -> "Hedging");
+        registry.add(prefix + "filters[0].args.minDelay", HEDGE_DELAY::toString);
+        registry.add(prefix + "filters[0].args.maxDelay", HEDGE_DELAY::toString);
+    }
+
+    @AfterAll
+    static void stopUpstreams() {
+        upstreams.forEach(DisposableServer::disposeNow);
+    }
+
+    @BeforeEach
+    void setUp() {
+        client = WebClient.create("http://localhost:" + port);
+    }
+
+    private double count(String metric, String... tags) {
+        var counter = meterRegistry.find(metric).tags(tags).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void slowPrimary_shouldBeAnsweredByHedgeOnAnotherInstance() {
+        double sent = count(RouteHedging.HEDGES_METRIC, "route", ROUTE, "outcome", "sent");
+        double hedgeWins = count(RouteHedging.WINS_METRIC, "route", ROUTE, "attempt", "hedge");
+
+        for (int i = 0; i < 5; i++) {
+            String path = "/hedged/get-" + i;
+            long start = System.nanoTime();
+            ResponseEntity<String> response = client.get().uri(path).retrieve().toEntity(String.class)
+                    .block(Duration.ofSeconds(5));
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertTrue(elapsed.compareTo(SLOW_RESPONSE) < 0, "elapsed=" + elapsed);
+            // El duplicado excluye la instancia del intento original
+            assertEquals(2, calls.get(path).size(), calls.toString());
+            assertNotEquals(firstCalls.get(path), response.getBody());
+        }
+        assertEquals(sent + 5, count(RouteHedging.HEDGES_METRIC, "route", ROUTE, "outcome", "sent"));
+        assertEquals(hedgeWins + 5, count(RouteHedging.WINS_METRIC, "route", ROUTE, "attempt", "hedge"));
+    }
+
+    @Test
+    void post_shouldNotBeHedged() {
+        double requests = count(RouteHedging.REQUESTS_METRIC, "route", ROUTE);
+
+        ResponseEntity<String> response = client.post().uri("/hedged/post").bodyValue("payload")
+                .retrieve().toEntity(String.class)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(firstCalls.get("/hedged/post"), response.getBody());
+        assertEquals(1, calls.get("/hedged/post").size());
+        assertEquals(requests, count(RouteHedging.REQUESTS_METRIC, "route", ROUTE));
+    }
+}
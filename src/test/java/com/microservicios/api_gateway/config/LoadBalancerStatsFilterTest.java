@@ -0,0 +1,89 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.loadbalancer.InstanceStats;
+import com.microservicios.api_gateway.loadbalancer.LoadBalancerStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadBalancerStatsFilterTest {
+
+    private static final Duration ERROR_PENALTY = Duration.ofSeconds(1);
+
+    private final LoadBalancerStats stats = new LoadBalancerStats(Duration.ofSeconds(10), ERROR_PENALTY);
+    private final LoadBalancerStatsFilter filter = new LoadBalancerStatsFilter(stats, ERROR_PENALTY);
+    private final ServiceInstance instance = new DefaultServiceInstance("calendar-1", "ms-calendar", "localhost", 8081, false);
+
+    private MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar/events"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance));
+        return exchange;
+    }
+
+    @Test
+    void filter_successfulResponse_shouldRecordLatency() {
+        MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(filter.filter(exchange, e -> {
+            assertEquals(1, stats.get(instance).inFlight());
+            e.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.delay(Duration.ofMillis(50)).then();
+        })).verifyComplete();
+
+        InstanceStats instanceStats = stats.get(instance);
+        assertEquals(0, instanceStats.inFlight());
+        assertTrue(instanceStats.latencyNanos() >= Duration.ofMillis(50).toNanos());
+        assertTrue(instanceStats.latencyNanos() < ERROR_PENALTY.toNanos());
+    }
+
+    @Test
+    void filter_serverError_shouldRecordAtLeastErrorPenalty() {
+        StepVerifier.create(filter.filter(exchange(), e -> {
+            e.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+            return Mono.empty();
+        })).verifyComplete();
+
+        assertEquals(ERROR_PENALTY.toNanos(), stats.get(instance).latencyNanos());
+    }
+
+    @Test
+    void filter_connectionError_shouldRecordAtLeastErrorPenalty() {
+        StepVerifier.create(filter.filter(exchange(), e -> Mono.error(new IOException("Connection refused"))))
+                .verifyError(IOException.class);
+
+        assertEquals(ERROR_PENALTY.toNanos(), stats.get(instance).latencyNanos());
+        assertEquals(0, stats.get(instance).inFlight());
+    }
+
+    @Test
+    void filter_cancelled_shouldReleaseWithoutSample() {
+        StepVerifier.create(filter.filter(exchange(), e -> Mono.never()))
+                .thenAwait(Duration.ofMillis(10))
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, stats.get(instance).inFlight());
+        assertEquals(0, stats.get(instance).latencyNanos());
+    }
+
+    @Test
+    void filter_withoutLoadBalancedInstance_shouldPassThrough() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/airtable/bases"));
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.empty())).verifyComplete();
+
+        assertEquals(0, stats.get(instance).latencyNanos());
+    }
+}
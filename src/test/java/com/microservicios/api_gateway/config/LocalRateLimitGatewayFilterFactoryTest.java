@@ -0,0 +1,129 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.config.LocalRateLimitGatewayFilterFactory.Config;
+import com.microservicios.api_gateway.config.LocalRateLimitGatewayFilterFactory.KeyBy;
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.ratelimit.LocalRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimitGatewayFilterFactoryTest {
+
+    private static final String SESSION_A = "3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b";
+    private static final String SESSION_B = "9a8b7c6d-5e4f-4a3b-8c2d-1e0f9a8b7c6d";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalRateLimitGatewayFilterFactory factory = new LocalRateLimitGatewayFilterFactory(
+            new LocalRateLimiter(1000, Duration.ofMinutes(10), meterRegistry),
+            new RateLimitProperties(1000, Duration.ofMinutes(10), 1, new RateLimitProperties.RedisSync(false, Duration.ofSeconds(1), "gateway:rate-limit:")),
+            meterRegistry);
+    private final AtomicInteger forwarded = new AtomicInteger();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private static MockServerWebExchange withSession(String sessionId, String clientIp) {
+        String cookie = Base64.getUrlEncoder().encodeToString(sessionId.getBytes(StandardCharsets.UTF_8));
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar/events")
+                .cookie(new HttpCookie(AuthenticationConstants.SESSION_COOKIE_NAME, cookie))
+                .remoteAddress(new InetSocketAddress(clientIp, 40000)));
+    }
+
+    private static MockServerWebExchange fromIp(String clientIp) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/contentful/news")
+                .remoteAddress(new InetSocketAddress(clientIp, 40000)));
+    }
+
+    @Test
+    void filter_overLimit_shouldRespond429WithRetryAfterAndPreEncodedBody() {
+        GatewayFilter filter = factory.apply(new Config(1, 2, KeyBy.SESSION));
+        StepVerifier.create(filter.filter(withSession(SESSION_A, "203.0.113.7"), chain)).verifyComplete();
+        StepVerifier.create(filter.filter(withSession(SESSION_A, "203.0.113.7"), chain)).verifyComplete();
+
+        MockServerWebExchange rejected = withSession(SESSION_A, "203.0.113.7");
+        StepVerifier.create(filter.filter(rejected, chain)).verifyComplete();
+
+        assertEquals(2, forwarded.get());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        StepVerifier.create(rejected.getResponse().getBodyAsString())
+                .assertNext(body -> assertTrue(body.contains(AuthenticationConstants.MSG_RATE_LIMITED), body))
+                .verifyComplete();
+        assertEquals(1, meterRegistry.get(LocalRateLimitGatewayFilterFactory.REJECTED_METRIC).tag("key", "session").counter().count());
+    }
+
+    @Test
+    void filter_bySession_shouldLimitEachSessionSeparatelyBehindSameIp() {
+        GatewayFilter filter = factory.apply(new Config(1, 1, KeyBy.SESSION));
+
+        filter.filter(withSession(SESSION_A, "203.0.113.7"), chain).block();
+        filter.filter(withSession(SESSION_B, "203.0.113.7"), chain).block();
+        filter.filter(withSession(SESSION_A, "203.0.113.7"), chain).block();
+
+        assertEquals(2, forwarded.get());
+    }
+
+    @Test
+    void filter_byIp_shouldIgnoreSessionCookie() {
+        GatewayFilter filter = factory.apply(new Config(1, 1, KeyBy.IP));
+
+        filter.filter(withSession(SESSION_A, "203.0.113.7"), chain).block();
+        filter.filter(withSession(SESSION_B, "203.0.113.7"), chain).block();
+        filter.filter(withSession(SESSION_B, "198.51.100.2"), chain).block();
+
+        assertEquals(2, forwarded.get());
+        assertEquals(1, meterRegistry.get(LocalRateLimitGatewayFilterFactory.REJECTED_METRIC).tag("key", "ip").counter().count());
+    }
+
+    @Test
+    void filter_behindProxy_shouldUseForwardedClientAddress() {
+        GatewayFilter filter = factory.apply(new Config(1, 1, KeyBy.IP));
+        MockServerHttpRequest.BaseBuilder<?> fromA = MockServerHttpRequest.get("/api/contentful/news")
+                .header("X-Forwarded-For", "203.0.113.7")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 40000));
+        MockServerHttpRequest.BaseBuilder<?> fromB = MockServerHttpRequest.get("/api/contentful/news")
+                .header("X-Forwarded-For", "198.51.100.2")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 40000));
+
+        filter.filter(MockServerWebExchange.from(fromA), chain).block();
+        filter.filter(MockServerWebExchange.from(fromB), chain).block();
+
+        assertEquals(2, forwarded.get());
+    }
+
+    @Test
+    void filter_malformedSessionCookie_shouldFallBackToIp() {
+        GatewayFilter filter = factory.apply(new Config(1, 1, KeyBy.SESSION));
+        MockServerWebExchange first = MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar/events")
+                .cookie(new HttpCookie(AuthenticationConstants.SESSION_COOKIE_NAME, "not-base64!"))
+                .remoteAddress(new InetSocketAddress("203.0.113.7", 40000)));
+
+        filter.filter(first, chain).block();
+        filter.filter(fromIp("203.0.113.7"), chain).block();
+
+        assertEquals(1, forwarded.get());
+    }
+
+    @Test
+    void apply_invalidLimit_shouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> factory.apply(new Config(0, null, null)));
+    }
+}
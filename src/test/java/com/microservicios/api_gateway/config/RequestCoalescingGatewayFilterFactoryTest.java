@@ -0,0 +1,248 @@
+package com.microservicios.api_gateway.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Gateway completo contra un destino stub que demora la respuesta y cuenta las llamadas, para comprobar
+ * que las peticiones idénticas y concurrentes comparten una sola llamada.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.gateway.default-filters[0]=DedupeResponseHeader=Access-Control-Allow-Origin"
+})
+class RequestCoalescingGatewayFilterFactoryTest {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int CHUNKS = 32;
+    // El destino espera este tiempo antes de responder, para que las peticiones se solapen
+    private static final Duration UPSTREAM_DELAY = Duration.ofMillis(500);
+
+    private static final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private static DisposableServer upstream;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private WebClient client;
+
+    @DynamicPropertySource
+    static void routes(DynamicPropertyRegistry registry) {
+        upstream = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/{prefix}/stream", (request, response) -> {
+                            calls.computeIfAbsent(request.uri(), ignored -> new AtomicInteger()).incrementAndGet();
+                            return Mono.delay(UPSTREAM_DELAY).then(response
+                                    .header(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream")
+                                    .send(largeBody()).then());
+                        })
+                        .get("/{prefix}/private", (request, response) -> {
+                            calls.computeIfAbsent(request.uri(), ignored -> new AtomicInteger()).incrementAndGet();
+                            return Mono.delay(UPSTREAM_DELAY).then(response
+                                    .header(HttpHeaderNames.CACHE_CONTROL, "private, max-age=60")
+                                    .sendString(Mono.just("{}")).then());
+                        })
+                        .get("/{prefix}/vary", (request, response) -> {
+                            calls.computeIfAbsent(request.uri(), ignored -> new AtomicInteger()).incrementAndGet();
+                            return Mono.delay(UPSTREAM_DELAY).then(response
+                                    .header(HttpHeaderNames.VARY, "Accept-Encoding, User-Agent")
+                                    .sendString(Mono.just("{}")).then());
+                        })
+                        .get("/{prefix}/fixed", (request, response) -> {
+                            calls.computeIfAbsent(request.uri(), ignored -> new AtomicInteger()).incrementAndGet();
+                            byte[] body = new byte[CHUNK_SIZE * 2];
+                            return Mono.delay(UPSTREAM_DELAY).then(response
+                                    .header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(body.length))
+                                    .sendByteArray(Mono.just(body)).then());
+                        }))
+                .bindNow();
+        String uri = "http://localhost:" + upstream.port();
+        route(registry, 0, "shared-route", uri, "/shared/**", Map.of("maxBodySize", "4MB"));
+        route(registry, 1, "limited-route", uri, "/limited/**", Map.of("maxWaiters", "2", "maxBodySize", "4MB"));
+        route(registry, 2, "small-route", uri, "/small/**", Map.of("maxBodySize", "16KB"));
+    }
+
+    private static void route(DynamicPropertyRegistry registry, int index, String id, String uri, String path,
+                              Map<String, String> args) {
+        String prefix = "spring.cloud.gateway.routes[" + index + "].";
+        registry.add(prefix + "id", () -> id);
+        registry.add(prefix + "uri", () -> uri);
+        registry.add(prefix + "predicates[0]", () -> "Path=" + path);
+        registry.add(prefix + "filters[0].name", () -> "RequestCoalescing");
+        args.forEach((name, value) -> registry.add(prefix + "filters[0].args." + name, () -> value));
+    }
+
+    /**
+     * Cada parte lleva un byte distinto, para detectar cuerpos desordenados o mezclados.
+     */
+    private static Flux<ByteBuf> largeBody() {
+        return Flux.range(0, CHUNKS).map(index -> {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            Arrays.fill(chunk, (byte) index.intValue());
+            return Unpooled.wrappedBuffer(chunk);
+        });
+    }
+
+    private static byte[] expectedBody() {
+        byte[] body = new byte[CHUNK_SIZE * CHUNKS];
+        for (int i = 0; i < CHUNKS; i++) {
+            Arrays.fill(body, i * CHUNK_SIZE, (i + 1) * CHUNK_SIZE, (byte) i);
+        }
+        return body;
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        upstream.disposeNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        calls.clear();
+        client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(-1))
+                .build();
+    }
+
+    private List<ResponseEntity<byte[]>> concurrentGets(String path, int requests) {
+        return Flux.range(0, requests)
+                .flatMap(ignored -> client.get().uri(path).retrieve().toEntity(byte[].class), requests)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+    }
+
+    private int upstreamCalls(String path) {
+        AtomicInteger count = calls.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    private double coalesced(String route, String outcome) {
+        var counter = meterRegistry.find(RequestCoalescingGatewayFilterFactory.COALESCED_METRIC)
+                .tags("route", route, "outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void concurrentIdenticalGets_shouldShareOneUpstreamCall() {
+        List<ResponseEntity<byte[]>> responses = concurrentGets("/shared/stream?page=1", 20);
+
+        assertEquals(1, upstreamCalls("/shared/stream?page=1"));
+        byte[] expected = expectedBody();
+        for (ResponseEntity<byte[]> response : responses) {
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals("application/octet-stream", response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+            assertArrayEquals(expected, response.getBody());
+        }
+        assertEquals(19, coalesced("shared-route", "shared"));
+    }
+
+    @Test
+    void differentQueries_shouldNotBeCoalesced() {
+        Flux.merge(
+                        client.get().uri("/shared/stream?page=2").retrieve().toBodilessEntity(),
+                        client.get().uri("/shared/stream?page=3").retrieve().toBodilessEntity())
+                .blockLast(Duration.ofSeconds(10));
+
+        assertEquals(1, upstreamCalls("/shared/stream?page=2"));
+        assertEquals(1, upstreamCalls("/shared/stream?page=3"));
+    }
+
+    @Test
+    void requestsWithCookie_shouldNotBeCoalesced() {
+        Flux.range(0, 4)
+                .flatMap(index -> client.get().uri("/shared/stream?page=4")
+                        .cookie("preferences", "user-" + index)
+                        .retrieve().toBodilessEntity(), 4)
+                .blockLast(Duration.ofSeconds(10));
+
+        assertEquals(4, upstreamCalls("/shared/stream?page=4"));
+    }
+
+    @Test
+    void privateResponse_shouldReleaseWaiters() {
+        List<ResponseEntity<byte[]>> responses = concurrentGets("/shared/private", 4);
+
+        assertEquals(4, upstreamCalls("/shared/private"));
+        responses.forEach(response -> assertEquals(HttpStatus.OK, response.getStatusCode()));
+    }
+
+    @Test
+    void responseVaryingOutsideKeyHeaders_shouldReleaseWaiters() {
+        List<ResponseEntity<byte[]>> responses = concurrentGets("/shared/vary", 4);
+
+        assertEquals(4, upstreamCalls("/shared/vary"));
+        responses.forEach(response -> assertEquals(HttpStatus.OK, response.getStatusCode()));
+    }
+
+    @Test
+    void shareable_shouldRejectPrivateResponsesAndForeignVary() {
+        List<String> keyHeaders = RequestCoalescingGatewayFilterFactory.DEFAULT_KEY_HEADERS;
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("public, max-age=60");
+        headers.setVary(List.of("accept-encoding", HttpHeaders.ORIGIN));
+        assertTrue(RequestCoalescingGatewayFilterFactory.shareable(headers, keyHeaders));
+
+        headers.setCacheControl("No-Store");
+        assertFalse(RequestCoalescingGatewayFilterFactory.shareable(headers, keyHeaders));
+
+        headers.remove(HttpHeaders.CACHE_CONTROL);
+        headers.setVary(List.of("Accept-Encoding", "Cookie"));
+        assertFalse(RequestCoalescingGatewayFilterFactory.shareable(headers, keyHeaders));
+        headers.setVary(List.of("*"));
+        assertFalse(RequestCoalescingGatewayFilterFactory.shareable(headers, keyHeaders));
+    }
+
+    @Test
+    void waitersAboveLimit_shouldGoUpstream() {
+        List<ResponseEntity<byte[]>> responses = concurrentGets("/limited/stream", 5);
+
+        // Uno llama al destino, dos esperan y los otros dos van por su cuenta
+        assertEquals(3, upstreamCalls("/limited/stream"));
+        responses.forEach(response -> assertArrayEquals(expectedBody(), response.getBody()));
+    }
+
+    @Test
+    void bodyAboveMaxSize_shouldReleaseWaiters() {
+        List<ResponseEntity<byte[]>> responses = concurrentGets("/small/fixed", 4);
+
+        assertEquals(4, upstreamCalls("/small/fixed"));
+        responses.forEach(response -> {
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals(CHUNK_SIZE * 2, response.getBody().length);
+        });
+        assertEquals(3, coalesced("small-route", "released"));
+    }
+}
@@ -0,0 +1,276 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.cache.ResponseCache;
+import com.microservicios.api_gateway.repository.SessionCredentials;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final String BODY = "{\"items\":[{\"title\":\"Novedades\"}]}";
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayFilter filter;
+
+    // Respuesta del destino; cada test la ajusta antes de la primera petición
+    private volatile HttpStatus upstreamStatus = HttpStatus.OK;
+    private volatile HttpHeaders upstreamHeaders = new HttpHeaders();
+    private volatile String upstreamBody = BODY;
+    private volatile Duration upstreamDelay = Duration.ZERO;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = filter(DataSize.ofKilobytes(1));
+    }
+
+    private GatewayFilter filter(DataSize maxEntrySize) {
+        ResponseCacheProperties properties = new ResponseCacheProperties(DataSize.ofMegabytes(1), maxEntrySize, Duration.ofSeconds(5));
+        return new ResponseCacheGatewayFilterFactory(properties, meterRegistry)
+                .apply(new ResponseCacheGatewayFilterFactory.Config(Duration.ofMinutes(1)));
+    }
+
+    // Destino simulado: escribe el cuerpo en dos partes, como una respuesta transmitida
+    private final GatewayFilterChain upstream = exchange -> Mono.delay(upstreamDelay).then(Mono.defer(() -> {
+        upstreamCalls.incrementAndGet();
+        var response = exchange.getResponse();
+        byte[] bytes = upstreamBody.getBytes(StandardCharsets.UTF_8);
+        response.setStatusCode(upstreamStatus);
+        response.getHeaders().addAll(upstreamHeaders);
+        response.getHeaders().setContentLength(bytes.length);
+        int half = bytes.length / 2;
+        DataBuffer first = DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, 0, half));
+        DataBuffer second = DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, half, bytes.length));
+        return response.writeWith(Flux.just(first, second));
+    }));
+
+    // Resto de la cadena del gateway: las etapas diferidas hasta después de CustomAuth y el destino
+    private final GatewayFilterChain chain = exchange -> new AfterAuthenticationFilter().filter(exchange, upstream);
+
+    private MockServerWebExchange get(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+        return exchange;
+    }
+
+    private MockServerWebExchange get(String path) {
+        return get(MockServerHttpRequest.get(path));
+    }
+
+    private static String body(MockServerWebExchange exchange) {
+        return exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void apply_shouldRunBeforeResponseIsWritten() {
+        // El cuerpo del destino sólo pasa por el decorador si el filtro envuelve a NettyWriteResponseFilter
+        assertTrue(((Ordered) filter).getOrder() < NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER);
+    }
+
+    @Test
+    void apply_shouldRunInsideFallbackAndOutsideCoalescing() {
+        // Órdenes distintos: la ruta no depende de cómo se desempatan los filtros
+        int order = ((Ordered) filter).getOrder();
+        assertTrue(FallbackRoutes.ORDER < order, "order=" + order);
+        assertTrue(order < RequestCoalescingGatewayFilterFactory.ORDER, "order=" + order);
+    }
+
+    @Test
+    void get_repeatedRequest_shouldBeServedFromCache() {
+        upstreamHeaders.setETag("\"v1\"");
+
+        MockServerWebExchange first = get("/api/contentful/news?page=1");
+        MockServerWebExchange second = get("/api/contentful/news?page=1");
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(BODY, body(first));
+        assertEquals(HttpStatus.OK, second.getResponse().getStatusCode());
+        assertEquals(BODY, body(second));
+        assertEquals("\"v1\"", second.getResponse().getHeaders().getETag());
+        assertEquals(BODY.length(), second.getResponse().getHeaders().getContentLength());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", ResponseCache.CACHE_NAME, "result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void get_differentQuery_shouldBeCachedSeparately() {
+        get("/api/contentful/news?page=1");
+        get("/api/contentful/news?page=2");
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void conditionalRequest_matchingEtag_shouldRespondNotModified() {
+        upstreamHeaders.setETag("\"v1\"");
+        get("/api/contentful/news");
+
+        MockServerWebExchange conditional = get(MockServerHttpRequest.get("/api/contentful/news")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"v0\", W/\"v1\""));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+        assertEquals("", body(conditional));
+        assertEquals("\"v1\"", conditional.getResponse().getHeaders().getETag());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void conditionalRequest_staleEtag_shouldRespondFullBody() {
+        upstreamHeaders.setETag("\"v2\"");
+        get("/api/contentful/news");
+
+        MockServerWebExchange conditional = get(MockServerHttpRequest.get("/api/contentful/news").ifNoneMatch("\"v1\""));
+
+        assertEquals(HttpStatus.OK, conditional.getResponse().getStatusCode());
+        assertEquals(BODY, body(conditional));
+    }
+
+    @Test
+    void conditionalRequest_notModifiedSince_shouldRespondNotModified() {
+        Instant lastModified = Instant.parse("2024-01-01T00:00:00Z");
+        upstreamHeaders.setLastModified(lastModified);
+        get("/locations/provincias");
+
+        MockServerWebExchange conditional = get(MockServerHttpRequest.get("/locations/provincias")
+                .ifModifiedSince(lastModified.plusSeconds(60).toEpochMilli()));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+    }
+
+    @Test
+    void noStoreResponse_shouldNotBeCached() {
+        upstreamHeaders.setCacheControl("no-store");
+
+        get("/api/contentful/news");
+        get("/api/contentful/news");
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void errorResponse_shouldNotBeCached() {
+        upstreamStatus = HttpStatus.BAD_GATEWAY;
+
+        get("/api/contentful/news");
+        get("/api/contentful/news");
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void authorizedOrNonGetRequest_shouldBypassCache() {
+        get(MockServerHttpRequest.get("/api/contentful/news").header(HttpHeaders.AUTHORIZATION, "Bearer ya29.token"));
+        get(MockServerHttpRequest.get("/api/contentful/news").header(HttpHeaders.AUTHORIZATION, "Bearer ya29.token"));
+        get(MockServerHttpRequest.head("/api/contentful/news"));
+
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void sessionAuthenticatedRequest_shouldBypassCache() {
+        // CustomAuth corre después del filtro y antes de la consulta a la caché
+        GatewayFilterChain authenticated = exchange -> {
+            SessionCredentialsHeadersFilter.attach(exchange, new SessionCredentials("ya29.token", ""), false);
+            return chain.filter(exchange);
+        };
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/contentful/news"));
+            StepVerifier.create(filter.filter(exchange, authenticated)).verifyComplete();
+        }
+        get("/api/contentful/news");
+
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void rejectedRequest_shouldNotBeServedFromCache() {
+        get("/api/contentful/news");
+
+        // Como CustomAuth sin sesión: responde 401 sin seguir la cadena
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/contentful/news"));
+        StepVerifier.create(filter.filter(exchange, rejected -> {
+            rejected.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+            return rejected.getResponse().setComplete();
+        })).verifyComplete();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals("", body(exchange));
+    }
+
+    @Test
+    void varyHeader_differentRequestValue_shouldGoUpstream() {
+        upstreamHeaders.setVary(List.of("Accept-Language"));
+
+        get(MockServerHttpRequest.get("/api/contentful/news").header(HttpHeaders.ACCEPT_LANGUAGE, "es"));
+        get(MockServerHttpRequest.get("/api/contentful/news").header(HttpHeaders.ACCEPT_LANGUAGE, "es"));
+        get(MockServerHttpRequest.get("/api/contentful/news").header(HttpHeaders.ACCEPT_LANGUAGE, "en"));
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void oversizedBody_shouldStreamWithoutCaching() {
+        filter = filter(DataSize.ofBytes(16));
+
+        MockServerWebExchange first = get("/api/contentful/news");
+        get("/api/contentful/news");
+
+        assertEquals(BODY, body(first));
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void concurrentMisses_shouldReachUpstreamOnce() {
+        upstreamDelay = Duration.ofMillis(100);
+
+        List<String> bodies = Flux.range(0, 10)
+                .flatMap(ignored -> {
+                    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/contentful/news"));
+                    return filter.filter(exchange, chain).then(Mono.defer(() -> exchange.getResponse().getBodyAsString()));
+                }, 10)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(10, bodies.size());
+        assertTrue(bodies.stream().allMatch(BODY::equals));
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(9.0, meterRegistry.get(ResponseCache.COALESCED_METRIC).counter().count());
+    }
+
+    @Test
+    void ttlNanos_shouldFollowUpstreamCacheControl() {
+        long routeTtl = TimeUnit.MINUTES.toNanos(1);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(30), ResponseCacheGatewayFilterFactory.ttlNanos(List.of("public, max-age=30"), routeTtl));
+        assertEquals(TimeUnit.SECONDS.toNanos(120), ResponseCacheGatewayFilterFactory.ttlNanos(List.of("max-age=30, s-maxage=120"), routeTtl));
+        assertEquals(routeTtl, ResponseCacheGatewayFilterFactory.ttlNanos(List.of("public"), routeTtl));
+        assertEquals(0, ResponseCacheGatewayFilterFactory.ttlNanos(List.of("private, max-age=60"), routeTtl));
+        assertEquals(0, ResponseCacheGatewayFilterFactory.ttlNanos(List.of("no-cache"), routeTtl));
+        assertEquals(0, ResponseCacheGatewayFilterFactory.ttlNanos(List.of("max-age=abc"), routeTtl));
+    }
+}
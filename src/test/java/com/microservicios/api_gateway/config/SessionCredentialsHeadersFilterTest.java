@@ -0,0 +1,66 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.repository.SessionCredentials;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionCredentialsHeadersFilterTest {
+
+    private static final SessionCredentials CREDENTIALS = new SessionCredentials("ya29.tokenxxx", "1//refresh-token-xxx");
+
+    private final SessionCredentialsHeadersFilter filter = new SessionCredentialsHeadersFilter();
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar/events")
+                .header(HttpHeaders.ACCEPT, "application/json"));
+    }
+
+    @Test
+    void filter_withoutCredentials_shouldReturnInput() {
+        MockServerWebExchange exchange = exchange();
+        HttpHeaders input = exchange.getRequest().getHeaders();
+
+        assertSame(input, filter.filter(input, exchange));
+        assertFalse(SessionCredentialsHeadersFilter.isAuthenticated(exchange));
+    }
+
+    @Test
+    void filter_requestHeaders_shouldCopyBeforeAddingCredentials() {
+        MockServerWebExchange exchange = exchange();
+        SessionCredentialsHeadersFilter.attach(exchange, CREDENTIALS, false);
+
+        HttpHeaders headers = filter.filter(exchange.getRequest().getHeaders(), exchange);
+
+        assertEquals("Bearer ya29.tokenxxx", headers.getFirst(HttpHeaders.AUTHORIZATION));
+        assertEquals("application/json", headers.getFirst(HttpHeaders.ACCEPT));
+        assertFalse(headers.containsKey("X-Refresh-Token"));
+        assertFalse(exchange.getRequest().getHeaders().containsKey(HttpHeaders.AUTHORIZATION));
+        assertTrue(SessionCredentialsHeadersFilter.isAuthenticated(exchange));
+    }
+
+    @Test
+    void filter_copiedHeaders_shouldAddCredentialsInPlace() {
+        MockServerWebExchange exchange = exchange();
+        SessionCredentialsHeadersFilter.attach(exchange, CREDENTIALS, true);
+        HttpHeaders copy = new HttpHeaders();
+        copy.putAll(exchange.getRequest().getHeaders());
+        copy.set(HttpHeaders.AUTHORIZATION, "Bearer del-cliente");
+
+        HttpHeaders headers = filter.filter(copy, exchange);
+
+        assertSame(copy, headers);
+        assertEquals("Bearer ya29.tokenxxx", headers.getFirst(HttpHeaders.AUTHORIZATION));
+        assertEquals(1, headers.get(HttpHeaders.AUTHORIZATION).size());
+        assertEquals("1//refresh-token-xxx", headers.getFirst("X-Refresh-Token"));
+    }
+
+    @Test
+    void getOrder_shouldRunAfterGatewayHeaderFilters() {
+        assertEquals(Ordered.LOWEST_PRECEDENCE, filter.getOrder());
+    }
+}
@@ -0,0 +1,89 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.repository.RedisSessionRepository;
+import com.microservicios.api_gateway.support.RespStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lecturas de sesión concurrentes contra {@link RespStubServer}, con y sin agrupación de flush.
+ * Excluido del build normal; ejecutar con {@code ./mvnw test -Pload-test}.
+ */
+@Tag("load")
+class SessionRedisLoadTest {
+
+    private static final String SESSION_ID = "3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b";
+    private static final int WARMUP = 20_000;
+    private static final int LOOKUPS = 200_000;
+    private static final int CONCURRENCY = 256;
+
+    private RespStubServer redis;
+
+    @BeforeEach
+    void setUp() {
+        JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+        redis = RespStubServer.start()
+                .hset("spring:session:sessions:" + SESSION_ID, "sessionAttr:accessToken",
+                        jdk.serialize("ya29.a0AfB_byC3xq0Lb8Jm2Vx9Zk4Tn7Wq1Pe5Rs6Ud8Yf0Hg2Ji4Kl6Mn8Op0Qr2St4Uv6Wx8Yz0"))
+                .hset("spring:session:sessions:" + SESSION_ID, "sessionAttr:refreshToken", jdk.serialize("1//0gRefresh"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        redis.close();
+    }
+
+    @Test
+    void flushConsolidation_shouldSustainLoadWithoutErrors() {
+        Result baseline = run(false);
+        Result consolidated = run(true);
+
+        System.out.printf("%nsesión/HMGET x%d, concurrencia %d%n", LOOKUPS, CONCURRENCY);
+        System.out.printf("  sin agrupación: %,10.0f ops/s  %5.1f comandos por lectura%n", baseline.opsPerSecond, baseline.commandsPerRead);
+        System.out.printf("  con agrupación: %,10.0f ops/s  %5.1f comandos por lectura%n", consolidated.opsPerSecond, consolidated.commandsPerRead);
+
+        assertEquals(0, baseline.errors);
+        assertEquals(0, consolidated.errors);
+    }
+
+    private Result run(boolean flushConsolidation) {
+        SessionRedisConnection connection = new SessionRedisConnection(
+                SessionRedisConnectionTest.connectionDetails(redis), false,
+                new SessionRedisProperties(Duration.ofSeconds(5), Duration.ofSeconds(1), flushConsolidation, 256, ""));
+        try {
+            RedisSessionRepository repository = SessionRedisConnectionTest.repository(connection);
+            AtomicLong errors = new AtomicLong();
+            lookups(repository, WARMUP, errors);
+            redis.resetCounters();
+            errors.set(0);
+
+            long start = System.nanoTime();
+            lookups(repository, LOOKUPS, errors);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(LOOKUPS / seconds, (double) redis.commands() / Math.max(1, redis.reads()), errors.get());
+        } finally {
+            connection.destroy();
+        }
+    }
+
+    private static void lookups(RedisSessionRepository repository, int count, AtomicLong errors) {
+        Flux.range(0, count)
+                .flatMap(ignored -> repository.getCredentials(SESSION_ID)
+                        .doOnError(error -> errors.incrementAndGet())
+                        .onErrorResume(error -> Mono.empty()), CONCURRENCY)
+                .blockLast(Duration.ofMinutes(2));
+    }
+
+    private record Result(double opsPerSecond, double commandsPerRead, long errors) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.microservicios.api_gateway.config;
+
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import com.microservicios.api_gateway.support.RespStubServer;
+import com.microservicios.api_gateway.websocket.WebSocketRouteConnections;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conexiones WebSocket a través del gateway hacia un destino stub que devuelve cada mensaje, con la
+ * autenticación real ({@code CustomAuth} de application.yml) contra un Redis en memoria.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "gateway.session-redis.command-timeout=1s",
+        "logging.level.com.microservicios.api_gateway.repository.RedisSessionInvalidationListener=ERROR"
+})
+class WebSocketGatewayFilterFactoryTest {
+
+    private static final String ACCESS_TOKEN = "ya29.a0AfB_websocket";
+
+    private static final Queue<String> upstreamAuthorizations = new ConcurrentLinkedQueue<>();
+    private static DisposableServer upstream;
+    private static RespStubServer redis;
+    private static String cookie;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WebSocketGatewayFilterFactory factory;
+
+    @DynamicPropertySource
+    static void environment(DynamicPropertyRegistry registry) {
+        JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+        redis = RespStubServer.start();
+        String sessionId = UUID.randomUUID().toString();
+        String key = AuthenticationConstants.SPRING_SESSION_KEY_PREFIX + sessionId;
+        redis.hset(key, AuthenticationConstants.SESSION_ATTR_ACCESS_TOKEN, jdk.serialize(ACCESS_TOKEN))
+                .hset(key, AuthenticationConstants.SESSION_ATTR_REFRESH_TOKEN, jdk.serialize("1//0gWebSocket"));
+        cookie = "JSESSIONID=" + Base64.getUrlEncoder().encodeToString(sessionId.getBytes(StandardCharsets.UTF_8));
+        registry.add("spring.data.redis.url", () -> "redis://" + redis.host() + ":" + redis.port());
+        registry.add("spring.data.redis.host", redis::host);
+        registry.add("spring.data.redis.port", redis::port);
+
+        upstream = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.ws("/{prefix}/echo", (in, out) -> {
+                    upstreamAuthorizations.add(String.valueOf(in.headers().get(HttpHeaderNames.AUTHORIZATION)));
+                    return out.sendString(in.receive().asString());
+                }))
+                .bindNow();
+        String uri = "http://localhost:" + upstream.port();
+        route(registry, 0, "ws-route", uri, "/ws/**", Map.of());
+        route(registry, 1, "ws-limited", uri, "/ws-limited/**", Map.of("maxConnections", "2"));
+        route(registry, 2, "ws-idle", uri, "/ws-idle/**", Map.of("idleTimeout", "300ms", "pingInterval", "100ms"));
+    }
+
+    private static void route(DynamicPropertyRegistry registry, int index, String id, String uri, String path,
+                              Map<String, String> args) {
+        String prefix = "spring.cloud.gateway.routes[" + index + "].";
+        registry.add(prefix + "id", () -> id);
+        registry.add(prefix + "uri", () -> uri);
+        registry.add(prefix + "predicates[0]", () -> "Path=" + path);
+        registry.add(prefix + "filters[0].name", () -> "WebSocket");
+        args.forEach((name, value) -> registry.add(prefix + "filters[0].args." + name, () -> value));
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        upstream.disposeNow();
+        redis.close();
+    }
+
+    private URI uri(String path) {
+        return URI.create("ws://localhost:" + port + path);
+    }
+
+    private static HttpHeaders sessionHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.COOKIE, cookie);
+        return headers;
+    }
+
+    private HttpStatus handshakeStatus(String path, boolean withSession) {
+        return WebClient.create("http://localhost:" + port).get().uri(path)
+                .headers(headers -> {
+                    headers.set(HttpHeaders.UPGRADE, "websocket");
+                    headers.set(HttpHeaders.CONNECTION, "Upgrade");
+                    headers.set("Sec-WebSocket-Key", "dGhlIHNhbXBsZSBub25jZQ==");
+                    headers.set("Sec-WebSocket-Version", "13");
+                    if (withSession) {
+                        headers.set(HttpHeaders.COOKIE, cookie);
+                    }
+                })
+                .exchangeToMono(response -> response.releaseBody().thenReturn(HttpStatus.valueOf(response.statusCode().value())))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private double counter(String name, String route, String tag, String value) {
+        var counter = meterRegistry.find(name).tags("route", route, tag, value).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    // El lugar se libera al cerrarse la sesión, después de que el cliente ve el cierre
+    private void awaitActive(String routeId, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (active(routeId) != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, active(routeId));
+    }
+
+    private int active(String routeId) {
+        WebSocketRouteConnections connections = factory.connections(routeId);
+        return connections != null ? connections.active() : 0;
+    }
+
+    @Test
+    void upgradeWithSession_shouldAuthenticateOnceAndProxyFrames() throws InterruptedException {
+        upstreamAuthorizations.clear();
+        AtomicReference<List<String>> received = new AtomicReference<>();
+
+        new ReactorNettyWebSocketClient()
+                .execute(uri("/ws/echo"), sessionHeaders(), session -> session
+                        .send(Flux.just("uno", "dos", "tres").map(session::textMessage))
+                        .thenMany(session.receive().map(WebSocketMessage::getPayloadAsText).take(3))
+                        .collectList()
+                        .doOnNext(received::set)
+                        .then())
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(List.of("uno", "dos", "tres"), received.get());
+        assertEquals(List.of(AuthenticationConstants.HEADER_BEARER_PREFIX + ACCESS_TOKEN), List.copyOf(upstreamAuthorizations));
+        assertEquals(3, counter(WebSocketRouteConnections.FRAMES_METRIC, "ws-route", "direction", "inbound"));
+        assertEquals(3, counter(WebSocketRouteConnections.FRAMES_METRIC, "ws-route", "direction", "outbound"));
+        awaitActive("ws-route", 0);
+    }
+
+    @Test
+    void upgradeWithoutSession_shouldBeRejectedBeforeReachingUpstream() {
+        upstreamAuthorizations.clear();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, handshakeStatus("/ws/echo", false));
+        assertTrue(upstreamAuthorizations.isEmpty());
+    }
+
+    @Test
+    void connectionsAboveLimit_shouldGet503UntilOneCloses() throws InterruptedException {
+        Sinks.Empty<Void> release = Sinks.empty();
+        ReactorNettyWebSocketClient client = new ReactorNettyWebSocketClient();
+        List<Disposable> open = List.of(
+                client.execute(uri("/ws-limited/echo"), sessionHeaders(), session -> release.asMono()).subscribe(),
+                client.execute(uri("/ws-limited/echo"), sessionHeaders(), session -> release.asMono()).subscribe());
+        awaitActive("ws-limited", 2);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, handshakeStatus("/ws-limited/echo", true));
+        assertEquals(1, meterRegistry.get(WebSocketRouteConnections.REJECTED_METRIC).tag("route", "ws-limited").counter().count());
+
+        release.tryEmitEmpty();
+        awaitActive("ws-limited", 0);
+        open.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void idleConnection_shouldBeClosedByGatewayWith1001() throws InterruptedException {
+        AtomicReference<CloseStatus> status = new AtomicReference<>();
+
+        new ReactorNettyWebSocketClient()
+                .execute(uri("/ws-idle/echo"), sessionHeaders(), session -> session.closeStatus().doOnNext(status::set).then())
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(status.get());
+        assertEquals(CloseStatus.GOING_AWAY.getCode(), status.get().getCode());
+        assertEquals(1, counter(WebSocketRouteConnections.TIMEOUTS_METRIC, "ws-idle", "reason", "idle"));
+        assertEquals(0, counter(WebSocketRouteConnections.TIMEOUTS_METRIC, "ws-idle", "reason", "ping"));
+        awaitActive("ws-idle", 0);
+    }
+
+    @Test
+    void plainRequestOnWebSocketRoute_shouldNotCountAsConnection() {
+        WebClient.create("http://localhost:" + port).get().uri("/ws/echo")
+                .header(HttpHeaders.COOKIE, cookie)
+                .exchangeToMono(response -> response.releaseBody())
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(0, active("ws-route"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.microservicios.api_gateway.hedging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgeBudgetTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void tryWithdraw_shouldAllowBurstThenOneEveryTenRequests() {
+        HedgeBudget budget = new HedgeBudget(0.1, 3, meterRegistry);
+
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    void deposit_shouldNotExceedBurst() {
+        HedgeBudget budget = new HedgeBudget(0.5, 2, meterRegistry);
+
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+
+        assertEquals(2, budget.available());
+        assertEquals(2, meterRegistry.get(HedgeBudget.BUDGET_METRIC).gauge().value());
+    }
+
+    @Test
+    void constructor_invalidRatio_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new HedgeBudget(0, 10, meterRegistry));
+        assertThrows(IllegalArgumentException.class, () -> new HedgeBudget(1.5, 10, meterRegistry));
+        assertThrows(IllegalArgumentException.class, () -> new HedgeBudget(0.1, 0, meterRegistry));
+    }
+}
@@ -0,0 +1,74 @@
+package com.microservicios.api_gateway.hedging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyWindowTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(30);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final LatencyWindow window = new LatencyWindow(WINDOW, nanos::get);
+
+    private void record(int count, Duration latency) {
+        for (int i = 0; i < count; i++) {
+            window.record(latency.toNanos());
+        }
+    }
+
+    @Test
+    void percentile_shouldReturnBucketUpperBoundWithin12Percent() {
+        for (int millis = 1; millis <= 100; millis++) {
+            window.record(Duration.ofMillis(millis).toNanos());
+        }
+
+        long p95 = window.percentile(0.95, 1);
+        long p50 = window.percentile(0.50, 1);
+
+        assertTrue(p95 >= Duration.ofMillis(95).toNanos() && p95 <= Duration.ofMillis(95).toNanos() * 1.125, "p95=" + p95);
+        assertTrue(p50 >= Duration.ofMillis(50).toNanos() && p50 <= Duration.ofMillis(50).toNanos() * 1.125, "p50=" + p50);
+    }
+
+    @Test
+    void percentile_tooFewSamples_shouldReturnMinusOne() {
+        record(9, Duration.ofMillis(10));
+
+        assertEquals(-1, window.percentile(0.95, 10));
+    }
+
+    @Test
+    void percentile_shouldForgetSamplesOlderThanTwoWindows() {
+        record(100, Duration.ofMillis(500));
+        nanos.addAndGet(WINDOW.toNanos());
+        record(100, Duration.ofMillis(10));
+
+        // La ventana anterior sigue contando
+        assertTrue(window.percentile(0.95, 1) >= Duration.ofMillis(500).toNanos());
+
+        nanos.addAndGet(WINDOW.toNanos());
+        record(1, Duration.ofMillis(10));
+
+        assertTrue(window.percentile(0.95, 1) < Duration.ofMillis(12).toNanos());
+    }
+
+    @Test
+    void percentile_afterLongIdle_shouldStartEmpty() {
+        record(100, Duration.ofMillis(500));
+        nanos.addAndGet(WINDOW.multipliedBy(3).toNanos());
+
+        assertEquals(-1, window.percentile(0.95, 1));
+    }
+
+    @Test
+    void index_upperBound_shouldCoverEveryValue() {
+        for (long micros = 0; micros < 100_000; micros++) {
+            int index = LatencyWindow.index(micros);
+            assertTrue(LatencyWindow.upperBoundMicros(index) >= micros, "micros=" + micros);
+            assertTrue(index == 0 || LatencyWindow.upperBoundMicros(index - 1) < micros, "micros=" + micros);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.microservicios.api_gateway.hedging;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteHedgingTest {
+
+    private static final Duration MIN_DELAY = Duration.ofMillis(20);
+    private static final Duration MAX_DELAY = Duration.ofSeconds(1);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RouteHedging hedging = new RouteHedging("calendar-service", meterRegistry, nanos::get);
+
+    private void record(int count, Duration latency) {
+        for (int i = 0; i < count; i++) {
+            hedging.record(latency.toNanos());
+        }
+    }
+
+    @Test
+    void delay_withoutEnoughSamples_shouldUseMaxDelay() {
+        record((int) RouteHedging.MIN_SAMPLES - 1, Duration.ofMillis(50));
+
+        assertEquals(MAX_DELAY, hedging.delay(95, MIN_DELAY, MAX_DELAY));
+    }
+
+    @Test
+    void delay_shouldFollowPercentileWithinBounds() {
+        record(95, Duration.ofMillis(40));
+        record(5, Duration.ofSeconds(3));
+
+        Duration delay = hedging.delay(95, MIN_DELAY, MAX_DELAY);
+
+        assertTrue(delay.compareTo(Duration.ofMillis(40)) >= 0 && delay.compareTo(Duration.ofMillis(45)) <= 0, "delay=" + delay);
+        assertEquals(delay.toNanos(), meterRegistry.get(RouteHedging.DELAY_METRIC).timeGauge().value(TimeUnit.NANOSECONDS));
+        // El p99 cae en las respuestas de 3 s: se acota a maxDelay
+        nanos.addAndGet(RouteHedging.DELAY_REFRESH.toNanos());
+        assertEquals(MAX_DELAY, hedging.delay(99, MIN_DELAY, MAX_DELAY));
+    }
+
+    @Test
+    void delay_fastRoute_shouldNotGoBelowMinDelay() {
+        record(100, Duration.ofMillis(1));
+
+        assertEquals(MIN_DELAY, hedging.delay(95, MIN_DELAY, MAX_DELAY));
+    }
+
+    @Test
+    void delay_shouldBeRecomputedAtMostOncePerRefresh() {
+        assertEquals(MAX_DELAY, hedging.delay(95, MIN_DELAY, MAX_DELAY));
+        record(100, Duration.ofMillis(100));
+
+        assertEquals(MAX_DELAY, hedging.delay(95, MIN_DELAY, MAX_DELAY));
+
+        nanos.addAndGet(RouteHedging.DELAY_REFRESH.toNanos());
+        assertTrue(hedging.delay(95, MIN_DELAY, MAX_DELAY).compareTo(MAX_DELAY) < 0);
+    }
+}
@@ -0,0 +1,223 @@
+package com.microservicios.api_gateway.loadbalancer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final String SERVICE_ID = "ms-calendar";
+    private static final Duration DECAY = Duration.ofSeconds(10);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final LoadBalancerStats stats = new LoadBalancerStats(DECAY, Duration.ofSeconds(1), nanos::get);
+    private final List<DisposableServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    private static ServiceInstance instance(String id, int port) {
+        return new DefaultServiceInstance(id, SERVICE_ID, "localhost", port, false);
+    }
+
+    private LatencyAwareLoadBalancer loadBalancer(List<ServiceInstance> instances) {
+        return loadBalancer(instances, stats);
+    }
+
+    private static LatencyAwareLoadBalancer loadBalancer(List<ServiceInstance> instances, LoadBalancerStats stats) {
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return SERVICE_ID;
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(instances);
+            }
+        };
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(supplier);
+        return new LatencyAwareLoadBalancer(SERVICE_ID, provider, stats);
+    }
+
+    private void record(ServiceInstance instance, Duration latency) {
+        InstanceStats instanceStats = stats.get(instance);
+        instanceStats.start();
+        instanceStats.complete(latency.toNanos());
+    }
+
+    @Test
+    void choose_shouldPreferLowerLatencyInstance() {
+        ServiceInstance fast = instance("fast", 8081);
+        ServiceInstance slow = instance("slow", 8082);
+        record(fast, Duration.ofMillis(10));
+        record(slow, Duration.ofMillis(200));
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(List.of(fast, slow));
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(fast, loadBalancer.choose(new DefaultRequest<>()).block().getServer());
+        }
+    }
+
+    @Test
+    void choose_shouldWeighRequestsInFlight() {
+        ServiceInstance busy = instance("busy", 8081);
+        ServiceInstance idle = instance("idle", 8082);
+        record(busy, Duration.ofMillis(10));
+        record(idle, Duration.ofMillis(30));
+        for (int i = 0; i < 5; i++) {
+            stats.get(busy).start();
+        }
+
+        Response<ServiceInstance> response = loadBalancer(List.of(busy, idle)).choose(new DefaultRequest<>()).block();
+
+        // 10ms × 6 peticiones contra 30ms × 1
+        assertEquals(idle, response.getServer());
+    }
+
+    @Test
+    void complete_higherLatency_shouldReplaceAverageImmediately() {
+        ServiceInstance instance = instance("a", 8081);
+        record(instance, Duration.ofMillis(10));
+        nanos.addAndGet(Duration.ofMillis(100).toNanos());
+        record(instance, Duration.ofMillis(500));
+
+        assertEquals(Duration.ofMillis(500).toNanos(), stats.get(instance).latencyNanos());
+        assertEquals(0, stats.get(instance).inFlight());
+    }
+
+    @Test
+    void cost_idleSlowInstance_shouldDecaySoItIsProbedAgain() {
+        ServiceInstance fast = instance("fast", 8081);
+        ServiceInstance slow = instance("slow", 8082);
+        record(slow, Duration.ofMillis(200));
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        record(fast, Duration.ofMillis(10));
+
+        assertEquals(slow, loadBalancer(List.of(fast, slow)).choose(new DefaultRequest<>()).block().getServer());
+    }
+
+    @Test
+    void choose_deregisteredInstance_shouldEvictItsStats() {
+        ServiceInstance a = instance("a", 8081);
+        ServiceInstance b = instance("b", 8082);
+        record(a, Duration.ofMillis(10));
+        record(b, Duration.ofMillis(10));
+        loadBalancer(List.of(a, b)).choose(new DefaultRequest<>()).block();
+        assertEquals(2, stats.size(SERVICE_ID));
+
+        loadBalancer(List.of(a)).choose(new DefaultRequest<>()).block();
+
+        assertEquals(1, stats.size(SERVICE_ID));
+    }
+
+    @Test
+    void choose_excludedInstanceInContext_shouldPickAnotherOne() {
+        ServiceInstance fast = instance("fast", 8081);
+        ServiceInstance slow = instance("slow", 8082);
+        record(fast, Duration.ofMillis(10));
+        record(slow, Duration.ofMillis(200));
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(List.of(fast, slow));
+
+        for (int i = 0; i < 20; i++) {
+            Response<ServiceInstance> response = loadBalancer.choose(new DefaultRequest<>())
+                    .contextWrite(Context.of(LatencyAwareLoadBalancer.EXCLUDED_INSTANCE_KEY, fast))
+                    .block();
+            assertEquals(slow, response.getServer());
+        }
+        assertEquals(2, stats.size(SERVICE_ID));
+    }
+
+    @Test
+    void choose_excludedOnlyInstance_shouldStillReturnIt() {
+        ServiceInstance only = instance("only", 8081);
+
+        Response<ServiceInstance> response = loadBalancer(List.of(only)).choose(new DefaultRequest<>())
+                .contextWrite(Context.of(LatencyAwareLoadBalancer.EXCLUDED_INSTANCE_KEY, only))
+                .block();
+
+        assertEquals(only, response.getServer());
+    }
+
+    @Test
+    void choose_noInstances_shouldReturnEmptyResponse() {
+        assertFalse(loadBalancer(List.of()).choose(new DefaultRequest<>()).block().hasServer());
+    }
+
+    /**
+     * Tres instancias locales, una de ellas 15 veces más lenta: con round-robin recibiría un tercio del
+     * tráfico; aquí sólo las primeras peticiones y las que sirven para volver a medirla.
+     */
+    @Test
+    void simulation_skewedLatencies_shouldRouteAroundSlowInstance() {
+        List<ServiceInstance> instances = List.of(
+                stub("fast-1", Duration.ofMillis(10)),
+                stub("fast-2", Duration.ofMillis(10)),
+                stub("slow", Duration.ofMillis(150)));
+        // Ventana corta para que la simulación converja en pocos segundos
+        LoadBalancerStats stats = new LoadBalancerStats(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(instances, stats);
+        WebClient client = WebClient.create();
+        // Conexiones ya abiertas: el costo del primer connect no debe contar como latencia de la instancia
+        Flux.fromIterable(instances)
+                .flatMap(instance -> client.get().uri(instance.getUri()).retrieve().toBodilessEntity())
+                .blockLast(Duration.ofSeconds(5));
+        Map<String, AtomicInteger> chosen = new ConcurrentHashMap<>();
+        int requests = 400;
+
+        Flux.range(0, requests)
+                .flatMap(ignored -> loadBalancer.choose(new DefaultRequest<>()).flatMap(response -> {
+                    ServiceInstance instance = response.getServer();
+                    chosen.computeIfAbsent(instance.getInstanceId(), id -> new AtomicInteger()).incrementAndGet();
+                    InstanceStats instanceStats = stats.get(instance);
+                    instanceStats.start();
+                    long start = System.nanoTime();
+                    return client.get().uri(instance.getUri()).retrieve().toBodilessEntity()
+                            .doOnSuccess(ok -> instanceStats.complete(System.nanoTime() - start));
+                }), 12)
+                .blockLast(Duration.ofSeconds(30));
+
+        int slow = chosen.getOrDefault("slow", new AtomicInteger()).get();
+        assertTrue(slow < requests / 10, "La instancia lenta recibió " + slow + " de " + requests);
+        assertTrue(chosen.get("fast-1").get() > requests / 3, chosen.toString());
+        assertTrue(chosen.get("fast-2").get() > requests / 3, chosen.toString());
+    }
+
+    private ServiceInstance stub(String id, Duration latency) {
+        DisposableServer server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .handle((request, response) -> Mono.delay(latency).then(response.sendString(Mono.just("ok")).then()))
+                .bindNow();
+        servers.add(server);
+        return instance(id, server.port());
+    }
+}
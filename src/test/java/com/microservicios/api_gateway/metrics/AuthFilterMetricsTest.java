@@ -0,0 +1,75 @@
+package com.microservicios.api_gateway.metrics;
+
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Outcome;
+import com.microservicios.api_gateway.metrics.AuthFilterMetrics.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthFilterMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AuthFilterMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new AuthFilterMetrics(meterRegistry);
+    }
+
+    @Test
+    void recordStage_shouldTagByRouteStageAndOutcome() {
+        MockServerWebExchange exchange = exchangeForRoute("calendar-service");
+
+        metrics.recordStage(exchange, Stage.SESSION_FETCH, Outcome.OK, System.nanoTime());
+        metrics.recordStage(exchange, Stage.SESSION_FETCH, Outcome.OK, System.nanoTime());
+
+        assertEquals(2, meterRegistry.get(AuthFilterMetrics.STAGE_METRIC)
+                .tags("route", "calendar-service", "stage", "session_fetch", "outcome", "ok")
+                .timer().count());
+    }
+
+    @Test
+    void recordRequest_withoutRoute_shouldUseUnknownRoute() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/x"));
+
+        metrics.recordRequest(exchange, Outcome.NO_COOKIE, System.nanoTime());
+
+        assertEquals(1, meterRegistry.get(AuthFilterMetrics.REQUEST_METRIC)
+                .tags("route", "unknown", "outcome", "no_cookie").timer().count());
+    }
+
+    @Test
+    void recordRequest_manyRoutes_shouldBoundCardinality() {
+        for (int i = 0; i < AuthFilterMetrics.MAX_ROUTES * 2; i++) {
+            metrics.recordRequest(exchangeForRoute("route-" + i), Outcome.OK, System.nanoTime());
+        }
+
+        long routeTags = meterRegistry.find(AuthFilterMetrics.REQUEST_METRIC).timers().stream()
+                .map(timer -> timer.getId().getTag("route"))
+                .distinct()
+                .count();
+        assertTrue(routeTags <= AuthFilterMetrics.MAX_ROUTES + 1);
+        assertEquals(AuthFilterMetrics.MAX_ROUTES, meterRegistry.get(AuthFilterMetrics.REQUEST_METRIC)
+                .tag("route", "other").timer().count());
+    }
+
+    private MockServerWebExchange exchangeForRoute(String routeId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/calendar"));
+        Route route = Route.async()
+                .id(routeId)
+                .uri(URI.create("http://localhost"))
+                .predicate(e -> true)
+                .build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+}
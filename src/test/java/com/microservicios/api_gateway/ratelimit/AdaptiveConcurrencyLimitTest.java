@@ -0,0 +1,206 @@
+package com.microservicios.api_gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(60);
+
+    // Sin duración mínima, cada ventana cierra con diez respuestas
+    private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 200, 1.5, 600, Duration.ZERO);
+
+    private void acquire(int permits) {
+        for (int i = 0; i < permits; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+    }
+
+    private void samples(int count, long rttNanos) {
+        for (int i = 0; i < count; i++) {
+            limit.onSample(rttNanos);
+        }
+    }
+
+    /**
+     * Muestras con tantas peticiones en curso como permite el límite, como bajo carga sostenida.
+     */
+    private void saturatedSamples(AdaptiveConcurrencyLimit target, int count, long rttNanos) {
+        for (int i = 0; i < count; i++) {
+            while (target.tryAcquire()) {
+                // ocupa los lugares que abrió el último ajuste
+            }
+            target.onSample(rttNanos);
+        }
+    }
+
+    /**
+     * Destino que atiende {@code capacity} peticiones a la vez en {@code baseLatency} y encola el resto, con
+     * {@code CLIENTS} clientes que siempre tienen una petición lista. Cada ronda entra lo que permite el
+     * límite (mínimo 4), el reloj avanza lo que tarda el destino y responden todas juntas.
+     */
+    private static final class QueueingUpstream {
+
+        static final int CLIENTS = 64;
+        static final int CAPACITY = 8;
+
+        final AtomicLong nanos = new AtomicLong();
+        final AdaptiveConcurrencyLimit limit;
+        int capacity;
+        long baseLatency = TimeUnit.MILLISECONDS.toNanos(50);
+
+        QueueingUpstream(int initialLimit) {
+            this(initialLimit, CAPACITY);
+        }
+
+        QueueingUpstream(int initialLimit, int capacity) {
+            this.capacity = capacity;
+            limit = new AdaptiveConcurrencyLimit(initialLimit, 4, 200, 1.5, 600, Duration.ofMillis(100), nanos::get);
+        }
+
+        /**
+         * Corre una ronda y devuelve cuántas peticiones atendió el destino a la vez.
+         */
+        int round() {
+            int admitted = 0;
+            while (admitted < CLIENTS && limit.tryAcquire()) {
+                admitted++;
+            }
+            long rtt = baseLatency * ((admitted + capacity - 1) / capacity);
+            nanos.addAndGet(rtt);
+            for (int i = 0; i < admitted; i++) {
+                limit.onSample(rtt);
+            }
+            for (int i = 0; i < admitted; i++) {
+                limit.release();
+            }
+            return admitted;
+        }
+    }
+
+    @Test
+    void onSample_sustainedOverload_shouldConvergeNearUpstreamCapacity() {
+        QueueingUpstream upstream = new QueueingUpstream(4);
+        for (int i = 0; i < 300; i++) {
+            upstream.round();
+        }
+
+        // Tolerancia 1,5 más la cola de √límite: el límite se asienta entre una y dos veces la capacidad, y ahí
+        // se queda aunque la carga no cese (la media de largo plazo no sube con la cola)
+        for (int i = 0; i < 3000; i++) {
+            int admitted = upstream.round();
+            assertTrue(admitted >= QueueingUpstream.CAPACITY && admitted <= 2 * QueueingUpstream.CAPACITY,
+                    "round=" + i + " admitted=" + admitted);
+        }
+    }
+
+    @Test
+    void onSample_queueingAtMinLimit_shouldStayNearMinLimit() {
+        QueueingUpstream upstream = new QueueingUpstream(4);
+        for (int i = 0; i < 300; i++) {
+            upstream.round();
+        }
+
+        // El destino pasa a atender una petición a la vez: aun en el mínimo encola. Esa latencia no se toma como
+        // referencia de golpe, así que el límite se asienta a menos de un paso (√4) del mínimo y ahí se queda
+        upstream.capacity = 1;
+        for (int i = 0; i < 300; i++) {
+            upstream.round();
+        }
+        for (int i = 0; i < 3000; i++) {
+            int admitted = upstream.round();
+            assertTrue(admitted <= 6, "round=" + i + " admitted=" + admitted);
+        }
+    }
+
+    @Test
+    void onSample_slowerUpstream_shouldLowerLimitThenSettleBelowCapacity() {
+        QueueingUpstream upstream = new QueueingUpstream(4);
+        for (int i = 0; i < 300; i++) {
+            upstream.round();
+        }
+
+        // El destino pasa a tardar el triple con cualquier carga: el límite baja hacia el mínimo, ahí la referencia
+        // alcanza la nueva latencia al ritmo de la media de largo plazo y el límite vuelve a crecer
+        upstream.baseLatency *= 3;
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < 300; i++) {
+            lowest = Math.min(lowest, upstream.round());
+        }
+        assertTrue(lowest < QueueingUpstream.CAPACITY, "lowest=" + lowest);
+
+        // Sin cola: el límite se asienta justo por debajo de la capacidad y ahí se queda
+        for (int i = 0; i < 3000; i++) {
+            int admitted = upstream.round();
+            assertTrue(admitted >= QueueingUpstream.CAPACITY - 2 && admitted <= QueueingUpstream.CAPACITY,
+                    "round=" + i + " admitted=" + admitted);
+        }
+    }
+
+    @Test
+    void tryAcquire_shouldRejectAboveLimitUntilRelease() {
+        acquire(20);
+
+        assertFalse(limit.tryAcquire());
+        assertEquals(20, limit.inFlight());
+
+        limit.release();
+
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void onSample_stableLatencyUnderLoad_shouldGrowLimit() {
+        saturatedSamples(limit, 200, FAST);
+
+        assertTrue(limit.limit() > 20, "limit=" + limit.limit());
+    }
+
+    @Test
+    void onSample_risingLatency_shouldLowerLimit() {
+        saturatedSamples(limit, 200, FAST);
+        int before = limit.limit();
+
+        saturatedSamples(limit, 200, SLOW);
+
+        assertTrue(limit.limit() < before / 2, "before=" + before + " after=" + limit.limit());
+    }
+
+    @Test
+    void onSample_lightTraffic_shouldNotGrowLimit() {
+        acquire(5);
+
+        samples(1000, FAST);
+
+        assertEquals(20, limit.limit());
+    }
+
+    @Test
+    void onSample_shouldKeepLimitWithinBounds() {
+        AdaptiveConcurrencyLimit bounded = new AdaptiveConcurrencyLimit(20, 10, 30, 1.5, 600, Duration.ZERO);
+
+        saturatedSamples(bounded, 1000, FAST);
+        assertEquals(30, bounded.limit());
+
+        // Latencia alta sostenida: el límite baja al mínimo y ahí se queda
+        saturatedSamples(bounded, 1000, SLOW * 100);
+        assertEquals(10, bounded.limit());
+        for (int i = 0; i < 1000; i++) {
+            saturatedSamples(bounded, 1, SLOW * 100);
+            assertEquals(10, bounded.limit(), "sample=" + i);
+        }
+    }
+
+    @Test
+    void constructor_invalidBounds_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(2, 4, 200, 1.5, 600, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(20, 0, 200, 1.5, 600, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(20, 40, 30, 1.5, 600, Duration.ZERO));
+    }
+}
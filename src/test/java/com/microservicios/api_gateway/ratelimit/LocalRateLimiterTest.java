@@ -0,0 +1,123 @@
+package com.microservicios.api_gateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimiterTest {
+
+    private static final String KEY = "calendar-service s:3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b";
+
+    private final AtomicLong nanos = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final LocalRateLimiter limiter = new LocalRateLimiter(1000, Duration.ofMinutes(10), new SimpleMeterRegistry(), nanos::get);
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void tryAcquire_shouldAllowBurstThenReject() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire(KEY, 5, 10), "petición " + i);
+        }
+
+        long wait = limiter.tryAcquire(KEY, 5, 10);
+
+        // Un token cada 200 ms
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(200), "wait=" + wait);
+    }
+
+    @Test
+    void tryAcquire_shouldRefillAtReplenishRate() {
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(KEY, 5, 10);
+        }
+        assertNotEquals(0, limiter.tryAcquire(KEY, 5, 10));
+
+        advance(Duration.ofMillis(400));
+
+        assertEquals(0, limiter.tryAcquire(KEY, 5, 10));
+        assertEquals(0, limiter.tryAcquire(KEY, 5, 10));
+        assertNotEquals(0, limiter.tryAcquire(KEY, 5, 10));
+    }
+
+    @Test
+    void tryAcquire_differentKeys_shouldHaveSeparateBuckets() {
+        assertEquals(0, limiter.tryAcquire("a", 1, 1));
+        assertNotEquals(0, limiter.tryAcquire("a", 1, 1));
+
+        assertEquals(0, limiter.tryAcquire("b", 1, 1));
+    }
+
+    @Test
+    void tryAcquire_idleKeys_shouldBeEvicted() {
+        limiter.tryAcquire("a", 1, 1);
+        limiter.tryAcquire("b", 1, 1);
+        assertEquals(2, limiter.estimatedSize());
+
+        advance(Duration.ofMinutes(11));
+
+        assertEquals(0, limiter.estimatedSize());
+    }
+
+    @Test
+    void tryAcquire_concurrentCallers_shouldNeverExceedBurst() throws InterruptedException {
+        int threads = 8;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire(KEY, 10, 100) == 0) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // El reloj no avanza: exactamente la capacidad del bucket
+        assertEquals(100, accepted.get());
+    }
+
+    @Test
+    void applyClusterTotal_shouldConsumeTokensUsedByOtherInstances() {
+        for (int i = 0; i < 2; i++) {
+            limiter.tryAcquire(KEY, 10, 10);
+        }
+        Map<String, Long> unsynced = new HashMap<>();
+        limiter.forEachUnsynced(unsynced::put);
+        assertEquals(Map.of(KEY, 2L), unsynced);
+        // Primera sincronización: sólo fija la referencia
+        limiter.applyClusterTotal(KEY, 2, 2);
+
+        limiter.tryAcquire(KEY, 10, 10);
+        limiter.forEachUnsynced((key, delta) -> assertEquals(1L, delta));
+        // Las demás instancias consumieron 6 desde la sincronización anterior
+        limiter.applyClusterTotal(KEY, 9, 1);
+
+        // 10 - 3 propias - 6 ajenas = 1 token
+        assertEquals(0, limiter.tryAcquire(KEY, 10, 10));
+        assertNotEquals(0, limiter.tryAcquire(KEY, 10, 10));
+    }
+}
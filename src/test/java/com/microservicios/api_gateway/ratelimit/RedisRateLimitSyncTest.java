@@ -0,0 +1,87 @@
+package com.microservicios.api_gateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisRateLimitSyncTest {
+
+    private static final String KEY = "news-service ip:203.0.113.7";
+    private static final String REDIS_KEY = "gateway:rate-limit:" + KEY;
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, String> valueOperations;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final LocalRateLimiter limiter = new LocalRateLimiter(100, Duration.ofMinutes(10), new SimpleMeterRegistry(), nanos::get);
+
+    private RedisRateLimitSync sync() {
+        return new RedisRateLimitSync(limiter, redisTemplate, Duration.ofSeconds(1), Duration.ofMinutes(10), "gateway:rate-limit:");
+    }
+
+    @Test
+    void sync_shouldPushLocalCountsAndChargeRemoteUsage() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(valueOperations.increment(REDIS_KEY, 3L)).thenReturn(Mono.just(3L));
+        when(valueOperations.increment(REDIS_KEY, 1L)).thenReturn(Mono.just(8L));
+        RedisRateLimitSync sync = sync();
+
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(KEY, 10, 10);
+        }
+        StepVerifier.create(sync.sync()).verifyComplete();
+        limiter.tryAcquire(KEY, 10, 10);
+        // Otra instancia sumó 4 entre medio: quedan 10 - 4 propias - 4 ajenas = 2 tokens
+        StepVerifier.create(sync.sync()).verifyComplete();
+
+        verify(redisTemplate, times(2)).expire(REDIS_KEY, Duration.ofMinutes(10));
+        assertEquals(0, limiter.tryAcquire(KEY, 10, 10));
+        assertEquals(0, limiter.tryAcquire(KEY, 10, 10));
+        assertNotEquals(0, limiter.tryAcquire(KEY, 10, 10));
+    }
+
+    @Test
+    void sync_withoutLocalTraffic_shouldNotCallRedis() {
+        StepVerifier.create(sync().sync()).verifyComplete();
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void start_redisFailure_shouldKeepSyncing() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString(), anyLong())).thenReturn(Mono.error(new IllegalStateException("Redis caído")));
+        RedisRateLimitSync sync = new RedisRateLimitSync(limiter, redisTemplate, Duration.ofMillis(20), Duration.ofMinutes(10), "gateway:rate-limit:");
+
+        sync.start();
+        try {
+            limiter.tryAcquire(KEY, 10, 10);
+            verify(valueOperations, timeout(2000)).increment(REDIS_KEY, 1L);
+            limiter.tryAcquire(KEY, 10, 10);
+            verify(valueOperations, timeout(2000).times(2)).increment(REDIS_KEY, 1L);
+            assertTrue(sync.isRunning());
+        } finally {
+            sync.stop();
+        }
+        assertFalse(sync.isRunning());
+    }
+}
@@ -0,0 +1,180 @@
+package com.microservicios.api_gateway.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingSessionRepositoryTest {
+
+    private static final String SESSION_ID = "test-session-123";
+    private static final SessionCredentials CREDENTIALS = new SessionCredentials("ya29.tokenxxx", "1//refresh");
+
+    @Mock
+    private SessionRepository delegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private CachingSessionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        repository = new CachingSessionRepository(delegate, 2, Duration.ofSeconds(10), 100, Duration.ofSeconds(5), Duration.ZERO, meterRegistry, nanos::get);
+    }
+
+    @Test
+    void getCredentials_repeatedLookup_shouldHitRedisOnce() {
+        when(delegate.getCredentials(SESSION_ID)).thenReturn(Mono.just(CREDENTIALS));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+        StepVerifier.create(repository.getAccessToken(SESSION_ID)).expectNext("ya29.tokenxxx").verifyComplete();
+
+        verify(delegate, times(1)).getCredentials(SESSION_ID);
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "sessionCredentials").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "sessionCredentials").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void getCredentials_afterTtl_shouldReloadFromRedis() {
+        when(delegate.getCredentials(SESSION_ID)).thenReturn(Mono.just(CREDENTIALS));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNextCount(1).verifyComplete();
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNextCount(1).verifyComplete();
+
+        verify(delegate, times(2)).getCredentials(SESSION_ID);
+    }
+
+    @Test
+    void invalidate_shouldForceReload() {
+        when(delegate.getCredentials(SESSION_ID)).thenReturn(Mono.just(CREDENTIALS));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNextCount(1).verifyComplete();
+        repository.invalidate(SESSION_ID);
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNextCount(1).verifyComplete();
+
+        verify(delegate, times(2)).getCredentials(SESSION_ID);
+        assertEquals(1.0, meterRegistry.get("gateway.session.cache.invalidations").counter().count());
+    }
+
+    @Test
+    void invalidate_duringLoad_shouldNotCacheStaleCredentials() {
+        when(delegate.getCredentials(SESSION_ID))
+                .thenReturn(Mono.fromSupplier(() -> {
+                    repository.invalidate(SESSION_ID);
+                    return CREDENTIALS;
+                }))
+                .thenReturn(Mono.just(CREDENTIALS));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNextCount(1).verifyComplete();
+
+        verify(delegate, times(2)).getCredentials(SESSION_ID);
+    }
+
+    @Test
+    void invalidateOtherSession_duringLoad_shouldStillCacheCredentials() {
+        when(delegate.getCredentials(SESSION_ID))
+                .thenReturn(Mono.fromSupplier(() -> {
+                    repository.invalidate("another-session");
+                    return CREDENTIALS;
+                }));
+        when(delegate.getCredentials("unknown-session"))
+                .thenReturn(Mono.fromRunnable(() -> repository.invalidate("another-session")));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.getCredentials("unknown-session")).verifyComplete();
+        StepVerifier.create(repository.getCredentials("unknown-session")).verifyComplete();
+
+        verify(delegate, times(1)).getCredentials(SESSION_ID);
+        verify(delegate, times(1)).getCredentials("unknown-session");
+        assertEquals(0, repository.loadsInFlight());
+    }
+
+    @Test
+    void loadAfterInvalidate_shouldNotJoinCoalescedReadIssuedBefore() {
+        Sinks.One<SessionCredentials> readBeforeLogout = Sinks.one();
+        when(delegate.getCredentials(SESSION_ID))
+                .thenReturn(readBeforeLogout.asMono())
+                .thenReturn(Mono.empty());
+        CachingSessionRepository chain = new CachingSessionRepository(new CoalescingSessionRepository(delegate),
+                2, Duration.ofSeconds(10), 100, Duration.ofSeconds(5), Duration.ZERO, meterRegistry, nanos::get);
+
+        StepVerifier firstLoad = StepVerifier.create(chain.getCredentials(SESSION_ID))
+                .expectNext(CREDENTIALS)
+                .expectComplete()
+                .verifyLater();
+        // Logout: Redis borra la sesión mientras la primera lectura sigue en curso
+        chain.invalidate(SESSION_ID);
+        StepVerifier.create(chain.getCredentials(SESSION_ID)).expectComplete().verify(Duration.ofSeconds(1));
+        readBeforeLogout.tryEmitValue(CREDENTIALS);
+        firstLoad.verify(Duration.ofSeconds(1));
+
+        // La lectura previa al logout no quedó en la caché
+        StepVerifier.create(chain.getCredentials(SESSION_ID)).verifyComplete();
+        verify(delegate, times(2)).getCredentials(SESSION_ID);
+    }
+
+    @Test
+    void getCredentials_unknownSession_shouldShortCircuitRetries() {
+        when(delegate.getCredentials(SESSION_ID)).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).verifyComplete();
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(repository.getCredentials(SESSION_ID)).verifyComplete();
+        }
+        StepVerifier.create(repository.getRefreshToken(SESSION_ID)).expectNext("").verifyComplete();
+
+        verify(delegate, times(1)).getCredentials(SESSION_ID);
+        assertEquals(6.0, meterRegistry.get("gateway.session.lookups.short_circuited")
+                .tag("reason", "unknown_session").counter().count());
+    }
+
+    @Test
+    void getCredentials_unknownSessionAfterNegativeTtl_shouldQueryRedisAgain() {
+        when(delegate.getCredentials(SESSION_ID)).thenReturn(Mono.empty(), Mono.just(CREDENTIALS));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).verifyComplete();
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+
+        verify(delegate, times(2)).getCredentials(SESSION_ID);
+    }
+
+    @Test
+    void invalidate_unknownSession_shouldAllowNewlyCreatedSession() {
+        when(delegate.getCredentials(SESSION_ID)).thenReturn(Mono.empty(), Mono.just(CREDENTIALS));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).verifyComplete();
+        repository.invalidate(SESSION_ID);
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+    }
+
+    @Test
+    void getCredentials_overMaxSize_shouldEvict() {
+        when(delegate.getCredentials(anyString())).thenReturn(Mono.just(CREDENTIALS));
+
+        for (int i = 0; i < 10; i++) {
+            StepVerifier.create(repository.getCredentials("session-" + i)).expectNextCount(1).verifyComplete();
+        }
+
+        assertTrue(repository.estimatedSize() <= 2);
+        assertTrue(meterRegistry.get("cache.evictions").tag("cache", "sessionCredentials").functionCounter().count() > 0);
+    }
+}
@@ -0,0 +1,97 @@
+package com.microservicios.api_gateway.repository;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CoalescingSessionRepositoryTest {
+
+    private static final String SESSION_ID = "test-session-123";
+    private static final SessionCredentials CREDENTIALS = new SessionCredentials("ya29.tokenxxx", "1//refresh");
+
+    private final AtomicInteger redisRoundTrips = new AtomicInteger();
+
+    @Test
+    void getCredentials_concurrentBurst_shouldShareSingleRedisLookup() {
+        CoalescingSessionRepository repository = new CoalescingSessionRepository(slowRepository(Mono.just(CREDENTIALS)));
+
+        List<SessionCredentials> results = Flux.range(0, 20)
+                .flatMap(i -> repository.getCredentials(SESSION_ID).subscribeOn(Schedulers.parallel()))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(20, results.size());
+        assertTrue(results.stream().allMatch(CREDENTIALS::equals));
+        assertEquals(1, redisRoundTrips.get());
+        assertEquals(0, repository.inFlightCount());
+    }
+
+    @Test
+    void getCredentials_afterCompletion_shouldQueryRedisAgain() {
+        CoalescingSessionRepository repository = new CoalescingSessionRepository(slowRepository(Mono.just(CREDENTIALS)));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+
+        assertEquals(2, redisRoundTrips.get());
+    }
+
+    @Test
+    void getCredentials_differentSessions_shouldNotBeCoalesced() {
+        CoalescingSessionRepository repository = new CoalescingSessionRepository(slowRepository(Mono.just(CREDENTIALS)));
+
+        Flux.merge(repository.getCredentials("session-a"), repository.getCredentials("session-b"))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(2, redisRoundTrips.get());
+    }
+
+    @Test
+    void getCredentials_sharedError_shouldPropagateToAllWaitersAndReset() {
+        CoalescingSessionRepository repository = new CoalescingSessionRepository(
+                slowRepository(Mono.error(new RuntimeException("Redis connection failed"))));
+
+        StepVerifier.create(Flux.merge(repository.getCredentials(SESSION_ID), repository.getCredentials(SESSION_ID)))
+                .expectErrorMessage("Redis connection failed")
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, redisRoundTrips.get());
+        assertEquals(0, repository.inFlightCount());
+    }
+
+    @Test
+    void getCredentials_allWaitersCancel_shouldRemoveInFlightLookup() {
+        CoalescingSessionRepository repository = new CoalescingSessionRepository(slowRepository(Mono.never()));
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID))
+                .expectSubscription()
+                .thenCancel()
+                .verify();
+
+        assertEquals(0, repository.inFlightCount());
+    }
+
+    @Test
+    void getRefreshToken_sessionNotFound_shouldReturnEmptyString() {
+        CoalescingSessionRepository repository = new CoalescingSessionRepository(slowRepository(Mono.empty()));
+
+        StepVerifier.create(repository.getRefreshToken(SESSION_ID)).expectNext("").verifyComplete();
+    }
+
+    private SessionRepository slowRepository(Mono<SessionCredentials> result) {
+        SessionRepository delegate = mock(SessionRepository.class);
+        when(delegate.getCredentials(anyString())).thenAnswer(invocation -> Mono.delay(Duration.ofMillis(100))
+                .doOnSubscribe(subscription -> redisRoundTrips.incrementAndGet())
+                .then(result));
+        return delegate;
+    }
+}
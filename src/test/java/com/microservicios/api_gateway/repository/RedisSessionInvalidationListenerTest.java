@@ -0,0 +1,48 @@
+package com.microservicios.api_gateway.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.ReactiveSubscription.PatternMessage;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisSessionInvalidationListenerTest {
+
+    @Mock
+    private ReactiveRedisMessageListenerContainer container;
+
+    @Mock
+    private CachingSessionRepository cache;
+
+    @Test
+    void start_sessionKeyDeleted_shouldInvalidateCache() {
+        when(container.receive(any(PatternTopic[].class))).thenReturn(Flux.just(
+                new PatternMessage<>("__keyevent@*__:del", "__keyevent@0__:del", "spring:session:sessions:abc-123"),
+                new PatternMessage<>("__keyevent@*__:expired", "__keyevent@0__:expired", "other:key")));
+        when(container.destroyLater()).thenReturn(Mono.empty());
+
+        RedisSessionInvalidationListener listener = new RedisSessionInvalidationListener(() -> container, cache);
+        listener.start();
+
+        verify(cache).invalidate("abc-123");
+        verifyNoMoreInteractions(cache);
+        listener.stop();
+        assertFalse(listener.isRunning());
+    }
+
+    @Test
+    void extractSessionId_nonSessionKey_shouldReturnNull() {
+        assertNull(RedisSessionInvalidationListener.extractSessionId("spring:session:expirations:123"));
+        assertNull(RedisSessionInvalidationListener.extractSessionId(null));
+        assertEquals("abc", RedisSessionInvalidationListener.extractSessionId("spring:session:sessions:abc"));
+    }
+}
@@ -1,15 +1,28 @@
 package com.microservicios.api_gateway.repository;
 
+import com.microservicios.api_gateway.codec.MigratingSessionValueCodec;
+import com.microservicios.api_gateway.codec.SessionValueFormat;
+import io.lettuce.core.RedisConnectionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
 import org.springframework.data.redis.core.ReactiveHashOperations;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import reactor.core.publisher.Mono;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 import reactor.test.StepVerifier;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -17,17 +30,23 @@ import static org.mockito.Mockito.*;
 class RedisSessionRepositoryTest {
 
     @Mock
-    private ReactiveRedisTemplate<String, String> redisTemplate;
+    private ReactiveRedisTemplate<String, byte[]> redisTemplate;
 
     @Mock
-    private ReactiveHashOperations<String, Object, Object> hashOperations;
+    private ReactiveHashOperations<String, String, byte[]> hashOperations;
+
+    private static final List<String> CREDENTIAL_FIELDS =
+            List.of("sessionAttr:accessToken", "sessionAttr:refreshToken", "sessionAttr:accessTokenExpiresAt");
 
+    private SimpleMeterRegistry meterRegistry;
     private SessionRepository sessionRepository;
 
     @BeforeEach
     void setUp() {
-        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
-        sessionRepository = new RedisSessionRepository(redisTemplate);
+        when(redisTemplate.<String, byte[]>opsForHash()).thenReturn(hashOperations);
+        meterRegistry = new SimpleMeterRegistry();
+        sessionRepository = new RedisSessionRepository(redisTemplate,
+                new MigratingSessionValueCodec(SessionValueFormat.JDK, true), meterRegistry);
     }
 
     @Test
@@ -37,7 +56,7 @@ class RedisSessionRepositoryTest {
         String tokenWithQuotes = "\"ya29.tokenxxx\"";
 
         when(hashOperations.get(redisKey, "sessionAttr:accessToken"))
-                .thenReturn(Mono.just(tokenWithQuotes));
+                .thenReturn(Mono.just(utf8(tokenWithQuotes)));
 
         StepVerifier.create(sessionRepository.getAccessToken(sessionId))
                 .expectNext("ya29.tokenxxx")
@@ -53,7 +72,7 @@ class RedisSessionRepositoryTest {
         String tokenWithoutQuotes = "ya29.tokenxxx";
 
         when(hashOperations.get(redisKey, "sessionAttr:accessToken"))
-                .thenReturn(Mono.just(tokenWithoutQuotes));
+                .thenReturn(Mono.just(utf8(tokenWithoutQuotes)));
 
         StepVerifier.create(sessionRepository.getAccessToken(sessionId))
                 .expectNext("ya29.tokenxxx")
@@ -79,7 +98,7 @@ class RedisSessionRepositoryTest {
         String refreshToken = "\"1//refresh-token-xxx\"";
 
         when(hashOperations.get(redisKey, "sessionAttr:refreshToken"))
-                .thenReturn(Mono.just(refreshToken));
+                .thenReturn(Mono.just(utf8(refreshToken)));
 
         StepVerifier.create(sessionRepository.getRefreshToken(sessionId))
                 .expectNext("1//refresh-token-xxx")
@@ -111,4 +130,143 @@ class RedisSessionRepositoryTest {
                 .expectErrorMessage("Redis connection failed")
                 .verify();
     }
+
+    @Test
+    void getCredentials_commandTimeout_shouldFailAsStoreUnavailable() {
+        when(hashOperations.multiGet(anyString(), eq(CREDENTIAL_FIELDS)))
+                .thenReturn(Mono.error(new QueryTimeoutException("Redis command timed out")));
+
+        StepVerifier.create(sessionRepository.getCredentials("test-session-123"))
+                .verifyErrorMatches(error -> error instanceof SessionStoreUnavailableException
+                        && error.getCause() instanceof QueryTimeoutException);
+    }
+
+    @Test
+    void getCredentials_connectionFailure_shouldFailAsStoreUnavailable() {
+        when(hashOperations.multiGet(anyString(), eq(CREDENTIAL_FIELDS)))
+                .thenReturn(Mono.error(new RedisConnectionFailureException("Unable to connect to Redis")))
+                .thenReturn(Mono.error(new RedisConnectionException("Connection closed")));
+
+        StepVerifier.create(sessionRepository.getCredentials("test-session-123"))
+                .verifyError(SessionStoreUnavailableException.class);
+        StepVerifier.create(sessionRepository.getCredentials("test-session-123"))
+                .verifyError(SessionStoreUnavailableException.class);
+    }
+
+    @Test
+    void getCredentials_existingSession_shouldUseSingleHmget() {
+        String sessionId = "test-session-123";
+        String redisKey = "spring:session:sessions:" + sessionId;
+
+        when(hashOperations.multiGet(redisKey, CREDENTIAL_FIELDS))
+                .thenReturn(Mono.just(Arrays.asList(utf8("\"ya29.tokenxxx\""), utf8("\"1//refresh-token-xxx\""), null)));
+
+        StepVerifier.create(sessionRepository.getCredentials(sessionId))
+                .expectNext(new SessionCredentials("ya29.tokenxxx", "1//refresh-token-xxx"))
+                .verifyComplete();
+
+        verify(hashOperations).multiGet(redisKey, CREDENTIAL_FIELDS);
+        verifyNoMoreInteractions(hashOperations);
+    }
+
+    @Test
+    void getCredentials_withoutRefreshToken_shouldReturnEmptyRefreshToken() {
+        String sessionId = "test-session-123";
+        String redisKey = "spring:session:sessions:" + sessionId;
+
+        when(hashOperations.multiGet(redisKey, CREDENTIAL_FIELDS))
+                .thenReturn(Mono.just(Arrays.asList(utf8("ya29.tokenxxx"), null, null)));
+
+        StepVerifier.create(sessionRepository.getCredentials(sessionId))
+                .expectNextMatches(credentials -> credentials.accessToken().equals("ya29.tokenxxx")
+                        && !credentials.hasRefreshToken())
+                .verifyComplete();
+    }
+
+    @Test
+    void getCredentials_sessionNotFound_shouldReturnEmpty() {
+        String sessionId = "non-existent-session";
+        String redisKey = "spring:session:sessions:" + sessionId;
+
+        when(hashOperations.multiGet(redisKey, CREDENTIAL_FIELDS))
+                .thenReturn(Mono.just(Arrays.<byte[]>asList(null, null, null)));
+
+        StepVerifier.create(sessionRepository.getCredentials(sessionId))
+                .verifyComplete();
+    }
+
+    @Test
+    void getCredentials_sessionNotFound_shouldBeTimedAsNotFound() {
+        when(hashOperations.multiGet(anyString(), eq(CREDENTIAL_FIELDS)))
+                .thenReturn(Mono.just(Arrays.<byte[]>asList(null, null, null)))
+                .thenReturn(Mono.just(Arrays.asList(utf8("ya29.tokenxxx"), null, null)));
+
+        StepVerifier.create(sessionRepository.getCredentials("non-existent-session"))
+                .verifyComplete();
+        StepVerifier.create(sessionRepository.getCredentials("test-session-123"))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, hmgetCount("not_found"));
+        assertEquals(1, hmgetCount("found"));
+    }
+
+    @Test
+    void getCredentials_jdkSerializedValues_shouldDecodeWithoutQuotes() {
+        String sessionId = "test-session-123";
+        JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+
+        when(hashOperations.multiGet(anyString(), eq(CREDENTIAL_FIELDS)))
+                .thenReturn(Mono.just(Arrays.asList(jdk.serialize("ya29.tokenxxx"), jdk.serialize("1//refresh-token-xxx"), null)));
+
+        StepVerifier.create(sessionRepository.getCredentials(sessionId))
+                .expectNext(new SessionCredentials("ya29.tokenxxx", "1//refresh-token-xxx"))
+                .verifyComplete();
+    }
+
+    @Test
+    void getCredentials_withExpiry_shouldParseEpochMillis() {
+        JdkSerializationRedisSerializer jdk = new JdkSerializationRedisSerializer();
+        when(hashOperations.multiGet(anyString(), eq(CREDENTIAL_FIELDS)))
+                .thenReturn(Mono.just(Arrays.asList(jdk.serialize("ya29.tokenxxx"), null, jdk.serialize("1767225600000"))));
+
+        StepVerifier.create(sessionRepository.getCredentials("test-session-123"))
+                .expectNext(new SessionCredentials("ya29.tokenxxx", "", Instant.parse("2026-01-01T00:00:00Z")))
+                .verifyComplete();
+    }
+
+    @Test
+    void getCredentials_unreadableExpiry_shouldTreatAsUnknown() {
+        when(hashOperations.multiGet(anyString(), eq(CREDENTIAL_FIELDS)))
+                .thenReturn(Mono.just(Arrays.asList(utf8("ya29.tokenxxx"), null, utf8("mañana"))));
+
+        StepVerifier.create(sessionRepository.getCredentials("test-session-123"))
+                .expectNext(new SessionCredentials("ya29.tokenxxx", ""))
+                .verifyComplete();
+    }
+
+    @Test
+    void getAccessToken_compactValue_shouldBeReadInDualReadMode() {
+        String sessionId = "test-session-123";
+        String redisKey = "spring:session:sessions:" + sessionId;
+
+        when(hashOperations.get(redisKey, "sessionAttr:accessToken"))
+                .thenReturn(Mono.just(SessionValueFormat.COMPACT.codec().encode("ya29.tokenxxx")));
+
+        StepVerifier.create(sessionRepository.getAccessToken(sessionId))
+                .expectNext("ya29.tokenxxx")
+                .verifyComplete();
+    }
+
+    private long hmgetCount(String outcome) {
+        return meterRegistry.get(RedisSessionRepository.REDIS_METRIC)
+                .tag("command", "hmget")
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,210 @@
+package com.microservicios.api_gateway.repository;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResilientSessionRepositoryTest {
+
+    private static final String SESSION_ID = "test-session-123";
+    private static final SessionCredentials CREDENTIALS = new SessionCredentials("ya29.tokenxxx", "1//refresh");
+
+    private final AtomicInteger redisCalls = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+    // Redis simulado: responde tras redisLatency, o falla por timeout si redisDown
+    private volatile Duration redisLatency = Duration.ZERO;
+    private volatile boolean redisDown;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker circuitBreaker;
+
+    private final SessionRepository redis = new SessionRepository() {
+        @Override
+        public Mono<String> getAccessToken(String sessionId) {
+            return getCredentials(sessionId).map(SessionCredentials::accessToken);
+        }
+
+        @Override
+        public Mono<String> getRefreshToken(String sessionId) {
+            return getCredentials(sessionId).map(SessionCredentials::refreshToken);
+        }
+
+        @Override
+        public Mono<SessionCredentials> getCredentials(String sessionId) {
+            return Mono.defer(() -> {
+                redisCalls.incrementAndGet();
+                Mono<SessionCredentials> reply = redisDown
+                        ? Mono.error(new QueryTimeoutException("Redis command timed out"))
+                        : Mono.just(CREDENTIALS);
+                return redisLatency.isZero() ? reply : Mono.delay(redisLatency).then(reply);
+            });
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = CircuitBreaker.of(ResilientSessionRepository.INSTANCE_NAME, CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .slowCallDurationThreshold(Duration.ofMillis(20))
+                .slowCallRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+    }
+
+    private ResilientSessionRepository repository(int maxConcurrentCalls) {
+        Bulkhead bulkhead = Bulkhead.of(ResilientSessionRepository.INSTANCE_NAME, BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        return new ResilientSessionRepository(redis, circuitBreaker, bulkhead, meterRegistry);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get(ResilientSessionRepository.REJECTED_METRIC).tag("reason", reason).counter().count();
+    }
+
+    @Test
+    void getCredentials_healthyRedis_shouldPassThrough() {
+        ResilientSessionRepository repository = repository(10);
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+        StepVerifier.create(repository.getAccessToken(SESSION_ID)).expectNext("ya29.tokenxxx").verifyComplete();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(2, redisCalls.get());
+    }
+
+    @Test
+    void getCredentials_failingRedis_shouldOpenCircuitAndFailFast() {
+        ResilientSessionRepository repository = repository(10);
+        redisDown = true;
+
+        // Los timeouts cuentan como fallas y salen como Redis no disponible, no como sesión inexistente
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(repository.getCredentials(SESSION_ID))
+                    .verifyErrorMatches(error -> error instanceof SessionStoreUnavailableException
+                            && error.getCause() instanceof QueryTimeoutException);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).verifyError(SessionStoreUnavailableException.class);
+        assertEquals(4, redisCalls.get());
+        assertEquals(1.0, rejected("circuit_open"));
+    }
+
+    @Test
+    void getCredentials_slowRedis_shouldOpenCircuitEvenIfCallsSucceed() {
+        ResilientSessionRepository repository = repository(10);
+        redisLatency = Duration.ofMillis(40);
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(repository.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        long start = System.nanoTime();
+        StepVerifier.create(repository.getCredentials(SESSION_ID)).verifyError(SessionStoreUnavailableException.class);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(redisLatency) < 0);
+        assertEquals(4, redisCalls.get());
+    }
+
+    @Test
+    void getCredentials_bulkheadFull_shouldRejectWithoutQueueing() {
+        ResilientSessionRepository repository = repository(2);
+        redisLatency = Duration.ofMillis(200);
+
+        Mono<SessionCredentials> first = repository.getCredentials(SESSION_ID);
+        Mono<SessionCredentials> second = repository.getCredentials(SESSION_ID);
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> StepVerifier.create(repository.getCredentials(SESSION_ID))
+                        .verifyError(SessionStoreUnavailableException.class))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(2, redisCalls.get());
+        assertEquals(1.0, rejected("bulkhead_full"));
+    }
+
+    @Test
+    void cachingRepository_storeUnavailable_shouldServeLastKnownCredentials() {
+        CachingSessionRepository caching = new CachingSessionRepository(repository(10), 100, Duration.ofSeconds(10),
+                100, Duration.ofSeconds(5), Duration.ofMinutes(5), meterRegistry, nanos::get);
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+
+        // Vence la entrada normal y Redis deja de responder: se abre el circuito
+        nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+        circuitBreaker.transitionToOpenState();
+
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+        StepVerifier.create(caching.getCredentials("another-session")).verifyError(SessionStoreUnavailableException.class);
+        assertEquals(1.0, meterRegistry.get(CachingSessionRepository.STALE_SERVED_METRIC).counter().count());
+        assertEquals(1, redisCalls.get());
+    }
+
+    @Test
+    void cachingRepository_redisTimeout_shouldServeLastKnownCredentials() {
+        CachingSessionRepository caching = new CachingSessionRepository(repository(10), 100, Duration.ofSeconds(10),
+                100, Duration.ofSeconds(5), Duration.ofMinutes(5), meterRegistry, nanos::get);
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+
+        // Circuito todavía cerrado: la consulta llega a Redis y vence el timeout
+        nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+        redisDown = true;
+
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(2, redisCalls.get());
+    }
+
+    @Test
+    void cachingRepository_staleCopyTooOld_shouldFail() {
+        CachingSessionRepository caching = new CachingSessionRepository(repository(10), 100, Duration.ofSeconds(10),
+                100, Duration.ofSeconds(5), Duration.ofMinutes(5), meterRegistry, nanos::get);
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        circuitBreaker.transitionToOpenState();
+
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).verifyError(SessionStoreUnavailableException.class);
+    }
+
+    @Test
+    void cachingRepository_failFast_shouldNotServeStaleCredentials() {
+        CachingSessionRepository caching = new CachingSessionRepository(repository(10), 100, Duration.ofSeconds(10),
+                100, Duration.ofSeconds(5), Duration.ZERO, meterRegistry, nanos::get);
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+
+        nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+        circuitBreaker.transitionToOpenState();
+
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).verifyError(SessionStoreUnavailableException.class);
+    }
+
+    @Test
+    void cachingRepository_invalidatedSession_shouldNotBeServedStale() {
+        CachingSessionRepository caching = new CachingSessionRepository(repository(10), 100, Duration.ofSeconds(10),
+                100, Duration.ofSeconds(5), Duration.ofMinutes(5), meterRegistry, nanos::get);
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).expectNext(CREDENTIALS).verifyComplete();
+
+        caching.invalidate(SESSION_ID);
+        circuitBreaker.transitionToOpenState();
+
+        StepVerifier.create(caching.getCredentials(SESSION_ID)).verifyError(SessionStoreUnavailableException.class);
+    }
+}
@@ -0,0 +1,238 @@
+package com.microservicios.api_gateway.service;
+
+import com.microservicios.api_gateway.config.TokenValidationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteTokenValidatorTest {
+
+    private static final String VALID_TOKEN = "ya29.valid-token";
+    private static final String REVOKED_TOKEN = "ya29.revoked-token";
+    private static final String BROKEN_TOKEN = "ya29.endpoint-fails";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Map<String, AtomicInteger> callsPerToken = new ConcurrentHashMap<>();
+    private volatile Duration responseDelay = Duration.ZERO;
+    private volatile long expiresIn = 600;
+
+    private DisposableServer server;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        // Stub del endpoint de tokeninfo de Google: 200 con expires_in, 400 para tokens revocados, 500 si falla
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post("/tokeninfo", (request, response) ->
+                        request.receive().aggregate().asString()
+                                .delayElement(responseDelay)
+                                .flatMap(form -> {
+                                    String token = URLDecoder.decode(form.substring(form.indexOf('=') + 1), StandardCharsets.UTF_8);
+                                    calls.incrementAndGet();
+                                    callsPerToken.computeIfAbsent(token, ignored -> new AtomicInteger()).incrementAndGet();
+                                    if (REVOKED_TOKEN.equals(token)) {
+                                        return response.status(HttpResponseStatus.BAD_REQUEST)
+                                                .sendString(Mono.just("{\"error\":\"invalid_token\"}")).then();
+                                    }
+                                    if (BROKEN_TOKEN.equals(token)) {
+                                        return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send().then();
+                                    }
+                                    return response.header("Content-Type", "application/json")
+                                            .sendString(Mono.just("{\"aud\":\"client\",\"expires_in\":\"" + expiresIn + "\"}")).then();
+                                })))
+                .bindNow();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    private RemoteTokenValidator validator(boolean failOpen) {
+        TokenValidationProperties properties = new TokenValidationProperties("remote",
+                URI.create("http://localhost:" + server.port() + "/tokeninfo"), "access_token",
+                Duration.ofSeconds(2), 100, Duration.ofMinutes(5), Duration.ofSeconds(30), failOpen);
+        return new RemoteTokenValidator(new GoogleOAuth2TokenValidator(), WebClient.create(), properties,
+                meterRegistry, nanos::get, clock());
+    }
+
+    private Clock clock() {
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.EPOCH.plusNanos(nanos.get());
+            }
+        };
+    }
+
+    /**
+     * Caffeine fija el vencimiento en un callback posterior a la entrega del resultado; se espera
+     * a que esté fijado antes de mover el reloj.
+     */
+    private static void awaitExpiry(RemoteTokenValidator validator, String token) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (validator.cachedTtl(token).compareTo(Duration.ofDays(1)) > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void validate_activeToken_shouldCallEndpointOnceUntilExpiry() {
+        expiresIn = 60;
+        RemoteTokenValidator validator = validator(true);
+
+        StepVerifier.create(validator.validate(VALID_TOKEN)).expectNext(true).verifyComplete();
+        awaitExpiry(validator, VALID_TOKEN);
+        advance(Duration.ofSeconds(59));
+        StepVerifier.create(validator.validate(VALID_TOKEN)).expectNext(true).verifyComplete();
+        assertEquals(1, calls.get());
+
+        advance(Duration.ofSeconds(2));
+        StepVerifier.create(validator.validate(VALID_TOKEN)).expectNext(true).verifyComplete();
+        assertEquals(2, calls.get());
+        assertEquals(2, meterRegistry.get(RemoteTokenValidator.INTROSPECTION_METRIC).tag("outcome", "active").timer().count());
+    }
+
+    @Test
+    void introspect_activeToken_shouldExposeRealExpiry() {
+        RemoteTokenValidator validator = validator(true);
+
+        StepVerifier.create(validator.introspect(VALID_TOKEN))
+                .expectNext(new TokenInfo(true, Instant.EPOCH.plusSeconds(600)))
+                .verifyComplete();
+    }
+
+    @Test
+    void validate_longLivedToken_shouldBeCappedByMaxCacheTtl() {
+        expiresIn = 3600;
+        RemoteTokenValidator validator = validator(true);
+
+        StepVerifier.create(validator.validate(VALID_TOKEN)).expectNext(true).verifyComplete();
+        awaitExpiry(validator, VALID_TOKEN);
+        advance(Duration.ofMinutes(5).plusSeconds(1));
+        StepVerifier.create(validator.validate(VALID_TOKEN)).expectNext(true).verifyComplete();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void validate_revokedToken_shouldReturnFalseAndCacheVerdict() {
+        RemoteTokenValidator validator = validator(true);
+
+        StepVerifier.create(validator.validate(REVOKED_TOKEN)).expectNext(false).verifyComplete();
+        StepVerifier.create(validator.validate(REVOKED_TOKEN)).expectNext(false).verifyComplete();
+        assertEquals(1, calls.get());
+
+        awaitExpiry(validator, REVOKED_TOKEN);
+        advance(Duration.ofSeconds(31));
+        StepVerifier.create(validator.validate(REVOKED_TOKEN)).expectNext(false).verifyComplete();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void validate_concurrentChecks_shouldBeCoalesced() {
+        responseDelay = Duration.ofMillis(200);
+        RemoteTokenValidator validator = validator(true);
+
+        List<Boolean> results = Flux.range(0, 20)
+                .flatMap(ignored -> validator.validate(VALID_TOKEN), 20)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(20, results.size());
+        assertTrue(results.stream().allMatch(Boolean::booleanValue));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void validate_malformedToken_shouldNotCallEndpoint() {
+        RemoteTokenValidator validator = validator(true);
+
+        StepVerifier.create(validator.validate("not-a-google-token")).expectNext(false).verifyComplete();
+        StepVerifier.create(validator.validate(null)).expectNext(false).verifyComplete();
+
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void validate_endpointError_failOpen_shouldAcceptAndNotCache() {
+        RemoteTokenValidator validator = validator(true);
+
+        StepVerifier.create(validator.validate(BROKEN_TOKEN)).expectNext(true).verifyComplete();
+        StepVerifier.create(validator.validate(BROKEN_TOKEN)).expectNext(true).verifyComplete();
+
+        assertEquals(2, callsPerToken.get(BROKEN_TOKEN).get());
+        assertEquals(0, validator.estimatedSize());
+        assertEquals(2, meterRegistry.get(RemoteTokenValidator.INTROSPECTION_METRIC).tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void validate_endpointError_failClosed_shouldReject() {
+        RemoteTokenValidator validator = validator(false);
+
+        StepVerifier.create(validator.validate(BROKEN_TOKEN)).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    void validate_slowEndpoint_shouldTimeOut() {
+        responseDelay = Duration.ofSeconds(3);
+        RemoteTokenValidator validator = validator(false);
+
+        long start = System.nanoTime();
+        StepVerifier.create(validator.validate(VALID_TOKEN)).expectNext(false).verifyComplete();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2900);
+    }
+
+    @Test
+    void hash_shouldNotExposeToken() {
+        String key = RemoteTokenValidator.hash(VALID_TOKEN);
+
+        assertEquals(64, key.length());
+        assertFalse(key.contains("ya29"));
+        assertEquals(key, RemoteTokenValidator.hash(VALID_TOKEN));
+    }
+}
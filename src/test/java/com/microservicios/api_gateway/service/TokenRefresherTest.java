@@ -0,0 +1,283 @@
+package com.microservicios.api_gateway.service;
+
+import com.microservicios.api_gateway.codec.MigratingSessionValueCodec;
+import com.microservicios.api_gateway.codec.SessionValueCodec;
+import com.microservicios.api_gateway.codec.SessionValueFormat;
+import com.microservicios.api_gateway.config.SessionRedisConfig;
+import com.microservicios.api_gateway.config.SessionRedisConnection;
+import com.microservicios.api_gateway.config.SessionRedisProperties;
+import com.microservicios.api_gateway.config.TokenRefreshProperties;
+import com.microservicios.api_gateway.repository.RedisSessionRepository;
+import com.microservicios.api_gateway.repository.SessionCredentials;
+import com.microservicios.api_gateway.repository.SessionTokenWriter;
+import com.microservicios.api_gateway.support.RespStubServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.data.redis.RedisConnectionDetails;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Renovación contra un endpoint de tokens stub y un Redis en memoria ({@link RespStubServer}).
+ */
+class TokenRefresherTest {
+
+    private static final String SESSION_ID = "3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b";
+    private static final String SESSION_KEY = "spring:session:sessions:" + SESSION_ID;
+    private static final String REVOKED_REFRESH_TOKEN = "1//revoked";
+
+    private static final SessionValueCodec CODEC = new MigratingSessionValueCodec(SessionValueFormat.JDK, true);
+
+    private final AtomicInteger endpointCalls = new AtomicInteger();
+    private volatile Duration endpointDelay = Duration.ZERO;
+    private volatile Runnable onEndpointCall = () -> {
+    };
+
+    private DisposableServer tokenEndpoint;
+    private RespStubServer redis;
+    private SessionRedisConnection connection;
+    private SimpleMeterRegistry meterRegistry;
+    private TokenRefresher refresher;
+
+    @BeforeEach
+    void setUp() {
+        // Stub del endpoint de tokens de Google: 400 invalid_grant para el refresh token revocado
+        tokenEndpoint = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post("/token", (request, response) ->
+                        request.receive().aggregate().asString()
+                                .delayElement(endpointDelay)
+                                .flatMap(form -> {
+                                    int call = endpointCalls.incrementAndGet();
+                                    onEndpointCall.run();
+                                    if (URLDecoder.decode(form, StandardCharsets.UTF_8).contains("refresh_token=" + REVOKED_REFRESH_TOKEN)) {
+                                        return response.status(HttpResponseStatus.BAD_REQUEST)
+                                                .sendString(Mono.just("{\"error\":\"invalid_grant\"}")).then();
+                                    }
+                                    return response.header("Content-Type", "application/json")
+                                            .sendString(Mono.just("{\"access_token\":\"ya29.refreshed-" + call
+                                                    + "\",\"expires_in\":3599,\"token_type\":\"Bearer\"}")).then();
+                                })))
+                .bindNow();
+        redis = RespStubServer.start()
+                .script(SessionTokenWriter.HSET_IF_EXISTS.getScriptAsString(), (stub, keys, args) -> {
+                    if (!stub.exists(keys.get(0))) {
+                        return 0;
+                    }
+                    for (int i = 0; i + 1 < args.size(); i += 2) {
+                        stub.hset(keys.get(0), new String(args.get(i), StandardCharsets.UTF_8), args.get(i + 1));
+                    }
+                    return 1;
+                });
+        connection = new SessionRedisConnection(connectionDetails(redis), false,
+                new SessionRedisProperties(Duration.ofSeconds(1), Duration.ofSeconds(1), true, 256, ""));
+        meterRegistry = new SimpleMeterRegistry();
+        refresher = refresher(new GoogleOAuth2TokenValidator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        connection.destroy();
+        redis.close();
+        tokenEndpoint.disposeNow();
+    }
+
+    private TokenRefresher refresher(TokenValidator tokenValidator) {
+        ReactiveRedisTemplate<String, byte[]> template = new SessionRedisConfig().sessionAttributeRedisTemplate(connection);
+        TokenRefreshProperties properties = new TokenRefreshProperties(true,
+                URI.create("http://localhost:" + tokenEndpoint.port() + "/token"), "client-id", "client-secret",
+                Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofSeconds(2), Duration.ofMinutes(30), Duration.ofMinutes(10), 1000, 4, false);
+        return new TokenRefresher(new RedisSessionRepository(template, CODEC, meterRegistry),
+                new SessionTokenWriter(template, CODEC),
+                new TokenRefreshClient(WebClient.create(), properties),
+                tokenValidator, null, properties, meterRegistry);
+    }
+
+    private static RedisConnectionDetails connectionDetails(RespStubServer redis) {
+        return new RedisConnectionDetails() {
+            @Override
+            public Standalone getStandalone() {
+                return Standalone.of(redis.host(), redis.port());
+            }
+        };
+    }
+
+    private SessionCredentials storeSession(String accessToken, String refreshToken, Instant expiresAt) {
+        redis.hset(SESSION_KEY, "sessionAttr:accessToken", CODEC.encode(accessToken))
+                .hset(SESSION_KEY, "sessionAttr:refreshToken", CODEC.encode(refreshToken));
+        if (expiresAt != null) {
+            redis.hset(SESSION_KEY, "sessionAttr:accessTokenExpiresAt", CODEC.encode(Long.toString(expiresAt.toEpochMilli())));
+        }
+        return new SessionCredentials(accessToken, refreshToken, expiresAt);
+    }
+
+    private String stored(String field) {
+        byte[] value = redis.hget(SESSION_KEY, field);
+        return value == null ? null : CODEC.decode(value);
+    }
+
+    private double refreshes(String outcome) {
+        return meterRegistry.get(TokenRefresher.REFRESH_METRIC).tag("outcome", outcome).counter().count();
+    }
+
+    private static Instant in(Duration duration) {
+        return Instant.now().plus(duration).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    @Test
+    void scan_tokenAboutToExpire_shouldRefreshAndWriteBackToSession() {
+        SessionCredentials credentials = storeSession("ya29.old", "1//refresh", in(Duration.ofMinutes(2)));
+        StepVerifier.create(refresher.onRequest(SESSION_ID, credentials)).expectNext(credentials).verifyComplete();
+
+        StepVerifier.create(refresher.scan()).verifyComplete();
+
+        assertEquals(1, endpointCalls.get());
+        assertEquals("ya29.refreshed-1", stored("sessionAttr:accessToken"));
+        assertEquals("1//refresh", stored("sessionAttr:refreshToken"));
+        Instant expiresAt = Instant.ofEpochMilli(Long.parseLong(stored("sessionAttr:accessTokenExpiresAt")));
+        assertTrue(expiresAt.isAfter(in(Duration.ofMinutes(59))), "expiresAt=" + expiresAt);
+        assertEquals(expiresAt, refresher.trackedExpiry(SESSION_ID));
+        assertEquals(1, refreshes("refreshed"));
+    }
+
+    @Test
+    void scan_tokenFarFromExpiry_shouldNotCallEndpoint() {
+        SessionCredentials credentials = storeSession("ya29.current", "1//refresh", in(Duration.ofMinutes(40)));
+        refresher.onRequest(SESSION_ID, credentials).block();
+
+        StepVerifier.create(refresher.scan()).verifyComplete();
+
+        assertEquals(0, endpointCalls.get());
+        assertEquals("ya29.current", stored("sessionAttr:accessToken"));
+    }
+
+    @Test
+    void onRequest_expiredToken_shouldForwardRefreshedCredentials() {
+        SessionCredentials credentials = storeSession("ya29.expired", "1//refresh", in(Duration.ofMinutes(-1)));
+
+        StepVerifier.create(refresher.onRequest(SESSION_ID, credentials))
+                .expectNextMatches(current -> current.accessToken().equals("ya29.refreshed-1")
+                        && current.refreshToken().equals("1//refresh"))
+                .verifyComplete();
+
+        assertEquals("ya29.refreshed-1", stored("sessionAttr:accessToken"));
+    }
+
+    @Test
+    void concurrentRefreshes_sameSession_shouldShareOneEndpointCall() {
+        SessionCredentials credentials = storeSession("ya29.expired", "1//refresh", in(Duration.ofMinutes(-1)));
+        endpointDelay = Duration.ofMillis(300);
+
+        List<SessionCredentials> results = Flux.merge(
+                        Flux.range(0, 10).map(ignored -> refresher.onRequest(SESSION_ID, credentials)).concatWith(
+                                Mono.just(refresher.scan().then(Mono.empty()))))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(1, endpointCalls.get());
+        assertEquals(10, results.size());
+        results.forEach(current -> assertEquals("ya29.refreshed-1", current.accessToken()));
+    }
+
+    @Test
+    void refresh_sessionDeletedDuringRefresh_shouldNotRecreateSession() {
+        SessionCredentials credentials = storeSession("ya29.old", "1//refresh", in(Duration.ofMinutes(2)));
+        refresher.onRequest(SESSION_ID, credentials).block();
+        // Logout mientras el endpoint de tokens responde
+        onEndpointCall = () -> redis.del(SESSION_KEY);
+
+        StepVerifier.create(refresher.scan()).verifyComplete();
+
+        assertEquals(1, endpointCalls.get());
+        assertFalse(redis.exists(SESSION_KEY));
+        assertNull(refresher.trackedExpiry(SESSION_ID));
+        assertEquals(1, refreshes("session_gone"));
+    }
+
+    @Test
+    void refresh_revokedRefreshToken_shouldKeepSessionAndStopTracking() {
+        SessionCredentials credentials = storeSession("ya29.old", REVOKED_REFRESH_TOKEN, in(Duration.ofMinutes(2)));
+        refresher.onRequest(SESSION_ID, credentials).block();
+
+        StepVerifier.create(refresher.scan()).verifyComplete();
+        StepVerifier.create(refresher.scan()).verifyComplete();
+
+        assertEquals(1, endpointCalls.get());
+        assertEquals("ya29.old", stored("sessionAttr:accessToken"));
+        assertNull(refresher.trackedExpiry(SESSION_ID));
+        assertEquals(1, refreshes("revoked"));
+    }
+
+    @Test
+    void onRequest_afterRevokedRefreshToken_shouldNotRetryUntilNewLogin() {
+        SessionCredentials credentials = storeSession("ya29.expired", REVOKED_REFRESH_TOKEN, in(Duration.ofMinutes(-1)));
+
+        StepVerifier.create(refresher.onRequest(SESSION_ID, credentials)).expectNext(credentials).verifyComplete();
+        StepVerifier.create(refresher.onRequest(SESSION_ID, credentials)).expectNext(credentials).verifyComplete();
+        StepVerifier.create(refresher.onRequest(SESSION_ID, credentials)).expectNext(credentials).verifyComplete();
+
+        assertEquals(1, endpointCalls.get());
+        assertEquals(1, refreshes("revoked"));
+        assertNull(refresher.trackedExpiry(SESSION_ID));
+
+        // Un nuevo login trae otro refresh token
+        SessionCredentials relogged = storeSession("ya29.expired", "1//refresh", in(Duration.ofMinutes(-1)));
+        StepVerifier.create(refresher.onRequest(SESSION_ID, relogged))
+                .expectNextMatches(current -> current.accessToken().equals("ya29.refreshed-2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void onRequest_unknownExpiry_shouldStoreExpiryFromValidator() {
+        Instant expiresAt = in(Duration.ofMinutes(45));
+        TokenValidator remoteValidator = new GoogleOAuth2TokenValidator() {
+            @Override
+            public Mono<TokenInfo> introspect(String token) {
+                return Mono.just(new TokenInfo(true, expiresAt));
+            }
+        };
+        TokenRefresher learning = refresher(remoteValidator);
+        SessionCredentials credentials = storeSession("ya29.current", "1//refresh", null);
+
+        StepVerifier.create(learning.onRequest(SESSION_ID, credentials)).expectNext(credentials).verifyComplete();
+
+        // La escritura del vencimiento no demora la petición
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (stored("sessionAttr:accessTokenExpiresAt") == null && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(Long.toString(expiresAt.toEpochMilli()), stored("sessionAttr:accessTokenExpiresAt"));
+        assertEquals(expiresAt, learning.trackedExpiry(SESSION_ID));
+        assertEquals(0, endpointCalls.get());
+    }
+
+    @Test
+    void onRequest_withoutRefreshToken_shouldNotTrackSession() {
+        SessionCredentials credentials = storeSession("ya29.old", "", in(Duration.ofMinutes(-1)));
+
+        StepVerifier.create(refresher.onRequest(SESSION_ID, credentials)).expectNext(credentials).verifyComplete();
+
+        assertNull(refresher.trackedExpiry(SESSION_ID));
+        assertEquals(0, endpointCalls.get());
+    }
+}
@@ -0,0 +1,266 @@
+package com.microservicios.api_gateway.support;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor RESP2 mínimo en memoria para tests: responde HGET, HMGET, HSET, EXISTS, PING, SELECT y AUTH sobre
+ * hashes precargados con {@link #hset}. Rechaza HELLO, así que Lettuce negocia RESP2.
+ * <p>
+ * No interpreta Lua: {@code EVAL} ejecuta la implementación en Java registrada para el script con
+ * {@link #script}, y {@code EVALSHA} responde {@code NOSCRIPT} para que el cliente reenvíe el script.
+ * <p>
+ * Como Redis, responde todos los comandos completos de una lectura del socket en una sola escritura;
+ * {@link #reads()} y {@link #commands()} permiten ver cuántos comandos llegaron agrupados.
+ */
+public final class RespStubServer implements AutoCloseable {
+
+    private final Map<String, Map<String, byte[]>> hashes = new ConcurrentHashMap<>();
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private volatile Duration latency = Duration.ZERO;
+    private final DisposableServer server;
+
+    private RespStubServer() {
+        this.server = TcpServer.create()
+                .host("localhost")
+                .port(0)
+                .handle((inbound, outbound) -> {
+                    RespParser parser = new RespParser();
+                    return outbound.sendByteArray(inbound.receive().asByteArray()
+                            .concatMap(chunk -> {
+                                reads.incrementAndGet();
+                                byte[] replies = replies(parser.feed(chunk));
+                                Duration delay = latency;
+                                return delay.isZero() ? Mono.just(replies) : Mono.delay(delay).thenReturn(replies);
+                            }));
+                })
+                .bindNow();
+    }
+
+    public static RespStubServer start() {
+        return new RespStubServer();
+    }
+
+    public String host() {
+        return server.host();
+    }
+
+    public int port() {
+        return server.port();
+    }
+
+    public RespStubServer hset(String key, String field, byte[] value) {
+        hashes.computeIfAbsent(key, ignored -> new ConcurrentHashMap<>()).put(field, value);
+        return this;
+    }
+
+    public byte[] hget(String key, String field) {
+        Map<String, byte[]> hash = hashes.get(key);
+        return hash == null ? null : hash.get(field);
+    }
+
+    public boolean exists(String key) {
+        return hashes.containsKey(key);
+    }
+
+    public RespStubServer del(String key) {
+        hashes.remove(key);
+        return this;
+    }
+
+    /**
+     * Registra cómo responder {@code EVAL} con el código {@code source}.
+     */
+    public RespStubServer script(String source, Script script) {
+        scripts.put(source, script);
+        return this;
+    }
+
+    /**
+     * Demora aplicada a cada lectura antes de responder (simula un Redis lento).
+     */
+    public RespStubServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public long reads() {
+        return reads.get();
+    }
+
+    public long commands() {
+        return commands.get();
+    }
+
+    public void resetCounters() {
+        reads.set(0);
+        commands.set(0);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private byte[] replies(List<List<byte[]>> received) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (List<byte[]> command : received) {
+            commands.incrementAndGet();
+            reply(command, out);
+        }
+        return out.toByteArray();
+    }
+
+    private void reply(List<byte[]> command, ByteArrayOutputStream out) {
+        String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "PING" -> simple(out, "+PONG");
+            case "SELECT", "AUTH", "CLIENT" -> simple(out, "+OK");
+            case "HGET" -> bulk(out, field(command, 1, 2));
+            case "HMGET" -> {
+                int fields = command.size() - 2;
+                simple(out, "*" + fields);
+                for (int i = 0; i < fields; i++) {
+                    bulk(out, field(command, 1, i + 2));
+                }
+            }
+            case "HSET" -> {
+                String key = new String(command.get(1), StandardCharsets.UTF_8);
+                long added = 0;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    if (hashes.computeIfAbsent(key, ignored -> new ConcurrentHashMap<>())
+                            .put(new String(command.get(i), StandardCharsets.UTF_8), command.get(i + 1)) == null) {
+                        added++;
+                    }
+                }
+                simple(out, ":" + added);
+            }
+            case "EXISTS" -> simple(out, exists(new String(command.get(1), StandardCharsets.UTF_8)) ? ":1" : ":0");
+            case "EVALSHA" -> simple(out, "-NOSCRIPT No matching script. Please use EVAL.");
+            case "EVAL" -> eval(command, out);
+            default -> simple(out, "-ERR unknown command '" + name + "'");
+        }
+    }
+
+    private void eval(List<byte[]> command, ByteArrayOutputStream out) {
+        Script script = scripts.get(new String(command.get(1), StandardCharsets.UTF_8));
+        if (script == null) {
+            simple(out, "-ERR script not registered in stub");
+            return;
+        }
+        int keyCount = Integer.parseInt(new String(command.get(2), StandardCharsets.US_ASCII));
+        List<String> keys = new ArrayList<>(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            keys.add(new String(command.get(3 + i), StandardCharsets.UTF_8));
+        }
+        simple(out, ":" + script.run(this, keys, command.subList(3 + keyCount, command.size())));
+    }
+
+    private byte[] field(List<byte[]> command, int keyIndex, int fieldIndex) {
+        Map<String, byte[]> hash = hashes.get(new String(command.get(keyIndex), StandardCharsets.UTF_8));
+        return hash == null ? null : hash.get(new String(command.get(fieldIndex), StandardCharsets.UTF_8));
+    }
+
+    private static void simple(ByteArrayOutputStream out, String line) {
+        out.writeBytes((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void bulk(ByteArrayOutputStream out, byte[] value) {
+        if (value == null) {
+            simple(out, "$-1");
+            return;
+        }
+        simple(out, "$" + value.length);
+        out.writeBytes(value);
+        out.writeBytes(new byte[] {'\r', '\n'});
+    }
+
+    /**
+     * Equivalente en Java de un script Lua que devuelve un entero.
+     */
+    @FunctionalInterface
+    public interface Script {
+        long run(RespStubServer redis, List<String> keys, List<byte[]> args);
+    }
+
+    /**
+     * Parser incremental de arrays RESP ({@code *N\r\n$len\r\n...}); conserva los bytes de un
+     * comando incompleto hasta la siguiente lectura.
+     */
+    private static final class RespParser {
+
+        private byte[] pending = new byte[0];
+
+        List<List<byte[]>> feed(byte[] chunk) {
+            byte[] buffer = new byte[pending.length + chunk.length];
+            System.arraycopy(pending, 0, buffer, 0, pending.length);
+            System.arraycopy(chunk, 0, buffer, pending.length, chunk.length);
+
+            List<List<byte[]>> parsed = new ArrayList<>();
+            int position = 0;
+            while (true) {
+                int end = parseCommand(buffer, position, parsed);
+                if (end < 0) {
+                    break;
+                }
+                position = end;
+            }
+            pending = Arrays.copyOfRange(buffer, position, buffer.length);
+            return parsed;
+        }
+
+        private static int parseCommand(byte[] buffer, int start, List<List<byte[]>> parsed) {
+            if (start >= buffer.length || buffer[start] != '*') {
+                return -1;
+            }
+            int lineEnd = lineEnd(buffer, start);
+            if (lineEnd < 0) {
+                return -1;
+            }
+            int count = Integer.parseInt(new String(buffer, start + 1, lineEnd - start - 1, StandardCharsets.US_ASCII));
+            int position = lineEnd + 2;
+            List<byte[]> arguments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (position >= buffer.length || buffer[position] != '$') {
+                    return -1;
+                }
+                int headerEnd = lineEnd(buffer, position);
+                if (headerEnd < 0) {
+                    return -1;
+                }
+                int length = Integer.parseInt(new String(buffer, position + 1, headerEnd - position - 1, StandardCharsets.US_ASCII));
+                int dataStart = headerEnd + 2;
+                if (dataStart + length + 2 > buffer.length) {
+                    return -1;
+                }
+                arguments.add(Arrays.copyOfRange(buffer, dataStart, dataStart + length));
+                position = dataStart + length + 2;
+            }
+            parsed.add(arguments);
+            return position;
+        }
+
+        private static int lineEnd(byte[] buffer, int from) {
+            for (int i = from; i < buffer.length - 1; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.microservicios.api_gateway.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microservicios.api_gateway.constants.AuthenticationConstants;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorResponseBuilderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void buildErrorResponse_constantMessage_shouldWriteUtf8JsonWithContentLength() throws Exception {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+
+        StepVerifier.create(ErrorResponseBuilder.buildErrorResponse(response, HttpStatus.UNAUTHORIZED,
+                AuthenticationConstants.MSG_SESSION_NOT_IN_REDIS)).verifyComplete();
+
+        byte[] body = response.getBodyAsString().block().getBytes(StandardCharsets.UTF_8);
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+        assertEquals("application/json", response.getHeaders().getFirst("Content-Type"));
+        assertEquals(body.length, response.getHeaders().getContentLength());
+        JsonNode json = objectMapper.readTree(body);
+        assertFalse(json.get("success").asBoolean());
+        assertEquals(AuthenticationConstants.MSG_SESSION_NOT_IN_REDIS, json.get("message").asText());
+    }
+
+    @Test
+    void buildErrorResponse_dynamicMessage_shouldEscapeJson() throws Exception {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        String message = "Token \"inválido\"\n\\ fin";
+
+        StepVerifier.create(ErrorResponseBuilder.buildErrorResponse(response, HttpStatus.FORBIDDEN, message))
+                .verifyComplete();
+
+        JsonNode json = objectMapper.readTree(response.getBodyAsString().block());
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        assertEquals(message, json.get("message").asText());
+    }
+
+    @Test
+    void buildErrorResponse_calledTwice_shouldNotDuplicateContentType() {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        response.getHeaders().add("Content-Type", "text/plain");
+
+        ErrorResponseBuilder.buildErrorResponse(response, HttpStatus.UNAUTHORIZED,
+                AuthenticationConstants.MSG_SESSION_INVALID).block();
+
+        assertEquals(1, response.getHeaders().get("Content-Type").size());
+    }
+
+    @Test
+    void encodeBody_nonAsciiMessage_shouldUseUtf8() {
+        byte[] body = ErrorResponseBuilder.encodeBody("Sesión");
+
+        assertEquals("{\"success\": false, \"message\": \"Sesión\"}", new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void encodeBody_nullMessage_shouldWriteEmptyMessage() {
+        assertEquals("{\"success\": false, \"message\": \"\"}",
+                new String(ErrorResponseBuilder.encodeBody(null), StandardCharsets.UTF_8));
+    }
+}
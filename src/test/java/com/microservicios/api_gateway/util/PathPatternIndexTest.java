@@ -0,0 +1,96 @@
+package com.microservicios.api_gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathPatternIndexTest {
+
+    @Test
+    void matches_exactPath_shouldReturnTrue() {
+        assertTrue(PathPatternIndex.compile("/api/auth/login").matches("/api/auth/login"));
+    }
+
+    @Test
+    void matches_exactPath_shouldReturnFalse() {
+        PathPatternIndex index = PathPatternIndex.compile("/api/auth/logout");
+        assertFalse(index.matches("/api/auth/login"));
+        assertFalse(index.matches("/api/auth/logout/extra"));
+        assertFalse(index.matches("/api/auth"));
+    }
+
+    @Test
+    void matches_wildcardPattern_shouldMatchPrefix() {
+        PathPatternIndex index = PathPatternIndex.compile("/api/auth/**");
+        assertTrue(index.matches("/api/auth/login"));
+        assertTrue(index.matches("/api/auth/logout"));
+        assertTrue(index.matches("/api/auth/google/callback"));
+    }
+
+    @Test
+    void matches_wildcardPattern_shouldNotMatchDifferentPrefix() {
+        assertFalse(PathPatternIndex.compile("/api/auth/**").matches("/api/user/profile"));
+        assertFalse(PathPatternIndex.compile("/api/**").matches("/user/test"));
+    }
+
+    @Test
+    void matches_nullPath_shouldReturnFalse() {
+        assertFalse(PathPatternIndex.compile("/api/**").matches(null));
+    }
+
+    @Test
+    void compile_nullOrEmptyPatterns_shouldMatchNothing() {
+        assertFalse(PathPatternIndex.compile((List<String>) null).matches("/api/test"));
+        assertFalse(PathPatternIndex.compile(List.of()).matches("/api/test"));
+        assertFalse(PathPatternIndex.EMPTY.matches(""));
+    }
+
+    @Test
+    void matches_rootWildcard_shouldMatchAll() {
+        PathPatternIndex index = PathPatternIndex.compile("/**");
+        assertTrue(index.matches("/anything"));
+        assertTrue(index.matches("/api/test"));
+    }
+
+    @Test
+    void matches_exactAndWildcardSharingPrefix_shouldMatchBoth() {
+        PathPatternIndex index = PathPatternIndex.compile("/api/auth/logout", "/api/user/**", "/api/auth/debug");
+        assertTrue(index.matches("/api/auth/logout"));
+        assertTrue(index.matches("/api/auth/debug"));
+        assertTrue(index.matches("/api/user/42"));
+        assertFalse(index.matches("/api/auth/me"));
+    }
+
+    @Test
+    void matches_hundredsOfPatterns_shouldAgreeWithPathMatcher() {
+        Random random = new Random(42);
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String path = randomPath(random);
+            patterns.add(random.nextBoolean() ? path + "/**" : path);
+        }
+        PathPatternIndex index = PathPatternIndex.compile(patterns);
+
+        for (int i = 0; i < 5_000; i++) {
+            String requestPath = random.nextInt(4) == 0
+                    ? patterns.get(random.nextInt(patterns.size())).replace("/**", "/x")
+                    : randomPath(random);
+            boolean expected = patterns.stream().anyMatch(pattern -> PathMatcher.matches(requestPath, pattern));
+            assertEquals(expected, index.matches(requestPath), requestPath);
+        }
+    }
+
+    private static String randomPath(Random random) {
+        String[] segments = {"api", "auth", "user", "project", "ws", "drive", "tasks", "v1", "me", "a"};
+        StringBuilder path = new StringBuilder();
+        int depth = 1 + random.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            path.append('/').append(segments[random.nextInt(segments.length)]);
+        }
+        return path.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.microservicios.api_gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensitiveDataMaskerTest {
+
+    @Test
+    void mask_longToken_shouldKeepPrefixAndLength() {
+        assertEquals("ya29.a…[20]", SensitiveDataMasker.mask("ya29.abcdefghijklmno"));
+    }
+
+    @Test
+    void mask_shortValue_shouldHideEverything() {
+        assertEquals("…[4]", SensitiveDataMasker.mask("abcd"));
+    }
+
+    @Test
+    void mask_null_shouldReturnNullLiteral() {
+        assertEquals("null", SensitiveDataMasker.mask(null));
+    }
+}
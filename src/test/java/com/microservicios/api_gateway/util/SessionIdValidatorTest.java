@@ -0,0 +1,45 @@
+package com.microservicios.api_gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionIdValidatorTest {
+
+    @Test
+    void isWellFormed_springSessionUuid_shouldReturnTrue() {
+        assertTrue(SessionIdValidator.isWellFormed("3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b"));
+    }
+
+    @Test
+    void isWellFormed_upperCaseUuid_shouldReturnTrue() {
+        assertTrue(SessionIdValidator.isWellFormed("3F2B7C1E-8A4D-4E5F-9B6A-1C2D3E4F5A6B"));
+    }
+
+    @Test
+    void isWellFormed_wrongLength_shouldReturnFalse() {
+        assertFalse(SessionIdValidator.isWellFormed("3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6"));
+        assertFalse(SessionIdValidator.isWellFormed("3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6b0"));
+    }
+
+    @Test
+    void isWellFormed_misplacedDash_shouldReturnFalse() {
+        assertFalse(SessionIdValidator.isWellFormed("3f2b7c1e8-a4d-4e5f-9b6a-1c2d3e4f5a6b"));
+    }
+
+    @Test
+    void isWellFormed_nonHexCharacter_shouldReturnFalse() {
+        assertFalse(SessionIdValidator.isWellFormed("3f2b7c1e-8a4d-4e5f-9b6a-1c2d3e4f5a6z"));
+        assertFalse(SessionIdValidator.isWellFormed("' OR 1=1 --aaaaaaaaaaaaaaaaaaaaaaaaa"));
+    }
+
+    @Test
+    void isWellFormed_null_shouldReturnFalse() {
+        assertFalse(SessionIdValidator.isWellFormed(null));
+    }
+
+    @Test
+    void isWellFormed_empty_shouldReturnFalse() {
+        assertFalse(SessionIdValidator.isWellFormed(""));
+    }
+}
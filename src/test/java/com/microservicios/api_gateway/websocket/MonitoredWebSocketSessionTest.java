@@ -0,0 +1,153 @@
+package com.microservicios.api_gateway.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MonitoredWebSocketSessionTest {
+
+    private static final Duration PING_INTERVAL = Duration.ofMillis(100);
+
+    private final Sinks.Many<WebSocketMessage> inbound = Sinks.many().unicast().onBackpressureBuffer();
+    private final List<WebSocketMessage> sent = new CopyOnWriteArrayList<>();
+    private final AtomicReference<CloseStatus> closedWith = new AtomicReference<>();
+    private final Sinks.Empty<Void> closed = Sinks.empty();
+
+    private SimpleMeterRegistry meterRegistry;
+    private WebSocketRouteConnections route;
+    private WebSocketSession delegate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        route = new WebSocketRouteConnections("websocket", meterRegistry);
+        delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("session-1");
+        when(delegate.receive()).thenReturn(inbound.asFlux());
+        when(delegate.send(any())).thenAnswer(invocation -> {
+            Publisher<WebSocketMessage> messages = invocation.getArgument(0);
+            return Flux.from(messages).doOnNext(sent::add).then();
+        });
+        when(delegate.pingMessage(any())).thenAnswer(invocation -> message(WebSocketMessage.Type.PING, ""));
+        when(delegate.close(any())).thenAnswer(invocation -> {
+            closedWith.set(invocation.getArgument(0));
+            closed.tryEmitEmpty();
+            return Mono.empty();
+        });
+    }
+
+    private static WebSocketMessage message(WebSocketMessage.Type type, String payload) {
+        return new WebSocketMessage(type, DefaultDataBufferFactory.sharedInstance.wrap(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private double counter(String name, String tag, String value) {
+        return meterRegistry.get(name).tags("route", "websocket", tag, value).counter().count();
+    }
+
+    @Test
+    void receive_shouldCountDataFramesAndDropPongs() {
+        MonitoredWebSocketSession session = new MonitoredWebSocketSession(delegate, route, Duration.ofMinutes(1), PING_INTERVAL);
+
+        inbound.tryEmitNext(message(WebSocketMessage.Type.TEXT, "hola"));
+        inbound.tryEmitNext(message(WebSocketMessage.Type.PONG, ""));
+        inbound.tryEmitNext(message(WebSocketMessage.Type.BINARY, "123456"));
+        inbound.tryEmitComplete();
+
+        StepVerifier.create(session.receive().map(WebSocketMessage::getType))
+                .expectNext(WebSocketMessage.Type.TEXT, WebSocketMessage.Type.BINARY)
+                .verifyComplete();
+        assertEquals(2, counter(WebSocketRouteConnections.FRAMES_METRIC, "direction", "inbound"));
+        assertEquals(10, counter(WebSocketRouteConnections.BYTES_METRIC, "direction", "inbound"));
+    }
+
+    @Test
+    void send_activeConnection_shouldInterleavePingsAndCountOnlyData() {
+        MonitoredWebSocketSession session = new MonitoredWebSocketSession(delegate, route, Duration.ofMinutes(1), PING_INTERVAL);
+        // El cliente responde cada ping
+        Flux<WebSocketMessage> upstream = Flux.interval(Duration.ofMillis(40))
+                .take(10)
+                .doOnNext(tick -> inbound.tryEmitNext(message(WebSocketMessage.Type.PONG, "")))
+                .map(tick -> message(WebSocketMessage.Type.TEXT, "evento"));
+        session.receive().subscribe();
+
+        StepVerifier.create(session.send(upstream))
+                .verifyComplete();
+
+        long pings = sent.stream().filter(message -> message.getType() == WebSocketMessage.Type.PING).count();
+        assertTrue(pings >= 2, "pings=" + pings);
+        assertEquals(10, counter(WebSocketRouteConnections.FRAMES_METRIC, "direction", "outbound"));
+        assertEquals(60, counter(WebSocketRouteConnections.BYTES_METRIC, "direction", "outbound"));
+        assertNull(closedWith.get());
+    }
+
+    @Test
+    void send_noDataWithinIdleTimeout_shouldCloseAsIdle() {
+        MonitoredWebSocketSession session = new MonitoredWebSocketSession(delegate, route, Duration.ofMillis(250), PING_INTERVAL);
+        // Sólo pongs: el cliente está vivo pero no hay datos
+        Flux.interval(Duration.ofMillis(50)).take(20)
+                .subscribe(tick -> inbound.tryEmitNext(message(WebSocketMessage.Type.PONG, "")));
+        session.receive().subscribe();
+
+        Disposable sending = session.send(Flux.never()).subscribe();
+        closed.asMono().block(Duration.ofSeconds(5));
+        sending.dispose();
+
+        assertEquals(MonitoredWebSocketSession.IDLE_TIMEOUT, closedWith.get());
+        assertEquals(1, counter(WebSocketRouteConnections.TIMEOUTS_METRIC, "reason", "idle"));
+    }
+
+    @Test
+    void send_clientNotAnsweringPings_shouldCloseAsPingTimeout() {
+        MonitoredWebSocketSession session = new MonitoredWebSocketSession(delegate, route, Duration.ofMinutes(1), PING_INTERVAL);
+        // El destino sigue enviando datos, pero del cliente no llega nada
+        Flux<WebSocketMessage> upstream = Flux.interval(Duration.ofMillis(20))
+                .map(tick -> message(WebSocketMessage.Type.TEXT, "evento"));
+        session.receive().subscribe();
+
+        Disposable sending = session.send(upstream).subscribe();
+        closed.asMono().block(Duration.ofSeconds(5));
+        sending.dispose();
+
+        assertEquals(MonitoredWebSocketSession.PING_TIMEOUT, closedWith.get());
+        assertEquals(1, counter(WebSocketRouteConnections.TIMEOUTS_METRIC, "reason", "ping"));
+        assertEquals(0, counter(WebSocketRouteConnections.TIMEOUTS_METRIC, "reason", "idle"));
+    }
+
+    @Test
+    void open_aboveMaxConnections_shouldRejectUntilReleased() {
+        WebSocketConnection first = route.open(2, Duration.ofMinutes(1), PING_INTERVAL);
+        WebSocketConnection second = route.open(2, Duration.ofMinutes(1), PING_INTERVAL);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(route.open(2, Duration.ofMinutes(1), PING_INTERVAL));
+        assertEquals(2, route.active());
+
+        first.releaseIfNotUpgraded();
+        first.releaseIfNotUpgraded();
+
+        assertEquals(1, route.active());
+        assertNotNull(route.open(2, Duration.ofMinutes(1), PING_INTERVAL));
+        assertEquals(1, meterRegistry.get(WebSocketRouteConnections.REJECTED_METRIC).counter().count());
+    }
+}